@@ -43,6 +43,7 @@ abstract class ABenchmark {
 	}
 
 	@Macrobenchmark
+	@OperationsPerInvocation( "10000" )
 	long macroIterative() {
 		final AOperation operation = this.operation;
 		int number = this.number;
@@ -55,6 +56,7 @@ abstract class ABenchmark {
 	}
 
 	@Macrobenchmark
+	@OperationsPerInvocation( "10000" )
 	long macroRecursive() {
 		AOperation operation = this.operation;
 		int number = this.number;
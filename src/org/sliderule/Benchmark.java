@@ -39,7 +39,13 @@ import java.lang.annotation.Target;
  * argument representing a number of repetitions to perform in a given execution. It is critical
  * that the work done in the benchmark method scale linearly to the number of repetitions.
  *
- * <p>Benchmark methods may return any value. It will be ignored.
+ * <p>Benchmark methods may also take a {@link org.sliderule.api.BenchmarkTimer}, and pause it to
+ * exclude per-rep setup, such as re-shuffling an array before sorting it, from the measurement.
+ *
+ * <p>Benchmark methods may return any value. It will be ignored, unless it is a
+ * {@link java.util.concurrent.CompletionStage}, a {@link java.util.concurrent.Future}, or a
+ * {@link java.util.concurrent.Flow.Publisher}, in which case the method is timed until the result
+ * completes (see {@link org.sliderule.api.Async}).
  *
  * <p>This class is instantiated and injected only once per child VM invocation, to measure one
  * particular combination of parameters.
@@ -29,7 +29,9 @@ import java.lang.annotation.Target;
  *
  * <ul>
  * <li>The command line, if specified using {@code -Dname=value1,value2,value3}
- * <li>Otherwise, the {@link #value()} list given in the annotation
+ * <li>Otherwise, the {@link #value()} list given in the annotation, followed by any values generated
+ *     by {@link org.sliderule.api.ParamRange}, {@link org.sliderule.api.ParamGeometric} or
+ *     {@link org.sliderule.api.ParamFile}
  * <li>Otherwise, if the parameter type is either {@code boolean} or an {@code enum} type, SlideRule
  *     assumes you want all possible values.
  * <li>Finally, if none of the above match, SlideRule will display an error and exit.
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.sliderule.api;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Apply this annotation to a numeric {@link org.sliderule.Param} field to have SlideRule measure
+ * additional values of the parameter, between those listed in the {@code Param} annotation, where
+ * the results are most interesting. After every listed value has been measured, intervals are
+ * repeatedly bisected, first where two benchmark methods of the same kind trade places, and then
+ * where the measured curve changes slope the most.
+ *
+ * <p>Refinement stops after {@link #budget()} additional values, or when no interval is wider
+ * than {@link #resolution()}. The budget and resolution may be overridden on the command line with
+ * {@code -Cadaptive.budget=16} and {@code -Cadaptive.resolution=0.5}.
+ *
+ * <p>Refinement adds scenarios while the benchmark is running, so it is only enabled for the fields
+ * that carry this annotation. For example, to measure up to 12 more sizes between 1 and
+ * 1000000: <pre>   {@code
+ *   @Param({ "1", "1000" })
+ *   @AdaptiveSweep(min = 1, max = 1000000, budget = 12)
+ *   int size;
+ * }</pre>
+ */
+@Retention(RUNTIME)
+@Target(FIELD)
+public @interface AdaptiveSweep {
+
+  /** The smallest value to measure. By default, the smallest value listed in {@code Param}. */
+  double min() default Double.NaN;
+
+  /** The largest value to measure. By default, the largest value listed in {@code Param}. */
+  double max() default Double.NaN;
+
+  /** Intervals that are no wider than this are not bisected. */
+  double resolution() default 1;
+
+  /** The maximum number of additional values to measure, for each combination of the other parameters. */
+  int budget() default 8;
+}
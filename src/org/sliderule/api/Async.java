@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.sliderule.api;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * A {@link org.sliderule.Benchmark} or {@link Macrobenchmark} method that returns a
+ * {@link java.util.concurrent.CompletionStage} (e.g. a
+ * {@link java.util.concurrent.CompletableFuture}), a {@link java.util.concurrent.Future}, or a
+ * {@link java.util.concurrent.Flow.Publisher} is asynchronous: it is timed until the result
+ * completes, or until the publisher completes after delivering its last element, rather than until
+ * the method returns. Each trial also reports the number of {@code elements} delivered (1 per
+ * completed future) and {@code elements_per_s}. Apply this annotation to such a method to change
+ * how it is awaited.
+ *
+ * <p>By default, a macrobenchmark has one operation in flight at a time. With
+ * {@code inflight = "N"}, each trial issues {@link Macrobenchmark#batch()} invocations, keeping
+ * up to N of them outstanding, and records the completion latency of each, from its invocation
+ * to its completion: <pre>   {@code
+ *   @Param({"1", "16", "256"})
+ *   int inflight;
+ *
+ *   @Macrobenchmark(batch = 1000)
+ *   @Async(inflight = "inflight")
+ *   CompletableFuture<Response> send() {
+ *     return client.sendAsync(request);
+ *   }
+ * }</pre>
+ *
+ * <p>A {@code Future} that is not a {@code CompletionStage} can only be awaited by blocking, so
+ * it is awaited as soon as it is returned.
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface Async {
+
+  /**
+   * The maximum number of outstanding invocations of a {@link Macrobenchmark}. Either the name of
+   * a numeric {@link org.sliderule.Param} field, or a positive integer.
+   */
+  String inflight() default "1";
+
+  /**
+   * The number of elements requested from a {@code Flow.Publisher} at a time, or {@code 0} to
+   * request all of them at once.
+   */
+  long request() default 0;
+
+  /** How long to wait for each result, in milliseconds. */
+  long timeout() default 60000;
+}
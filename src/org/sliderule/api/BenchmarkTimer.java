@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.sliderule.api;
+
+/**
+ * A handle for excluding work from the timed region of a benchmark method. A
+ * {@link org.sliderule.Benchmark} or {@link Macrobenchmark} method that declares a parameter of
+ * this type receives a timer from SlideRule, and may {@link #pause()} it while it does work that
+ * should not be measured, such as restoring state that the previous rep consumed.
+ *
+ * <p>The time between {@link #pause()} and {@link #resume()} is subtracted from the elapsed time
+ * of the call, as is the calibrated overhead of each pair of calls, which is reported as the
+ * {@code timer_overhead_ns} measurement. Pausing still costs a few tens of nanoseconds that cannot
+ * be subtracted precisely, so it is only suitable when the work being excluded is larger than
+ * that. A timer that is still paused when the method returns is resumed implicitly.
+ *
+ * <p>For example: <pre>   {@code
+ *   @Benchmark void sort(int reps, BenchmarkTimer timer) {
+ *     for (int i = 0; i < reps; i++) {
+ *       timer.pause();
+ *       System.arraycopy(shuffled, 0, array, 0, array.length);
+ *       timer.resume();
+ *       Arrays.sort(array);
+ *     }
+ *   }
+ * }</pre>
+ */
+public interface BenchmarkTimer {
+
+  /**
+   * Stop timing.
+   *
+   * @throws IllegalStateException if the timer is already paused
+   */
+  void pause();
+
+  /**
+   * Resume timing.
+   *
+   * @throws IllegalStateException if the timer is not paused
+   */
+  void resume();
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.sliderule.api;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Apply this annotation to a {@link org.sliderule.BeforeExperiment} method whose results only
+ * depend on some of the {@link org.sliderule.Param} fields, to have SlideRule reuse them for every
+ * combination of parameters with the same values of those fields, rather than calling the method
+ * again.
+ *
+ * <p>The results of the method are the fields of the benchmark class that it changes. They are
+ * cached after the method is called, and are restored instead of calling the method when the
+ * {@link #value() parameters} it depends on have values that were seen before. The least-recently
+ * used results are discarded once their total size exceeds the budget, which is a quarter of the
+ * maximum heap size by default and may be set on the command line with
+ * {@code -Cfixture.cache.bytes=4000000000}. The size of the results is estimated by walking the
+ * objects that they refer to.
+ *
+ * <p>The method must assign new objects to the fields that it sets, rather than refilling the
+ * arrays or collections that they already refer to, since those may be the cached results of an
+ * earlier call. If the contents of an array, collection or map change but the field still refers
+ * to the same object, the results are not cached.
+ *
+ * <p>Cached results are shared between scenarios, so they must not be modified by benchmark methods,
+ * nor released by {@link org.sliderule.AfterExperiment} methods.
+ *
+ * <p>For example: <pre>   {@code
+ *   @Param({ "1000", "1000000" }) int size;
+ *   @Param({ "1", "2", "4", "8" }) int threads;
+ *   int[] data;
+ *
+ *   @BeforeExperiment
+ *   @CachedFixture("size")
+ *   void generate() {
+ *     data = new Random(0).ints(size).toArray();
+ *   }
+ * }</pre>
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface CachedFixture {
+
+  /** The names of the parameters on which the results of the method depend. */
+  String[] value() default {};
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.sliderule.api;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Apply this annotation to a {@link Macrobenchmark} method to run it concurrently. Each trial
+ * starts {@link #concurrency()} invocations at once, each in its own thread, and every thread
+ * then performs {@link Macrobenchmark#batch()} invocations back to back. The latency of each
+ * invocation is recorded in a {@link org.sliderule.stats.LatencyHistogram}, and each trial also
+ * reports its throughput, {@code invocations_per_s} (and {@code ops_per_s}, if the method is
+ * annotated with {@link OperationsPerInvocation}).
+ *
+ * <p>With {@code virtualThreads = true}, each invocation runs in its own virtual thread, where
+ * the VM supports them, and each trial also reports the number of times that a virtual thread
+ * was pinned to its carrier, {@code pinned_events}, and for how long, {@code pinned_ns}, as
+ * recorded by Java Flight Recorder. Otherwise, a pool of {@code concurrency} platform threads is
+ * used, so the two may be compared directly by making {@code virtualThreads} the only
+ * difference between two methods.
+ *
+ * <p>For example: <pre>   {@code
+ *   @Param({"10", "100", "1000", "10000"})
+ *   int clients;
+ *
+ *   @Macrobenchmark
+ *   @Concurrent(concurrency = "clients", virtualThreads = true)
+ *   void fetch() throws IOException {
+ *     client.get(uri);
+ *   }
+ * }</pre>
+ *
+ * <p>{@link BeforeRep} and {@link AfterRep} methods are run once around each trial, since
+ * invocations overlap.
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface Concurrent {
+
+  /**
+   * The number of concurrent invocations. Either the name of a numeric
+   * {@link org.sliderule.Param} field, or a positive integer.
+   */
+  String concurrency();
+
+  /** Run each invocation in its own virtual thread, where the VM supports them. */
+  boolean virtualThreads() default false;
+}
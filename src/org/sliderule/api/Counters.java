@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.sliderule.api;
+
+/**
+ * A handle through which a benchmark method reports the work that it did, so that SlideRule can
+ * derive throughput measurements. A {@link org.sliderule.Benchmark} or {@link Macrobenchmark}
+ * method that declares a parameter of this type receives counters from SlideRule, which are reset
+ * before every trial.
+ *
+ * <p>Each trial in which bytes were counted reports {@code bytes} and {@code mb_per_s} (where
+ * 1 MB is 10<sup>6</sup> bytes), and each trial in which items were counted reports {@code items}
+ * and {@code items_per_s}, over the timed region of every call in the trial. Counting costs one
+ * addition, so it may be done inside the timed region.
+ *
+ * <p>For example: <pre>   {@code
+ *   @Benchmark long encode(int reps, Counters counters) {
+ *     long dummy = 0;
+ *     for (int i = 0; i < reps; i++) {
+ *       dummy += codec.encode(input, output);
+ *       counters.addBytes(input.length);
+ *     }
+ *     return dummy;
+ *   }
+ * }</pre>
+ */
+public interface Counters {
+
+  /**
+   * Count bytes processed.
+   *
+   * @param n the number of bytes
+   */
+  void addBytes(long n);
+
+  /**
+   * Count items (e.g. records or messages) processed.
+   *
+   * @param n the number of items
+   */
+  void addItems(long n);
+}
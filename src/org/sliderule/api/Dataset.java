@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.sliderule.api;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Apply this annotation to a {@link java.nio.ByteBuffer} or {@link java.nio.MappedByteBuffer}
+ * field to have SlideRule inject a read-only, memory-mapped dataset into it before any
+ * {@link org.sliderule.BeforeExperiment} method is called.
+ *
+ * <p>The dataset is written by the {@link #generator()} the first time it is needed, to a file in
+ * the {@code datasets} subdirectory of the SlideRule data directory (see {@code --directory}),
+ * named after the generator, the seed, and the values of the {@link #params() parameters} it
+ * depends on. Subsequent runs, and other processes running at the same time, map the same file,
+ * so they share the page cache rather than each generating and holding a private copy. Each
+ * scenario receives its own view of the buffer, positioned at the start.
+ *
+ * <p>For example: <pre>   {@code
+ *   @Param({ "1000000", "100000000" }) int size;
+ *
+ *   @Dataset(generator = RandomInts.class, params = "size")
+ *   ByteBuffer data;
+ * }</pre>
+ */
+@Retention(RUNTIME)
+@Target(FIELD)
+public @interface Dataset {
+
+  /** The class that writes the dataset. */
+  Class<? extends DatasetGenerator> generator();
+
+  /** The names of the parameters on which the dataset depends. */
+  String[] params() default {};
+
+  /** The seed for any pseudo-random number generator. */
+  long seed() default 0;
+}
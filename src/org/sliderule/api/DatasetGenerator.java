@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.sliderule.api;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Interface for generating the contents of a {@link Dataset}. Implementations must have a public
+ * constructor without parameters, and must write the same bytes for the same parameters and seed,
+ * since a dataset is only generated once and then shared between runs and processes.
+ */
+public interface DatasetGenerator {
+
+  /**
+   * Write a dataset.
+   *
+   * @param params the value of each parameter listed in {@link Dataset#params()}, by name
+   * @param seed the seed for any pseudo-random number generator
+   * @param out where to write the dataset, which is buffered
+   */
+  void generate(Map<String, Object> params, long seed, OutputStream out) throws IOException;
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.sliderule.api;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Apply this annotation to a benchmark class to measure only a subset of the combinations of its
+ * {@link org.sliderule.Param} values, rather than every combination. This is useful when a class
+ * has many parameters, since the number of combinations grows multiplicatively with each one.
+ *
+ * <p>The design may be overridden on the command line with {@code -Cdesign.mode=covering},
+ * {@code -Cdesign.strength=2}, {@code -Cdesign.samples=100} and {@code -Cdesign.seed=1}.
+ */
+@Retention(RUNTIME)
+@Target(TYPE)
+public @interface Design {
+
+  enum Mode {
+    /** Every combination of parameter values. */
+    FULL,
+    /**
+     * A covering array of the given {@link Design#strength() strength} t, in which every
+     * combination of values of any t parameters appears in at least one row.
+     */
+    COVERING,
+    /**
+     * A Latin hypercube of {@link Design#samples() samples} rows, in which the values of each
+     * parameter are spread as evenly as possible.
+     */
+    LATIN_HYPERCUBE,
+    /** A uniformly random sample of {@link Design#samples() samples} distinct rows. */
+    RANDOM,
+  }
+
+  /** The kind of design. */
+  Mode value() default Mode.FULL;
+
+  /** For {@link Mode#COVERING}, the number of parameters whose interactions must be covered. */
+  int strength() default 2;
+
+  /**
+   * For {@link Mode#LATIN_HYPERCUBE} and {@link Mode#RANDOM}, the number of rows. By default, the
+   * largest number of values of any one parameter.
+   */
+  int samples() default 0;
+
+  /** The seed for the pseudo-random number generator, so that designs are repeatable. */
+  long seed() default 0;
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.sliderule.api;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Apply this annotation to several {@link Macrobenchmark} methods to run them concurrently, as
+ * one unit, rather than one after the other, e.g. to measure a queue with writers and readers at
+ * the same time. Each method is a role of the group, and is invoked in a loop, for the duration
+ * of each trial, by its own {@link GroupThreads} threads. Every invocation is timed.
+ *
+ * <p>For example, 3 writers and 1 reader: <pre>   {@code
+ *   @Param({"1", "3"})
+ *   int writers;
+ *
+ *   @Macrobenchmark
+ *   @Group("queue")
+ *   @GroupThreads("writers")
+ *   void offer() {
+ *     queue.offer(item);
+ *   }
+ *
+ *   @Macrobenchmark
+ *   @Group("queue")
+ *   void poll() {
+ *     queue.poll();
+ *   }
+ * }</pre>
+ *
+ * <p>The group is reported as one trial, named after its first method in alphabetical order.
+ * Its {@code elapsed_time_ns} and latency percentiles cover every invocation of every role. The
+ * measurements of each role are prefixed with the name of its method, e.g.
+ * {@code offer_invocations_per_s} and {@code poll_latency_p99_ns}. A method that blocks (e.g.
+ * {@code take()} on an empty queue) is interrupted once the trial is over.
+ * {@link BeforeRep} and {@link AfterRep} methods are run once around each trial.
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface Group {
+
+  /** The name of the group. */
+  String value();
+
+  /**
+   * The duration of each trial, in milliseconds. If the methods of a group disagree, the longest
+   * is used.
+   */
+  long duration() default 1000;
+
+  /**
+   * The number of trials. If the methods of a group disagree, the largest is used.
+   */
+  int trials() default 5;
+}
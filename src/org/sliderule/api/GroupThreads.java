@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.sliderule.api;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Apply this annotation to a method of a {@link Group} to set the number of threads that invoke
+ * it. Without it, a role of a group has 1 thread.
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface GroupThreads {
+
+  /**
+   * The number of threads. Either the name of a numeric {@link org.sliderule.Param} field, so
+   * that it can be swept like any other parameter, or a positive integer.
+   */
+  String value() default "1";
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.sliderule.api;
+
+import java.util.*;
+
+/**
+ * A fixed, pre-generated pool of inputs for a benchmark method, so that each rep may use a
+ * different input without generating it in the timed region. Passing the same input to every rep
+ * allows the branch predictor and the JIT's value profiling to specialize on it, which makes
+ * results optimistic.
+ *
+ * <p>The size of the pool is always a power of two, so that {@link #get(int)} only needs to mask
+ * the index, and the pool is filled by a seeded {@link Random}, so that runs are repeatable. The
+ * size of the pool is often a parameter of its own: a pool of one input measures the predictable
+ * case, and a pool larger than the branch history measures the unpredictable case.
+ *
+ * <p>Pools are usually injected by SlideRule (see {@link Inputs}), but may also be created in a
+ * {@link org.sliderule.BeforeExperiment} method. For example: <pre>   {@code
+ *   @Param({ "1", "4096" }) int pool;
+ *
+ *   @Inputs(generator = "nextNumber", size = "pool")
+ *   InputPool<Integer> numbers;
+ *
+ *   Integer nextNumber(Random random) {
+ *     return random.nextInt(20);
+ *   }
+ *
+ *   @Benchmark long iterative(int reps) {
+ *     long dummy = 0;
+ *     for (int i = 0; i < reps; i++) {
+ *       dummy |= operation.iterative(numbers.get(i));
+ *     }
+ *     return dummy;
+ *   }
+ * }</pre>
+ */
+public final class InputPool<T> {
+
+  /** Generates the inputs of a pool. */
+  public interface Generator<T> {
+    /**
+     * @param random the seeded source of randomness for the pool
+     * @param index the index of the input in the pool
+     * @return the input
+     */
+    T next(Random random, int index);
+  }
+
+  private final Object[] inputs;
+  private final int mask;
+
+  private InputPool(Object[] inputs) {
+    this.inputs = inputs;
+    this.mask = inputs.length - 1;
+  }
+
+  /**
+   * Generate a pool.
+   *
+   * @param size the minimum number of inputs, which is rounded up to a power of two
+   * @param seed the seed for the pseudo-random number generator passed to {@code generator}
+   * @param generator generates each input
+   */
+  public static <T> InputPool<T> generate(int size, long seed, Generator<T> generator) {
+    if (size < 1 || size > 1 << 30) {
+      throw new IllegalArgumentException("invalid pool size " + size);
+    }
+    int n = Integer.highestOneBit(size);
+    n = n == size ? n : n << 1;
+    Object[] inputs = new Object[n];
+    Random random = new Random(seed);
+    for (int i = 0; i < n; i++) {
+      inputs[i] = generator.next(random, i);
+    }
+    return new InputPool<T>(inputs);
+  }
+
+  /**
+   * Get an input. Any index may be used, e.g. the rep number, since it wraps around the pool.
+   *
+   * @param index the index
+   * @return the input at {@code index} modulo {@link #size()}
+   */
+  @SuppressWarnings("unchecked")
+  public T get(int index) {
+    return (T) inputs[index & mask];
+  }
+
+  /** The number of inputs in the pool, which is a power of two. */
+  public int size() {
+    return inputs.length;
+  }
+}
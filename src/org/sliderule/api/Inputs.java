@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.sliderule.api;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Apply this annotation to an {@link InputPool} field to have SlideRule fill it before any
+ * {@link org.sliderule.BeforeExperiment} method is called, by calling the named
+ * {@link #generator()} method of the benchmark class once for each input. The generator is called
+ * after the parameters have been injected, so inputs may depend on them.
+ */
+@Retention(RUNTIME)
+@Target(FIELD)
+public @interface Inputs {
+
+  /**
+   * The name of a method of the benchmark class that takes a {@link java.util.Random}, and
+   * optionally the {@code int} index of the input, and returns one input.
+   */
+  String generator();
+
+  /**
+   * The number of inputs, which is rounded up to a power of two. Either the name of an integral
+   * {@link org.sliderule.Param} field, or an integer.
+   */
+  String size() default "1024";
+
+  /** The seed for the pseudo-random number generator. */
+  long seed() default 0;
+}
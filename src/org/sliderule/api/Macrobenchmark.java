@@ -30,7 +30,17 @@ import java.lang.annotation.Target;
  * <p>Additionally, since each rep is independently timed, setup and tear down logic can be
  * performed in between each using the {@link BeforeRep} and {@link AfterRep} annotations
  * respectively.
+ *
+ * <p>Each trial normally consists of a single invocation. With {@code batch = K}, each trial
+ * consists of K invocations instead, with {@link BeforeRep} and {@link AfterRep} methods run,
+ * untimed, around each one. The latency of every invocation is recorded in a
+ * {@link org.sliderule.stats.LatencyHistogram}, and each trial reports the mean and the
+ * percentiles of its K invocations, so the statistical model and the latency distribution both
+ * converge with far fewer trials.
  */
 @Retention(RUNTIME)
 @Target(METHOD)
-public @interface Macrobenchmark {}
+public @interface Macrobenchmark {
+  /** The number of invocations per trial. */
+  int batch() default 1;
+}
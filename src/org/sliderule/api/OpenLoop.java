@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.sliderule.api;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Apply this annotation to a {@link Macrobenchmark} method to drive it open-loop, at a constant
+ * arrival rate, rather than closed-loop. A closed-loop benchmark only starts an invocation when
+ * the previous one has returned, so a slow invocation also delays the ones after it, and the
+ * time that they would have spent waiting is never measured (coordinated omission). In
+ * open-loop mode, invocation {@code i} of each trial is scheduled to start at
+ * {@code i / rate} seconds, and is dispatched to a pool of threads. Its latency is measured from
+ * that intended start, so it includes any time spent queued behind slower invocations.
+ *
+ * <p>Each trial reports the {@code target_rate}, the {@code achieved_rate}, and the percentiles
+ * of latency from the intended start ({@code latency_p99_ns}, etc.) and of service time from the
+ * actual start ({@code service_p99_ns}, etc.). The trial is {@code saturated} when the threads
+ * could not keep up with the target rate. {@link BeforeRep} and {@link AfterRep} methods are not
+ * run, since invocations overlap.
+ *
+ * <p>To find the saturation knee, sweep the rate as a parameter: <pre>   {@code
+ *   @Param
+ *   @ParamGeometric(from = 1000, to = 64000)
+ *   double rate;
+ *
+ *   @Macrobenchmark
+ *   @OpenLoop(rate = "rate", threads = "8")
+ *   void request() {
+ *     service.handle(request);
+ *   }
+ * }</pre>
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface OpenLoop {
+
+  /**
+   * The target arrival rate, in invocations per second. Either the name of a numeric
+   * {@link org.sliderule.Param} field, or a positive number.
+   */
+  String rate();
+
+  /**
+   * The number of platform threads that invoke the method. Either the name of a numeric
+   * {@link org.sliderule.Param} field, or an integer. {@code 0} means one per available
+   * processor.
+   */
+  String threads() default "0";
+
+  /**
+   * Run each invocation in its own virtual thread instead, where the VM supports them. Otherwise,
+   * {@link #threads()} platform threads are used.
+   */
+  boolean virtualThreads() default false;
+
+  /** The duration of each trial, in milliseconds. */
+  long duration() default 1000;
+
+  /** The number of trials. */
+  int trials() default 5;
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.sliderule.api;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Apply this annotation to a {@link org.sliderule.Benchmark} or {@link Macrobenchmark} method to
+ * declare how many logical operations each rep (or, for a macrobenchmark, each invocation)
+ * performs, e.g. the number of iterations of an inner loop. SlideRule then also reports the time
+ * per operation, {@code ns_per_op}, and the throughput, {@code ops_per_s}, so that results are
+ * comparable between benchmarks that do different amounts of work per call.
+ *
+ * <p>For example: <pre>   {@code
+ *   @Macrobenchmark
+ *   @OperationsPerInvocation("10000")
+ *   long macroIterative() {
+ *     long dummy = 0L;
+ *     for (int i = 0; i < 10000; i++) {
+ *       dummy += operation.iterative(number);
+ *     }
+ *     return dummy;
+ *   }
+ * }</pre>
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface OperationsPerInvocation {
+
+  /**
+   * The number of operations. Either the name of a numeric {@link org.sliderule.Param} field, or
+   * a positive integer.
+   */
+  String value();
+}
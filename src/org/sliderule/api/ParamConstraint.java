@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.sliderule.api;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Apply this annotation to any method without parameters that returns {@code boolean} to exclude
+ * combinations of {@link org.sliderule.Param} values for which it returns {@code false}. The method
+ * is called after the parameters have been injected, but before any
+ * {@link org.sliderule.BeforeExperiment} method, so it must only depend on the values of the
+ * parameters. If a class has several such methods, every one of them must return {@code true}.
+ *
+ * <p>Excluded combinations are removed before any benchmark is run, so they are not set up, and do
+ * not count towards the number of benchmarks or the estimated time remaining. Compare with
+ * {@link SkipThisScenarioException}, which may only be thrown once the scenario has been set up.
+ *
+ * <p>For example: <pre>   {@code
+ *   @Param({ "1", "10", "100" }) int size;
+ *   @Param({ "1", "10", "100" }) int window;
+ *
+ *   @ParamConstraint boolean windowFits() {
+ *     return window <= size;
+ *   }
+ * }</pre>
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface ParamConstraint {}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.sliderule.api;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Apply this annotation to a {@link org.sliderule.Param} field to have it take the values listed
+ * in a file, one per line, in addition to any values listed in the {@code Param} annotation. Blank
+ * lines and lines beginning with {@code #} are ignored, and surrounding whitespace is removed.
+ *
+ * <p>For example: <pre>   {@code
+ *   @Param
+ *   @ParamFile("data/urls.txt")
+ *   String url;
+ * }</pre>
+ */
+@Retention(RUNTIME)
+@Target(FIELD)
+public @interface ParamFile {
+
+  /**
+   * The path of the file, which is resolved against the working directory if relative. The file
+   * is read with UTF-8 encoding.
+   */
+  String value();
+}
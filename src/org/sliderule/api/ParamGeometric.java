@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.sliderule.api;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Apply this annotation to a numeric {@link org.sliderule.Param} field to have it take every value
+ * in a geometric progression, from {@link #from()} to {@link #to()} inclusive, in addition to any
+ * values listed in the {@code Param} annotation. Values of integral parameters are rounded, and
+ * duplicates are removed.
+ *
+ * <p>For example, to sweep input sizes from 1 to 2<sup>24</sup>: <pre>   {@code
+ *   @Param
+ *   @ParamGeometric(from = 1, to = 1 << 24)
+ *   int size;
+ * }</pre>
+ */
+@Retention(RUNTIME)
+@Target(FIELD)
+public @interface ParamGeometric {
+
+  /** The first value, which must be positive. */
+  double from();
+
+  /** The last value, which is included if it falls on a step. */
+  double to();
+
+  /** The ratio of adjacent values, which must be greater than 1. */
+  double factor() default 2;
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.sliderule.api;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Apply this annotation to a numeric {@link org.sliderule.Param} field to have it take every value
+ * in an arithmetic progression, from {@link #from()} to {@link #to()} inclusive, in addition to any
+ * values listed in the {@code Param} annotation. Values of integral parameters are truncated, and
+ * duplicates are removed.
+ *
+ * <p>For example: <pre>   {@code
+ *   @Param
+ *   @ParamRange(from = 0, to = 100, step = 10)
+ *   int percent;
+ * }</pre>
+ */
+@Retention(RUNTIME)
+@Target(FIELD)
+public @interface ParamRange {
+
+  /** The first value. */
+  double from();
+
+  /** The last value, which is included if it falls on a step. */
+  double to();
+
+  /** The difference between adjacent values, which must be positive. */
+  double step() default 1;
+}
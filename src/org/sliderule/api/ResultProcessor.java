@@ -24,6 +24,10 @@ import java.io.*;
 /**
  * Interface for processing results as they complete. Callers must invoke {@link #close()} after
  * all trials have been {@linkplain #processTrial processed}.
+ *
+ * <p>Implementations may defer work, e.g. by buffering or by handing trials off to another thread,
+ * but {@link #close()} must not return until every trial previously passed to
+ * {@link #processTrial} has been fully processed.
  */
 public interface ResultProcessor extends Closeable {
   void processTrial(Trial trial);
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.model;
+
+import java.lang.reflect.*;
+import java.util.concurrent.*;
+
+/**
+ * <p><b>Converters</b></p>
+ *
+ * <p>This class converts {@link String}s to values of other types, e.g. to inject
+ * {@link org.sliderule.Param} values. The conversion for each type is looked up reflectively once,
+ * and then cached, so that converting many values of the same type does not repeatedly search
+ * the methods and constructors of that type.</p>
+ *
+ * <p>Conversions are looked up in the following order.
+ *
+ * <ol>
+ *   <li>Primitive types, their wrappers, and {@link String}</li>
+ *   <li>{@code enum} types, by constant name</li>
+ *   <li>A static {@code fromString(String)}, {@code decode(String)} or {@code valueOf(String)}
+ *       method that returns the type</li>
+ *   <li>A public constructor accepting only a {@code String}</li>
+ * </ol>
+ *
+ * For reference types, the strings {@code "null"} and {@code "(null)"} are converted to
+ * {@code null}.</p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ */
+public final class Converters {
+
+	/**
+	 * A conversion from {@link String} to one type.
+	 */
+	public interface Converter {
+		Object convert( String s )
+		throws InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException;
+	}
+
+	private static final ConcurrentHashMap<Class<?>,Converter> cache = new ConcurrentHashMap<Class<?>,Converter>();
+
+	private static final String[] factory_methods = { "fromString", "decode", "valueOf" };
+
+	private Converters() {}
+
+	/**
+	 * Register the conversion for a type, replacing any existing conversion.
+	 * @param klass the type
+	 * @param c the conversion
+	 */
+	public static void register( Class<?> klass, Converter c ) {
+		cache.put( klass, c );
+	}
+
+	/**
+	 * Get the conversion for a type.
+	 * @param klass the type
+	 * @return the conversion
+	 */
+	public static Converter forType( Class<?> klass ) {
+		Converter c = cache.get( klass );
+		if ( null == c ) {
+			c = create( klass );
+			Converter prev = cache.putIfAbsent( klass, c );
+			if ( null != prev ) {
+				c = prev;
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * Convert a string to a value of the given type.
+	 * @param klass the type
+	 * @param s the string
+	 * @return the value
+	 */
+	public static Object convert( Class<?> klass, String s )
+	throws InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException
+	{
+		return forType( klass ).convert( s );
+	}
+
+	private static boolean isNull( String s ) {
+		return null == s || "null".equals( s ) || "(null)".equals( s );
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static Converter create( final Class<?> klass ) {
+
+		if ( Byte.class == klass || byte.class == klass ) {
+			return new Converter() {
+				@Override
+				public Object convert( String s ) {
+					return Byte.parseByte( s );
+				}
+			};
+		}
+		if ( Short.class == klass || short.class == klass ) {
+			return new Converter() {
+				@Override
+				public Object convert( String s ) {
+					return Short.parseShort( s );
+				}
+			};
+		}
+		if ( Integer.class == klass || int.class == klass ) {
+			return new Converter() {
+				@Override
+				public Object convert( String s ) {
+					return Integer.parseInt( s );
+				}
+			};
+		}
+		if ( Long.class == klass || long.class == klass ) {
+			return new Converter() {
+				@Override
+				public Object convert( String s ) {
+					return Long.parseLong( s );
+				}
+			};
+		}
+		if ( Float.class == klass || float.class == klass ) {
+			return new Converter() {
+				@Override
+				public Object convert( String s ) {
+					return Float.parseFloat( s );
+				}
+			};
+		}
+		if ( Double.class == klass || double.class == klass ) {
+			return new Converter() {
+				@Override
+				public Object convert( String s ) {
+					return Double.parseDouble( s );
+				}
+			};
+		}
+		if ( Boolean.class == klass || boolean.class == klass ) {
+			return new Converter() {
+				@Override
+				public Object convert( String s ) {
+					return Boolean.parseBoolean( s );
+				}
+			};
+		}
+		if ( Character.class == klass || char.class == klass ) {
+			return new Converter() {
+				@Override
+				public Object convert( String s ) {
+					return s.charAt( 0 );
+				}
+			};
+		}
+		if ( String.class == klass ) {
+			return new Converter() {
+				@Override
+				public Object convert( String s ) {
+					return s;
+				}
+			};
+		}
+
+		if ( klass.isEnum() ) {
+			return new Converter() {
+				@Override
+				public Object convert( String s ) {
+					return isNull( s ) ? null : Enum.valueOf( (Class) klass, s );
+				}
+			};
+		}
+
+		for( String name: factory_methods ) {
+			try {
+				final Method m = klass.getMethod( name, String.class );
+				if ( Modifier.isStatic( m.getModifiers() ) && klass.isAssignableFrom( m.getReturnType() ) ) {
+					m.setAccessible( true );
+					return new Converter() {
+						@Override
+						public Object convert( String s )
+						throws IllegalAccessException, IllegalArgumentException, InvocationTargetException
+						{
+							return isNull( s ) ? null : m.invoke( null, s );
+						}
+					};
+				}
+			} catch ( NoSuchMethodException | SecurityException e ) {
+			}
+		}
+
+		try {
+			final Constructor<?> c = klass.getConstructor( String.class );
+			c.setAccessible( true );
+			return new Converter() {
+				@Override
+				public Object convert( String s )
+				throws InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException
+				{
+					return isNull( s ) ? null : c.newInstance( s );
+				}
+			};
+		} catch ( NoSuchMethodException | SecurityException e ) {
+		}
+
+		return new Converter() {
+			@Override
+			public Object convert( String s ) {
+				if ( isNull( s ) ) {
+					return null;
+				}
+				throw new IllegalArgumentException( "cannot convert '" + s + "' to " + klass.getName() );
+			}
+		};
+	}
+}
@@ -34,48 +34,16 @@ public final class PolymorphicType implements Comparable<PolymorphicType> {
 		}
 	}
 
+	/**
+	 * Convert a string to a value of the given type (see {@link Converters}).
+	 * @param klass the type
+	 * @param s the string
+	 * @return the value
+	 */
 	public static PolymorphicType infer( Class<?> klass, String s )
 	throws InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException
 	{
-
-		PolymorphicType pmt = null;
-		Object o = null;
-
-		if ( Byte.class == klass || byte.class == klass ) {
-			o = new Byte( Byte.parseByte( s ) );
-		} else if ( Short.class == klass || short.class == klass ) {
-			o = new Short( Short.parseShort( s ) );
-		} else if ( Integer.class == klass || int.class == klass ) {
-			o = new Integer( Integer.parseInt( s ) );
-		} else if ( Long.class == klass || long.class == klass ) {
-			o = new Long( Long.parseLong( s ) );
-		} else if ( Float.class == klass || float.class == klass ) {
-			o = new Float( Float.parseFloat( s ) );
-		} else if ( Double.class == klass || double.class == klass ) {
-			o = new Double( Double.parseDouble( s ) );
-		} else if ( Character.class == klass || char.class == klass ) {
-			o = new Character( s.charAt( 0 ) );
-		} else if ( String.class == klass ) {
-			o = s;
-		} else {
-			// special case if s == null or s.equals( "(null)" )
-			if ( null == s || "null".equals( s ) || "(null)".equals( s ) ) {
-				o = null;
-			} else {
-				// some other type of object
-				// must provide a constructor that accepts a single String argument
-				Constructor<?>[] cs = klass.getConstructors();
-				for( Constructor<?> c: cs ) {
-					Class<?>[] p = c.getParameterTypes();
-					if ( 1 == p.length && java.lang.String.class == p[0] ) {
-						c.setAccessible( true );
-						o = c.newInstance( s );
-					}
-				}
-			}
-		}
-		pmt = new PolymorphicType( klass, o );
-		return pmt;
+		return new PolymorphicType( klass, Converters.convert( klass, s ) );
 	}
 
 	@SuppressWarnings({ "rawtypes", "unchecked" })
@@ -99,6 +67,10 @@ public final class PolymorphicType implements Comparable<PolymorphicType> {
 					klass = Float.class;
 				} else if ( double.class == klass ) {
 					klass = Double.class;
+				} else if ( boolean.class == klass ) {
+					klass = Boolean.class;
+				} else if ( char.class == klass ) {
+					klass = Character.class;
 				}
 			}
 			if ( Number.class.isAssignableFrom( klass ) ) {
@@ -154,6 +126,16 @@ public final class PolymorphicType implements Comparable<PolymorphicType> {
 		return 0 == compareTo( pmt );
 	}
 
+	@Override
+	public int hashCode() {
+		// must agree with compareTo(), which only considers the value of primitives, numbers and Comparables
+		int r = klass.hashCode();
+		if ( null != value && ( klass.isPrimitive() || Number.class.isAssignableFrom( klass ) || Comparable.class.isAssignableFrom( klass ) ) ) {
+			r = 31 * r + value.hashCode();
+		}
+		return r;
+	}
+
 	@Override
 	public String toString() {
 		return "" + klass.getName() + ":" + ( null == value ? "(null)" : "" + value );
@@ -53,14 +53,27 @@ public class Algorithm {
 	final Context context;
 	final ArrayList<ClassAndInstance> alcai;
 	Field[] param_fields;
-	PolymorphicType[][] param_values;
+	ParameterSpace param_space;
 
+	// progress, for ETA calculation
+	long benchmark;
+	long total_number_of_benchmarks;
+	final OnlineStatistics eta_data = new OnlineStatistics();
+	final FixtureCache fixtures;
+	final DatasetStore datasets;
+	final CacheFlusher flusher;
+	final RawSampleRecorder raw;
 
-	private Algorithm( Arguments arguments, Context context ) {
+
+	Algorithm( Arguments arguments, Context context ) {
 		this.arguments = arguments;
 		this.context = context;
 		this.alcai = new ArrayList<ClassAndInstance>();
 		MAX_TRIALS = MIN_TRIALS * arguments.max_trials;
+		fixtures = FixtureCache.forConfig( arguments.config_properties );
+		datasets = new DatasetStore( new File( arguments.directory, "datasets" ) );
+		flusher = CacheFlusher.forConfig( arguments.config_properties );
+		raw = RawSampleRecorder.forConfig( arguments.config_properties, arguments.directory );
 	}
 
 	private static class ClassAndInstance {
@@ -82,7 +95,7 @@ public class Algorithm {
 			System.err.println( "DEBUG: " + o );
 		}
 	}
-	private static void D( Object o ) {
+	static void D( Object o ) {
 		Dn( 0, o );
 	}
 	private static void D1( Object o ) {
@@ -105,58 +118,25 @@ public class Algorithm {
 		return result;
 	}
 
-	@SuppressWarnings("unchecked")
+	/**
+	 * Materialize the Euclidean product of the values of {@code param_fields}.
+	 * Prefer {@link ParameterSpace}, which computes rows on demand.
+	 * @param param_fields the parameters
+	 * @return every permutation of parameter values
+	 */
 	public static PolymorphicType[][] permute( Field[] param_fields )
 	throws InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException
 	{
-		int np = param_fields.length;
-
-		Class<?>[] type = new Class<?>[ np ];
-		ArrayList<PolymorphicType>[] values = new ArrayList[ np ];
-		int[] cardinality = new int[ np ];
-
-		// calculate the number of permutations, record cardinality of each param
-		for( int i=0; i < np; i++ ) {
-
-			Field f = param_fields[ i ];
-
-			type[ i ] = f.getType();
-
-			Param param = f.getAnnotation( org.sliderule.Param.class );
-			List<String> value_string = Arrays.asList( param.value() );
-			values[ i ] = new ArrayList<PolymorphicType>();
-			for( String s: value_string ) {
-				PolymorphicType pmt = PolymorphicType.infer( type[ i ], s );
-				values[ i ].add( pmt );
-			}
-			cardinality[ i ] = value_string.size();
-		}
-
-		int nrows = euprod( cardinality );
-		int ncols = cardinality.length;
-		PolymorphicType[][] param_values = new PolymorphicType[ nrows ][ ncols ];
-
-		for( int col=0; col < ncols; col++ ) {
-			int val = 0;
-			int reps = euprod( cardinality, col );
-			for( int row=0; row < nrows; row++ ) {
-				param_values[ row ][ col ] = values[ col ].get( val );
-				if ( 0 == ( (row+1) % reps ) ) {
-					val++;
-					val %= cardinality[ col ];
-				}
-			}
-		}
-		return param_values;
+		return ParameterSpace.of( param_fields ).toArray();
 	}
 
 	private void permute()
 	throws InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException
 	{
-		param_values = permute( param_fields );
+		param_space = ParameterSpace.of( param_fields );
 	}
 
-	private void setup()
+	void setup()
 	throws InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException
 	{
 		for( SlideRuleAnnotations ac: context.getAnnotatedClasses() ) {
@@ -180,23 +160,87 @@ public class Algorithm {
  *      Warm-up the JVM / JIT (trigger tier1/2 compiler, inlining, ... )
  *############################################################################*/
 
-	private static final int N_WARMUP_REPS;
+	private static final String warmup_window_property = "warmup.window";
+	private static final String warmup_max_ms_property = "warmup.max.ms";
+	private static final int WARMUP_WINDOW = 20;
+	private static final long WARMUP_MAX_MS = 10000;
+	private static final long WARMUP_BATCH_NS = 1000000;
+
+	private static final class Warmup {
+		SteadyState ss;
+		TimeSeries curve = new TimeSeries();
+		// batches before the number of reps per batch was fixed
+		int growth;
+		long reps;
+		long ns;
+		int batches() {
+			return ss.isSteady() ? growth + ss.warmup() : curve.size();
+		}
+	}
 
-	static {
-		int n_warmup_reps = 10;
-		try {
-			if ( VM.getUseCompiler() ) {
-				n_warmup_reps += VM.getCompileThreshold();
-				if ( VM.getTieredCompilation() ) {
-					n_warmup_reps += VM.getTier2CompileThreshold();
-				}
-			}
-			if ( VM.getInline() ) {
-				n_warmup_reps += VM.getMinInliningThreshold();
+	/**
+	 * Warm up a microbenchmark method until its time per rep stops trending.
+	 *
+	 * <p>The method is called in batches, whose number of reps doubles until a batch takes at
+	 * least {@link #WARMUP_BATCH_NS}. From then on, the number of reps is fixed, and the time per
+	 * rep of each batch is tested for a trend with a sliding-window
+	 * {@link SteadyState Mann-Kendall} test. Warm-up ends once the last
+	 * {@code -Cwarmup.window} batches (default {@value #WARMUP_WINDOW}) show no trend, after at
+	 * least twice that many batches, or after {@code -Cwarmup.max.ms} milliseconds (default
+	 * {@value #WARMUP_MAX_MS}).</p>
+	 * @param o the instance under test
+	 * @param m the microbenchmark method
+	 * @return the result of the warm-up
+	 */
+	private Warmup warmup( Object o, Method m )
+	throws IllegalAccessException, IllegalArgumentException, InvocationTargetException
+	{
+		int window = WARMUP_WINDOW;
+		long max_ns = WARMUP_MAX_MS * 1000000L;
+		if ( arguments.config_properties.containsKey( warmup_window_property ) ) {
+			window = Integer.parseInt( arguments.config_properties.getProperty( warmup_window_property ).trim() );
+		}
+		if ( arguments.config_properties.containsKey( warmup_max_ms_property ) ) {
+			max_ns = 1000000L * Long.parseLong( arguments.config_properties.getProperty( warmup_max_ms_property ).trim() );
+		}
+
+		Warmup r = new Warmup();
+		r.ss = new SteadyState( window, P_CONFIDENCE );
+		int batch = 1;
+		boolean fixed = false;
+		SimpleBenchmarkTimer timer = new SimpleBenchmarkTimer();
+		Object[] args = args( m, batch, timer );
+		for( ; r.ns < max_ns && ! ( r.ss.isSteady() && r.ss.size() >= 2 * window ); ) {
+			long elapsed_ns = time( m, o, args, timer );
+			r.ns += elapsed_ns;
+			r.reps += batch;
+			r.curve.add( (double) elapsed_ns / batch );
+			// the time per rep of batches of different sizes is not comparable
+			fixed = fixed || elapsed_ns >= WARMUP_BATCH_NS || batch >= MAX_REPS_FOR_STABLE_REPS;
+			if ( fixed ) {
+				r.ss.update( (double) elapsed_ns / batch );
+			} else {
+				r.growth++;
+				batch *= 2;
+				args = args( m, batch, timer );
 			}
-		} catch ( Throwable t ) {
 		}
-		N_WARMUP_REPS = n_warmup_reps;
+
+		String m_name = "" + m;
+		String[] m_name_split = m_name.split( " throws" );
+		if ( r.ss.isSteady() ) {
+			D( "warmed up method " + m_name_split[ 0 ] + " with " + r.reps + " calls in " + r.curve.size() + " batches; steady after " + r.batches() + " batches" );
+		} else {
+			D( "method " + m_name_split[ 0 ] + " did not reach a steady state after " + r.reps + " calls in " + r.curve.size() + " batches" );
+		}
+		return r;
+	}
+
+	private static void addWarmupMeasurements( SimpleTrial st, Warmup w ) {
+		st.addMeasurement( new SimpleMeasurement( "warmup_batches", new PolymorphicType( int.class, w.batches() ) ) );
+		st.addMeasurement( new SimpleMeasurement( "warmup_reps", new PolymorphicType( long.class, w.reps ) ) );
+		st.addMeasurement( new SimpleMeasurement( "warmup_ns", new PolymorphicType( long.class, w.ns ) ) );
+		st.addMeasurement( new SimpleMeasurement( "warmup_curve_ns", new PolymorphicType( double[].class, w.curve.toArray() ) ) );
 	}
 
 /*############################################################################
@@ -207,6 +251,66 @@ public class Algorithm {
 		return end - start;
 	}
 
+	/**
+	 * Build the arguments of a benchmark method by type: {@code int} and {@code long} parameters
+	 * receive the number of reps, {@link BenchmarkTimer} parameters receive the timer, and
+	 * {@link Counters} parameters receive the counters. The arguments are built once, outside of
+	 * the timed region, so that calls do not box or allocate.
+	 * @param m the benchmark method
+	 * @param reps the number of reps
+	 * @param timer the timer
+	 * @param counters the counters
+	 * @return the arguments
+	 * @throws IllegalArgumentException if a parameter has any other type
+	 */
+	static Object[] args( Method m, int reps, BenchmarkTimer timer, Counters counters ) {
+		Class<?>[] type = m.getParameterTypes();
+		Object[] r = new Object[ type.length ];
+		for( int i = 0; i < type.length; i++ ) {
+			if ( int.class == type[ i ] ) {
+				r[ i ] = reps;
+			} else if ( long.class == type[ i ] ) {
+				r[ i ] = (long) reps;
+			} else if ( BenchmarkTimer.class == type[ i ] ) {
+				r[ i ] = timer;
+			} else if ( Counters.class == type[ i ] ) {
+				r[ i ] = counters;
+			} else {
+				throw new IllegalArgumentException( "benchmark method " + m.getName() + " has a parameter of unsupported type " + type[ i ].getName() );
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * Build the arguments of a benchmark method whose counters are not needed.
+	 */
+	static Object[] args( Method m, int reps, BenchmarkTimer timer ) {
+		return args( m, reps, timer, new SimpleCounters() );
+	}
+
+	/**
+	 * Time one call of a benchmark method, excluding the time for which its timer was paused. The
+	 * result of an asynchronous method is awaited.
+	 * @return the elapsed time in nanoseconds
+	 */
+	private static long time( Method m, Object o, Object[] args, SimpleBenchmarkTimer timer )
+	throws IllegalAccessException, IllegalArgumentException, InvocationTargetException
+	{
+		final boolean async = AsyncRunner.isAsync( m.getReturnType() );
+		final Async an = m.getAnnotation( Async.class );
+		final long request = async ? AsyncRunner.request( an ) : 0;
+		final long timeout_ms = AsyncRunner.timeout( an );
+		timer.reset();
+		long start_ns = System.nanoTime();
+		Object result = m.invoke( o, args );
+		if ( async ) {
+			AsyncRunner.await( result, request, timeout_ms );
+		}
+		long end_ns = System.nanoTime();
+		return Math.max( 0, elapsed( start_ns, end_ns ) - (long) timer.excluded( end_ns ) );
+	}
+
 	private static final long SAFE_NS_FOR_STABLE_REPS = 10000000000L;
 	private static final int MAX_REPS_FOR_STABLE_REPS = 100000000;
 
@@ -271,34 +375,19 @@ public class Algorithm {
 
 		int[] reps = new int[ (int) Math.log10( MAX_REPS_FOR_STABLE_REPS ) ];
 		double[] average_elapsed_ns = new double[ reps.length ];
-		long start_ns;
-		long end_ns;
 		long elapsed_ns;
+		SimpleBenchmarkTimer timer = new SimpleBenchmarkTimer();
 
 		D2( "choosing number of reps to use for method " + m );
 
-		Object dummy, dummy2;
-
 		// populate reps with orders of magnitude
 		for( int i = 0, j = 1; i < reps.length; reps[ i ] = j, i++, j *= 10 );
 
-		String m_name = "" + m;
-		String[] m_name_split = m_name.split( " throws" );
-		D( "warming up method " + m_name_split[ 0 ] + " with " + N_WARMUP_REPS + " calls" );
-		dummy = m.invoke( o, N_WARMUP_REPS );
-
 		for( int i = 0; i < reps.length; i++ ) {
 
-			start_ns = System.nanoTime();
-			dummy2 = m.invoke( o, reps[ i ] );
-			end_ns = System.nanoTime();
-			elapsed_ns = elapsed( start_ns, end_ns );
+			elapsed_ns = time( m, o, args( m, reps[ i ], timer ), timer );
 			average_elapsed_ns[ i ] = elapsed_ns / reps[ i ];
 
-			if ( null == dummy ) {
-				dummy = dummy2;
-			}
-
 			D2( "averaged_elapsed_ns[] is " + Arrays.toString( Arrays.copyOf( average_elapsed_ns, i+1 ) ) );
 
 			D2( "trying Newton-Raphson" );
@@ -333,9 +422,13 @@ public class Algorithm {
 	}
 
 	private void prepareMeasurements( SimpleTrial st, int reps, long trial_start_ms, long trial_start_ns, long trial_end_ns, OnlineStatistics ts, Object dummy ) {
+		prepareMeasurements( st, reps, trial_start_ms, trial_start_ns, trial_end_ns, ts.mean(), ts.variance(), dummy );
+	}
+
+	private void prepareMeasurements( SimpleTrial st, int reps, long trial_start_ms, long trial_start_ns, long trial_end_ns, double mean_ns, double variance_ns, Object dummy ) {
 
-		SimpleMeasurement mean_ns_measurement = new SimpleMeasurement( "elapsed_time_ns", new PolymorphicType( double.class, ts.mean() ) );
-		SimpleMeasurement variance_ns_measurement = new SimpleMeasurement( "variance_ns", new PolymorphicType( double.class, ts.variance() ) );
+		SimpleMeasurement mean_ns_measurement = new SimpleMeasurement( "elapsed_time_ns", new PolymorphicType( double.class, mean_ns ) );
+		SimpleMeasurement variance_ns_measurement = new SimpleMeasurement( "variance_ns", new PolymorphicType( double.class, variance_ns ) );
 		SimpleMeasurement rep_measurement = new SimpleMeasurement( "reps", new PolymorphicType( int.class, reps ) );
 		SimpleMeasurement trial_start_ms_measurement = new SimpleMeasurement( "trial_start_ms", new PolymorphicType( long.class, trial_start_ms ) );
 		SimpleMeasurement trial_start_ns_measurement = new SimpleMeasurement( "trial_start_ns", new PolymorphicType( long.class, trial_start_ns ) );
@@ -344,8 +437,11 @@ public class Algorithm {
 
 		if ( null == dummy ) {
 			dummy_measurement = new SimpleMeasurement( "dummy", new PolymorphicType( String.class, "the dummy was null" ) );
-		} else {
+		} else if ( dummy instanceof Number || dummy instanceof String ) {
 			dummy_measurement = new SimpleMeasurement( "dummy", new PolymorphicType( dummy.getClass(), "" + dummy ) );
+		} else {
+			// e.g. the future returned by an asynchronous method
+			dummy_measurement = new SimpleMeasurement( "dummy", new PolymorphicType( String.class, "" + dummy ) );
 		}
 
 		st.addMeasurement( mean_ns_measurement );
@@ -403,8 +499,444 @@ public class Algorithm {
 	}
 
 
-	private void mark( boolean macro, SlideRuleAnnotations ann, Object o, Method m, int param_set )
+	private static void addLatencyMeasurements( SimpleTrial st, LatencyHistogram h ) {
+		st.addMeasurement( new SimpleMeasurement( "latency_p50_ns", new PolymorphicType( long.class, h.quantile( 0.5 ) ) ) );
+		st.addMeasurement( new SimpleMeasurement( "latency_p90_ns", new PolymorphicType( long.class, h.quantile( 0.9 ) ) ) );
+		st.addMeasurement( new SimpleMeasurement( "latency_p99_ns", new PolymorphicType( long.class, h.quantile( 0.99 ) ) ) );
+		st.addMeasurement( new SimpleMeasurement( "latency_p999_ns", new PolymorphicType( long.class, h.quantile( 0.999 ) ) ) );
+		st.addMeasurement( new SimpleMeasurement( "latency_max_ns", new PolymorphicType( long.class, h.max() ) ) );
+		st.addMeasurement( new SimpleMeasurement( "latency_histogram", new PolymorphicType( long[].class, h.buckets() ) ) );
+	}
+
+	/**
+	 * Derive throughput from the declared operations per invocation and the counted work.
+	 * @param st the trial
+	 * @param mean_ns the mean time per rep (or invocation)
+	 * @param ops the operations per rep (or invocation), or 0 if not declared
+	 * @param counters the work counted in the trial
+	 * @param timed_ns the total timed duration of the trial
+	 */
+	private static void addThroughputMeasurements( SimpleTrial st, double mean_ns, double ops, SimpleCounters counters, long timed_ns ) {
+		if ( ops > 0 ) {
+			double ns_per_op = mean_ns / ops;
+			st.addMeasurement( new SimpleMeasurement( "operations_per_invocation", new PolymorphicType( double.class, ops ) ) );
+			st.addMeasurement( new SimpleMeasurement( "ns_per_op", new PolymorphicType( double.class, ns_per_op ) ) );
+			st.addMeasurement( new SimpleMeasurement( "ops_per_s", new PolymorphicType( double.class, 1e9 / ns_per_op ) ) );
+		}
+		if ( timed_ns <= 0 ) {
+			return;
+		}
+		if ( counters.bytes > 0 ) {
+			st.addMeasurement( new SimpleMeasurement( "bytes", new PolymorphicType( long.class, counters.bytes ) ) );
+			st.addMeasurement( new SimpleMeasurement( "mb_per_s", new PolymorphicType( double.class, counters.bytes * 1e3 / timed_ns ) ) );
+		}
+		if ( counters.items > 0 ) {
+			st.addMeasurement( new SimpleMeasurement( "items", new PolymorphicType( long.class, counters.items ) ) );
+			st.addMeasurement( new SimpleMeasurement( "items_per_s", new PolymorphicType( double.class, counters.items * 1e9 / timed_ns ) ) );
+		}
+	}
+
+	/**
+	 * The parts of a trial that depend on how a macrobenchmark is driven (see {@link #trials}).
+	 */
+	private interface TrialStep {
+		/**
+		 * Run the method under test for one trial.
+		 */
+		void run() throws IllegalAccessException, InvocationTargetException, InterruptedException, IOException;
+		/**
+		 * Add the measurements of the last run to its trial.
+		 * @param st the trial
+		 * @param trial_start_ms the wall-clock time at which the run started
+		 */
+		void measure( SimpleTrial st, long trial_start_ms );
+	}
+
+	/**
+	 * Reject a benchmark timer or counters for a method whose invocations overlap, since neither
+	 * can be shared between them.
+	 * @param mode the annotation that makes the invocations overlap
+	 * @param why the reason, appended to the error
+	 */
+	private static void rejectOverlapping( Class<?> mode, Method m, String why ) {
+		for( Class<?> type: m.getParameterTypes() ) {
+			if ( BenchmarkTimer.class == type || Counters.class == type ) {
+				throw new IllegalArgumentException( "@" + mode.getSimpleName() + " method " + m.getName() + " may not take a " + type.getSimpleName() + why );
+			}
+		}
+	}
+
+	private static double meanOfTrials( ArrayList<Trial> trials ) {
+		OnlineStatistics mean = new OnlineStatistics();
+		for( double d: SimpleTrial.extractMeans( trials ) ) {
+			mean.update( d );
+		}
+		return mean.mean();
+	}
+
+	private void warnNotValidated( UUID id, SlideRuleAnnotations ann, Method m, PolymorphicType[] param_value, ArrayList<Trial> trials ) {
+		D( "failed to validate statistical model for " + trials.get( 0 ) + " after " + trials.size() + " trials");
+		SimpleTrial warning_trial = new SimpleTrial( id, ann, m, param_fields, param_value );
+		warning_trial.addMeasurement( new SimpleMeasurement( "warning", new PolymorphicType( String.class, "failed to validate statistical model" ) ) );
+		context.results_processor.processTrial( warning_trial );
+	}
+
+	/** Run trials until the statistical model of the mean per trial is validated. */
+	private static final int UNTIL_VALIDATED = 0;
+
+	/**
+	 * Run and report the trials of a macrobenchmark that is driven by one of the runners, rather
+	 * than timed by {@link #mark}.
+	 * @param m the method under which the trials are reported
+	 * @param mode the name of the mode, for errors
+	 * @param ntrials the number of trials, or {@link #UNTIL_VALIDATED}
+	 * @param reps true to run {@link BeforeRep} and {@link AfterRep} methods around each trial
+	 * @param step runs each trial, and adds its mode-specific measurements
+	 * @return the mean of the trials, in nanoseconds
+	 */
+	private double trials( SlideRuleAnnotations ann, Object o, Method m, PolymorphicType[] param_value, String mode, int ntrials, boolean reps, TrialStep step )
+	throws IllegalAccessException, IllegalArgumentException, InvocationTargetException, IOException
+	{
+		final boolean validate = UNTIL_VALIDATED == ntrials;
+		ArrayList<Trial> trials = new ArrayList<Trial>();
+		boolean validated_statistical_model = false;
+		UUID id = UUID.randomUUID();
+
+		while( validate ? ! validated_statistical_model && trials.size() < MAX_TRIALS : trials.size() < ntrials ) {
+
+			SimpleTrial st = new SimpleTrial( id, ann, m, param_fields, param_value );
+
+			if ( reps ) {
+				for( Method b4: ann.getBeforeRepMethods() ) {
+					b4.invoke( o );
+				}
+			}
+
+			long trial_start_ms = System.currentTimeMillis();
+			try {
+				step.run();
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException( "interrupted during " + mode + " trial of " + m.getName() );
+			}
+
+			if ( reps ) {
+				for( Method aft: ann.getAfterRepMethods() ) {
+					aft.invoke( o );
+				}
+			}
+
+			step.measure( st, trial_start_ms );
+
+			context.results_processor.processTrial( st );
+			trials.add( st );
+			if ( validate ) {
+				validated_statistical_model = validateStatisticalModel( trials );
+			}
+		}
+
+		if ( validate && ! validated_statistical_model ) {
+			warnNotValidated( id, ann, m, param_value, trials );
+		}
+
+		return meanOfTrials( trials );
+	}
+
+	/**
+	 * Drive a macrobenchmark open-loop, at a constant arrival rate (see {@link OpenLoop}). Each
+	 * trial is one run of the configured duration, and reports latency from the intended start of
+	 * each invocation, so queueing delay is not omitted.
+	 * @return the mean latency, in nanoseconds
+	 */
+	private double openLoop( SlideRuleAnnotations ann, final Object o, final Method m, PolymorphicType[] param_value )
+	throws IllegalAccessException, IllegalArgumentException, InvocationTargetException, IOException
+	{
+		OpenLoop ol = m.getAnnotation( OpenLoop.class );
+		rejectOverlapping( OpenLoop.class, m, ", since its invocations overlap" );
+		if ( ol.trials() <= 0 ) {
+			throw new IllegalArgumentException( "@OpenLoop method " + m.getName() + " must have at least 1 trial" );
+		}
+
+		final double rate = ParamSpec.doubleValue( ol.rate(), param_fields, param_value );
+		int threads = ThreadPools.threads( ParamSpec.intValue( ol.threads(), param_fields, param_value ) );
+		final OpenLoopRunner olr = new OpenLoopRunner( rate, ol.duration(), threads, ol.virtualThreads() );
+		final Object[] args = args( m, 1, null );
+
+		final OnlineStatistics ts = new OnlineStatistics();
+		final LatencyHistogram latency = new LatencyHistogram();
+		final LatencyHistogram service = new LatencyHistogram();
+
+		D( "open-loop at " + rate + "/s on " + ( ol.virtualThreads() && ThreadPools.hasVirtualThreads() ? "virtual threads" : threads + " threads" ) + " for " + ol.trials() + " trials of " + ol.duration() + " ms" );
+
+		// BeforeRep and AfterRep methods are not run, since invocations overlap
+		return trials( ann, o, m, param_value, "open-loop", ol.trials(), false, new TrialStep() {
+			@Override
+			public void run() throws InterruptedException, InvocationTargetException {
+				olr.run( o, m, args, arguments.dry_run );
+			}
+			@Override
+			public void measure( SimpleTrial st, long trial_start_ms ) {
+				ts.clear();
+				latency.clear();
+				service.clear();
+				for( int i = 0; i < olr.scheduled; i++ ) {
+					latency.record( olr.latency_ns[ i ] );
+					ts.update( olr.latency_ns[ i ] );
+					if ( -1 != olr.service_ns[ i ] ) {
+						service.record( olr.service_ns[ i ] );
+					}
+				}
+
+				prepareMeasurements( st, 1, trial_start_ms, olr.start_ns, olr.end_ns, ts, null );
+				addLatencyMeasurements( st, latency );
+				st.addMeasurement( new SimpleMeasurement( "service_p50_ns", new PolymorphicType( long.class, service.quantile( 0.5 ) ) ) );
+				st.addMeasurement( new SimpleMeasurement( "service_p99_ns", new PolymorphicType( long.class, service.quantile( 0.99 ) ) ) );
+				st.addMeasurement( new SimpleMeasurement( "service_max_ns", new PolymorphicType( long.class, service.max() ) ) );
+				st.addMeasurement( new SimpleMeasurement( "target_rate", new PolymorphicType( double.class, rate ) ) );
+				st.addMeasurement( new SimpleMeasurement( "achieved_rate", new PolymorphicType( double.class, olr.achievedRate() ) ) );
+				st.addMeasurement( new SimpleMeasurement( "invocations", new PolymorphicType( long.class, (long) olr.scheduled ) ) );
+				st.addMeasurement( new SimpleMeasurement( "completed", new PolymorphicType( long.class, (long) olr.completed ) ) );
+				st.addMeasurement( new SimpleMeasurement( "saturated", new PolymorphicType( boolean.class, olr.saturated() ) ) );
+			}
+		});
+	}
+
+	/**
+	 * Run a macrobenchmark from several threads at once (see {@link Concurrent}), until the
+	 * statistical model of the mean latency per trial is validated.
+	 * @return the mean latency, in nanoseconds
+	 */
+	private double concurrent( SlideRuleAnnotations ann, final Object o, final Method m, PolymorphicType[] param_value )
+	throws IllegalAccessException, IllegalArgumentException, InvocationTargetException, IOException
+	{
+		Concurrent c = m.getAnnotation( Concurrent.class );
+		rejectOverlapping( Concurrent.class, m, ", since its invocations overlap" );
+		final int concurrency = ParamSpec.intValue( c.concurrency(), param_fields, param_value );
+		final int batch = Math.max( 1, m.getAnnotation( Macrobenchmark.class ).batch() );
+		OperationsPerInvocation opi = m.getAnnotation( OperationsPerInvocation.class );
+		final double ops = null == opi ? 0 : ParamSpec.doubleValue( opi.value(), param_fields, param_value );
+		if ( null != opi && ! ( ops > 0 ) ) {
+			throw new IllegalArgumentException( "@OperationsPerInvocation of method " + m.getName() + " must be positive" );
+		}
+		final Object[] args = args( m, 1, null );
+
+		final OnlineStatistics ts = new OnlineStatistics();
+		final LatencyHistogram latency = new LatencyHistogram();
+
+		final ConcurrentRunner cr = new ConcurrentRunner( concurrency, batch, c.virtualThreads() );
+		final PinningRecorder pinning = cr.virtual && ! arguments.dry_run && PinningRecorder.isEnabled( arguments.config_properties ) ? new PinningRecorder() : null;
+
+		D( "running " + concurrency + " concurrent " + ( cr.virtual ? "virtual" : "platform" ) + " threads of " + batch + " invocations" );
+
+		try {
+			return trials( ann, o, m, param_value, "concurrent", UNTIL_VALIDATED, true, new TrialStep() {
+				@Override
+				public void run() throws InterruptedException, InvocationTargetException, IOException {
+					if ( null != pinning ) {
+						pinning.start();
+					}
+					try {
+						cr.run( o, m, args, arguments.dry_run );
+					} finally {
+						// otherwise the recording would go on to collect the next scenarios
+						if ( null != pinning ) {
+							pinning.stop();
+						}
+					}
+				}
+				@Override
+				public void measure( SimpleTrial st, long trial_start_ms ) {
+					ts.clear();
+					latency.clear();
+					for( long ns: cr.latency_ns ) {
+						latency.record( ns );
+						ts.update( ns );
+					}
+
+					prepareMeasurements( st, 1, trial_start_ms, cr.start_ns, cr.end_ns, ts, null );
+					addLatencyMeasurements( st, latency );
+					st.addMeasurement( new SimpleMeasurement( "concurrency", new PolymorphicType( int.class, concurrency ) ) );
+					st.addMeasurement( new SimpleMeasurement( "virtual_threads", new PolymorphicType( boolean.class, cr.virtual ) ) );
+					st.addMeasurement( new SimpleMeasurement( "invocations", new PolymorphicType( long.class, (long) cr.latency_ns.length ) ) );
+					st.addMeasurement( new SimpleMeasurement( "invocations_per_s", new PolymorphicType( double.class, cr.invocationsPerSecond() ) ) );
+					if ( ops > 0 ) {
+						st.addMeasurement( new SimpleMeasurement( "operations_per_invocation", new PolymorphicType( double.class, ops ) ) );
+						st.addMeasurement( new SimpleMeasurement( "ops_per_s", new PolymorphicType( double.class, ops * cr.invocationsPerSecond() ) ) );
+					}
+					if ( null != pinning ) {
+						st.addMeasurement( new SimpleMeasurement( "pinned_events", new PolymorphicType( long.class, pinning.events ) ) );
+						st.addMeasurement( new SimpleMeasurement( "pinned_ns", new PolymorphicType( long.class, pinning.pinned_ns ) ) );
+					}
+				}
+			});
+		} finally {
+			cr.close();
+		}
+	}
+
+	private static void addElementMeasurements( SimpleTrial st, long elements, long elapsed_ns ) {
+		st.addMeasurement( new SimpleMeasurement( "elements", new PolymorphicType( long.class, elements ) ) );
+		if ( elapsed_ns > 0 ) {
+			st.addMeasurement( new SimpleMeasurement( "elements_per_s", new PolymorphicType( double.class, elements * 1e9 / elapsed_ns ) ) );
+		}
+	}
+
+	/**
+	 * Run an asynchronous macrobenchmark with several invocations in flight at once (see
+	 * {@link Async}), until the statistical model of the mean completion latency per trial is
+	 * validated. With only 1 invocation in flight, it is run like any other macrobenchmark.
+	 * @return the mean completion latency, in nanoseconds
+	 */
+	private double async( SlideRuleAnnotations ann, final Object o, final Method m, PolymorphicType[] param_value )
+	throws IllegalAccessException, IllegalArgumentException, InvocationTargetException, IOException
+	{
+		Async an = m.getAnnotation( Async.class );
+		final int inflight = ParamSpec.intValue( an.inflight(), param_fields, param_value );
+		if ( 1 == inflight ) {
+			return mark( true, ann, o, m, param_value );
+		}
+		rejectOverlapping( Async.class, m, " with more than 1 invocation in flight" );
+		final int batch = Math.max( 1, m.getAnnotation( Macrobenchmark.class ).batch() );
+		final Object[] args = args( m, 1, null );
+
+		final OnlineStatistics ts = new OnlineStatistics();
+		final LatencyHistogram latency = new LatencyHistogram();
+
+		final AsyncRunner ar = new AsyncRunner( inflight, batch, an );
+
+		D( "running batches of " + batch + " invocations with " + inflight + " in flight" );
+
+		return trials( ann, o, m, param_value, "asynchronous", UNTIL_VALIDATED, true, new TrialStep() {
+			@Override
+			public void run() throws InterruptedException, InvocationTargetException, IllegalAccessException {
+				ar.run( o, m, args, arguments.dry_run );
+			}
+			@Override
+			public void measure( SimpleTrial st, long trial_start_ms ) {
+				ts.clear();
+				latency.clear();
+				for( long ns: ar.latency_ns ) {
+					latency.record( ns );
+					ts.update( ns );
+				}
+
+				long elapsed_ns = ar.end_ns - ar.start_ns;
+				prepareMeasurements( st, 1, trial_start_ms, ar.start_ns, ar.end_ns, ts, null );
+				addLatencyMeasurements( st, latency );
+				st.addMeasurement( new SimpleMeasurement( "inflight", new PolymorphicType( int.class, inflight ) ) );
+				st.addMeasurement( new SimpleMeasurement( "invocations", new PolymorphicType( long.class, (long) batch ) ) );
+				if ( elapsed_ns > 0 ) {
+					st.addMeasurement( new SimpleMeasurement( "invocations_per_s", new PolymorphicType( double.class, batch * 1e9 / elapsed_ns ) ) );
+				}
+				addElementMeasurements( st, ar.elements, elapsed_ns );
+			}
+		});
+	}
+
+	/**
+	 * Run the methods of a {@link Group} concurrently, each with its own threads (see
+	 * {@link GroupThreads}). Each trial reports the group as a whole, under its first method, and
+	 * each role with measurements prefixed by the name of its method.
+	 * @param group the methods of the group
+	 * @return the mean latency of every invocation, in nanoseconds
+	 */
+	private double group( SlideRuleAnnotations ann, final Object o, SortedSet<Method> group, PolymorphicType[] param_value )
+	throws IllegalAccessException, IllegalArgumentException, InvocationTargetException, IOException
+	{
+		final Method first = group.first();
+		long duration = 0;
+		int ntrials = 0;
+		final GroupRunner.Role[] roles = new GroupRunner.Role[ group.size() ];
+		int i = 0;
+		for( Method m: group ) {
+			rejectOverlapping( Group.class, m, ", since its invocations overlap" );
+			Group g = m.getAnnotation( Group.class );
+			duration = Math.max( duration, g.duration() );
+			ntrials = Math.max( ntrials, g.trials() );
+			GroupThreads gt = m.getAnnotation( GroupThreads.class );
+			int threads = null == gt ? 1 : ParamSpec.intValue( gt.value(), param_fields, param_value );
+			roles[ i++ ] = new GroupRunner.Role( m, threads, args( m, 1, null ) );
+		}
+		if ( ntrials <= 0 ) {
+			throw new IllegalArgumentException( "@Group " + first.getAnnotation( Group.class ).value() + " must have at least 1 trial" );
+		}
+		final GroupRunner gr = new GroupRunner( roles, duration );
+
+		final LatencyHistogram latency = new LatencyHistogram();
+
+		D( "running group " + first.getAnnotation( Group.class ).value() + " of " + roles.length + " roles for " + ntrials + " trials of " + duration + " ms" );
+
+		return trials( ann, o, first, param_value, "group", ntrials, true, new TrialStep() {
+			@Override
+			public void run() throws InterruptedException, InvocationTargetException {
+				gr.run( o, arguments.dry_run );
+			}
+			@Override
+			public void measure( SimpleTrial st, long trial_start_ms ) {
+				latency.clear();
+				double sum_sq = 0;
+				ArrayList<SimpleMeasurement> role_measurements = new ArrayList<SimpleMeasurement>();
+				for( GroupRunner.Role r: roles ) {
+					LatencyHistogram h = r.histogram();
+					latency.add( h );
+					sum_sq += r.sumOfSquares();
+					String p = r.method.getName() + "_";
+					role_measurements.add( new SimpleMeasurement( p + "threads", new PolymorphicType( int.class, r.threads ) ) );
+					role_measurements.add( new SimpleMeasurement( p + "invocations", new PolymorphicType( long.class, h.count() ) ) );
+					role_measurements.add( new SimpleMeasurement( p + "invocations_per_s", new PolymorphicType( double.class, gr.invocationsPerSecond( r ) ) ) );
+					role_measurements.add( new SimpleMeasurement( p + "elapsed_time_ns", new PolymorphicType( double.class, h.mean() ) ) );
+					role_measurements.add( new SimpleMeasurement( p + "latency_p50_ns", new PolymorphicType( long.class, h.quantile( 0.5 ) ) ) );
+					role_measurements.add( new SimpleMeasurement( p + "latency_p99_ns", new PolymorphicType( long.class, h.quantile( 0.99 ) ) ) );
+					role_measurements.add( new SimpleMeasurement( p + "latency_max_ns", new PolymorphicType( long.class, h.max() ) ) );
+					role_measurements.add( new SimpleMeasurement( p + "latency_histogram", new PolymorphicType( long[].class, h.buckets() ) ) );
+				}
+
+				long n = latency.count();
+				double mean = latency.mean();
+				double variance = n > 1 ? ( sum_sq - n * mean * mean ) / ( n - 1 ) : 0;
+				prepareMeasurements( st, 1, trial_start_ms, gr.start_ns, gr.end_ns, mean, Math.max( 0, variance ), null );
+				addLatencyMeasurements( st, latency );
+				st.addMeasurement( new SimpleMeasurement( "group", new PolymorphicType( String.class, first.getAnnotation( Group.class ).value() ) ) );
+				st.addMeasurement( new SimpleMeasurement( "invocations", new PolymorphicType( long.class, n ) ) );
+				st.addMeasurement( new SimpleMeasurement( "invocations_per_s", new PolymorphicType( double.class, n * 1e9 / gr.duration_ns ) ) );
+				for( SimpleMeasurement sm: role_measurements ) {
+					st.addMeasurement( sm );
+				}
+			}
+		});
+	}
+
+	private static final int COLD_SAMPLES = 10;
+
+	/**
+	 * Measure the mean time of a single rep of a benchmark method, after flushing the CPU caches
+	 * outside of the timed region.
+	 */
+	private double coldElapsedTime( boolean macro, SlideRuleAnnotations ann, Object o, Method m )
 	throws IllegalAccessException, IllegalArgumentException, InvocationTargetException
+	{
+		OnlineStatistics os = new OnlineStatistics();
+		SimpleBenchmarkTimer timer = new SimpleBenchmarkTimer();
+		Object[] args = args( m, 1, timer );
+		for( int i = 0; i < COLD_SAMPLES; i++ ) {
+			if ( macro ) {
+				for( Method b4: ann.getBeforeRepMethods() ) {
+					b4.invoke( o );
+				}
+			}
+			flusher.flush();
+			os.update( time( m, o, args, timer ) );
+			if ( macro ) {
+				for( Method aft: ann.getAfterRepMethods() ) {
+					aft.invoke( o );
+				}
+			}
+		}
+		return os.mean();
+	}
+
+	private double mark( boolean macro, SlideRuleAnnotations ann, Object o, Method m, PolymorphicType[] param_value )
+	throws IllegalAccessException, IllegalArgumentException, InvocationTargetException, IOException
 	{
 		Object dummy = null;
 		final boolean dry_run = arguments.dry_run;
@@ -419,8 +951,41 @@ public class Algorithm {
 
 		ArrayList<Trial> trials = new ArrayList<Trial>();
 		OnlineStatistics ts = new OnlineStatistics();
+		TimeSeries samples = new TimeSeries();
+
+		final boolean cold = CacheFlusher.Mode.COLD == flusher.mode;
+		final boolean takes_timer = Arrays.asList( m.getParameterTypes() ).contains( BenchmarkTimer.class );
+		if ( takes_timer ) {
+			// calibrate outside of any timed region
+			SimpleBenchmarkTimer.overhead();
+		}
+		Warmup warmup = macro || dry_run ? null : warmup( o, m );
+		int reps = macro || cold ? 1 : chooseReps( o, m );
+
+		SimpleBenchmarkTimer timer = new SimpleBenchmarkTimer();
+		SimpleCounters counters = new SimpleCounters();
+		Object[] args = args( m, reps, timer, counters );
+		long paused_ns = 0;
+		long pauses = 0;
+		// the total timed duration of each trial, for throughput
+		long timed_ns = 0;
+
+		OperationsPerInvocation opi = m.getAnnotation( OperationsPerInvocation.class );
+		final double ops = null == opi ? 0 : ParamSpec.doubleValue( opi.value(), param_fields, param_value );
+		if ( null != opi && ! ( ops > 0 ) ) {
+			throw new IllegalArgumentException( "@OperationsPerInvocation of method " + m.getName() + " must be positive" );
+		}
+
+		// asynchronous methods are timed until their result completes
+		final boolean async = AsyncRunner.isAsync( m.getReturnType() );
+		final Async an = m.getAnnotation( Async.class );
+		final long request = async ? AsyncRunner.request( an ) : 0;
+		final long timeout_ms = AsyncRunner.timeout( an );
+		long elements = 0;
 
-		int reps = macro ? 1 : chooseReps( o, m );
+		// macrobenchmarks may run several invocations per trial
+		final int batch = macro ? Math.max( 1, m.getAnnotation( Macrobenchmark.class ).batch() ) : 1;
+		LatencyHistogram latency = macro ? new LatencyHistogram() : null;
 
 		UUID id = UUID.randomUUID();
 
@@ -432,15 +997,18 @@ public class Algorithm {
 		// proceed until the result of the trials is statistically significant
 		for( ; ! validated_statistical_model && trials.size() < MAX_TRIALS; ) {
 
+			SimpleTrial st = new SimpleTrial( id, ann, m, param_fields, param_value );
+			ts.clear();
+			samples.clear();
+			paused_ns = 0;
+			pauses = 0;
+			timed_ns = 0;
+			elements = 0;
+			counters.reset();
 			if ( macro ) {
-				for( Method b4: ann.getBeforeRepMethods() ) {
-					b4.invoke( o );
-				}
+				latency.clear();
 			}
 
-			SimpleTrial st = new SimpleTrial( id, ann, m, param_fields, param_values[ param_set ] );
-			ts.clear();
-
 			trial_start_ms = System.currentTimeMillis();
 			D2( "starting trial at " + trial_start_ms );
 			trial_stop_ms = arguments.time_limit > 0 ? ( trial_start_ms + 1000 * arguments.time_limit ): 0;
@@ -451,21 +1019,50 @@ public class Algorithm {
 			D2( "entering reps loop" );
 			for( ;; ) {
 
+				if ( macro ) {
+					for( Method b4: ann.getBeforeRepMethods() ) {
+						b4.invoke( o );
+					}
+				}
+
+				if ( cold ) {
+					flusher.flush();
+				}
+
+				timer.reset();
+
 				trial_start_ns = System.nanoTime();
 
 				if ( ! dry_run ) {
-					if ( macro ) {
-						dummy = m.invoke( o );
-					} else {
-						dummy = m.invoke( o, reps );
+					dummy = m.invoke( o, args );
+					if ( async ) {
+						elements += AsyncRunner.await( dummy, request, timeout_ms );
 					}
 				}
 
 				trial_end_ns = System.nanoTime();
 
 				elapsed_ns = elapsed( trial_start_ns, trial_end_ns );
+				if ( takes_timer ) {
+					elapsed_ns = Math.max( 0, elapsed_ns - (long) timer.excluded( trial_end_ns ) );
+					paused_ns += timer.pausedNs();
+					pauses += timer.pauses();
+				}
+
+				if ( macro ) {
+					for( Method aft: ann.getAfterRepMethods() ) {
+						aft.invoke( o );
+					}
+					latency.record( elapsed_ns );
+				}
+
+				timed_ns += elapsed_ns;
 				average_elapsed_time = elapsed_ns / reps;
 				ts.update( average_elapsed_time );
+				samples.add( average_elapsed_time );
+				if ( null != raw ) {
+					raw.record( trial_start_ns, elapsed_ns );
+				}
 
 				if ( 0 != trial_stop_ms && System.currentTimeMillis() >= trial_stop_ms ) {
 					D( "breaking out of reps loop because time limit was exceeded"  );
@@ -473,8 +1070,10 @@ public class Algorithm {
 				}
 
 				if ( macro ) {
-					D2( "breaking out of reps loop because method is macrobenchmark " );
-					break;
+					if ( ts.size() >= batch ) {
+						D2( "breaking out of reps loop because macrobenchmark batch of " + batch + " is complete" );
+						break;
+					}
 				} else {
 					if ( ! students_t_test_passed ) {
 						if ( ts.size() > 2 * AStatistics.MIN_N_BEFORE_VALID_VARIANCE ) {
@@ -495,26 +1094,54 @@ public class Algorithm {
 			D2( "exited reps loop" );
 
 			prepareMeasurements( st, reps, trial_start_ms, trial_start_ns, trial_end_ns, ts, dummy );
-			context.results_processor.processTrial( st );
-			trials.add( st );
-			validated_statistical_model = validateStatisticalModel( trials );
+			if ( null != warmup && trials.isEmpty() ) {
+				addWarmupMeasurements( st, warmup );
+			}
+			st.addMeasurement( new SimpleMeasurement( "samples_ns", new PolymorphicType( double[].class, samples.toArray() ) ) );
+			if ( takes_timer ) {
+				st.addMeasurement( new SimpleMeasurement( "timer_paused_ns", new PolymorphicType( long.class, paused_ns ) ) );
+				st.addMeasurement( new SimpleMeasurement( "timer_pauses", new PolymorphicType( long.class, pauses ) ) );
+				st.addMeasurement( new SimpleMeasurement( "timer_overhead_ns", new PolymorphicType( double.class, SimpleBenchmarkTimer.overhead() ) ) );
+			}
+			if ( samples.dropped() > 0 ) {
+				st.addMeasurement( new SimpleMeasurement( "samples_dropped", new PolymorphicType( long.class, samples.dropped() ) ) );
+			}
+			if ( null != raw ) {
+				long overwritten = raw.overwritten();
+				long n = raw.count() - overwritten;
+				long offset = raw.flush( id, reps );
+				st.addMeasurement( new SimpleMeasurement( "raw_samples_file", new PolymorphicType( String.class, raw.file.getPath() ) ) );
+				st.addMeasurement( new SimpleMeasurement( "raw_samples_offset", new PolymorphicType( long.class, offset ) ) );
+				st.addMeasurement( new SimpleMeasurement( "raw_samples", new PolymorphicType( long.class, n ) ) );
+				if ( overwritten > 0 ) {
+					st.addMeasurement( new SimpleMeasurement( "raw_samples_overwritten", new PolymorphicType( long.class, overwritten ) ) );
+				}
+			}
 
 			if ( macro ) {
-				for( Method aft: ann.getAfterRepMethods() ) {
-					aft.invoke( o );
-				}
+				addLatencyMeasurements( st, latency );
 			}
+			addThroughputMeasurements( st, ts.mean(), ops, counters, timed_ns );
+			if ( async ) {
+				addElementMeasurements( st, elements, timed_ns );
+			}
+
+			if ( CacheFlusher.Mode.BOTH == flusher.mode && ! dry_run ) {
+				st.addMeasurement( new SimpleMeasurement( "cold_elapsed_time_ns", new PolymorphicType( double.class, coldElapsedTime( macro, ann, o, m ) ) ) );
+			}
+
+			context.results_processor.processTrial( st );
+			trials.add( st );
+			validated_statistical_model = validateStatisticalModel( trials );
 		}
 
 		D( "exited trials loop at " + System.currentTimeMillis() );
 
-		if ( trials.size() >= MAX_TRIALS ) {
-			D( "failed to validate statistical model for " + trials.get( 0 ) + " after " + trials.size() + " trials");
-			SimpleTrial warning_trial = new SimpleTrial( id, ann, m, param_fields, param_values[ param_set ] );
-			SimpleMeasurement warning_measurement = new SimpleMeasurement( "warning", new PolymorphicType( String.class, new String( "failed to validate statistical model" ) ) );
-			warning_trial.addMeasurement( warning_measurement );
-			context.results_processor.processTrial( warning_trial );
+		if ( ! validated_statistical_model ) {
+			warnNotValidated( id, ann, m, param_value, trials );
 		}
+
+		return meanOfTrials( trials );
 	}
 
 	private static byte[] line;
@@ -526,13 +1153,13 @@ public class Algorithm {
 		D( new String( line ) );
 	}
 
-	private void announceBenchmark( int n, int N, IStatistics eta ) {
+	private void announceBenchmark( long n, long N, IStatistics eta ) {
 		hline();
 		D( "BENCHMARK " + ( n + 1 ) + " / " + N + approximateRemainingTime( n + 1, N, eta.mean() ) );
 		hline();
 	}
 
-	private String approximateRemainingTime( int n, int N, double avg_ns ) {
+	private String approximateRemainingTime( long n, long N, double avg_ns ) {
 		final String label = ". remaining: ";
 		final double ns_per_s = 1000000000D;
 		final double ns_per_min = 60.0D * ns_per_s;
@@ -571,116 +1198,449 @@ public class Algorithm {
 		return r;
 	}
 
-	private void bench()
-	throws IllegalAccessException, IllegalArgumentException, InvocationTargetException, IOException
+	private static void inject( Object o, Field[] fields, PolymorphicType[] param_value )
+	throws IllegalAccessException
 	{
+		for( int col=0; col < param_value.length; col++ ) {
+			Field f = fields[ col ];
+			f.setAccessible( true );
+			f.set( o, param_value[ col ].value );
+		}
+	}
 
-		if ( alcai.isEmpty() ) {
-			D( "Nothing to benchmark!" );
-			return;
+	/**
+	 * Fill every {@link Inputs} field of an instance of the class under test, outside of the timed region.
+	 * @param k the class under test
+	 * @param o the instance under test
+	 * @param param_value the value of each parameter
+	 */
+	private void fillInputPools( SlideRuleAnnotations k, final Object o, PolymorphicType[] param_value )
+	throws IllegalAccessException, IllegalArgumentException, InvocationTargetException
+	{
+		for( Field f: k.getInputsFields() ) {
+			Inputs in = f.getAnnotation( Inputs.class );
+			Method gen = null;
+			for( Class<?> c = o.getClass(); null == gen && null != c; c = c.getSuperclass() ) {
+				for( Method m: c.getDeclaredMethods() ) {
+					Class<?>[] p = m.getParameterTypes();
+					if ( m.getName().equals( in.generator() ) && p.length >= 1 && p.length <= 2 && Random.class == p[ 0 ] && ( 1 == p.length || int.class == p[ 1 ] ) ) {
+						gen = m;
+						break;
+					}
+				}
+			}
+			if ( null == gen ) {
+				throw new IllegalArgumentException( "@Inputs field " + f.getName() + " has no generator method " + in.generator() + "( Random [, int] )" );
+			}
+			gen.setAccessible( true );
+			final Method m = gen;
+			final boolean indexed = 2 == m.getParameterTypes().length;
+			int size = ParamSpec.intValue( in.size(), param_fields, param_value );
+			try {
+				InputPool<Object> pool = InputPool.generate( size, in.seed(), new InputPool.Generator<Object>() {
+					@Override
+					public Object next( Random random, int index ) {
+						try {
+							return indexed ? m.invoke( o, random, index ) : m.invoke( o, random );
+						} catch ( IllegalAccessException | InvocationTargetException e ) {
+							throw new UndeclaredThrowableException( e );
+						}
+					}
+				});
+				f.setAccessible( true );
+				f.set( o, pool );
+				D( "generated " + pool.size() + " inputs for " + f.getName() );
+			} catch( UndeclaredThrowableException e ) {
+				Throwable t = e.getUndeclaredThrowable();
+				if ( t instanceof InvocationTargetException ) {
+					throw (InvocationTargetException) t;
+				}
+				throw (IllegalAccessException) t;
+			}
+		}
+	}
+
+	/**
+	 * Determine whether one permutation of parameters satisfies every {@link ParamConstraint} of a
+	 * class. Constraints are evaluated on the instance under test, after the parameters have been
+	 * injected, and a constraint that throws {@link SkipThisScenarioException} is not satisfied.
+	 * @param cai the class under test
+	 * @param fields the parameters of the class under test
+	 * @param param_value the value of each parameter
+	 * @return true if every constraint is satisfied
+	 */
+	private static boolean satisfies( ClassAndInstance cai, Field[] fields, PolymorphicType[] param_value )
+	throws IllegalAccessException, IllegalArgumentException, InvocationTargetException
+	{
+		Set<Method> constraints = cai.klass.getParamConstraintMethods();
+		if ( constraints.isEmpty() ) {
+			return true;
+		}
+		inject( cai.instance, fields, param_value );
+		for( Method m: constraints ) {
+			try {
+				if ( ! (Boolean) m.invoke( cai.instance ) ) {
+					return false;
+				}
+			} catch( InvocationTargetException e ) {
+				if ( e.getCause() instanceof SkipThisScenarioException ) {
+					return false;
+				}
+				throw e;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Remove the permutations of parameters that do not satisfy every {@link ParamConstraint} of a
+	 * class, before anything is benchmarked, so that they do not count towards the total.
+	 * @param cai the class under test
+	 * @param rows the rows of the parameter space to measure, or null for every row
+	 * @return the rows that satisfy every constraint, or {@code rows} if the class has no constraints
+	 */
+	private long[] constrain( ClassAndInstance cai, long[] rows )
+	throws IllegalAccessException, IllegalArgumentException, InvocationTargetException
+	{
+		Set<Method> constraints = cai.klass.getParamConstraintMethods();
+		if ( constraints.isEmpty() ) {
+			return rows;
+		}
+		for( Method m: constraints ) {
+			if ( ! ( boolean.class == m.getReturnType() || Boolean.class == m.getReturnType() ) || 0 != m.getParameterTypes().length ) {
+				throw new IllegalArgumentException( "@ParamConstraint method " + m.getName() + " must return boolean and take no parameters" );
+			}
 		}
 
+		Field[] fields = cai.klass.getParamFields().toArray( new Field[ 0 ] );
+		long n = null == rows ? param_space.size() : rows.length;
+		long[] r = new long[ (int) Math.min( n, 1024 ) ];
+		int size = 0;
+		if ( null == rows ) {
+			long row = 0;
+			for( PolymorphicType[] param_value: param_space ) {
+				if ( satisfies( cai, fields, param_value ) ) {
+					if ( size == r.length ) {
+						r = Arrays.copyOf( r, 2 * size );
+					}
+					r[ size++ ] = row;
+				}
+				row++;
+			}
+		} else {
+			for( long row: rows ) {
+				if ( satisfies( cai, fields, param_space.get( row ) ) ) {
+					if ( size == r.length ) {
+						r = Arrays.copyOf( r, 2 * size );
+					}
+					r[ size++ ] = row;
+				}
+			}
+		}
+		D( "" + size + " of " + n + " permutations of parameters satisfy the constraints of " + cai.klass.getAnnotatedClass().getName() );
+		return Arrays.copyOf( r, size );
+	}
+
+	/**
+	 * Run every benchmark method of one class for one permutation of parameters.
+	 * @param cai the class under test
+	 * @param param_value the value of each parameter
+	 * @return the mean time of each method, or null if the scenario was skipped
+	 */
+	private LinkedHashMap<Method,Double> benchRow( ClassAndInstance cai, PolymorphicType[] param_value )
+	throws IllegalAccessException, IllegalArgumentException, InvocationTargetException, InstantiationException, IOException
+	{
+		SlideRuleAnnotations k = cai.klass;
+		Object o = cai.instance;
+
+		long eta_data_start;
+		long eta_data_end;
+		LinkedHashMap<Method,Double> r = new LinkedHashMap<Method,Double>();
+
+		// set all parameters for a specific set of trials
+		inject( o, param_fields, param_value );
+		datasets.inject( o, k.getDatasetFields(), param_fields, param_value );
+		fillInputPools( k, o, param_value );
+
+		D( "processing " + cai.klass.getAnnotatedClass().getName() + " with parameters " + PolymorphicType.nameParams( param_fields, param_value ) );
+
+		try {
+
+			// allow the benchmarking class to perform some misc tasks before executing a set of trials
+			for( Method m: k.getBeforeExperimentMethods() ) {
+				fixtures.invoke( m, o, param_fields, param_value );
+			}
+
+			// perform micro benchmarking (slightly more complicated than macrobenchmarking)
+			for( Method m: k.getBenchmarkMethods() ) {
+
+				announceBenchmark( benchmark++, total_number_of_benchmarks, eta_data );
+
+				D( "Microbenchmarking " + cai.klass.getAnnotatedClass().getName() + "." + m.getName() + "()" );
+				eta_data_start = System.nanoTime();
+				r.put( m, mark( false, k, o, m, param_value ) );
+				eta_data_end = System.nanoTime();
+				eta_data.update( eta_data_end - eta_data_start );
+			}
+
+			// perform macro benchmarking
+			for( Method m: k.getMacrobenchmarkMethods() ) {
+
+				// the first method of a group runs the whole group
+				Group g = m.getAnnotation( Group.class );
+				SortedSet<Method> group = null == g ? null : k.getGroups().get( g.value() );
+				if ( null != group && m != group.first() ) {
+					continue;
+				}
+
+				announceBenchmark( benchmark++, total_number_of_benchmarks, eta_data );
+
+				D( "Macrobenchmarking " + cai.klass.getAnnotatedClass().getName() + "." + m.getName() + "()" );
+				eta_data_start = System.nanoTime();
+				if ( null != group ) {
+					r.put( m, group( k, o, group, param_value ) );
+				} else if ( null != m.getAnnotation( OpenLoop.class ) && null != m.getAnnotation( Concurrent.class ) ) {
+					throw new IllegalArgumentException( "method " + m.getName() + " may not be both @OpenLoop and @Concurrent" );
+				} else if ( null != m.getAnnotation( OpenLoop.class ) ) {
+					r.put( m, openLoop( k, o, m, param_value ) );
+				} else if ( null != m.getAnnotation( Concurrent.class ) ) {
+					r.put( m, concurrent( k, o, m, param_value ) );
+				} else if ( null != m.getAnnotation( Async.class ) && AsyncRunner.isAsync( m.getReturnType() ) ) {
+					r.put( m, async( k, o, m, param_value ) );
+				} else {
+					r.put( m, mark( true, k, o, m, param_value ) );
+				}
+				eta_data_end = System.nanoTime();
+				eta_data.update( eta_data_end - eta_data_start );
+			}
+
+			// allow the benchmarking class to perform some misc tasks before executing a set of trials
+			for( Method m: k.getAfterExperimentMethods() ) {
+				m.invoke( o );
+			}
+		} catch( SkipThisScenarioException e ) {
+			D( "SKIPPED" );
+			return null;
+		} catch( InvocationTargetException e ) {
+			Throwable t = e.getCause();
+			if ( t instanceof SkipThisScenarioException ) {
+				D( "SKIPPED" );
+				return null;
+			}
+			throw e;
+		}
+		return r;
+	}
+
+	private static final String adaptive_budget_property = "adaptive.budget";
+	private static final String adaptive_resolution_property = "adaptive.resolution";
+
+	private static boolean isIntegral( Class<?> type ) {
+		return
+			byte.class == type || short.class == type || int.class == type || long.class == type ||
+			Byte.class == type || Short.class == type || Integer.class == type || Long.class == type;
+	}
+
+	private static boolean isNumeric( Class<?> type ) {
+		return isIntegral( type ) || float.class == type || double.class == type || Float.class == type || Double.class == type;
+	}
+
+	/**
+	 * @return the number of macro benchmarks that do not run on their own, because each group of
+	 * macro benchmarks runs as one
+	 */
+	private static int ngrouped( SlideRuleAnnotations k ) {
+		int r = 0;
+		for( SortedSet<Method> group: k.getGroups().values() ) {
+			r += group.size() - 1;
+		}
+		return r;
+	}
+
+	/**
+	 * Measure additional values of each {@link AdaptiveSweep} parameter, for each combination of
+	 * the other parameters that was measured.
+	 * @param cai the class under test
+	 * @param measured the mean time of each method, for each row of the parameter space that was measured
+	 */
+	private void refine( ClassAndInstance cai, TreeMap<Long,LinkedHashMap<Method,Double>> measured )
+	throws IllegalAccessException, IllegalArgumentException, InvocationTargetException, InstantiationException, IOException
+	{
+		SlideRuleAnnotations k = cai.klass;
+		int nmethods = k.getBenchmarkMethods().size() + k.getMacrobenchmarkMethods().size() - ngrouped( k );
+
+		for( int col = 0; col < param_fields.length; col++ ) {
+
+			Field f = param_fields[ col ];
+			AdaptiveSweep as = f.getAnnotation( AdaptiveSweep.class );
+			if ( null == as ) {
+				continue;
+			}
+			Class<?> type = f.getType();
+			if ( ! isNumeric( type ) ) {
+				D( "ignoring @AdaptiveSweep on non-numeric parameter " + f.getName() );
+				continue;
+			}
+
+			// by default, the range is that of the listed values
+			double lo = Double.POSITIVE_INFINITY;
+			double hi = Double.NEGATIVE_INFINITY;
+			for( PolymorphicType v: param_space.values( col ) ) {
+				double d = ( (Number) v.value ).doubleValue();
+				lo = Math.min( lo, d );
+				hi = Math.max( hi, d );
+			}
+			double min = Double.isNaN( as.min() ) ? lo : as.min();
+			double max = Double.isNaN( as.max() ) ? hi : as.max();
+			int budget = as.budget();
+			double resolution = as.resolution();
+			if ( arguments.config_properties.containsKey( adaptive_budget_property ) ) {
+				budget = Integer.parseInt( arguments.config_properties.getProperty( adaptive_budget_property ).trim() );
+			}
+			if ( arguments.config_properties.containsKey( adaptive_resolution_property ) ) {
+				resolution = Double.parseDouble( arguments.config_properties.getProperty( adaptive_resolution_property ).trim() );
+			}
+
+			// one refinement per combination of the other parameters
+			LinkedHashMap<List<PolymorphicType>,SweepRefinement> cases = new LinkedHashMap<List<PolymorphicType>,SweepRefinement>();
+			for( Map.Entry<Long,LinkedHashMap<Method,Double>> e: measured.entrySet() ) {
+				PolymorphicType[] param_value = param_space.get( e.getKey() );
+				double x = ( (Number) param_value[ col ].value ).doubleValue();
+				param_value[ col ] = null;
+				List<PolymorphicType> key = Arrays.asList( param_value );
+				SweepRefinement sr = cases.get( key );
+				if ( null == sr ) {
+					sr = new SweepRefinement( min, max, resolution, budget, isIntegral( type ), k.getBenchmarkMethods() );
+					cases.put( key, sr );
+				}
+				sr.add( x, e.getValue() );
+			}
+
+			for( Map.Entry<List<PolymorphicType>,SweepRefinement> e: cases.entrySet() ) {
+				PolymorphicType[] param_value = e.getKey().toArray( new PolymorphicType[ 0 ] );
+				SweepRefinement sr = e.getValue();
+				for( double x = sr.next(); ! Double.isNaN( x ); x = sr.next() ) {
+					String s = isIntegral( type ) ? Long.toString( (long) x ) : Double.toString( x );
+					param_value[ col ] = PolymorphicType.infer( type, s );
+					if ( ! satisfies( cai, param_fields, param_value ) ) {
+						D( "not refining " + f.getName() + " at " + s + " because it does not satisfy the constraints" );
+						sr.add( x, new LinkedHashMap<Method,Double>() );
+						continue;
+					}
+					D( "refining " + f.getName() + " at " + s );
+					total_number_of_benchmarks += nmethods;
+					LinkedHashMap<Method,Double> means = benchRow( cai, param_value );
+					sr.add( x, null == means ? new LinkedHashMap<Method,Double>() : means );
+				}
+				D( "refined " + f.getName() + " at " + sr.values() );
+			}
+		}
+	}
+
+	/**
+	 * Select the permutations of parameters to measure for each class, i.e. the rows of its
+	 * {@link Design} that satisfy its {@link ParamConstraint}s, and count the benchmarks to run.
+	 * @return the rows of {@link #param_space} to measure for each class, or null for every row
+	 */
+	long[][] plan()
+	throws IllegalAccessException, IllegalArgumentException, InvocationTargetException
+	{
 		SlideRuleAnnotations k = alcai.get( 0 ).klass;
 
 		final int total_number_of_microbenchmarks = k.getBenchmarkMethods().size();
 		D( "there are " + total_number_of_microbenchmarks + " micro benchmarks, per class" );
 
-		final int total_number_of_macrobenchmarks = k.getMacrobenchmarkMethods().size();
+		// each group of macro benchmarks runs as one
+		final int total_number_of_macrobenchmarks = k.getMacrobenchmarkMethods().size() - ngrouped( k );
 		D( "there are " + total_number_of_macrobenchmarks + " macro benchmarks, per class" );
 
-		final int npermutations = param_values.length;
+		final long npermutations = param_space.size();
 		D( "there are " + npermutations + " permutations of parameters, per benchmark" );
 
-		final int total_number_of_benchmarks_per_class = npermutations * ( total_number_of_microbenchmarks + total_number_of_macrobenchmarks );
-		D( "there are " + total_number_of_benchmarks_per_class + " benchmarks in total, per class" );
-
 		final int nclasses = alcai.size();
 		D( "there are " + nclasses + " classes to benchmark" );
 
-		final int total_number_of_benchmarks = total_number_of_benchmarks_per_class * alcai.size();
+		// select the permutations of parameters to measure for each class
+		long[][] design_rows = new long[ nclasses ][];
+		total_number_of_benchmarks = 0;
+		for( int i = 0; i < nclasses; i++ ) {
+			Class<?> klass = alcai.get( i ).klass.getAnnotatedClass();
+			ParameterDesign design = ParameterDesign.forClass( klass, arguments.config_properties );
+			design_rows[ i ] = design.rows( param_space );
+			if ( Design.Mode.FULL != design.mode ) {
+				D( klass.getName() + ": " + design.describe( param_space, design_rows[ i ] ) );
+			}
+			design_rows[ i ] = constrain( alcai.get( i ), design_rows[ i ] );
+			long nrows = null == design_rows[ i ] ? npermutations : design_rows[ i ].length;
+			total_number_of_benchmarks += nrows * ( total_number_of_microbenchmarks + total_number_of_macrobenchmarks );
+		}
 		D( "there are " + total_number_of_benchmarks + " benchmarks in total" );
 
 		if ( 0 == total_number_of_benchmarks ) {
 			D( "Nothing to benchmark!" );
 		}
+		return design_rows;
+	}
 
-		int benchmark = 0;
+	private void bench()
+	throws IllegalAccessException, IllegalArgumentException, InvocationTargetException, InstantiationException, IOException
+	{
 
-		// very rough average for ETA calculation
-		long eta_data_start;
-		long eta_data_end;
-		OnlineStatistics eta_data = new OnlineStatistics();
+		if ( alcai.isEmpty() ) {
+			D( "Nothing to benchmark!" );
+			return;
+		}
+
+		long[][] design_rows = plan();
+
+		benchmark = 0;
+		eta_data.clear();
 
-		for( ClassAndInstance cai: alcai ) {
+		for( int i = 0; i < alcai.size(); i++ ) {
 
-			k = cai.klass;
-			Object o = cai.instance;
+			ClassAndInstance cai = alcai.get( i );
+			SlideRuleAnnotations k = cai.klass;
 
 			// was complaining about "java.lang.IllegalArgumentException: Can not set int field examples.FactorialBenchmark.number to examples.SumBenchmark"
 			ArrayList<Field> alf = new ArrayList<Field>();
 			alf.addAll( k.getParamFields() );
 			param_fields = alf.toArray( new Field[0] );
 
-			for( int row=0; row < param_values.length; row++ ) {
-
-				// set all parameters for a specific set of trials
-				for( int col=0; col < param_values[ row ].length; col++ ) {
-					Field f = param_fields[ col ];
-					f.setAccessible( true );
-					f.set( o, param_values[ row ][ col ].value );
+			// the results of each row are only retained if they are needed for adaptive sweeps
+			TreeMap<Long,LinkedHashMap<Method,Double>> measured = null;
+			for( Field f: param_fields ) {
+				if ( null != f.getAnnotation( AdaptiveSweep.class ) ) {
+					measured = new TreeMap<Long,LinkedHashMap<Method,Double>>();
 				}
+			}
 
-				D( "processing " + cai.klass.getAnnotatedClass().getName() + " with parameters " + PolymorphicType.nameParams( param_fields, param_values[row] ) );
-
-				try {
-
-					// allow the benchmarking class to perform some misc tasks before executing a set of trials
-					for( Method m: k.getBeforeExperimentMethods() ) {
-						m.invoke( o );
-					}
-
-					// perform micro benchmarking (slightly more complicated than macrobenchmarking)
-					for( Method m: k.getBenchmarkMethods() ) {
-
-						announceBenchmark( benchmark++, total_number_of_benchmarks, eta_data );
-
-						D( "Microbenchmarking " + cai.klass.getAnnotatedClass().getName() + "." + m.getName() + "()" );
-						eta_data_start = System.nanoTime();
-						mark( false, k, o, m, row );
-						eta_data_end = System.nanoTime();
-						eta_data.update( eta_data_end - eta_data_start );
-					}
-
-					// perform macro benchmarking
-					for( Method m: k.getMacrobenchmarkMethods() ) {
-
-						announceBenchmark( benchmark++, total_number_of_benchmarks, eta_data );
-
-						D( "Macrobenchmarking " + cai.klass.getAnnotatedClass().getName() + "." + m.getName() + "()" );
-						eta_data_start = System.nanoTime();
-						mark( true, k, o, m, row );
-						eta_data_end = System.nanoTime();
-						eta_data.update( eta_data_end - eta_data_start );
-					}
-
-					// allow the benchmarking class to perform some misc tasks before executing a set of trials
-					for( Method m: k.getAfterExperimentMethods() ) {
-						m.invoke( o );
+			LinkedHashMap<Method,Double> means;
+			if ( null == design_rows[ i ] ) {
+				long row = 0;
+				for( PolymorphicType[] param_value: param_space ) {
+					means = benchRow( cai, param_value );
+					if ( null != measured && null != means ) {
+						measured.put( row, means );
 					}
-				} catch( SkipThisScenarioException e ) {
-					D( "SKIPPED" );
-					continue;
-				} catch( InvocationTargetException e ) {
-					Throwable t = e.getCause();
-					if ( t instanceof SkipThisScenarioException ) {
-						D( "SKIPPED" );
-						continue;
+					row++;
+				}
+			} else {
+				for( long row: design_rows[ i ] ) {
+					means = benchRow( cai, param_space.get( row ) );
+					if ( null != measured && null != means ) {
+						measured.put( row, means );
 					}
-					throw e;
 				}
 			}
+
+			if ( null != measured ) {
+				refine( cai, measured );
+			}
 			D( "finished all parameter permutations. moving on to next class" );
 		}
+		if ( null != raw ) {
+			raw.close();
+		}
 		context.results_processor.close();
 	}
 
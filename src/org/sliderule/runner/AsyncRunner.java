@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import java.lang.reflect.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+import org.sliderule.api.*;
+
+/**
+ * <p><b>Async Runner</b></p>
+ *
+ * <p>This class awaits the results of asynchronous benchmark methods (see {@link Async}), i.e.
+ * those that return a {@link CompletionStage}, a {@link Future}, or a {@link Flow.Publisher}.
+ * A {@code CompletionStage} completes when its value or exception is set, and counts as 1
+ * element. A {@code Flow.Publisher} is subscribed to, and completes when it signals
+ * {@code onComplete} or {@code onError}, having delivered some number of elements. A plain
+ * {@code Future} can only be awaited by blocking on {@link Future#get()}.</p>
+ *
+ * <p>It also issues a batch of invocations of a macrobenchmark with up to {@code inflight} of
+ * them outstanding at a time. The latency of each, from its invocation to its completion, is
+ * stored in its own slot of a preallocated array, by whichever thread completes it.</p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ */
+final class AsyncRunner {
+
+	static final long DEFAULT_TIMEOUT_MS = 60000;
+
+	/**
+	 * The completion of one asynchronous result.
+	 */
+	static class Completion {
+		final CountDownLatch latch = new CountDownLatch( 1 );
+		long elements;
+		Throwable failure;
+		long end_ns;
+		final void complete( long elements, Throwable failure ) {
+			end_ns = System.nanoTime();
+			this.elements = elements;
+			this.failure = failure;
+			done();
+			latch.countDown();
+		}
+		/** called on the completing thread, before waiters are released */
+		void done() {
+		}
+	}
+
+	final int inflight;
+	final int batch;
+	final long request;
+	final long timeout_ms;
+
+	/** the completion latency of each invocation of the last run */
+	final long[] latency_ns;
+	long elements;
+	long start_ns;
+	long end_ns;
+
+	/**
+	 * @param inflight the maximum number of outstanding invocations
+	 * @param batch the number of invocations per run
+	 * @param an how to await each result, or null for the defaults
+	 */
+	AsyncRunner( int inflight, int batch, Async an ) {
+		if ( inflight <= 0 ) {
+			throw new IllegalArgumentException( "inflight must be positive" );
+		}
+		if ( batch <= 0 ) {
+			throw new IllegalArgumentException( "batch must be positive" );
+		}
+		this.inflight = inflight;
+		this.batch = batch;
+		this.request = request( an );
+		this.timeout_ms = timeout( an );
+		latency_ns = new long[ batch ];
+	}
+
+	static boolean isAsync( Class<?> type ) {
+		return
+			CompletionStage.class.isAssignableFrom( type ) ||
+			Future.class.isAssignableFrom( type ) ||
+			Flow.Publisher.class.isAssignableFrom( type );
+	}
+
+	static long request( Async an ) {
+		long r = null == an ? 0 : an.request();
+		if ( r < 0 ) {
+			throw new IllegalArgumentException( "@Async request may not be negative" );
+		}
+		return 0 == r ? Long.MAX_VALUE : r;
+	}
+
+	static long timeout( Async an ) {
+		return null == an ? DEFAULT_TIMEOUT_MS : an.timeout();
+	}
+
+	/**
+	 * Arrange for {@code c} to be completed when {@code result} completes. Only a plain
+	 * {@link Future} is awaited on the calling thread.
+	 * @param result the result of an asynchronous benchmark method
+	 * @param request the number of elements to request from a publisher at a time
+	 * @param c the completion
+	 */
+	static void track( Object result, final long request, final Completion c ) throws InterruptedException {
+		if ( result instanceof CompletionStage ) {
+			( (CompletionStage<?>) result ).whenComplete( new BiConsumer<Object,Throwable>() {
+				@Override
+				public void accept( Object value, Throwable t ) {
+					if ( t instanceof CompletionException && null != t.getCause() ) {
+						t = t.getCause();
+					}
+					c.complete( null == t ? 1 : 0, t );
+				}
+			});
+		} else if ( result instanceof Flow.Publisher ) {
+			( (Flow.Publisher<?>) result ).subscribe( new Flow.Subscriber<Object>() {
+				private Flow.Subscription s;
+				private long n;
+				private long outstanding;
+				@Override
+				public void onSubscribe( Flow.Subscription s ) {
+					this.s = s;
+					outstanding = request;
+					s.request( request );
+				}
+				@Override
+				public void onNext( Object item ) {
+					n++;
+					if ( Long.MAX_VALUE != request && 0 == --outstanding ) {
+						outstanding = request;
+						s.request( request );
+					}
+				}
+				@Override
+				public void onError( Throwable t ) {
+					c.complete( n, t );
+				}
+				@Override
+				public void onComplete() {
+					c.complete( n, null );
+				}
+			});
+		} else if ( result instanceof Future ) {
+			try {
+				( (Future<?>) result ).get();
+				c.complete( 1, null );
+			} catch ( ExecutionException e ) {
+				c.complete( 0, e.getCause() );
+			} catch ( CancellationException e ) {
+				c.complete( 0, e );
+			}
+		} else {
+			c.complete( 0, new NullPointerException( "asynchronous benchmark method returned null" ) );
+		}
+	}
+
+	/**
+	 * Wait for an asynchronous result to complete.
+	 * @param result the result of an asynchronous benchmark method
+	 * @param request the number of elements to request from a publisher at a time
+	 * @param timeout_ms how long to wait
+	 * @return the number of elements delivered
+	 * @throws InvocationTargetException if the result completed exceptionally, did not complete in
+	 * time, or the wait was interrupted
+	 */
+	static long await( Object result, long request, long timeout_ms ) throws InvocationTargetException {
+		Completion c = new Completion();
+		try {
+			track( result, request, c );
+			if ( ! c.latch.await( timeout_ms, TimeUnit.MILLISECONDS ) ) {
+				throw new InvocationTargetException( new TimeoutException( "result did not complete within " + timeout_ms + " ms" ) );
+			}
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new InvocationTargetException( e );
+		}
+		if ( null != c.failure ) {
+			throw new InvocationTargetException( c.failure );
+		}
+		return c.elements;
+	}
+
+	/**
+	 * @return the oldest of the first {@code issued} results that has not completed, starting from
+	 * {@code oldest}, or {@code issued} if they all have
+	 */
+	private static int oldestPending( int oldest, int issued, AtomicIntegerArray completed ) {
+		for( ; oldest < issued && 1 == completed.get( oldest ); oldest++ );
+		return oldest;
+	}
+
+	private TimeoutException overdue() {
+		return new TimeoutException( "result did not complete within " + timeout_ms + " ms" );
+	}
+
+	/**
+	 * Issue a batch of invocations, with up to {@code inflight} outstanding at a time, and wait
+	 * for all of them to complete. Each result must complete within the timeout of its own
+	 * invocation.
+	 * @param o the instance under test
+	 * @param m the method under test
+	 * @param args the arguments of the method
+	 * @param dry_run true to complete every invocation immediately, without invoking the method
+	 * @throws InvocationTargetException if any invocation throws, completes exceptionally, or
+	 * does not complete in time
+	 */
+	void run( Object o, Method m, Object[] args, boolean dry_run )
+	throws InterruptedException, IllegalAccessException, InvocationTargetException
+	{
+		final long[] latency_ns = this.latency_ns;
+		final long timeout_ns = TimeUnit.MILLISECONDS.toNanos( timeout_ms );
+		final long[] issued_ns = new long[ batch ];
+		final AtomicIntegerArray completed = new AtomicIntegerArray( batch );
+		final Semaphore permits = new Semaphore( inflight );
+		final CountDownLatch done = new CountDownLatch( batch );
+		final AtomicLong delivered = new AtomicLong();
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+
+		Throwable t = null;
+		int oldest = 0;
+		int issued = 0;
+		start_ns = System.nanoTime();
+		for( ; issued < batch && null == error.get() && null == t; issued++ ) {
+			// wait for a permit, but no longer than the oldest outstanding result may take
+			for( ;; ) {
+				oldest = oldestPending( oldest, issued, completed );
+				long remaining = oldest < issued ? issued_ns[ oldest ] + timeout_ns - System.nanoTime() : timeout_ns;
+				if ( permits.tryAcquire( Math.max( 0, remaining ), TimeUnit.NANOSECONDS ) ) {
+					break;
+				}
+				if ( remaining <= 0 ) {
+					t = overdue();
+					break;
+				}
+			}
+			if ( null != t ) {
+				break;
+			}
+			final int j = issued;
+			final long start = System.nanoTime();
+			issued_ns[ j ] = start;
+			Object result = dry_run ? CompletableFuture.completedFuture( null ) : m.invoke( o, args );
+			track( result, request, new Completion() {
+				@Override
+				void done() {
+					latency_ns[ j ] = end_ns - start;
+					delivered.addAndGet( elements );
+					if ( null != failure ) {
+						error.compareAndSet( null, failure );
+					}
+					completed.set( j, 1 );
+					permits.release();
+					done.countDown();
+				}
+			});
+		}
+		if ( null == t ) {
+			t = error.get();
+		}
+		// wait for the outstanding results, each until its own deadline
+		while( null == t && ( oldest = oldestPending( oldest, issued, completed ) ) < issued ) {
+			long remaining = issued_ns[ oldest ] + timeout_ns - System.nanoTime();
+			if ( remaining <= 0 ) {
+				t = overdue();
+			} else {
+				done.await( remaining, TimeUnit.NANOSECONDS );
+			}
+		}
+		end_ns = System.nanoTime();
+		this.elements = delivered.get();
+		if ( null == t ) {
+			t = error.get();
+		}
+		if ( null != t ) {
+			throw new InvocationTargetException( t );
+		}
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+
+/**
+ * <p><b>SlideRule Binary Result Format</b></p>
+ *
+ * <p>All multi-byte fixed-width values are big-endian. Variable-length integers are unsigned
+ * <a href="https://developers.google.com/protocol-buffers/docs/encoding#varints">LEB128</a>
+ * varints, and signed values are zig-zag encoded before being written as varints.
+ * Strings are a varint byte length followed by UTF-8 bytes.</p>
+ *
+ * <pre>
+ * file    := header record* [ footer trailer ]
+ * header  := MAGIC u16:VERSION
+ *            varint:n ( string:key string:value ){n}         -- environment
+ *            varint:n ( string:name string:type ){n}         -- param schema
+ * record  := u8:tag varint:length byte[length]
+ *   STRING   := string                                       -- next dictionary id
+ *   TRIAL    := u64:msb u64:lsb u32:class u32:method u8:flags u32:param{schema.n}
+ *               varint:n ( varint:description zigzag:klass u8:type value ){n}
+ * footer  := u8:FOOTER varint:n string{n} varint:n u64:offset{n}
+ * trailer := u64:footer_offset END_MAGIC
+ * </pre>
+ *
+ * <p>The fixed-width portion of each trial record refers to dictionary ids (or {@code -1} for
+ * {@code null}), so it can be read without decoding the variable-width measurement columns.
+ * The footer repeats the dictionary and provides the absolute offset of every trial record,
+ * permitting random access. A file without a trailer (e.g. from an interrupted run) can still
+ * be read by scanning the records sequentially.</p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ * @see BinaryResultProcessor
+ * @see BinaryResultReader
+ */
+final class BinaryFormat {
+
+	static final int MAGIC = 0x534c5242; // "SLRB"
+	static final int END_MAGIC = 0x534c5245; // "SLRE"
+	static final short VERSION = 1;
+
+	static final int TAG_STRING = 0x01;
+	static final int TAG_TRIAL = 0x02;
+	static final int TAG_FOOTER = 0x03;
+
+	static final int FLAG_SIMPLE = 0x01;
+	static final int FLAG_MICRO = 0x02;
+
+	static final int TYPE_NULL = 0;
+	static final int TYPE_BOOLEAN = 1;
+	static final int TYPE_BYTE = 2;
+	static final int TYPE_SHORT = 3;
+	static final int TYPE_INT = 4;
+	static final int TYPE_LONG = 5;
+	static final int TYPE_FLOAT = 6;
+	static final int TYPE_DOUBLE = 7;
+	static final int TYPE_INTEGRAL_DOUBLE = 8;
+	static final int TYPE_CHAR = 9;
+	static final int TYPE_STRING = 10;
+	static final int TYPE_DOUBLE_ARRAY = 11;
+	static final int TYPE_LONG_ARRAY = 12;
+	static final int TYPE_INT_ARRAY = 13;
+
+	static final int TRAILER_SIZE = 8 + 4;
+
+	static final Charset UTF8 = StandardCharsets.UTF_8;
+
+	private BinaryFormat() {}
+
+	static int fixedTrialSize( int nparams ) {
+		return 8 + 8 + 4 + 4 + 1 + 4 * nparams;
+	}
+
+	static void writeVarLong( OutputStream os, long v ) throws IOException {
+		for( ; ( v & ~0x7fL ) != 0; v >>>= 7 ) {
+			os.write( (int) ( ( v & 0x7f ) | 0x80 ) );
+		}
+		os.write( (int) v );
+	}
+
+	static void writeZigZag( OutputStream os, long v ) throws IOException {
+		writeVarLong( os, ( v << 1 ) ^ ( v >> 63 ) );
+	}
+
+	static void writeString( OutputStream os, String s ) throws IOException {
+		byte[] b = s.getBytes( UTF8 );
+		writeVarLong( os, b.length );
+		os.write( b );
+	}
+
+	static void writeInt( OutputStream os, int v ) throws IOException {
+		os.write( v >>> 24 );
+		os.write( v >>> 16 );
+		os.write( v >>> 8 );
+		os.write( v );
+	}
+
+	static void writeLong( OutputStream os, long v ) throws IOException {
+		writeInt( os, (int) ( v >>> 32 ) );
+		writeInt( os, (int) v );
+	}
+
+	static long readVarLong( ByteBuffer bb ) {
+		long r = 0;
+		for( int shift = 0; ; shift += 7 ) {
+			if ( shift > 63 ) {
+				throw new IllegalStateException( "malformed varint" );
+			}
+			byte b = bb.get();
+			r |= (long) ( b & 0x7f ) << shift;
+			if ( 0 == ( b & 0x80 ) ) {
+				return r;
+			}
+		}
+	}
+
+	static int readVarInt( ByteBuffer bb ) {
+		long r = readVarLong( bb );
+		if ( r < 0 || r > Integer.MAX_VALUE ) {
+			throw new IllegalStateException( "varint out of range" );
+		}
+		return (int) r;
+	}
+
+	static long readZigZag( ByteBuffer bb ) {
+		long v = readVarLong( bb );
+		return ( v >>> 1 ) ^ -( v & 1 );
+	}
+
+	static String readString( ByteBuffer bb ) {
+		int n = readVarInt( bb );
+		byte[] b = new byte[ n ];
+		bb.get( b );
+		return new String( b, UTF8 );
+	}
+
+	static void skipString( ByteBuffer bb ) {
+		int n = readVarInt( bb );
+		bb.position( bb.position() + n );
+	}
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import static org.sliderule.runner.BinaryFormat.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.text.*;
+import java.util.*;
+
+import org.sliderule.api.*;
+import org.sliderule.model.*;
+
+/**
+ * <p><b>Binary Result Processor</b></p>
+ *
+ * <p>This class streams each {@link Trial} to a compact, versioned binary file named
+ * {@code sliderule-<date>-<epoch>.srb} in the SlideRule data directory (see {@code --directory}).
+ * The format is described in {@link BinaryFormat}, and files may be read back, scanned, or
+ * randomly accessed with {@link BinaryResultReader} without loading every trial into memory.</p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ */
+public class BinaryResultProcessor implements ResultProcessor, Flushable {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private static class CountingOutputStream extends FilterOutputStream {
+		long count;
+		CountingOutputStream( OutputStream os ) {
+			super( os );
+		}
+		@Override
+		public void write( int b ) throws IOException {
+			out.write( b );
+			count++;
+		}
+		@Override
+		public void write( byte[] b, int off, int len ) throws IOException {
+			out.write( b, off, len );
+			count += len;
+		}
+	}
+
+	private final File file;
+	private final String run_name;
+	private final CountingOutputStream os;
+	private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+	private final HashMap<String,Integer> dictionary = new HashMap<String,Integer>();
+	private final ArrayList<String> strings = new ArrayList<String>();
+	private long[] offsets = new long[ 1024 ];
+	private int ntrials;
+	private int nparams = -1;
+	private boolean closed;
+
+	public BinaryResultProcessor() throws IOException {
+		this( ExportResultProcessor.defaultDirectory() );
+	}
+
+	public BinaryResultProcessor( File directory ) throws IOException {
+		this( directory, null );
+	}
+
+	BinaryResultProcessor( Arguments arguments ) throws IOException {
+		this( arguments.directory, arguments.run_name );
+	}
+
+	BinaryResultProcessor( File directory, String run_name ) throws IOException {
+		this.run_name = run_name;
+		if ( ! directory.isDirectory() && ! directory.mkdirs() ) {
+			throw new IOException( "unable to create directory '" + directory + "'" );
+		}
+		file = new File( directory, "sliderule-" + new SimpleDateFormat( "yyyyMMdd" ).format( new Date() ) + "-" + System.currentTimeMillis() + ".srb" );
+		os = new CountingOutputStream( new BufferedOutputStream( new FileOutputStream( file ), BUFFER_SIZE ) );
+	}
+
+	public File file() {
+		return file;
+	}
+
+	static Map<String,String> environment( String run_name ) {
+		LinkedHashMap<String,String> r = new LinkedHashMap<String,String>();
+		for( String key: new String[] { "java.version", "java.vm.name", "java.vm.version", "os.name", "os.arch", "os.version" } ) {
+			r.put( key, "" + System.getProperty( key ) );
+		}
+		r.put( "available.processors", "" + Runtime.getRuntime().availableProcessors() );
+		r.put( "epoch.ms", "" + System.currentTimeMillis() );
+		if ( null != run_name ) {
+			r.put( "run.name", run_name );
+		}
+		return r;
+	}
+
+	private void writeHeader( Trial trial ) throws IOException {
+		writeInt( os, MAGIC );
+		os.write( VERSION >>> 8 );
+		os.write( VERSION );
+
+		Map<String,String> env = environment( run_name );
+		writeVarLong( os, env.size() );
+		for( Map.Entry<String,String> e: env.entrySet() ) {
+			writeString( os, e.getKey() );
+			writeString( os, e.getValue() );
+		}
+
+		Field[] param = trial instanceof SimpleTrial ? ( (SimpleTrial) trial ).getParam() : new Field[ 0 ];
+		nparams = param.length;
+		writeVarLong( os, nparams );
+		for( Field f: param ) {
+			writeString( os, f.getName() );
+			writeString( os, f.getType().getName() );
+		}
+	}
+
+	private int intern( String s ) throws IOException {
+		if ( null == s ) {
+			return -1;
+		}
+		Integer id = dictionary.get( s );
+		if ( null == id ) {
+			id = strings.size();
+			dictionary.put( s, id );
+			strings.add( s );
+			record.reset();
+			writeString( record, s );
+			os.write( TAG_STRING );
+			writeVarLong( os, record.size() );
+			record.writeTo( os );
+		}
+		return id;
+	}
+
+	private static void writeValue( OutputStream os, Object v ) throws IOException {
+		if ( null == v ) {
+			os.write( TYPE_NULL );
+		} else if ( v instanceof Boolean ) {
+			os.write( TYPE_BOOLEAN );
+			os.write( (Boolean) v ? 1 : 0 );
+		} else if ( v instanceof Byte ) {
+			os.write( TYPE_BYTE );
+			os.write( (Byte) v );
+		} else if ( v instanceof Short ) {
+			os.write( TYPE_SHORT );
+			writeZigZag( os, (Short) v );
+		} else if ( v instanceof Integer ) {
+			os.write( TYPE_INT );
+			writeZigZag( os, (Integer) v );
+		} else if ( v instanceof Long ) {
+			os.write( TYPE_LONG );
+			writeZigZag( os, (Long) v );
+		} else if ( v instanceof Float ) {
+			os.write( TYPE_FLOAT );
+			writeInt( os, Float.floatToIntBits( (Float) v ) );
+		} else if ( v instanceof Double ) {
+			double d = (Double) v;
+			long l = (long) d;
+			// averaged nanosecond timings are very often integral, so store them as varints
+			if ( l == d && Math.abs( d ) < 0x1p62 && Double.doubleToRawLongBits( d ) != Double.doubleToRawLongBits( -0D ) ) {
+				os.write( TYPE_INTEGRAL_DOUBLE );
+				writeZigZag( os, l );
+			} else {
+				os.write( TYPE_DOUBLE );
+				writeLong( os, Double.doubleToRawLongBits( d ) );
+			}
+		} else if ( v instanceof Character ) {
+			os.write( TYPE_CHAR );
+			writeVarLong( os, (Character) v );
+		} else if ( v instanceof double[] ) {
+			double[] a = (double[]) v;
+			os.write( TYPE_DOUBLE_ARRAY );
+			writeVarLong( os, a.length );
+			for( double d: a ) {
+				writeLong( os, Double.doubleToRawLongBits( d ) );
+			}
+		} else if ( v instanceof long[] ) {
+			long[] a = (long[]) v;
+			os.write( TYPE_LONG_ARRAY );
+			writeVarLong( os, a.length );
+			for( long l: a ) {
+				writeZigZag( os, l );
+			}
+		} else if ( v instanceof int[] ) {
+			int[] a = (int[]) v;
+			os.write( TYPE_INT_ARRAY );
+			writeVarLong( os, a.length );
+			for( int i: a ) {
+				writeZigZag( os, i );
+			}
+		} else {
+			os.write( TYPE_STRING );
+			writeString( os, v.toString() );
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void processTrial( Trial trial ) {
+		try {
+			if ( closed ) {
+				throw new IllegalStateException( "processor is closed" );
+			}
+			if ( -1 == nparams ) {
+				writeHeader( trial );
+			}
+
+			SimpleTrial st = trial instanceof SimpleTrial ? (SimpleTrial) trial : null;
+
+			// dictionary entries must precede the trial record that refers to them
+			int class_id = -1;
+			int method_id = -1;
+			int flags = 0;
+			int[] param_id = new int[ nparams ];
+			Arrays.fill( param_id, -1 );
+			if ( null != st ) {
+				PolymorphicType[] param_value = st.getParamValue();
+				if ( param_value.length != nparams ) {
+					throw new IllegalStateException( "trial " + st + " does not match the param schema" );
+				}
+				class_id = intern( st.getSlideRuleAnnotations().getAnnotatedClass().getName() );
+				method_id = intern( st.getMethod().getName() );
+				flags |= FLAG_SIMPLE | ( st.isMicro() ? FLAG_MICRO : 0 );
+				for( int i = 0; i < nparams; i++ ) {
+					param_id[ i ] = intern( null == param_value[ i ].value ? null : "" + param_value[ i ].value );
+				}
+			}
+			List<Measurement> measurements = trial.measurements();
+			int[] description_id = new int[ measurements.size() ];
+			int[] klass_id = new int[ measurements.size() ];
+			for( int i = 0; i < description_id.length; i++ ) {
+				Measurement m = measurements.get( i );
+				description_id[ i ] = intern( m.description() );
+				klass_id[ i ] = intern( null == m.value() ? null : m.value().klass.getName() );
+			}
+
+			record.reset();
+			writeLong( record, trial.id().getMostSignificantBits() );
+			writeLong( record, trial.id().getLeastSignificantBits() );
+			writeInt( record, class_id );
+			writeInt( record, method_id );
+			record.write( flags );
+			for( int id: param_id ) {
+				writeInt( record, id );
+			}
+			writeVarLong( record, description_id.length );
+			for( int i = 0; i < description_id.length; i++ ) {
+				Measurement m = measurements.get( i );
+				writeVarLong( record, description_id[ i ] );
+				writeZigZag( record, klass_id[ i ] );
+				writeValue( record, null == m.value() ? null : m.value().value );
+			}
+
+			if ( ntrials == offsets.length ) {
+				offsets = Arrays.copyOf( offsets, 2 * offsets.length );
+			}
+			offsets[ ntrials++ ] = os.count;
+			os.write( TAG_TRIAL );
+			writeVarLong( os, record.size() );
+			record.writeTo( os );
+		} catch ( IOException e ) {
+			throw new UncheckedIOException( e );
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void flush() throws IOException {
+		os.flush();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		if ( closed ) {
+			return;
+		}
+		if ( -1 == nparams ) {
+			writeHeader( null );
+		}
+		closed = true;
+		long footer_offset = os.count;
+		os.write( TAG_FOOTER );
+		writeVarLong( os, strings.size() );
+		for( String s: strings ) {
+			writeString( os, s );
+		}
+		writeVarLong( os, ntrials );
+		for( int i = 0; i < ntrials; i++ ) {
+			writeLong( os, offsets[ i ] );
+		}
+		writeLong( os, footer_offset );
+		writeInt( os, END_MAGIC );
+		os.close();
+	}
+}
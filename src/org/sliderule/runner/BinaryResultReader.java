@@ -0,0 +1,513 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import static org.sliderule.runner.BinaryFormat.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+import org.sliderule.api.*;
+import org.sliderule.model.*;
+
+/**
+ * <p><b>Binary Result Reader</b></p>
+ *
+ * <p>This class provides read-only access to files written by {@link BinaryResultProcessor}.
+ * The file is {@linkplain FileChannel#map memory-mapped} in overlapping chunks of at most
+ * {@link Integer#MAX_VALUE} bytes, so files larger than 2 GiB may be read too. Trials may be
+ * scanned or randomly accessed by index without reading the whole file onto the heap. Accessors such as
+ * {@link #className(int)}, {@link #paramValue(int, int)} and {@link #measurement(int, String)}
+ * decode only the requested portion of a record.</p>
+ *
+ * <p>{@link #replay(ResultProcessor)} reconstructs each trial, provided the benchmark classes
+ * are on the class path, and hands it to any other {@link ResultProcessor}, e.g. to chart
+ * an archived run with {@link GoogleChartsResultProcessor}.</p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ * @see BinaryFormat
+ */
+public final class BinaryResultReader implements Closeable {
+
+	/**
+	 * Mappings start every {@code CHUNK_SIZE} bytes and each extends for up to twice that, less
+	 * one byte, i.e. {@link Integer#MAX_VALUE}. Any record shorter than {@code CHUNK_SIZE}
+	 * therefore lies wholly within the mapping in which it starts.
+	 */
+	static final long CHUNK_SIZE = 1L << 30;
+
+	private final FileChannel channel;
+	private final long chunk_size;
+	private final ByteBuffer[] chunk;
+	private final LinkedHashMap<String,String> environment = new LinkedHashMap<String,String>();
+	private final String[] param_name;
+	private final String[] param_type;
+	private final String[] strings;
+	private final HashMap<String,Integer> dictionary = new HashMap<String,Integer>();
+	private final LongBuffer offsets;
+	private final int fixed_size;
+
+	public BinaryResultReader( File file ) throws IOException {
+		this( file, CHUNK_SIZE );
+	}
+
+	BinaryResultReader( File file, long chunk_size ) throws IOException {
+		this.chunk_size = chunk_size;
+		channel = new RandomAccessFile( file, "r" ).getChannel();
+		long size = channel.size();
+		chunk = new ByteBuffer[ (int) Math.max( 1, ( size + chunk_size - 1 ) / chunk_size ) ];
+		for( int i = 0; i < chunk.length; i++ ) {
+			long start = i * chunk_size;
+			chunk[ i ] = channel.map( FileChannel.MapMode.READ_ONLY, start, Math.min( size - start, 2 * chunk_size - 1 ) ).asReadOnlyBuffer();
+		}
+
+		Cursor c = new Cursor( 0 );
+		ByteBuffer bb = c.next();
+		if ( bb.remaining() < 6 || MAGIC != bb.getInt() ) {
+			channel.close();
+			throw new IOException( "file '" + file + "' is not a SlideRule binary result file" );
+		}
+		short version = bb.getShort();
+		if ( version > VERSION ) {
+			channel.close();
+			throw new IOException( "file '" + file + "' has unsupported version " + version );
+		}
+		if ( c.position() == size ) {
+			// no header beyond the magic means no trials were ever written
+			param_name = new String[ 0 ];
+			param_type = new String[ 0 ];
+			strings = new String[ 0 ];
+			offsets = LongBuffer.allocate( 0 );
+			fixed_size = fixedTrialSize( 0 );
+			return;
+		}
+		for( int i = 0, n = readVarInt( c.next() ); i < n; i++ ) {
+			environment.put( readString( c.next() ), readString( c.next() ) );
+		}
+		int nparams = readVarInt( c.next() );
+		param_name = new String[ nparams ];
+		param_type = new String[ nparams ];
+		for( int i = 0; i < nparams; i++ ) {
+			param_name[ i ] = readString( c.next() );
+			param_type[ i ] = readString( c.next() );
+		}
+		fixed_size = fixedTrialSize( nparams );
+
+		if ( size - c.position() >= TRAILER_SIZE && END_MAGIC == at( size - 4 ).getInt() ) {
+			Cursor t = new Cursor( at( size - TRAILER_SIZE ).getLong() );
+			if ( TAG_FOOTER != ( t.next().get() & 0xff ) ) {
+				channel.close();
+				throw new IOException( "file '" + file + "' has a corrupt footer" );
+			}
+			strings = new String[ readVarInt( t.next() ) ];
+			for( int i = 0; i < strings.length; i++ ) {
+				strings[ i ] = readString( t.next() );
+			}
+			int ntrials = readVarInt( t.next() );
+			ByteBuffer slice = t.next().slice();
+			if ( slice.remaining() >= 8L * ntrials ) {
+				slice.limit( 8 * ntrials );
+				offsets = slice.asLongBuffer();
+			} else {
+				// the offsets straddle two mappings, so copy them onto the heap
+				long[] off = new long[ ntrials ];
+				for( int i = 0; i < ntrials; i++ ) {
+					off[ i ] = t.next().getLong();
+				}
+				offsets = LongBuffer.wrap( off );
+			}
+		} else {
+			// the run was interrupted before the footer was written, so scan every record
+			ArrayList<String> als = new ArrayList<String>();
+			long[] off = new long[ 1024 ];
+			int ntrials = 0;
+			while( c.position() < size ) {
+				long position = c.position();
+				bb = c.next();
+				int tag = bb.get() & 0xff;
+				if ( TAG_FOOTER == tag ) {
+					break;
+				}
+				int length = readVarInt( bb );
+				if ( length > size - c.position() ) {
+					// truncated record
+					break;
+				}
+				if ( TAG_STRING == tag ) {
+					als.add( readString( bb ) );
+				} else {
+					if ( TAG_TRIAL == tag ) {
+						if ( ntrials == off.length ) {
+							off = Arrays.copyOf( off, 2 * off.length );
+						}
+						off[ ntrials++ ] = position;
+					}
+					c.skip( length );
+				}
+			}
+			strings = als.toArray( new String[ 0 ] );
+			offsets = LongBuffer.wrap( Arrays.copyOf( off, ntrials ) );
+		}
+		for( int i = 0; i < strings.length; i++ ) {
+			dictionary.put( strings[ i ], i );
+		}
+	}
+
+	/**
+	 * A view of the file positioned at {@code position}, from which at least
+	 * {@link #chunk_size} bytes, or the remainder of the file, may be read.
+	 */
+	private ByteBuffer at( long position ) {
+		int i = (int) Math.min( position / chunk_size, chunk.length - 1 );
+		ByteBuffer bb = chunk[ i ].duplicate();
+		bb.position( (int) ( position - i * chunk_size ) );
+		return bb;
+	}
+
+	/**
+	 * Sequential reads that may cross from one mapping into the next. Each item read from the
+	 * buffer returned by {@link #next()} must be shorter than {@link #chunk_size}.
+	 */
+	private final class Cursor {
+		private long base;
+		private ByteBuffer bb;
+
+		Cursor( long position ) {
+			seek( position );
+		}
+
+		private void seek( long position ) {
+			bb = at( position );
+			base = position - bb.position();
+		}
+
+		long position() {
+			return base + bb.position();
+		}
+
+		void skip( long n ) {
+			seek( position() + n );
+		}
+
+		ByteBuffer next() {
+			if ( bb.position() >= chunk_size ) {
+				seek( position() );
+			}
+			return bb;
+		}
+	}
+
+	/**
+	 * The environment in which the run was recorded, e.g. {@code java.version} and {@code os.arch}.
+	 * @return the environment
+	 */
+	public Map<String,String> environment() {
+		return Collections.unmodifiableMap( environment );
+	}
+
+	public String[] paramNames() {
+		return Arrays.copyOf( param_name, param_name.length );
+	}
+
+	public String[] paramTypes() {
+		return Arrays.copyOf( param_type, param_type.length );
+	}
+
+	/**
+	 * The number of trials in the file.
+	 * @return the number of trials
+	 */
+	public int size() {
+		return offsets.limit();
+	}
+
+	private ByteBuffer record( int i ) {
+		ByteBuffer bb = at( offsets.get( i ) );
+		if ( TAG_TRIAL != ( bb.get() & 0xff ) ) {
+			throw new IllegalStateException( "offset " + offsets.get( i ) + " is not a trial record" );
+		}
+		if ( readVarInt( bb ) > bb.remaining() ) {
+			throw new IllegalStateException( "trial record at offset " + offsets.get( i ) + " is larger than " + chunk_size + " bytes" );
+		}
+		return bb;
+	}
+
+	private String string( int id ) {
+		return -1 == id ? null : strings[ id ];
+	}
+
+	public UUID id( int i ) {
+		ByteBuffer bb = record( i );
+		return new UUID( bb.getLong(), bb.getLong() );
+	}
+
+	public String className( int i ) {
+		ByteBuffer bb = record( i );
+		return string( bb.getInt( bb.position() + 16 ) );
+	}
+
+	public String methodName( int i ) {
+		ByteBuffer bb = record( i );
+		return string( bb.getInt( bb.position() + 20 ) );
+	}
+
+	public boolean isMicro( int i ) {
+		ByteBuffer bb = record( i );
+		return 0 != ( bb.get( bb.position() + 24 ) & FLAG_MICRO );
+	}
+
+	/**
+	 * The value of parameter {@code col} for trial {@code i}, as a string.
+	 * @param i the trial index
+	 * @param col the parameter index, in the order of {@link #paramNames()}
+	 * @return the parameter value, or {@code null}
+	 */
+	public String paramValue( int i, int col ) {
+		ByteBuffer bb = record( i );
+		return string( bb.getInt( bb.position() + 25 + 4 * col ) );
+	}
+
+	/**
+	 * Look up a single numeric measurement of trial {@code i} without materializing the trial.
+	 * @param i the trial index
+	 * @param description the measurement description, e.g. {@code elapsed_time_ns}
+	 * @return the value, or {@link Double#NaN} if the trial has no such numeric measurement
+	 */
+	public double measurement( int i, String description ) {
+		Integer id = dictionary.get( description );
+		if ( null == id ) {
+			return Double.NaN;
+		}
+		ByteBuffer bb = record( i );
+		bb.position( bb.position() + fixed_size );
+		for( int j = 0, n = readVarInt( bb ); j < n; j++ ) {
+			int d = readVarInt( bb );
+			readZigZag( bb );
+			Object v = readValue( bb, d != id );
+			if ( d == id ) {
+				return v instanceof Number ? ( (Number) v ).doubleValue() : Double.NaN;
+			}
+		}
+		return Double.NaN;
+	}
+
+	private static Object readValue( ByteBuffer bb, boolean skip ) {
+		int type = bb.get() & 0xff;
+		int n;
+		switch( type ) {
+		case TYPE_NULL:
+			return null;
+		case TYPE_BOOLEAN:
+			return 0 != bb.get();
+		case TYPE_BYTE:
+			return bb.get();
+		case TYPE_SHORT:
+			return (short) readZigZag( bb );
+		case TYPE_INT:
+			return (int) readZigZag( bb );
+		case TYPE_LONG:
+			return readZigZag( bb );
+		case TYPE_FLOAT:
+			return Float.intBitsToFloat( bb.getInt() );
+		case TYPE_DOUBLE:
+			return Double.longBitsToDouble( bb.getLong() );
+		case TYPE_INTEGRAL_DOUBLE:
+			return (double) readZigZag( bb );
+		case TYPE_CHAR:
+			return (char) readVarLong( bb );
+		case TYPE_STRING:
+			if ( skip ) {
+				skipString( bb );
+				return null;
+			}
+			return readString( bb );
+		case TYPE_DOUBLE_ARRAY:
+			n = readVarInt( bb );
+			if ( skip ) {
+				bb.position( bb.position() + 8 * n );
+				return null;
+			}
+			double[] da = new double[ n ];
+			for( int i = 0; i < n; i++ ) {
+				da[ i ] = Double.longBitsToDouble( bb.getLong() );
+			}
+			return da;
+		case TYPE_LONG_ARRAY:
+			n = readVarInt( bb );
+			long[] la = skip ? null : new long[ n ];
+			for( int i = 0; i < n; i++ ) {
+				long l = readZigZag( bb );
+				if ( ! skip ) {
+					la[ i ] = l;
+				}
+			}
+			return la;
+		case TYPE_INT_ARRAY:
+			n = readVarInt( bb );
+			int[] ia = skip ? null : new int[ n ];
+			for( int i = 0; i < n; i++ ) {
+				int l = (int) readZigZag( bb );
+				if ( ! skip ) {
+					ia[ i ] = l;
+				}
+			}
+			return ia;
+		default:
+			throw new IllegalStateException( "unknown value type " + type );
+		}
+	}
+
+	private static final Map<String,Class<?>> primitive_class = new HashMap<String,Class<?>>();
+	static {
+		for( Class<?> k: new Class<?>[] { boolean.class, byte.class, short.class, int.class, long.class, float.class, double.class, char.class } ) {
+			primitive_class.put( k.getName(), k );
+		}
+	}
+
+	private static Class<?> loadClass( String name ) throws ClassNotFoundException {
+		Class<?> k = primitive_class.get( name );
+		return null == k ? Class.forName( name, false, ClassLoader.getSystemClassLoader() ) : k;
+	}
+
+	private List<Measurement> measurements( ByteBuffer bb ) {
+		int n = readVarInt( bb );
+		ArrayList<Measurement> r = new ArrayList<Measurement>( n );
+		for( int j = 0; j < n; j++ ) {
+			String description = string( readVarInt( bb ) );
+			String klass_name = string( (int) readZigZag( bb ) );
+			Object v = readValue( bb, false );
+			Class<?> klass;
+			try {
+				klass = null == klass_name ? String.class : loadClass( klass_name );
+			} catch ( ClassNotFoundException e ) {
+				klass = null == v ? String.class : v.getClass();
+			}
+			r.add( new SimpleMeasurement( description, new PolymorphicType( klass, v ) ) );
+		}
+		return r;
+	}
+
+	/**
+	 * Decode trial {@code i}. Only its id and measurements are available from the returned
+	 * {@link Trial}; see {@link #replay(ResultProcessor)} to reconstruct complete trials.
+	 * @param i the trial index
+	 * @return the trial
+	 */
+	public Trial get( int i ) {
+		ByteBuffer bb = record( i );
+		final UUID id = new UUID( bb.getLong(), bb.getLong() );
+		bb.position( bb.position() + fixed_size - 16 );
+		final List<Measurement> measurements = measurements( bb );
+		return new Trial() {
+			@Override
+			public UUID id() {
+				return id;
+			}
+			@Override
+			public List<Measurement> measurements() {
+				return measurements;
+			}
+		};
+	}
+
+	/**
+	 * Reconstruct every trial, in order, and pass it to {@code rp}. The benchmark classes named in
+	 * the file must be loadable. {@code rp} is not {@linkplain ResultProcessor#close() closed}.
+	 * @param rp the result processor
+	 */
+	public void replay( ResultProcessor rp )
+	throws ClassNotFoundException, InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException
+	{
+		HashMap<String,SlideRuleAnnotations> annotations = new HashMap<String,SlideRuleAnnotations>();
+		HashMap<String,PolymorphicType> values = new HashMap<String,PolymorphicType>();
+
+		for( int i = 0, n = size(); i < n; i++ ) {
+			ByteBuffer bb = record( i );
+			UUID id = new UUID( bb.getLong(), bb.getLong() );
+			String class_name = string( bb.getInt() );
+			String method_name = string( bb.getInt() );
+			int flags = bb.get() & 0xff;
+			int[] param_id = new int[ param_name.length ];
+			for( int j = 0; j < param_id.length; j++ ) {
+				param_id[ j ] = bb.getInt();
+			}
+			List<Measurement> measurements = measurements( bb );
+
+			if ( 0 == ( flags & FLAG_SIMPLE ) ) {
+				continue;
+			}
+
+			SlideRuleAnnotations ann = annotations.get( class_name );
+			if ( null == ann ) {
+				ann = new SlideRuleAnnotations( loadClass( class_name ) );
+				annotations.put( class_name, ann );
+			}
+
+			Method method = null;
+			Set<Method> meth = 0 != ( flags & FLAG_MICRO ) ? ann.getBenchmarkMethods() : ann.getMacrobenchmarkMethods();
+			for( Method m: meth ) {
+				if ( m.getName().equals( method_name ) ) {
+					method = m;
+					break;
+				}
+			}
+			if ( null == method ) {
+				throw new IllegalStateException( "class " + class_name + " has no benchmark method " + method_name );
+			}
+
+			Field[] field = new Field[ param_name.length ];
+			PolymorphicType[] param_value = new PolymorphicType[ param_name.length ];
+			for( Field f: ann.getParamFields() ) {
+				for( int j = 0; j < param_name.length; j++ ) {
+					if ( f.getName().equals( param_name[ j ] ) ) {
+						field[ j ] = f;
+					}
+				}
+			}
+			for( int j = 0; j < field.length; j++ ) {
+				if ( null == field[ j ] ) {
+					throw new IllegalStateException( "class " + class_name + " has no param " + param_name[ j ] );
+				}
+				String key = j + ":" + param_id[ j ];
+				PolymorphicType pmt = values.get( key );
+				if ( null == pmt ) {
+					String s = string( param_id[ j ] );
+					pmt = null == s ? new PolymorphicType( field[ j ].getType(), null ) : PolymorphicType.infer( field[ j ].getType(), s );
+					values.put( key, pmt );
+				}
+				param_value[ j ] = pmt;
+			}
+
+			SimpleTrial st = new SimpleTrial( id, ann, method, field, param_value );
+			for( Measurement m: measurements ) {
+				st.addMeasurement( m );
+			}
+			rp.processTrial( st );
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
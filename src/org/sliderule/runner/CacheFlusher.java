@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * <p><b>Cache Flusher</b></p>
+ *
+ * <p>This class evicts the contents of the CPU caches by writing to every cache line of a buffer
+ * that is larger than the last-level cache (LLC). It is used to measure benchmark methods with
+ * cold caches, i.e. as they are typically called in production, rather than with the data that
+ * they touch already in L1.</p>
+ *
+ * <p>The size of the LLC is read from {@code /sys/devices/system/cpu/cpu0/cache/index*}, where
+ * available, and the buffer is twice that size, to allow for non-inclusive caches and imperfect
+ * replacement policies. Otherwise, or if it is set with {@code -Ccache.flush.bytes}, a fixed size
+ * is used.</p>
+ *
+ * <p>The following modes are supported, and may be selected with {@code -Ccache.mode}.
+ *
+ * <ul>
+ *   <li><b>hot</b> (default): caches are not flushed</li>
+ *   <li><b>cold</b>: caches are flushed before every timed invocation, and microbenchmarks are
+ *       run with 1 rep, so {@code elapsed_time_ns} is the cold latency</li>
+ *   <li><b>both</b>: {@code elapsed_time_ns} is measured with hot caches, and after each trial,
+ *       {@code cold_elapsed_time_ns} is measured with 1 rep after flushing caches</li>
+ * </ul>
+ * </p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ */
+final class CacheFlusher {
+
+	enum Mode {
+		HOT,
+		COLD,
+		BOTH,
+	}
+
+	static final String mode_property = "cache.mode";
+	static final String bytes_property = "cache.flush.bytes";
+
+	private static final String SYSFS_CACHE = "/sys/devices/system/cpu/cpu0/cache";
+	private static final int DEFAULT_BYTES = 64 << 20;
+	private static final int LINE_SIZE = 64;
+
+	final Mode mode;
+	private final byte[] buffer;
+	// defeat dead code elimination
+	private volatile int sink;
+
+	CacheFlusher( Mode mode, int bytes ) {
+		this.mode = mode;
+		buffer = Mode.HOT == mode ? null : new byte[ bytes ];
+	}
+
+	static CacheFlusher forConfig( Properties config ) {
+		String s = config.getProperty( mode_property );
+		Mode mode = null == s ? Mode.HOT : Mode.valueOf( s.trim().toUpperCase( Locale.ROOT ) );
+		s = config.getProperty( bytes_property );
+		int bytes;
+		if ( null != s ) {
+			bytes = Integer.parseInt( s.trim() );
+		} else {
+			long llc = lastLevelCacheSize();
+			bytes = llc > 0 ? (int) Math.min( 2 * llc, Integer.MAX_VALUE - LINE_SIZE ) : DEFAULT_BYTES;
+		}
+		return new CacheFlusher( mode, bytes );
+	}
+
+	/**
+	 * Parse a sysfs cache size, e.g. {@code 32768K}.
+	 */
+	static long parseSize( String s ) {
+		s = s.trim();
+		long mul = 1;
+		char c = s.isEmpty() ? '0' : Character.toUpperCase( s.charAt( s.length() - 1 ) );
+		if ( 'K' == c ) {
+			mul = 1L << 10;
+		} else if ( 'M' == c ) {
+			mul = 1L << 20;
+		} else if ( 'G' == c ) {
+			mul = 1L << 30;
+		}
+		if ( 1 != mul ) {
+			s = s.substring( 0, s.length() - 1 );
+		}
+		return Long.parseLong( s ) * mul;
+	}
+
+	/**
+	 * Read the size of the highest level of data or unified cache of cpu0.
+	 * @return the size in bytes, or -1 if it cannot be determined
+	 */
+	static long lastLevelCacheSize() {
+		return lastLevelCacheSize( new File( SYSFS_CACHE ) );
+	}
+
+	/**
+	 * Read the size of the highest level of data or unified cache.
+	 * @param cache a directory laid out like {@code /sys/devices/system/cpu/cpu0/cache}
+	 * @return the size in bytes, or -1 if it cannot be determined
+	 */
+	static long lastLevelCacheSize( File cache ) {
+		File[] index = cache.listFiles();
+		if ( null == index ) {
+			return -1;
+		}
+		int best_level = -1;
+		long r = -1;
+		for( File dir: index ) {
+			if ( ! dir.getName().startsWith( "index" ) ) {
+				continue;
+			}
+			try {
+				String type = read( new File( dir, "type" ) );
+				if ( "Instruction".equals( type ) ) {
+					continue;
+				}
+				int level = Integer.parseInt( read( new File( dir, "level" ) ) );
+				long size = parseSize( read( new File( dir, "size" ) ) );
+				if ( level > best_level ) {
+					best_level = level;
+					r = size;
+				}
+			} catch ( IOException | NumberFormatException e ) {
+			}
+		}
+		return r;
+	}
+
+	private static String read( File f ) throws IOException {
+		return new String( Files.readAllBytes( f.toPath() ), StandardCharsets.US_ASCII ).trim();
+	}
+
+	int size() {
+		return null == buffer ? 0 : buffer.length;
+	}
+
+	/**
+	 * Evict the contents of the CPU caches, by writing to every cache line of the buffer.
+	 */
+	void flush() {
+		final byte[] buffer = this.buffer;
+		int x = 0;
+		for( int i = 0; i < buffer.length; i += LINE_SIZE ) {
+			x += buffer[ i ]++;
+		}
+		sink = x;
+	}
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.charset.*;
+import java.util.*;
+
+import org.sliderule.model.*;
+import org.sliderule.stats.*;
+
+/**
+ * <p><b>Complexity Analysis</b></p>
+ *
+ * <p>This class estimates the empirical complexity of each benchmark method with respect to each
+ * of its numeric parameters (see {@link Complexity}). Trials are grouped by class, method, swept
+ * parameter, and the values of all other parameters, and each group with at least 3 distinct
+ * values of the swept parameter is fit against the mean {@code elapsed_time_ns}.</p>
+ *
+ * <p>The complexity class of each group is recorded in a baseline file the first time the group is
+ * measured, and subsequent experiments are compared against it, so that a change that moves a
+ * method into a worse complexity class is reported as a regression. Recorded classes are only
+ * replaced when {@code -Ccomplexity.baseline.update=true} is given, so that a regression is
+ * reported on every run until the baseline is deliberately updated.</p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ * @see GoogleChartsResultProcessor
+ */
+class ComplexityAnalysis {
+
+	static final String BASELINE = "sliderule-complexity.properties";
+	static final String BASELINE_UPDATE = "complexity.baseline.update";
+
+	final TreeMap<String,Complexity.Fit> fits = new TreeMap<String,Complexity.Fit>();
+	final TreeMap<String,String> regressions = new TreeMap<String,String>();
+
+	private static boolean isNumeric( Class<?> type ) {
+		return
+			byte.class == type || short.class == type || int.class == type || long.class == type ||
+			float.class == type || double.class == type ||
+			Number.class.isAssignableFrom( type );
+	}
+
+	/**
+	 * Name the group to which a set of trials belongs, when sweeping parameter {@code col}.
+	 */
+	static String key( SimpleTrial st, int col ) {
+		Field[] param = st.getParam();
+		PolymorphicType[] param_value = st.getParamValue();
+		String r = st.getSlideRuleAnnotations().getAnnotatedClass().getName() + "." + st.getMethod().getName() + "(" + param[ col ].getName() + ")";
+		if ( param.length > 1 ) {
+			Field[] other = new Field[ param.length - 1 ];
+			PolymorphicType[] other_value = new PolymorphicType[ param.length - 1 ];
+			for( int i = 0, j = 0; i < param.length; i++ ) {
+				if ( i != col ) {
+					other[ j ] = param[ i ];
+					other_value[ j ] = param_value[ i ];
+					j++;
+				}
+			}
+			r += PolymorphicType.nameParams( other, other_value );
+		}
+		return r;
+	}
+
+	/**
+	 * Fit every group of trials.
+	 * @param trials the trials of an experiment
+	 */
+	void analyze( Map<UUID,ArrayList<Trial>> trials ) {
+		TreeMap<String,TreeMap<Double,OnlineStatistics>> groups = new TreeMap<String,TreeMap<Double,OnlineStatistics>>();
+
+		for( ArrayList<Trial> alt: trials.values() ) {
+			if ( alt.isEmpty() || ! ( alt.get( 0 ) instanceof SimpleTrial ) ) {
+				continue;
+			}
+			SimpleTrial st = (SimpleTrial) alt.get( 0 );
+			Field[] param = st.getParam();
+			PolymorphicType[] param_value = st.getParamValue();
+			double[] means = SimpleTrial.extractMeans( alt );
+			if ( 0 == means.length ) {
+				continue;
+			}
+			for( int col = 0; col < param.length; col++ ) {
+				if ( ! isNumeric( param_value[ col ].klass ) ) {
+					continue;
+				}
+				double x = ( (Number) param_value[ col ].value ).doubleValue();
+				String k = key( st, col );
+				TreeMap<Double,OnlineStatistics> group = groups.get( k );
+				if ( null == group ) {
+					group = new TreeMap<Double,OnlineStatistics>();
+					groups.put( k, group );
+				}
+				OnlineStatistics os = group.get( x );
+				if ( null == os ) {
+					os = new OnlineStatistics();
+					group.put( x, os );
+				}
+				for( double d: means ) {
+					os.update( d );
+				}
+			}
+		}
+
+		for( Map.Entry<String,TreeMap<Double,OnlineStatistics>> e: groups.entrySet() ) {
+			TreeMap<Double,OnlineStatistics> group = e.getValue();
+			double[] n = new double[ group.size() ];
+			double[] y = new double[ group.size() ];
+			int i = 0;
+			for( Map.Entry<Double,OnlineStatistics> p: group.entrySet() ) {
+				n[ i ] = p.getKey();
+				y[ i ] = p.getValue().mean();
+				i++;
+			}
+			Complexity.Fit fit = Complexity.fit( n, y );
+			if ( null != fit ) {
+				fits.put( e.getKey(), fit );
+			}
+		}
+	}
+
+	/**
+	 * Compare the fits against a baseline. Groups that are not in the baseline are added to it, but
+	 * the recorded class of every other group is only replaced if {@code update} is true.
+	 * @param baseline the complexity class of each group in a previous experiment
+	 * @param update whether to replace the recorded classes with the current ones
+	 * @return true if the baseline was modified
+	 */
+	boolean compare( Properties baseline, boolean update ) {
+		boolean modified = false;
+		for( Map.Entry<String,Complexity.Fit> e: fits.entrySet() ) {
+			String s = baseline.getProperty( e.getKey() );
+			Complexity.Model after = e.getValue().model;
+			if ( null != s ) {
+				try {
+					Complexity.Model before = Complexity.Model.valueOf( s );
+					if ( after.compareTo( before ) > 0 ) {
+						regressions.put( e.getKey(), "" + before + " -> " + after );
+					}
+				} catch ( IllegalArgumentException ex ) {
+				}
+			}
+			if ( ( null == s || update ) && ! after.name().equals( s ) ) {
+				baseline.setProperty( e.getKey(), after.name() );
+				modified = true;
+			}
+		}
+		return modified;
+	}
+
+	/**
+	 * Compare the fits against the baseline stored in {@code file}, if it exists, and then
+	 * store any changes (see {@link #compare(Properties, boolean)}).
+	 * @param file the baseline file
+	 * @param update whether to replace the recorded classes with the current ones
+	 */
+	void compare( File file, boolean update ) throws IOException {
+		Properties baseline = new Properties();
+		if ( file.exists() ) {
+			InputStream is = new FileInputStream( file );
+			try {
+				baseline.load( is );
+			} finally {
+				is.close();
+			}
+		}
+		if ( ! compare( baseline, update ) ) {
+			return;
+		}
+		OutputStream os = new FileOutputStream( file );
+		try {
+			baseline.store( os, "SlideRule empirical complexity baseline" );
+		} finally {
+			os.close();
+		}
+	}
+
+	/**
+	 * Write the fits and regressions.
+	 * @param out where to write
+	 */
+	void write( PrintStream out ) {
+		for( Map.Entry<String,Complexity.Fit> e: fits.entrySet() ) {
+			out.println( e.getKey() + ": " + e.getValue() );
+		}
+		for( Map.Entry<String,String> e: regressions.entrySet() ) {
+			out.println( "REGRESSION: " + e.getKey() + ": " + e.getValue() );
+		}
+	}
+
+	void write( File file ) throws IOException {
+		PrintStream ps = new PrintStream( new FileOutputStream( file ), false, StandardCharsets.UTF_8.name() );
+		try {
+			write( ps );
+		} finally {
+			ps.close();
+		}
+	}
+}
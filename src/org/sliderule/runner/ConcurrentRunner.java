@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * <p><b>Concurrent Runner</b></p>
+ *
+ * <p>This class invokes a benchmark method from several threads at once (see
+ * {@link org.sliderule.api.Concurrent}). Every thread is started, and waits at a gate, before the
+ * run begins, so thread creation is not measured and all invocations begin together. Each thread
+ * then performs a batch of invocations back to back, and stores the latency of each in its own
+ * slice of a preallocated array, so that the threads never contend to record them. The run ends
+ * when every thread has finished its batch.</p>
+ *
+ * <p>The executor is created once, and reused by every run, so a pool of platform threads is
+ * only started once per benchmark method.</p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ */
+final class ConcurrentRunner implements Closeable {
+
+	final int concurrency;
+	final int batch;
+	final boolean virtual;
+	private final ExecutorService executor;
+
+	/** the latency of each invocation of the last run, {@code batch} per thread */
+	final long[] latency_ns;
+	long start_ns;
+	long end_ns;
+
+	private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+	/**
+	 * @param concurrency the number of concurrent threads
+	 * @param batch the number of invocations per thread per run
+	 * @param virtual true to use virtual threads, if supported
+	 */
+	ConcurrentRunner( int concurrency, int batch, boolean virtual ) {
+		if ( concurrency <= 0 ) {
+			throw new IllegalArgumentException( "concurrency must be positive" );
+		}
+		if ( batch <= 0 ) {
+			throw new IllegalArgumentException( "batch must be positive" );
+		}
+		if ( (long) concurrency * batch > Integer.MAX_VALUE ) {
+			throw new IllegalArgumentException( "" + concurrency + " threads of " + batch + " invocations is too many" );
+		}
+		this.concurrency = concurrency;
+		this.batch = batch;
+		this.virtual = virtual && ThreadPools.hasVirtualThreads();
+		latency_ns = new long[ concurrency * batch ];
+		executor = ThreadPools.create( "sliderule-concurrent", concurrency, virtual );
+	}
+
+	/**
+	 * @return the invocations per second of the last run
+	 */
+	double invocationsPerSecond() {
+		long elapsed = end_ns - start_ns;
+		return elapsed > 0 ? latency_ns.length * 1e9 / elapsed : 0;
+	}
+
+	/**
+	 * Run {@code batch} invocations on each of {@code concurrency} threads.
+	 * @param o the instance under test
+	 * @param m the method under test
+	 * @param args the arguments of the method, which are shared by every invocation
+	 * @param dry_run true to time the threads without invoking the method
+	 * @throws InvocationTargetException if any invocation throws
+	 */
+	void run( final Object o, final Method m, final Object[] args, final boolean dry_run )
+	throws InterruptedException, InvocationTargetException
+	{
+		final long[] latency_ns = this.latency_ns;
+		final int batch = this.batch;
+		final CountDownLatch ready = new CountDownLatch( concurrency );
+		final CountDownLatch gate = new CountDownLatch( 1 );
+		final CountDownLatch done = new CountDownLatch( concurrency );
+		failure.set( null );
+
+		for( int i = 0; i < concurrency; i++ ) {
+			final int offset = i * batch;
+			executor.execute( new Runnable() {
+				@Override
+				public void run() {
+					try {
+						ready.countDown();
+						gate.await();
+						for( int j = 0; j < batch && null == failure.get(); j++ ) {
+							long start_ns = System.nanoTime();
+							if ( ! dry_run ) {
+								m.invoke( o, args );
+							}
+							latency_ns[ offset + j ] = System.nanoTime() - start_ns;
+						}
+					} catch ( InvocationTargetException e ) {
+						failure.compareAndSet( null, e.getCause() );
+					} catch ( InterruptedException | IllegalAccessException | RuntimeException e ) {
+						failure.compareAndSet( null, e );
+					} finally {
+						done.countDown();
+					}
+				}
+			});
+		}
+
+		try {
+			ready.await();
+			start_ns = System.nanoTime();
+			gate.countDown();
+			done.await();
+			end_ns = System.nanoTime();
+		} finally {
+			// do not leave threads waiting at the gate
+			gate.countDown();
+		}
+
+		Throwable t = failure.get();
+		if ( null != t ) {
+			throw new InvocationTargetException( t );
+		}
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+}
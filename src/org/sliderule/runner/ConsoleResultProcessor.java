@@ -29,13 +29,64 @@ public class ConsoleResultProcessor implements ResultProcessor {
 		UUID id;
 		Trial proto;
 		OnlineStatistics os = new OnlineStatistics();
+		OnlineStatistics cold = new OnlineStatistics();
+		LatencyHistogram latency = new LatencyHistogram();
+		OnlineStatistics ns_per_op = new OnlineStatistics();
+		OnlineStatistics mb_per_s = new OnlineStatistics();
+		OnlineStatistics items_per_s = new OnlineStatistics();
+		OnlineStatistics invocations_per_s = new OnlineStatistics();
+		OnlineStatistics elements_per_s = new OnlineStatistics();
+		long pinned_events;
 		int reps;
+		void clear() {
+			os.clear();
+			cold.clear();
+			latency.clear();
+			ns_per_op.clear();
+			mb_per_s.clear();
+			items_per_s.clear();
+			invocations_per_s.clear();
+			elements_per_s.clear();
+			pinned_events = 0;
+		}
 		@Override
 		public String toString() {
 			String r = "";
 			r += proto.toString() + "\n";
 			r += "reps: " + reps + ", ";
 			r += os;
+			if ( cold.size() > 0 ) {
+				r += "\n";
+				r += "cold: " + cold;
+			}
+			if ( latency.count() > 1 ) {
+				r += "\n";
+				r += "latency: " + latency;
+			}
+			if ( ns_per_op.size() > 0 ) {
+				r += "\n";
+				r += "ns/op: " + ns_per_op;
+			}
+			if ( mb_per_s.size() > 0 ) {
+				r += "\n";
+				r += "MB/s: " + mb_per_s;
+			}
+			if ( items_per_s.size() > 0 ) {
+				r += "\n";
+				r += "items/s: " + items_per_s;
+			}
+			if ( invocations_per_s.size() > 0 ) {
+				r += "\n";
+				r += "invocations/s: " + invocations_per_s;
+			}
+			if ( elements_per_s.size() > 0 ) {
+				r += "\n";
+				r += "elements/s: " + elements_per_s;
+			}
+			if ( pinned_events > 0 ) {
+				r += "\n";
+				r += "pinned: " + pinned_events;
+			}
 			return r;
 		}
 	}
@@ -58,7 +109,7 @@ public class ConsoleResultProcessor implements ResultProcessor {
 		if ( trial.id() != ts.id ) {
 			if ( ts.id != null ) {
 				System.out.println( ts );
-				ts.os.clear();
+				ts.clear();
 			}
 			ts.id = trial.id();
 			ts.proto = trial;
@@ -75,13 +126,37 @@ public class ConsoleResultProcessor implements ResultProcessor {
 			case "elapsed_time_ns":
 				ts.os.update( (double)(Double) m.value().value );
 				break;
+			case "cold_elapsed_time_ns":
+				ts.cold.update( (double)(Double) m.value().value );
+				break;
+			case "latency_histogram":
+				ts.latency.add( (long[]) m.value().value );
+				break;
+			case "ns_per_op":
+				ts.ns_per_op.update( (double)(Double) m.value().value );
+				break;
+			case "mb_per_s":
+				ts.mb_per_s.update( (double)(Double) m.value().value );
+				break;
+			case "items_per_s":
+				ts.items_per_s.update( (double)(Double) m.value().value );
+				break;
+			case "invocations_per_s":
+				ts.invocations_per_s.update( (double)(Double) m.value().value );
+				break;
+			case "elements_per_s":
+				ts.elements_per_s.update( (double)(Double) m.value().value );
+				break;
+			case "pinned_events":
+				ts.pinned_events += (long)(Long) m.value().value;
+				break;
 			case "warning":
 				System.out.println( ts );
 				System.out.flush();
 				System.err.println( "" + m.value().value );
 				System.err.flush();
 				ts.id = null;
-				ts.os.clear();
+				ts.clear();
 				break;
 			default:
 				break;
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.security.*;
+import java.util.*;
+
+import org.sliderule.api.*;
+import org.sliderule.model.*;
+
+/**
+ * <p><b>Dataset Store</b></p>
+ *
+ * <p>This class generates and maps the files that back {@link Dataset} fields. Each file is
+ * generated at most once: the generator writes to a temporary file in the same directory, which
+ * is then atomically renamed, so that a partially-written file is never mapped. Processes that
+ * need the same dataset at the same time are serialized with a file lock, so that only one of
+ * them generates it, and the lock file is removed once the dataset exists.</p>
+ *
+ * <p>Within one process, each file is mapped once, and every scenario receives a duplicate of the
+ * mapping. A single {@link MappedByteBuffer} may not exceed 2 GiB, so larger datasets should be
+ * split into several fields.</p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ */
+class DatasetStore {
+
+	private static final int BUFFER_SIZE = 1 << 20;
+	private static final int MAX_NAME_LENGTH = 160;
+	private static final int HASH_BYTES = 8;
+
+	final File directory;
+	private final HashMap<File,MappedByteBuffer> mapped = new HashMap<File,MappedByteBuffer>();
+
+	/**
+	 * @param directory the directory in which to store datasets
+	 */
+	DatasetStore( File directory ) {
+		this.directory = directory;
+	}
+
+	static String sanitize( String s ) {
+		return s.replaceAll( "[^A-Za-z0-9._=,+-]", "_" );
+	}
+
+	/**
+	 * A hash of the generator, seed and parameters of a dataset, which tells apart the datasets
+	 * whose readable names are the same after {@link #sanitize(String)} or truncation.
+	 */
+	static String hash( Dataset ds, Map<String,Object> params ) {
+		// length-prefix every string, so that no two different keys have the same encoding
+		StringBuilder sb = new StringBuilder();
+		sb.append( ds.generator().getName().length() ).append( ':' ).append( ds.generator().getName() );
+		sb.append( ds.seed() ).append( ';' );
+		for( Map.Entry<String,Object> e: params.entrySet() ) {
+			String k = e.getKey();
+			String v = String.valueOf( e.getValue() );
+			sb.append( k.length() ).append( ':' ).append( k ).append( v.length() ).append( ':' ).append( v );
+		}
+		byte[] digest;
+		try {
+			digest = MessageDigest.getInstance( "SHA-256" ).digest( sb.toString().getBytes( StandardCharsets.UTF_8 ) );
+		} catch ( NoSuchAlgorithmException e ) {
+			// every Java platform is required to support SHA-256
+			throw new IllegalStateException( e );
+		}
+		String r = "";
+		for( int i = 0; i < HASH_BYTES; i++ ) {
+			r += String.format( "%02x", digest[ i ] & 0xff );
+		}
+		return r;
+	}
+
+	/**
+	 * The file that backs a dataset. Its name is a readable prefix, made of the generator, seed
+	 * and parameters, followed by a hash of them, so that distinct datasets never share a file.
+	 * @param ds the dataset
+	 * @param params the value of each parameter on which the dataset depends
+	 * @return the file
+	 */
+	File file( Dataset ds, Map<String,Object> params ) {
+		String name = ds.generator().getSimpleName() + "-" + ds.seed();
+		if ( ! params.isEmpty() ) {
+			String p = "";
+			for( Map.Entry<String,Object> e: params.entrySet() ) {
+				p += ( p.isEmpty() ? "" : "," ) + e.getKey() + "=" + e.getValue();
+			}
+			name += "-" + p;
+		}
+		name = sanitize( name );
+		if ( name.length() > MAX_NAME_LENGTH ) {
+			name = name.substring( 0, MAX_NAME_LENGTH );
+		}
+		return new File( directory, name + "-" + hash( ds, params ) + ".bin" );
+	}
+
+	private void generate( Dataset ds, Map<String,Object> params, File file )
+	throws IOException, InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException
+	{
+		DatasetGenerator gen;
+		try {
+			gen = ds.generator().getConstructor().newInstance();
+		} catch ( NoSuchMethodException e ) {
+			throw new InstantiationException( ds.generator().getName() + " must have a public constructor without parameters" );
+		}
+		File tmp = File.createTempFile( file.getName(), ".tmp", directory );
+		try {
+			OutputStream os = new BufferedOutputStream( new FileOutputStream( tmp ), BUFFER_SIZE );
+			try {
+				gen.generate( Collections.unmodifiableMap( params ), ds.seed(), os );
+			} finally {
+				os.close();
+			}
+			Files.move( tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING );
+		} finally {
+			tmp.delete();
+		}
+	}
+
+	/**
+	 * Get a dataset, generating it if necessary.
+	 * @param ds the dataset
+	 * @param params the value of each parameter on which the dataset depends, in order
+	 * @return a read-only view of the dataset, positioned at the start
+	 */
+	ByteBuffer open( Dataset ds, Map<String,Object> params )
+	throws IOException, InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException
+	{
+		File file = file( ds, params );
+		MappedByteBuffer mbb = mapped.get( file );
+		if ( null == mbb ) {
+			if ( ! directory.isDirectory() && ! directory.mkdirs() ) {
+				throw new IOException( "unable to create directory '" + directory + "'" );
+			}
+			if ( ! file.exists() ) {
+				File lock_file = new File( directory, file.getName() + ".lock" );
+				FileChannel lock = FileChannel.open( lock_file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE );
+				try {
+					lock.lock();
+					// another process may have generated it while we waited
+					if ( ! file.exists() ) {
+						Algorithm.D( "generating dataset " + file );
+						generate( ds, params, file );
+					}
+				} finally {
+					// a process that opens a new lock file after this one is removed checks again
+					// whether the dataset exists once it holds the lock, so it is not generated twice;
+					// and since every dataset is renamed into place, even a retry after a failure is safe
+					lock_file.delete();
+					lock.close();
+				}
+			}
+			FileChannel fc = FileChannel.open( file.toPath(), StandardOpenOption.READ );
+			try {
+				if ( fc.size() > Integer.MAX_VALUE ) {
+					throw new IOException( "dataset " + file + " of " + fc.size() + " bytes is too large to map" );
+				}
+				mbb = fc.map( FileChannel.MapMode.READ_ONLY, 0, fc.size() );
+			} finally {
+				// the mapping remains valid after the channel is closed
+				fc.close();
+			}
+			mapped.put( file, mbb );
+			Algorithm.D( "mapped dataset " + file + " of " + mbb.capacity() + " bytes" );
+		}
+		return mbb.duplicate();
+	}
+
+	/**
+	 * Inject every {@link Dataset} field of an instance of the class under test.
+	 * @param o the instance under test
+	 * @param dataset_fields the fields to inject
+	 * @param param_fields the parameters of the class under test
+	 * @param param_value the value of each parameter
+	 */
+	void inject( Object o, Collection<Field> dataset_fields, Field[] param_fields, PolymorphicType[] param_value )
+	throws IOException, InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException
+	{
+		for( Field f: dataset_fields ) {
+			Dataset ds = f.getAnnotation( Dataset.class );
+			LinkedHashMap<String,Object> params = new LinkedHashMap<String,Object>();
+			for( String name: ds.params() ) {
+				int col = 0;
+				for( ; col < param_fields.length && ! param_fields[ col ].getName().equals( name ); col++ );
+				if ( col == param_fields.length ) {
+					throw new IllegalArgumentException( "@Dataset field " + f.getName() + " depends on unknown parameter " + name );
+				}
+				params.put( name, param_value[ col ].value );
+			}
+			f.setAccessible( true );
+			f.set( o, open( ds, params ) );
+		}
+	}
+}
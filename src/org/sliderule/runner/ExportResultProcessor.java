@@ -0,0 +1,336 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.charset.*;
+import java.text.*;
+import java.util.*;
+
+import org.sliderule.api.*;
+import org.sliderule.model.*;
+
+/**
+ * <p><b>Streaming Export Result Processor</b></p>
+ *
+ * <p>This class writes each {@link Trial} to disk as soon as it is processed, in
+ * machine-readable formats, without retaining any trials in memory.
+ * Output files are written to the SlideRule data directory (see {@code --directory}) and
+ * are named {@code sliderule-<date>-<epoch>.jsonl} and {@code sliderule-<date>-<epoch>.csv}.
+ *
+ * <ul>
+ *   <li>
+ *       <a href="http://jsonlines.org/">JSON Lines</a>: one object per trial, containing the
+ *       trial id, class, method, parameter values, and all measurements.
+ *   </li>
+ *   <li>
+ *       <a href="http://tools.ietf.org/html/rfc4180">CSV</a>: one row per measurement, in
+ *       "long" format, with one column per parameter.
+ *   </li>
+ * </ul>
+ * </p>
+ *
+ * <p><b>Config Properties</b></p>
+ *
+ * <p>By setting the config property
+ * <b>-Corg.sliderule.runner.ExportResultProcessor.formats=jsonl</b> (or {@code csv}),
+ * only the named formats are written. Both are written by default.
+ * </p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ */
+public class ExportResultProcessor implements ResultProcessor, Flushable {
+
+	private static final String formats_property = ExportResultProcessor.class.getName() + ".formats";
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final String base;
+	private final Writer jsonl;
+	private final Writer csv;
+	private Field[] csv_param;
+	private boolean csv_header_written;
+
+	public ExportResultProcessor() throws IOException {
+		this( defaultDirectory(), null );
+	}
+
+	public ExportResultProcessor( File directory ) throws IOException {
+		this( directory, null );
+	}
+
+	ExportResultProcessor( Arguments arguments ) throws IOException {
+		this( arguments.directory, arguments.config_properties );
+	}
+
+	ExportResultProcessor( File directory, Properties config ) throws IOException {
+		Set<String> formats = new HashSet<String>( Arrays.asList( "jsonl", "csv" ) );
+		if ( null != config && config.containsKey( formats_property ) ) {
+			formats.clear();
+			for( String f: config.getProperty( formats_property ).split( "," ) ) {
+				formats.add( f.trim().toLowerCase() );
+			}
+		}
+		if ( ! directory.isDirectory() && ! directory.mkdirs() ) {
+			throw new IOException( "unable to create directory '" + directory + "'" );
+		}
+		base = directory.getPath() + File.separator + "sliderule-" + new SimpleDateFormat( "yyyyMMdd" ).format( new Date() ) + "-" + System.currentTimeMillis();
+		jsonl = formats.contains( "jsonl" ) ? open( base + ".jsonl" ) : null;
+		csv = formats.contains( "csv" ) ? open( base + ".csv" ) : null;
+	}
+
+	static File defaultDirectory() {
+		return new File( Arguments.HOME + File.separator + ".sliderule" );
+	}
+
+	String base() {
+		return base;
+	}
+
+	private static Writer open( String file_name ) throws FileNotFoundException {
+		return new BufferedWriter( new OutputStreamWriter( new FileOutputStream( file_name ), StandardCharsets.UTF_8 ), BUFFER_SIZE );
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void processTrial( Trial trial ) {
+		try {
+			if ( null != jsonl ) {
+				writeJsonLine( jsonl, trial );
+			}
+			if ( null != csv ) {
+				writeCsvRows( trial );
+			}
+		} catch ( IOException e ) {
+			throw new UncheckedIOException( e );
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void flush() throws IOException {
+		if ( null != jsonl ) {
+			jsonl.flush();
+		}
+		if ( null != csv ) {
+			csv.flush();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		if ( null != jsonl ) {
+			jsonl.close();
+		}
+		if ( null != csv ) {
+			csv.close();
+		}
+	}
+
+/*############################################################################
+ *                         JSON Lines
+ *############################################################################*/
+
+	static void writeJsonLine( Writer w, Trial trial ) throws IOException {
+		w.write( "{\"id\":\"" );
+		w.write( trial.id().toString() );
+		w.write( '"' );
+		if ( trial instanceof SimpleTrial ) {
+			SimpleTrial st = (SimpleTrial) trial;
+			w.write( ",\"class\":" );
+			writeJsonString( w, st.getSlideRuleAnnotations().getAnnotatedClass().getName() );
+			w.write( ",\"method\":" );
+			writeJsonString( w, st.getMethod().getName() );
+			w.write( ",\"micro\":" );
+			w.write( st.isMicro() ? "true" : "false" );
+			w.write( ",\"params\":{" );
+			Field[] param = st.getParam();
+			PolymorphicType[] param_value = st.getParamValue();
+			for( int i = 0; i < param.length; i++ ) {
+				if ( i > 0 ) {
+					w.write( ',' );
+				}
+				writeJsonString( w, param[ i ].getName() );
+				w.write( ':' );
+				writeJsonValue( w, param_value[ i ] );
+			}
+			w.write( '}' );
+		}
+		w.write( ",\"measurements\":{" );
+		int i = 0;
+		for( Measurement m: trial.measurements() ) {
+			if ( i++ > 0 ) {
+				w.write( ',' );
+			}
+			writeJsonString( w, m.description() );
+			w.write( ':' );
+			writeJsonValue( w, m.value() );
+		}
+		w.write( "}}\n" );
+	}
+
+	static void writeJsonValue( Writer w, PolymorphicType pmt ) throws IOException {
+		writeJsonValue( w, null == pmt ? null : pmt.value );
+	}
+
+	static void writeJsonValue( Writer w, Object o ) throws IOException {
+		if ( null == o ) {
+			w.write( "null" );
+		} else if ( o instanceof Double || o instanceof Float ) {
+			double d = ( (Number) o ).doubleValue();
+			if ( Double.isNaN( d ) || Double.isInfinite( d ) ) {
+				w.write( "null" );
+			} else {
+				w.write( String.valueOf( d ) );
+			}
+		} else if ( o instanceof Number || o instanceof Boolean ) {
+			w.write( o.toString() );
+		} else if ( o.getClass().isArray() ) {
+			w.write( '[' );
+			for( int i = 0, n = Array.getLength( o ); i < n; i++ ) {
+				if ( i > 0 ) {
+					w.write( ',' );
+				}
+				writeJsonValue( w, Array.get( o, i ) );
+			}
+			w.write( ']' );
+		} else {
+			writeJsonString( w, o.toString() );
+		}
+	}
+
+	static void writeJsonString( Writer w, String s ) throws IOException {
+		w.write( '"' );
+		for( int i = 0, n = s.length(); i < n; i++ ) {
+			char c = s.charAt( i );
+			switch( c ) {
+			case '"':
+				w.write( "\\\"" );
+				break;
+			case '\\':
+				w.write( "\\\\" );
+				break;
+			case '\n':
+				w.write( "\\n" );
+				break;
+			case '\r':
+				w.write( "\\r" );
+				break;
+			case '\t':
+				w.write( "\\t" );
+				break;
+			default:
+				if ( c < 0x20 ) {
+					w.write( String.format( "\\u%04x", (int) c ) );
+				} else {
+					w.write( c );
+				}
+				break;
+			}
+		}
+		w.write( '"' );
+	}
+
+/*############################################################################
+ *                         CSV
+ *############################################################################*/
+
+	private void writeCsvRows( Trial trial ) throws IOException {
+		SimpleTrial st = trial instanceof SimpleTrial ? (SimpleTrial) trial : null;
+
+		if ( ! csv_header_written ) {
+			csv_param = null == st ? new Field[ 0 ] : st.getParam();
+			csv.write( "id,class,method,micro" );
+			for( Field f: csv_param ) {
+				csv.write( ',' );
+				writeCsvString( csv, f.getName() );
+			}
+			csv.write( ",measurement,value\n" );
+			csv_header_written = true;
+		}
+
+		for( Measurement m: trial.measurements() ) {
+			csv.write( trial.id().toString() );
+			csv.write( ',' );
+			if ( null != st ) {
+				writeCsvString( csv, st.getSlideRuleAnnotations().getAnnotatedClass().getName() );
+				csv.write( ',' );
+				writeCsvString( csv, st.getMethod().getName() );
+				csv.write( ',' );
+				csv.write( st.isMicro() ? "true" : "false" );
+				PolymorphicType[] param_value = st.getParamValue();
+				for( int i = 0; i < csv_param.length; i++ ) {
+					csv.write( ',' );
+					if ( i < param_value.length && null != param_value[ i ].value ) {
+						writeCsvString( csv, param_value[ i ].value.toString() );
+					}
+				}
+			} else {
+				csv.write( ",," );
+				for( int i = 0; i < csv_param.length; i++ ) {
+					csv.write( ',' );
+				}
+			}
+			csv.write( ',' );
+			writeCsvString( csv, m.description() );
+			csv.write( ',' );
+			Object v = null == m.value() ? null : m.value().value;
+			if ( null != v && v.getClass().isArray() ) {
+				// arrays are flattened into one field, separated by spaces
+				StringBuilder sb = new StringBuilder();
+				for( int i = 0, n = Array.getLength( v ); i < n; i++ ) {
+					if ( i > 0 ) {
+						sb.append( ' ' );
+					}
+					sb.append( Array.get( v, i ) );
+				}
+				writeCsvString( csv, sb.toString() );
+			} else if ( null != v ) {
+				writeCsvString( csv, v.toString() );
+			}
+			csv.write( '\n' );
+		}
+	}
+
+	static void writeCsvString( Writer w, String s ) throws IOException {
+		boolean quote = false;
+		for( int i = 0, n = s.length(); i < n && ! quote; i++ ) {
+			char c = s.charAt( i );
+			quote = ',' == c || '"' == c || '\n' == c || '\r' == c;
+		}
+		if ( ! quote ) {
+			w.write( s );
+			return;
+		}
+		w.write( '"' );
+		for( int i = 0, n = s.length(); i < n; i++ ) {
+			char c = s.charAt( i );
+			if ( '"' == c ) {
+				w.write( '"' );
+			}
+			w.write( c );
+		}
+		w.write( '"' );
+	}
+}
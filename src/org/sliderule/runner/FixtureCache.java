@@ -0,0 +1,348 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+import org.sliderule.*;
+import org.sliderule.api.*;
+import org.sliderule.model.*;
+
+/**
+ * <p><b>Fixture Cache</b></p>
+ *
+ * <p>This class calls {@link CachedFixture} methods, and caches their results (i.e. the fields
+ * that they change) keyed by the class under test, the method and the values of the parameters
+ * that it depends on. The cache is bounded by a heap budget, and the least-recently used results
+ * are evicted first. Results that are larger than the budget on their own are never cached.</p>
+ *
+ * <p>The size of each result is estimated by walking the objects reachable from the fields that
+ * changed, visiting at most {@link #MAX_OBJECTS} objects. Arrays, collections and maps are walked
+ * through their elements, and other objects through their fields, where those are accessible.
+ * This is only approximate, but it is bounded, and it does not need a garbage collection.</p>
+ *
+ * <p>Only the fields that the method assigns are cached. A method that refills an array,
+ * collection or map in place would overwrite results that are already cached, so when the
+ * contents of such a field change while the field still refers to the same object, the results
+ * are not cached, and any cached results that share the object are discarded.</p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ */
+class FixtureCache {
+
+	static final String budget_property = "fixture.cache.bytes";
+
+	/** The most objects visited when estimating the size of one result. */
+	static final int MAX_OBJECTS = 1 << 16;
+
+	private static final int HEADER = 16;
+	private static final int REFERENCE = 8;
+
+	private static final class Key {
+		// the method may be inherited by several classes under test, whose results differ
+		final Class<?> klass;
+		final Method method;
+		final List<PolymorphicType> value;
+		Key( Class<?> klass, Method method, List<PolymorphicType> value ) {
+			this.klass = klass;
+			this.method = method;
+			this.value = value;
+		}
+		@Override
+		public boolean equals( Object o ) {
+			if ( ! ( o instanceof Key ) ) {
+				return false;
+			}
+			Key k = (Key) o;
+			return klass == k.klass && method.equals( k.method ) && value.equals( k.value );
+		}
+		@Override
+		public int hashCode() {
+			return 31 * ( 31 * klass.hashCode() + method.hashCode() ) + value.hashCode();
+		}
+	}
+
+	private static final class Entry {
+		final Field[] field;
+		final Object[] value;
+		final long bytes;
+		Entry( Field[] field, Object[] value, long bytes ) {
+			this.field = field;
+			this.value = value;
+			this.bytes = bytes;
+		}
+	}
+
+	final long budget;
+	private long bytes;
+
+	private final LinkedHashMap<Key,Entry> lru = new LinkedHashMap<Key,Entry>( 16, 0.75f, true );
+	private final HashMap<Class<?>,Field[]> state = new HashMap<Class<?>,Field[]>();
+
+	/**
+	 * @param budget the maximum total size of cached results, in bytes
+	 */
+	FixtureCache( long budget ) {
+		this.budget = budget;
+	}
+
+	static FixtureCache forConfig( Properties config ) {
+		long budget = Runtime.getRuntime().maxMemory() / 4;
+		String s = config.getProperty( budget_property );
+		if ( null != s ) {
+			budget = Long.parseLong( s.trim() );
+		}
+		return new FixtureCache( budget );
+	}
+
+	/**
+	 * The instance fields of a class (and its superclasses) that are not parameters.
+	 */
+	private Field[] state( Class<?> klass ) {
+		Field[] r = state.get( klass );
+		if ( null == r ) {
+			ArrayList<Field> alf = new ArrayList<Field>();
+			for( Class<?> k = klass; null != k && Object.class != k; k = k.getSuperclass() ) {
+				for( Field f: k.getDeclaredFields() ) {
+					int mod = f.getModifiers();
+					if ( Modifier.isStatic( mod ) || null != f.getAnnotation( Param.class ) ) {
+						continue;
+					}
+					f.setAccessible( true );
+					alf.add( f );
+				}
+			}
+			r = alf.toArray( new Field[ 0 ] );
+			state.put( klass, r );
+		}
+		return r;
+	}
+
+	private static boolean same( Field f, Object a, Object b ) {
+		return f.getType().isPrimitive() ? a.equals( b ) : a == b;
+	}
+
+	/**
+	 * A hash of the contents of an array, collection or map, so that refilling it in place can be
+	 * detected. Other objects have no contents that can be compared cheaply, so they hash to 0.
+	 */
+	private static int contents( Object o ) {
+		if ( o instanceof Object[] ) {
+			return Arrays.hashCode( (Object[]) o );
+		} else if ( o instanceof int[] ) {
+			return Arrays.hashCode( (int[]) o );
+		} else if ( o instanceof long[] ) {
+			return Arrays.hashCode( (long[]) o );
+		} else if ( o instanceof double[] ) {
+			return Arrays.hashCode( (double[]) o );
+		} else if ( o instanceof float[] ) {
+			return Arrays.hashCode( (float[]) o );
+		} else if ( o instanceof byte[] ) {
+			return Arrays.hashCode( (byte[]) o );
+		} else if ( o instanceof short[] ) {
+			return Arrays.hashCode( (short[]) o );
+		} else if ( o instanceof char[] ) {
+			return Arrays.hashCode( (char[]) o );
+		} else if ( o instanceof boolean[] ) {
+			return Arrays.hashCode( (boolean[]) o );
+		} else if ( o instanceof Collection || o instanceof Map ) {
+			return o.hashCode();
+		}
+		return 0;
+	}
+
+	private static int width( Class<?> type ) {
+		if ( long.class == type || double.class == type ) {
+			return 8;
+		} else if ( int.class == type || float.class == type ) {
+			return 4;
+		} else if ( short.class == type || char.class == type ) {
+			return 2;
+		} else if ( byte.class == type || boolean.class == type ) {
+			return 1;
+		}
+		return REFERENCE;
+	}
+
+	private static long align( long bytes ) {
+		return ( bytes + 7 ) & ~7L;
+	}
+
+	/**
+	 * Estimate the size of the objects reachable from {@code roots}, visiting at most
+	 * {@link #MAX_OBJECTS} objects.
+	 * @param roots the objects
+	 * @return the approximate size, in bytes
+	 */
+	static long sizeOf( Object... roots ) {
+		IdentityHashMap<Object,Boolean> seen = new IdentityHashMap<Object,Boolean>();
+		ArrayDeque<Object> todo = new ArrayDeque<Object>();
+		ArrayList<Object> next = new ArrayList<Object>( Arrays.asList( roots ) );
+		long r = 0;
+		for( int visited = 0; ; visited++ ) {
+			for( Object n: next ) {
+				if ( null != n && null == seen.put( n, true ) ) {
+					todo.add( n );
+				}
+			}
+			next.clear();
+			if ( todo.isEmpty() || visited >= MAX_OBJECTS ) {
+				break;
+			}
+			Object o = todo.poll();
+			Class<?> k = o.getClass();
+			if ( k.isArray() ) {
+				Class<?> c = k.getComponentType();
+				r += align( HEADER + (long) Array.getLength( o ) * width( c ) );
+				if ( ! c.isPrimitive() ) {
+					next.addAll( Arrays.asList( (Object[]) o ) );
+				}
+			} else if ( o instanceof String ) {
+				r += align( HEADER + REFERENCE + 8 ) + align( HEADER + ( (String) o ).length() );
+			} else if ( o instanceof Collection ) {
+				Collection<?> c = (Collection<?>) o;
+				// the collection, and its backing array or nodes
+				r += align( HEADER + 16 ) + align( HEADER + 2L * REFERENCE * c.size() );
+				next.addAll( c );
+			} else if ( o instanceof Map ) {
+				Map<?,?> m = (Map<?,?>) o;
+				// the map, its table, and one node per entry
+				r += align( HEADER + 16 ) + align( HEADER + (long) REFERENCE * m.size() ) + m.size() * align( HEADER + 3 * REFERENCE + 4 );
+				next.addAll( m.keySet() );
+				next.addAll( m.values() );
+			} else {
+				long bytes = HEADER;
+				for( Class<?> c = k; null != c && Object.class != c; c = c.getSuperclass() ) {
+					for( Field f: c.getDeclaredFields() ) {
+						if ( Modifier.isStatic( f.getModifiers() ) ) {
+							continue;
+						}
+						bytes += width( f.getType() );
+						if ( f.getType().isPrimitive() ) {
+							continue;
+						}
+						try {
+							f.setAccessible( true );
+							next.add( f.get( o ) );
+						} catch ( RuntimeException | IllegalAccessException e ) {
+							// e.g. the internals of java.base, which are counted but not walked
+						}
+					}
+				}
+				r += align( bytes );
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * Call a {@link org.sliderule.BeforeExperiment} method, or restore its cached results if it is
+	 * a {@link CachedFixture} that has already been called with the same values of the parameters
+	 * that it depends on.
+	 * @param m the method
+	 * @param o the instance under test
+	 * @param param_fields the parameters of the class under test
+	 * @param param_value the value of each parameter
+	 */
+	void invoke( Method m, Object o, Field[] param_fields, PolymorphicType[] param_value )
+	throws IllegalAccessException, IllegalArgumentException, InvocationTargetException
+	{
+		CachedFixture cf = m.getAnnotation( CachedFixture.class );
+		if ( null == cf ) {
+			m.invoke( o );
+			return;
+		}
+
+		ArrayList<PolymorphicType> dep = new ArrayList<PolymorphicType>();
+		for( String name: cf.value() ) {
+			int col = 0;
+			for( ; col < param_fields.length && ! param_fields[ col ].getName().equals( name ); col++ );
+			if ( col == param_fields.length ) {
+				throw new IllegalArgumentException( "@CachedFixture method " + m.getName() + " depends on unknown parameter " + name );
+			}
+			dep.add( param_value[ col ] );
+		}
+		Key key = new Key( o.getClass(), m, dep );
+
+		Entry e = lru.get( key );
+		if ( null != e ) {
+			for( int i = 0; i < e.field.length; i++ ) {
+				e.field[ i ].set( o, e.value[ i ] );
+			}
+			Algorithm.D( "reusing fixture " + m.getName() + "() for " + cf.value().length + " parameter(s)" );
+			return;
+		}
+
+		Field[] field = state( o.getClass() );
+		Object[] before = new Object[ field.length ];
+		int[] before_contents = new int[ field.length ];
+		for( int i = 0; i < field.length; i++ ) {
+			before[ i ] = field[ i ].get( o );
+			before_contents[ i ] = contents( before[ i ] );
+		}
+
+		m.invoke( o );
+
+		ArrayList<Field> changed = new ArrayList<Field>();
+		ArrayList<Object> changed_value = new ArrayList<Object>();
+		IdentityHashMap<Object,Boolean> refilled = new IdentityHashMap<Object,Boolean>();
+		for( int i = 0; i < field.length; i++ ) {
+			Object after = field[ i ].get( o );
+			if ( null == before[ i ] ? null != after : ! same( field[ i ], before[ i ], after ) ) {
+				changed.add( field[ i ] );
+				changed_value.add( after );
+			} else if ( null != after && contents( after ) != before_contents[ i ] ) {
+				refilled.put( after, true );
+			}
+		}
+
+		if ( ! refilled.isEmpty() ) {
+			// cached results that share a refilled object no longer hold what was cached
+			Iterator<Map.Entry<Key,Entry>> it = lru.entrySet().iterator();
+			while( it.hasNext() ) {
+				Entry old = it.next().getValue();
+				for( Object v: old.value ) {
+					if ( null != v && refilled.containsKey( v ) ) {
+						bytes -= old.bytes;
+						it.remove();
+						break;
+					}
+				}
+			}
+			Algorithm.D( "not caching fixture " + m.getName() + "(), which modifies " + refilled.size() + " object(s) in place rather than assigning new ones" );
+			return;
+		}
+
+		long size = sizeOf( changed_value.toArray() );
+
+		if ( size > budget ) {
+			Algorithm.D( "not caching fixture " + m.getName() + "() of " + size + " bytes, which exceeds the budget of " + budget + " bytes" );
+			return;
+		}
+		// evict the least-recently used results, so that the new ones fit
+		Iterator<Map.Entry<Key,Entry>> it = lru.entrySet().iterator();
+		while( bytes + size > budget && it.hasNext() ) {
+			Entry old = it.next().getValue();
+			bytes -= old.bytes;
+			it.remove();
+		}
+		lru.put( key, new Entry( changed.toArray( new Field[ 0 ] ), changed_value.toArray(), size ) );
+		bytes += size;
+		Algorithm.D( "cached fixture " + m.getName() + "() of approximately " + size + " bytes; " + bytes + " of " + budget + " bytes used" );
+	}
+}
@@ -30,9 +30,15 @@ import org.sliderule.stats.*;
  *
  * <p>This class plots the results of benchmarking trials using
  * <a href="https://developers.google.com/chart/">Google Charts API</a>.
- * SlideRule benchmark results are written to
- * <a href="http://en.wikipedia.org/wiki/HTML">HTML</a>
- * files and are grouped according to the following guidelines.
+ * By default, SlideRule benchmark results are written to a single interactive
+ * <a href="http://en.wikipedia.org/wiki/HTML">HTML</a> report,
+ * {@code sliderule-<date>-<epoch>.html}, which loads its data from
+ * {@code sliderule-<date>-<epoch>-data.js} and allows results to be filtered by class,
+ * method, and parameter value, and plotted against any parameter (see {@link HtmlReportWriter}).
+ * </p>
+ *
+ * <p>Alternatively, one file may be written for each set of parameters and for each parametric
+ * sweep (see below). Those files are grouped according to the following guidelines.
  *
  * <ol>
  *   <li>
@@ -68,6 +74,20 @@ import org.sliderule.stats.*;
  * </ol>
  * </p>
  *
+ * <p>When a numeric parameter takes at least 3 values, the empirical complexity of each method
+ * with respect to that parameter is estimated and written to
+ * {@code sliderule-<date>-<epoch>-complexity.txt}. The first complexity class measured for each
+ * method is recorded in {@code sliderule-complexity.properties} in the output directory, and a
+ * method that moves into a worse complexity class than the recorded one is reported (see
+ * {@link ComplexityAnalysis}). Setting the config property
+ * <b>-Ccomplexity.baseline.update=true</b> replaces the recorded classes with the current ones.
+ * </p>
+ *
+ * <p>When the rate of an {@link org.sliderule.api.OpenLoop} benchmark is swept as a parameter,
+ * the saturation knee of each method is written to {@code sliderule-<date>-<epoch>-saturation.txt}
+ * (see {@link SaturationAnalysis}).
+ * </p>
+ *
  * <p><b>System Properties</b></p>
  *
  * <p>By setting the config property
@@ -77,6 +97,11 @@ import org.sliderule.stats.*;
  * it was validated against.
  * </p>
  * <p>By setting the config property
+ * <b>-Corg.sliderule.runner.GoogleChartsResultProcessor.legacy=true</b>,
+ * this class will write one file per set of parameters and one file per parametric sweep, rather
+ * than a single report. Note, that the number of files grows with the size of the parameter space.
+ * </p>
+ * <p>By setting the config property
  * <b>-Corg.sliderule.runner.GoogleChartsResultProcessor.output.directory=path/to/somewhere</b>,
  * this class will generate output files in the named directory instead of the current working directory.
  * </p>
@@ -95,6 +120,9 @@ public class GoogleChartsResultProcessor extends InMemoryResultProcessor {
 	private static final String parametric_sweep_property = GoogleChartsResultProcessor.class.getName() + ".plot.parametric.sweep";
 	static final boolean parametric_sweep;
 
+	private static final String legacy_property = GoogleChartsResultProcessor.class.getName() + ".legacy";
+	static final boolean legacy;
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -110,6 +138,35 @@ public class GoogleChartsResultProcessor extends InMemoryResultProcessor {
 			return;
 		}
 
+		String base = "sliderule" + "-" + date + "-" + epoch;
+		File dir = new File( output_directory );
+		dir.mkdirs();
+
+		ComplexityAnalysis ca = new ComplexityAnalysis();
+		ca.analyze( trial_set );
+		if ( ! ca.fits.isEmpty() ) {
+			ca.compare( new File( dir, ComplexityAnalysis.BASELINE ), Boolean.parseBoolean( property( ComplexityAnalysis.BASELINE_UPDATE ) ) );
+			ca.write( new File( dir, base + "-complexity.txt" ) );
+			for( Map.Entry<String,String> e: ca.regressions.entrySet() ) {
+				System.err.println( "complexity regression: " + e.getKey() + ": " + e.getValue() );
+			}
+		}
+
+		SaturationAnalysis sa = new SaturationAnalysis();
+		sa.analyze( trial_set );
+		if ( ! sa.knees.isEmpty() ) {
+			sa.write( new File( dir, base + "-saturation.txt" ) );
+			for( Map.Entry<String,SaturationAnalysis.Knee> e: sa.knees.entrySet() ) {
+				System.err.println( "saturation: " + e.getKey() + ": " + e.getValue() );
+			}
+		}
+
+		if ( ! legacy ) {
+			HtmlReportWriter hrw = new HtmlReportWriter( dir, base, date );
+			hrw.write( trial_set );
+			return;
+		}
+
 		Trial t = trial_set.firstEntry().getValue().get( 0 );
 		if ( ! ( t instanceof SimpleTrial ) ) {
 			return;
@@ -122,23 +179,23 @@ public class GoogleChartsResultProcessor extends InMemoryResultProcessor {
 			return;
 		}
 
-		PolymorphicType[][] pmt = null;
+		ParameterSpace space = null;
 		Field[] field_array = field_set.toArray( new Field[ 0 ] );
 		List<Field> fields = Arrays.asList( field_array );
 		try {
-			pmt = Algorithm.permute( field_array );
+			space = ParameterSpace.of( field_array );
 		} catch ( InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException e ) {
 			return;
 		}
-		if ( null == pmt |  pmt.length < 1 ) {
+		if ( space.size() < 1 ) {
 			return;
 		}
 
 		// create one file containing up to two graphs for each permutation of parameters (one for microbenchmarks, one for macrobenchmarks)
-		for( int row = 0; row < pmt.length; row++ ) {
+		for( PolymorphicType[] row: space ) {
 
-			List<PolymorphicType> lpmt = Arrays.asList( pmt[ row ] );
-			TreeMap<UUID, ArrayList<Trial>> subset = filterByParamValue( trial_set, fields, lpmt );
+			List<PolymorphicType> lpmt = Arrays.asList( row );
+			TreeMap<UUID, ArrayList<Trial>> subset = index.query().whereParams( fields, lpmt ).execute();
 
 			if ( ! subset.isEmpty() ) {
 				File file = genFile( subset );
@@ -153,23 +210,18 @@ public class GoogleChartsResultProcessor extends InMemoryResultProcessor {
 			// but only if there is more then one value for that parameter
 			for( int col = 0; col < field_array.length; col++ ) {
 
-				TreeSet<PolymorphicType> unique_values = new TreeSet<PolymorphicType>();
-
-				for( int row = 0; row < pmt.length; row++ ) {
-					unique_values.add( pmt[ row ][ col ] );
-				}
+				SortedSet<PolymorphicType> unique_values = index.paramValues( field_array[ col ] );
 
 				if ( unique_values.size() > 1 ) {
 
-					PolymorphicType[] base_case = new PolymorphicType[ pmt[ 0 ].length ];
-					System.arraycopy( pmt[ 0 ], 0, base_case, 0, base_case.length );
+					PolymorphicType[] base_case = space.get( 0 );
 
 					TreeMap<UUID, ArrayList<Trial>> subset = new TreeMap<UUID, ArrayList<Trial>>();
 
 					for( PolymorphicType v: unique_values ) {
 						base_case[ col ] = v;
 						List<PolymorphicType> values = Arrays.asList( base_case );
-						TreeMap<UUID, ArrayList<Trial>> q = filterByParamValue( trial_set, fields, values );
+						TreeMap<UUID, ArrayList<Trial>> q = index.query().whereParams( fields, values ).execute();
 						subset.putAll( q );
 					}
 
@@ -303,17 +355,25 @@ public class GoogleChartsResultProcessor extends InMemoryResultProcessor {
 	final String date = new SimpleDateFormat( "yyyyMMdd" ).format( new Date() );
 	final long epoch = System.currentTimeMillis();
 
+	private static String property( String key ) {
+		String s = System.getProperty( key );
+		if ( null == s && null != Arguments.static_config_properties ) {
+			s = Arguments.static_config_properties.getProperty( key );
+		}
+		return s;
+	}
+
 	static {
 		String s;
 		boolean b;
-		// XXX: arguments.static_config_properties. does not seem to work
-		// arguments.static_config_properties.
-		s = System.getProperty( output_directory_property );
+		s = property( output_directory_property );
 		output_directory = null == s ? Paths.get( "" ).toAbsolutePath().toString() : s;
-		s = System.getProperty( plot_histogram_property );
+		s = property( plot_histogram_property );
 		b = Boolean.parseBoolean( s );
 		plot_histogram = b;
-		s = System.getProperty( parametric_sweep_property );
+		s = property( parametric_sweep_property );
 		parametric_sweep = true;
+		s = property( legacy_property );
+		legacy = Boolean.parseBoolean( s );
 	}
 }
@@ -14,6 +14,7 @@ class GoogleChartsWriter {
 	final String date;
 	final PrintWriter pw;
 	final TreeMap<UUID,ArrayList<Trial>> trials;
+	final TrialIndex index;
 	final boolean sweep;
 	final TreeSet<Class<?>> classes;
 	final TreeSet<Method> methods;
@@ -24,6 +25,7 @@ class GoogleChartsWriter {
 		this.date = date;
 		this.pw = new PrintWriter( os );
 		this.trials = trials;
+		this.index = new TrialIndex( trials );
 		sweep = GoogleChartsResultProcessor.trialsAreParametricSweep( trials );
 
 		methods = uniqueMethods();
@@ -85,10 +87,9 @@ class GoogleChartsWriter {
 
 		SimpleTrial prototype = (SimpleTrial) trials.firstEntry().getValue().get( 0 );
 
-		TreeMap<UUID,ArrayList<Trial>> subset1, subset2;
+		TreeMap<UUID,ArrayList<Trial>> subset2;
 
-		subset1 = InMemoryResultProcessor.filterByMicro( trials, micro );
-		if ( subset1.isEmpty() ) {
+		if ( index.query().whereMicro( micro ).isEmpty() ) {
 			return 0;
 		}
 
@@ -110,7 +111,7 @@ class GoogleChartsWriter {
 
 		i=0;
 		for( Method m: meth ) {
-			subset2 = InMemoryResultProcessor.filterByMethod( subset1, m );
+			subset2 = index.query().whereMicro( micro ).whereMethod( m ).execute();
 			ArrayList<Trial> alt = subset2.firstEntry().getValue();
 			OfflineStatistics os = new OfflineStatistics( SimpleTrial.extractMeans( alt ) );
 			pw.print( "'" + os.mean() + "'" );
@@ -143,10 +144,9 @@ class GoogleChartsWriter {
 		Set<Method> meth;
 		SimpleTrial prototype = (SimpleTrial) trials.firstEntry().getValue().get( 0 );
 
-		TreeMap<UUID,ArrayList<Trial>> subset1, subset2, subset3;
+		TreeMap<UUID,ArrayList<Trial>> subset3;
 
-		subset1 = InMemoryResultProcessor.filterByMicro( trials, micro );
-		if ( subset1.isEmpty() ) {
+		if ( index.query().whereMicro( micro ).isEmpty() ) {
 			return 0;
 		}
 
@@ -165,14 +165,12 @@ class GoogleChartsWriter {
 
 		j=0;
 		for( Class<?> c: classes ) {
-			subset2 = InMemoryResultProcessor.filterByClass( subset1, c );
-
 			pw.print( "[ '" + c.getName() + "', " );
 
 			i=0;
 			for( Method m: meth ) {
 
-				subset3 = InMemoryResultProcessor.filterByMethod( subset2, m );
+				subset3 = index.query().whereMicro( micro ).whereClass( c ).whereMethod( m ).execute();
 
 				if ( 1 != subset3.size() ) {
 					throw new IllegalStateException();
@@ -245,10 +243,9 @@ class GoogleChartsWriter {
 
 		SimpleTrial prototype = (SimpleTrial) trials.firstEntry().getValue().get( 0 );
 
-		TreeMap<UUID,ArrayList<Trial>> subset1, subset2, subset3;
+		TreeMap<UUID,ArrayList<Trial>> subset3;
 
-		subset1 = InMemoryResultProcessor.filterByMicro( trials, micro );
-		if ( subset1.isEmpty() ) {
+		if ( index.query().whereMicro( micro ).isEmpty() ) {
 			return 0;
 		}
 
@@ -276,14 +273,12 @@ class GoogleChartsWriter {
 		j=0;
 		for( PolymorphicType sweep_pmt: sweep_values ) {
 
-			subset2= InMemoryResultProcessor.filterByParamValue( subset1, sweep_field, sweep_pmt );
-
 			pw.print( "        [ '" + sweep_pmt.value + "', " );
 
 			i=0;
 			for( Method m: meth ) {
 
-				subset3 = InMemoryResultProcessor.filterByMethod( subset2, m );
+				subset3 = index.query().whereMicro( micro ).whereParam( sweep_field, sweep_pmt ).whereMethod( m ).execute();
 
 				ArrayList<Trial> alt = subset3.firstEntry().getValue();
 
@@ -321,7 +316,7 @@ class GoogleChartsWriter {
 	int doMultiSweepChart( boolean micro, int chart_idx ) {
 
 		int i, j;
-		TreeMap<UUID,ArrayList<Trial>> subset1, subset2, subset3, subset4;
+		TreeMap<UUID,ArrayList<Trial>> subset4;
 
 		SimpleTrial prototype = (SimpleTrial) trials.firstEntry().getValue().get( 0 );
 
@@ -332,8 +327,6 @@ class GoogleChartsWriter {
 		PolymorphicType[] sweep_values = uniqueValues( sweep_parameter );
 		Set<Method> meth = micro ? ann.getBenchmarkMethods() : ann.getMacrobenchmarkMethods();
 
-		subset1 = InMemoryResultProcessor.filterByMicro( trials, micro );
-
 		TreeSet<Class<?>> classes = uniqueClasses();
 
 		// one chart per method
@@ -351,21 +344,17 @@ class GoogleChartsWriter {
 			}
 			pw.println( "], " );
 
-			subset2 = InMemoryResultProcessor.filterByMethod( subset1, m );
-
 			i=0;
 			// for each sweep value
 			for( PolymorphicType sv: sweep_values ) {
 
-				subset3 = InMemoryResultProcessor.filterByParamValue( subset2, sweep_field, sv );
-
 				pw.print( "        [ '" + sv.value + "', " );
 
 				j=0;
 				// for each class
 				for( Class<?> clazz: classes ) {
 
-					subset4 = InMemoryResultProcessor.filterByClass( subset3, clazz );
+					subset4 = index.query().whereMicro( micro ).whereMethod( m ).whereParam( sweep_field, sv ).whereClass( clazz ).execute();
 
 					ArrayList<Trial> alt = subset4.firstEntry().getValue();
 
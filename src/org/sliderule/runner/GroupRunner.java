@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import java.lang.reflect.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.sliderule.stats.*;
+
+/**
+ * <p><b>Group Runner</b></p>
+ *
+ * <p>This class runs the methods of a {@link org.sliderule.api.Group} concurrently. Each role
+ * (method) has its own threads, which are all started, and wait at a gate, before the run
+ * begins. Every thread then invokes its method in a loop until the run is over, and records the
+ * latency of each invocation in a {@link LatencyHistogram} of its own, so that the threads never
+ * contend to record them.</p>
+ *
+ * <p>Once the duration has elapsed, each thread finishes its current invocation. Threads that
+ * are still blocked after a grace period (e.g. a reader waiting on an empty queue whose writers
+ * have stopped) are interrupted, and the interrupted invocation is not counted. If any are still
+ * running after a second grace period, they would keep recording into the histograms of the
+ * role, so the run fails instead.</p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ */
+final class GroupRunner {
+
+	private static final long GRACE_MS = 1000;
+
+	static final class Role {
+		final Method method;
+		final int threads;
+		final Object[] args;
+		final LatencyHistogram[] latency;
+		// sum of squared latencies of each thread, for the variance
+		final double[] sum_sq;
+
+		Role( Method method, int threads, Object[] args ) {
+			if ( threads <= 0 ) {
+				throw new IllegalArgumentException( "the number of threads of " + method.getName() + " must be positive" );
+			}
+			this.method = method;
+			this.threads = threads;
+			this.args = args;
+			latency = new LatencyHistogram[ threads ];
+			for( int i = 0; i < threads; i++ ) {
+				latency[ i ] = new LatencyHistogram();
+			}
+			sum_sq = new double[ threads ];
+		}
+
+		/**
+		 * @return the latency of every invocation of the last run, by every thread of the role
+		 */
+		LatencyHistogram histogram() {
+			LatencyHistogram r = new LatencyHistogram();
+			for( LatencyHistogram h: latency ) {
+				r.add( h );
+			}
+			return r;
+		}
+
+		double sumOfSquares() {
+			double r = 0;
+			for( double d: sum_sq ) {
+				r += d;
+			}
+			return r;
+		}
+	}
+
+	final Role[] roles;
+	final long duration_ns;
+	long start_ns;
+	long end_ns;
+
+	private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+	/**
+	 * @param roles the roles of the group
+	 * @param duration_ms the duration of each run, in milliseconds
+	 */
+	GroupRunner( Role[] roles, long duration_ms ) {
+		if ( duration_ms <= 0 ) {
+			throw new IllegalArgumentException( "the group duration must be positive" );
+		}
+		this.roles = roles;
+		this.duration_ns = duration_ms * 1000000L;
+	}
+
+	/**
+	 * @param role a role
+	 * @return the invocations per second of the role in the last run, i.e. the number of
+	 * invocations that started before the deadline, over the duration
+	 */
+	double invocationsPerSecond( Role role ) {
+		long n = 0;
+		for( LatencyHistogram h: role.latency ) {
+			n += h.count();
+		}
+		return n * 1e9 / duration_ns;
+	}
+
+	/**
+	 * Run every role concurrently for the duration.
+	 * @param o the instance under test
+	 * @param dry_run true to run the threads without invoking the methods
+	 * @throws InvocationTargetException if any invocation throws
+	 */
+	void run( final Object o, final boolean dry_run ) throws InterruptedException, InvocationTargetException {
+		int nthreads = 0;
+		for( Role r: roles ) {
+			nthreads += r.threads;
+		}
+		final CountDownLatch ready = new CountDownLatch( nthreads );
+		final CountDownLatch gate = new CountDownLatch( 1 );
+		final CountDownLatch done = new CountDownLatch( nthreads );
+		final AtomicBoolean stop = new AtomicBoolean();
+		final long[] deadline = new long[ 1 ];
+		failure.set( null );
+
+		Thread[] thread = new Thread[ nthreads ];
+		int t = 0;
+		for( final Role r: roles ) {
+			for( int i = 0; i < r.threads; i++ ) {
+				final int j = i;
+				r.latency[ j ].clear();
+				r.sum_sq[ j ] = 0;
+				thread[ t ] = new Thread( "sliderule-group-" + r.method.getName() + "-" + j ) {
+					@Override
+					public void run() {
+						final LatencyHistogram h = r.latency[ j ];
+						final Method m = r.method;
+						final Object[] args = r.args;
+						double sum_sq = 0;
+						try {
+							ready.countDown();
+							gate.await();
+							final long end = deadline[ 0 ];
+							for( long t0 = System.nanoTime(); t0 < end && null == failure.get(); ) {
+								if ( ! dry_run ) {
+									m.invoke( o, args );
+								}
+								long t1 = System.nanoTime();
+								long ns = t1 - t0;
+								h.record( ns );
+								sum_sq += (double) ns * ns;
+								t0 = t1;
+							}
+						} catch ( InvocationTargetException e ) {
+							if ( ! ( stop.get() && e.getCause() instanceof InterruptedException ) ) {
+								failure.compareAndSet( null, e.getCause() );
+							}
+						} catch ( InterruptedException e ) {
+							if ( ! stop.get() ) {
+								failure.compareAndSet( null, e );
+							}
+						} catch ( IllegalAccessException | RuntimeException e ) {
+							failure.compareAndSet( null, e );
+						} finally {
+							r.sum_sq[ j ] = sum_sq;
+							done.countDown();
+						}
+					}
+				};
+				thread[ t ].setDaemon( true );
+				thread[ t ].start();
+				t++;
+			}
+		}
+
+		try {
+			ready.await();
+			start_ns = System.nanoTime();
+			deadline[ 0 ] = start_ns + duration_ns;
+			gate.countDown();
+			if ( ! done.await( duration_ns / 1000000 + GRACE_MS, TimeUnit.MILLISECONDS ) ) {
+				Algorithm.D( "interrupting " + done.getCount() + " blocked group threads" );
+				stop.set( true );
+				for( Thread th: thread ) {
+					th.interrupt();
+				}
+				if ( ! done.await( GRACE_MS, TimeUnit.MILLISECONDS ) ) {
+					throw new InvocationTargetException( new TimeoutException( "" + done.getCount() + " group threads did not stop within " + 2 * GRACE_MS + " ms of the end of the run" ) );
+				}
+			}
+			end_ns = System.nanoTime();
+		} finally {
+			gate.countDown();
+		}
+
+		Throwable th = failure.get();
+		if ( null != th ) {
+			throw new InvocationTargetException( th );
+		}
+	}
+}
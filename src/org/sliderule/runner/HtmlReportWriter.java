@@ -0,0 +1,490 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.charset.*;
+import java.util.*;
+
+import org.sliderule.model.*;
+import org.sliderule.stats.*;
+
+/**
+ * <p><b>HTML Report Writer</b></p>
+ *
+ * <p>This class writes a single interactive report for an entire experiment. The report consists
+ * of a static HTML page and a separate, compact data file that the page loads once it has been
+ * rendered. All filtering (by micro / macro benchmark, class, method, and parameter value) and
+ * plotting is done in the browser, so the size of the page does not depend on the number of
+ * trials and only one pair of files is generated, regardless of the size of the parameter space.</p>
+ *
+ * <p>The data file is a single JavaScript call, {@code sliderule_data( { ... } )}, so that it
+ * may be loaded with a {@code <script>} element even when the report is opened from a
+ * {@code file:} URL. Classes, methods, and parameter values are stored once, in dictionaries,
+ * and each set of trials is reduced to one row of dictionary ids followed by the mean, standard
+ * deviation, and number of samples of {@code elapsed_time_ns}.</p>
+ *
+ * <p>Each row also carries the time series of the set of trials, i.e. the warm-up curve
+ * ({@code warmup_curve_ns}) followed by every iteration of every trial ({@code samples_ns}),
+ * reduced to at most {@link #SERIES_POINTS} points, along with the points at which the warm-up
+ * reached a steady state and at which measurement began. The series of the selected rows are
+ * plotted below the main chart, so that JIT compilations and deoptimizations are visible as knees
+ * in the curve.</p>
+ *
+ * <p>Generating the report requires two passes over the trials, and is therefore linear in the
+ * number of trials.</p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ * @see GoogleChartsResultProcessor
+ */
+class HtmlReportWriter {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	static final int SERIES_POINTS = 256;
+
+	final String date;
+	final File html;
+	final File data;
+
+	/**
+	 * @param directory the directory in which to write the report
+	 * @param base the base name of the report, e.g. {@code sliderule-<date>-<epoch>}
+	 * @param date the date on which the experiment was run
+	 */
+	HtmlReportWriter( File directory, String base, String date ) {
+		this.date = date;
+		html = new File( directory, base + ".html" );
+		data = new File( directory, base + "-data.js" );
+	}
+
+	void write( Map<UUID,ArrayList<Trial>> trials ) throws IOException {
+		writeData( trials );
+		writeHtml();
+	}
+
+/*############################################################################
+ *                         Data
+ *############################################################################*/
+
+	private static <K> int intern( Map<K,Integer> dict, K key ) {
+		Integer id = dict.get( key );
+		if ( null == id ) {
+			id = dict.size();
+			dict.put( key, id );
+		}
+		return id;
+	}
+
+	private static <K> void renumber( Map<K,Integer> dict ) {
+		int i = 0;
+		for( Map.Entry<K,Integer> e: dict.entrySet() ) {
+			e.setValue( i++ );
+		}
+	}
+
+	private static void writeNumber( Writer w, double d ) throws IOException {
+		if ( Double.isNaN( d ) || Double.isInfinite( d ) ) {
+			w.write( "null" );
+		} else if ( d == Math.rint( d ) && Math.abs( d ) < 1e15 ) {
+			w.write( Long.toString( (long) d ) );
+		} else {
+			w.write( String.format( Locale.ROOT, "%.6g", d ) );
+		}
+	}
+
+	/**
+	 * Write the time series of a set of trials as {@code [steady,measure,[ns...]]}, or
+	 * {@code null} if the trials have none.
+	 */
+	private static void writeSeries( Writer w, ArrayList<Trial> alt ) throws IOException {
+		Trial first = alt.get( 0 );
+		Object warmup = SimpleTrial.extract( first, "warmup_curve_ns" );
+		Object steady = SimpleTrial.extract( first, "warmup_batches" );
+		double[] curve = warmup instanceof double[] ? (double[]) warmup : new double[ 0 ];
+		int n = curve.length;
+		for( Trial t: alt ) {
+			Object v = SimpleTrial.extract( t, "samples_ns" );
+			n += v instanceof double[] ? ( (double[]) v ).length : 0;
+		}
+		if ( 0 == n ) {
+			w.write( "null" );
+			return;
+		}
+		double[] x = Arrays.copyOf( curve, n );
+		int i = curve.length;
+		for( Trial t: alt ) {
+			Object v = SimpleTrial.extract( t, "samples_ns" );
+			if ( v instanceof double[] ) {
+				double[] d = (double[]) v;
+				System.arraycopy( d, 0, x, i, d.length );
+				i += d.length;
+			}
+		}
+		double[] y = TimeSeries.downsample( x, SERIES_POINTS );
+		int f = ( x.length + y.length - 1 ) / y.length;
+		w.write( '[' );
+		w.write( Integer.toString( steady instanceof Integer ? (Integer) steady / f : -1 ) );
+		w.write( ',' );
+		w.write( Integer.toString( curve.length / f ) );
+		w.write( ",[" );
+		for( i = 0; i < y.length; i++ ) {
+			if ( i > 0 ) {
+				w.write( ',' );
+			}
+			writeNumber( w, y[ i ] );
+		}
+		w.write( "]]" );
+	}
+
+	private void writeData( Map<UUID,ArrayList<Trial>> trials ) throws IOException {
+
+		// first pass: build sorted dictionaries
+		TreeMap<String,Integer> classes = new TreeMap<String,Integer>();
+		TreeMap<String,Integer> methods = new TreeMap<String,Integer>();
+		LinkedHashMap<String,Integer> params = new LinkedHashMap<String,Integer>();
+		ArrayList<TreeMap<PolymorphicType,Integer>> values = new ArrayList<TreeMap<PolymorphicType,Integer>>();
+
+		for( ArrayList<Trial> alt: trials.values() ) {
+			if ( alt.isEmpty() || ! ( alt.get( 0 ) instanceof SimpleTrial ) ) {
+				continue;
+			}
+			SimpleTrial st = (SimpleTrial) alt.get( 0 );
+			classes.put( st.getSlideRuleAnnotations().getAnnotatedClass().getName(), 0 );
+			methods.put( st.getMethod().getName(), 0 );
+			Field[] param = st.getParam();
+			PolymorphicType[] param_value = st.getParamValue();
+			for( int i = 0; i < param.length; i++ ) {
+				int col = intern( params, param[ i ].getName() );
+				if ( col == values.size() ) {
+					values.add( new TreeMap<PolymorphicType,Integer>() );
+				}
+				values.get( col ).put( param_value[ i ], 0 );
+			}
+		}
+		renumber( classes );
+		renumber( methods );
+		for( TreeMap<PolymorphicType,Integer> m: values ) {
+			renumber( m );
+		}
+
+		Writer w = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( data ), StandardCharsets.UTF_8 ), BUFFER_SIZE );
+		try {
+			w.write( "sliderule_data({\"date\":" );
+			ExportResultProcessor.writeJsonString( w, date );
+			w.write( ",\n\"classes\":" );
+			writeStrings( w, classes.keySet() );
+			w.write( ",\n\"methods\":" );
+			writeStrings( w, methods.keySet() );
+			w.write( ",\n\"params\":[" );
+			int col = 0;
+			for( String name: params.keySet() ) {
+				if ( col > 0 ) {
+					w.write( ',' );
+				}
+				w.write( "{\"name\":" );
+				ExportResultProcessor.writeJsonString( w, name );
+				w.write( ",\"values\":[" );
+				int i = 0;
+				for( PolymorphicType v: values.get( col ).keySet() ) {
+					if ( i++ > 0 ) {
+						w.write( ',' );
+					}
+					ExportResultProcessor.writeJsonValue( w, v );
+				}
+				w.write( "]}" );
+				col++;
+			}
+			w.write( "],\n\"rows\":[\n" );
+
+			// second pass: one row per set of trials
+			// [ class, method, micro, param..., mean, std, n, series ]
+			int[] row_param = new int[ params.size() ];
+			int row = 0;
+			for( ArrayList<Trial> alt: trials.values() ) {
+				if ( alt.isEmpty() || ! ( alt.get( 0 ) instanceof SimpleTrial ) ) {
+					continue;
+				}
+				SimpleTrial st = (SimpleTrial) alt.get( 0 );
+				Arrays.fill( row_param, -1 );
+				Field[] param = st.getParam();
+				PolymorphicType[] param_value = st.getParamValue();
+				for( int i = 0; i < param.length; i++ ) {
+					int c = params.get( param[ i ].getName() );
+					row_param[ c ] = values.get( c ).get( param_value[ i ] );
+				}
+				OnlineStatistics os = new OnlineStatistics();
+				for( double d: SimpleTrial.extractMeans( alt ) ) {
+					os.update( d );
+				}
+
+				if ( row++ > 0 ) {
+					w.write( ",\n" );
+				}
+				w.write( '[' );
+				w.write( Integer.toString( classes.get( st.getSlideRuleAnnotations().getAnnotatedClass().getName() ) ) );
+				w.write( ',' );
+				w.write( Integer.toString( methods.get( st.getMethod().getName() ) ) );
+				w.write( st.isMicro() ? ",1" : ",0" );
+				for( int p: row_param ) {
+					w.write( ',' );
+					w.write( Integer.toString( p ) );
+				}
+				w.write( ',' );
+				writeNumber( w, os.mean() );
+				w.write( ',' );
+				writeNumber( w, os.size() > 1 ? os.standardDeviation() : 0 );
+				w.write( ',' );
+				w.write( Integer.toString( os.size() ) );
+				w.write( ',' );
+				writeSeries( w, alt );
+				w.write( ']' );
+			}
+			w.write( "\n]});\n" );
+		} finally {
+			w.close();
+		}
+	}
+
+	private static void writeStrings( Writer w, Collection<String> strings ) throws IOException {
+		w.write( '[' );
+		int i = 0;
+		for( String s: strings ) {
+			if ( i++ > 0 ) {
+				w.write( ',' );
+			}
+			ExportResultProcessor.writeJsonString( w, s );
+		}
+		w.write( ']' );
+	}
+
+/*############################################################################
+ *                         HTML
+ *############################################################################*/
+
+	private static final String head =
+	"<!DOCTYPE html>" + "\n" +
+	"<html>" + "\n" +
+	"  <head>" + "\n" +
+	"    <meta charset=\"utf-8\">" + "\n";
+
+	private static final String style =
+	"    <style>" + "\n" +
+	"      body { font-family: sans-serif; margin: 1em; }" + "\n" +
+	"      #controls label { margin-right: 1em; white-space: nowrap; }" + "\n" +
+	"      #rows { border-collapse: collapse; margin-top: 1em; }" + "\n" +
+	"      #rows td, #rows th { border: 1px solid #ccc; padding: 0.2em 0.5em; text-align: right; }" + "\n" +
+	"    </style>" + "\n";
+
+	private static final String script =
+	"    <script type=\"text/javascript\" src=\"https://www.gstatic.com/charts/loader.js\"></script>" + "\n" +
+	"    <script type=\"text/javascript\">" + "\n" +
+	"      var LIMIT = 500, SERIES_LIMIT = 10;" + "\n" +
+	"      var data = null;" + "\n" +
+	"      google.charts.load( 'current', { packages: [ 'corechart' ] } );" + "\n" +
+	"      google.charts.setOnLoadCallback( function() {" + "\n" +
+	"        var s = document.createElement( 'script' );" + "\n" +
+	"        s.src = DATA_FILE;" + "\n" +
+	"        document.body.appendChild( s );" + "\n" +
+	"      } );" + "\n" +
+	"      function sliderule_data( d ) {" + "\n" +
+	"        data = d;" + "\n" +
+	"        controls();" + "\n" +
+	"        draw();" + "\n" +
+	"      }" + "\n" +
+	"      function all( names ) {" + "\n" +
+	"        var r = [ [ '', '(all)' ] ];" + "\n" +
+	"        for ( var i = 0; i < names.length; i++ ) {" + "\n" +
+	"          r.push( [ '' + i, '' + names[ i ] ] );" + "\n" +
+	"        }" + "\n" +
+	"        return r;" + "\n" +
+	"      }" + "\n" +
+	"      function select( id, label, options, selected ) {" + "\n" +
+	"        var l = document.createElement( 'label' );" + "\n" +
+	"        var s = document.createElement( 'select' );" + "\n" +
+	"        l.appendChild( document.createTextNode( label + ' ' ) );" + "\n" +
+	"        s.id = id;" + "\n" +
+	"        s.onchange = draw;" + "\n" +
+	"        for ( var i = 0; i < options.length; i++ ) {" + "\n" +
+	"          var o = document.createElement( 'option' );" + "\n" +
+	"          o.value = options[ i ][ 0 ];" + "\n" +
+	"          o.text = options[ i ][ 1 ];" + "\n" +
+	"          s.appendChild( o );" + "\n" +
+	"        }" + "\n" +
+	"        s.value = selected;" + "\n" +
+	"        l.appendChild( s );" + "\n" +
+	"        document.getElementById( 'controls' ).appendChild( l );" + "\n" +
+	"      }" + "\n" +
+	"      function controls() {" + "\n" +
+	"        var micro = '0', x = '';" + "\n" +
+	"        for ( var i = 0; i < data.rows.length; i++ ) {" + "\n" +
+	"          if ( 1 === data.rows[ i ][ 2 ] ) { micro = '1'; break; }" + "\n" +
+	"        }" + "\n" +
+	"        select( 'kind', 'Benchmark', [ [ '', '(all)' ], [ '1', 'Micro' ], [ '0', 'Macro' ] ], micro );" + "\n" +
+	"        select( 'class', 'Class', all( data.classes ), '' );" + "\n" +
+	"        select( 'method', 'Method', all( data.methods ), '' );" + "\n" +
+	"        var names = [];" + "\n" +
+	"        for ( var j = 0; j < data.params.length; j++ ) {" + "\n" +
+	"          var p = data.params[ j ];" + "\n" +
+	"          names.push( p.name );" + "\n" +
+	"          if ( p.values.length > 1 && ( '' === x || ( 'number' === typeof p.values[ 0 ] && 'number' !== typeof data.params[ +x ].values[ 0 ] ) ) ) { x = '' + j; }" + "\n" +
+	"          select( 'p' + j, p.name, all( p.values ), p.values.length > 1 ? '' : '0' );" + "\n" +
+	"        }" + "\n" +
+	"        select( 'x', 'X Axis', [ [ '', '(none)' ] ].concat( all( names ).slice( 1 ) ), x );" + "\n" +
+	"      }" + "\n" +
+	"      function value( id ) {" + "\n" +
+	"        var v = document.getElementById( id ).value;" + "\n" +
+	"        return '' === v ? -1 : +v;" + "\n" +
+	"      }" + "\n" +
+	"      function draw() {" + "\n" +
+	"        var np = data.params.length, MEAN = 3 + np, STD = 4 + np, N = 5 + np;" + "\n" +
+	"        var kind = value( 'kind' ), klass = value( 'class' ), method = value( 'method' ), x = value( 'x' );" + "\n" +
+	"        var fixed = [], rows = [], i, j, r;" + "\n" +
+	"        for ( j = 0; j < np; j++ ) { fixed.push( value( 'p' + j ) ); }" + "\n" +
+	"        next: for ( i = 0; i < data.rows.length; i++ ) {" + "\n" +
+	"          r = data.rows[ i ];" + "\n" +
+	"          if ( ( kind >= 0 && r[ 2 ] !== kind ) || ( klass >= 0 && r[ 0 ] !== klass ) || ( method >= 0 && r[ 1 ] !== method ) ) { continue; }" + "\n" +
+	"          for ( j = 0; j < np; j++ ) {" + "\n" +
+	"            if ( fixed[ j ] >= 0 && r[ 3 + j ] !== fixed[ j ] ) { continue next; }" + "\n" +
+	"          }" + "\n" +
+	"          rows.push( r );" + "\n" +
+	"        }" + "\n" +
+	"        rows.sort( function( a, b ) {" + "\n" +
+	"          for ( var k = 0; k < MEAN; k++ ) { if ( a[ k ] !== b[ k ] ) { return a[ k ] - b[ k ]; } }" + "\n" +
+	"          return 0;" + "\n" +
+	"        } );" + "\n" +
+	"        function label( r ) {" + "\n" +
+	"          var s = ( klass >= 0 ? '' : data.classes[ r[ 0 ] ] + '.' ) + data.methods[ r[ 1 ] ] + '()', p = [];" + "\n" +
+	"          for ( var j = 0; j < np; j++ ) {" + "\n" +
+	"            if ( j !== x && fixed[ j ] < 0 && r[ 3 + j ] >= 0 && data.params[ j ].values.length > 1 ) {" + "\n" +
+	"              p.push( data.params[ j ].name + '=' + data.params[ j ].values[ r[ 3 + j ] ] );" + "\n" +
+	"            }" + "\n" +
+	"          }" + "\n" +
+	"          return p.length > 0 ? s + ' [' + p.join( ', ' ) + ']' : s;" + "\n" +
+	"        }" + "\n" +
+	"        var dt = new google.visualization.DataTable(), chart, el = document.getElementById( 'chart' );" + "\n" +
+	"        if ( x < 0 ) {" + "\n" +
+	"          dt.addColumn( 'string', 'Benchmark' );" + "\n" +
+	"          dt.addColumn( 'number', 'Mean Time (ns)' );" + "\n" +
+	"          dt.addColumn( { type: 'number', role: 'interval' } );" + "\n" +
+	"          dt.addColumn( { type: 'number', role: 'interval' } );" + "\n" +
+	"          for ( i = 0; i < rows.length; i++ ) {" + "\n" +
+	"            r = rows[ i ];" + "\n" +
+	"            dt.addRow( [ label( r ), r[ MEAN ], r[ MEAN ] - r[ STD ], r[ MEAN ] + r[ STD ] ] );" + "\n" +
+	"          }" + "\n" +
+	"          chart = new google.visualization.BarChart( el );" + "\n" +
+	"        } else {" + "\n" +
+	"          var xv = data.params[ x ].values, numeric = true, series = {}, ns = 0, points = {};" + "\n" +
+	"          for ( i = 0; i < xv.length; i++ ) { numeric = numeric && 'number' === typeof xv[ i ]; }" + "\n" +
+	"          dt.addColumn( numeric ? 'number' : 'string', data.params[ x ].name );" + "\n" +
+	"          for ( i = 0; i < rows.length; i++ ) {" + "\n" +
+	"            var l = label( rows[ i ] );" + "\n" +
+	"            if ( !( l in series ) ) { series[ l ] = ns++; dt.addColumn( 'number', l ); }" + "\n" +
+	"          }" + "\n" +
+	"          for ( i = 0; i < rows.length; i++ ) {" + "\n" +
+	"            r = rows[ i ];" + "\n" +
+	"            if ( r[ 3 + x ] < 0 ) { continue; }" + "\n" +
+	"            if ( !( r[ 3 + x ] in points ) ) {" + "\n" +
+	"              points[ r[ 3 + x ] ] = [ numeric ? xv[ r[ 3 + x ] ] : '' + xv[ r[ 3 + x ] ] ];" + "\n" +
+	"              for ( j = 0; j < ns; j++ ) { points[ r[ 3 + x ] ].push( null ); }" + "\n" +
+	"            }" + "\n" +
+	"            points[ r[ 3 + x ] ][ 1 + series[ label( r ) ] ] = r[ MEAN ];" + "\n" +
+	"          }" + "\n" +
+	"          for ( i = 0; i < xv.length; i++ ) {" + "\n" +
+	"            if ( i in points ) { dt.addRow( points[ i ] ); }" + "\n" +
+	"          }" + "\n" +
+	"          chart = new google.visualization.LineChart( el );" + "\n" +
+	"        }" + "\n" +
+	"        chart.draw( dt, { title: 'Mean Time (ns), ' + data.date, height: Math.max( 500, 24 * dt.getNumberOfRows() ), pointSize: 5, interpolateNulls: true, vAxis: { minValue: 0 } } );" + "\n" +
+	"        table( rows );" + "\n" +
+	"        series( rows, label );" + "\n" +
+	"      }" + "\n" +
+	"      function series( rows, label ) {" + "\n" +
+	"        var SERIES = 6 + data.params.length, dt = new google.visualization.DataTable(), el = document.getElementById( 'series' );" + "\n" +
+	"        var sel = [], len = 0, i, j, k;" + "\n" +
+	"        for ( i = 0; i < rows.length && sel.length < SERIES_LIMIT; i++ ) {" + "\n" +
+	"          if ( rows[ i ][ SERIES ] ) { sel.push( rows[ i ] ); len = Math.max( len, rows[ i ][ SERIES ][ 2 ].length ); }" + "\n" +
+	"        }" + "\n" +
+	"        el.style.display = sel.length > 0 ? '' : 'none';" + "\n" +
+	"        if ( 0 === sel.length ) { return; }" + "\n" +
+	"        dt.addColumn( 'number', 'Iteration' );" + "\n" +
+	"        for ( j = 0; j < sel.length; j++ ) {" + "\n" +
+	"          dt.addColumn( 'number', label( sel[ j ] ) );" + "\n" +
+	"          dt.addColumn( { type: 'string', role: 'annotation' } );" + "\n" +
+	"        }" + "\n" +
+	"        for ( k = 0; k < len; k++ ) {" + "\n" +
+	"          var row = [ k ];" + "\n" +
+	"          for ( j = 0; j < sel.length; j++ ) {" + "\n" +
+	"            var s = sel[ j ][ SERIES ];" + "\n" +
+	"            row.push( k < s[ 2 ].length ? s[ 2 ][ k ] : null, k === s[ 0 ] ? 'steady' : k === s[ 1 ] ? 'measure' : null );" + "\n" +
+	"          }" + "\n" +
+	"          dt.addRow( row );" + "\n" +
+	"        }" + "\n" +
+	"        new google.visualization.LineChart( el ).draw( dt, { title: 'Time per Rep (ns) by Iteration' + ( rows.length > sel.length ? ' (first ' + sel.length + ' shown)' : '' ), height: 500, interpolateNulls: false, vAxis: { logScale: true }, annotations: { style: 'line' } } );" + "\n" +
+	"      }" + "\n" +
+	"      function table( rows ) {" + "\n" +
+	"        var np = data.params.length, t = document.getElementById( 'rows' ), h = [ 'Class', 'Method' ], i, j;" + "\n" +
+	"        for ( j = 0; j < np; j++ ) { h.push( data.params[ j ].name ); }" + "\n" +
+	"        h.push( 'Mean (ns)', 'Std (ns)', 'N' );" + "\n" +
+	"        t.innerHTML = '';" + "\n" +
+	"        function tr( cells, tag ) {" + "\n" +
+	"          var e = document.createElement( 'tr' );" + "\n" +
+	"          for ( var k = 0; k < cells.length; k++ ) {" + "\n" +
+	"            var c = document.createElement( tag );" + "\n" +
+	"            c.appendChild( document.createTextNode( '' + cells[ k ] ) );" + "\n" +
+	"            e.appendChild( c );" + "\n" +
+	"          }" + "\n" +
+	"          t.appendChild( e );" + "\n" +
+	"        }" + "\n" +
+	"        tr( h, 'th' );" + "\n" +
+	"        for ( i = 0; i < rows.length && i < LIMIT; i++ ) {" + "\n" +
+	"          var r = rows[ i ], c = [ data.classes[ r[ 0 ] ], data.methods[ r[ 1 ] ] ];" + "\n" +
+	"          for ( j = 0; j < np; j++ ) { c.push( r[ 3 + j ] < 0 ? '' : data.params[ j ].values[ r[ 3 + j ] ] ); }" + "\n" +
+	"          c.push( r[ 3 + np ], r[ 4 + np ], r[ 5 + np ] );" + "\n" +
+	"          tr( c, 'td' );" + "\n" +
+	"        }" + "\n" +
+	"        document.getElementById( 'count' ).textContent = rows.length + ' of ' + data.rows.length + ' rows' + ( rows.length > LIMIT ? ' (first ' + LIMIT + ' shown)' : '' );" + "\n" +
+	"      }" + "\n" +
+	"    </script>" + "\n" +
+	"  </head>" + "\n";
+
+	private static final String body =
+	"  <body>" + "\n" +
+	"    <div id=\"controls\"></div>" + "\n" +
+	"    <div id=\"chart\" style=\"width: 100%; min-height: 500px;\"></div>" + "\n" +
+	"    <div id=\"series\" style=\"width: 100%; min-height: 500px;\"></div>" + "\n" +
+	"    <div id=\"count\"></div>" + "\n" +
+	"    <table id=\"rows\"></table>" + "\n" +
+	"  </body>" + "\n" +
+	"</html>" + "\n";
+
+	private void writeHtml() throws IOException {
+		Writer w = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( html ), StandardCharsets.UTF_8 ), BUFFER_SIZE );
+		try {
+			w.write( head );
+			w.write( "    <title>SlideRule " + date + "</title>\n" );
+			w.write( style );
+			w.write( "    <script type=\"text/javascript\">var DATA_FILE = " );
+			ExportResultProcessor.writeJsonString( w, data.getName() );
+			w.write( ";</script>\n" );
+			w.write( script );
+			w.write( body );
+		} finally {
+			w.close();
+		}
+	}
+}
@@ -29,11 +29,19 @@ import org.sliderule.model.*;
  * <p>This class simply stores benchmarking results in a {@link TreeMap}
  * sorted by {@link UUID}.</p>
  *
+ * <p>Results are also maintained in a {@link TrialIndex}, which should be preferred over the
+ * {@code filterBy*} methods for anything other than small sets of trials, since each of
+ * those performs a linear scan.</p>
+ *
  * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
  */
 public class InMemoryResultProcessor implements ResultProcessor {
 
 	protected static final TreeMap<UUID,ArrayList<Trial>> trial_set = new TreeMap<UUID,ArrayList<Trial>>();
+	protected static final TrialIndex index = new TrialIndex();
+
+	// trial_set is shared, so when a pipeline has several in-memory processors, only one of them records
+	boolean records = true;
 
 	/**
 	 * {@inheritDoc}
@@ -50,6 +58,10 @@ public class InMemoryResultProcessor implements ResultProcessor {
 
 		ArrayList<Trial> alt;
 
+		if ( ! records ) {
+			return;
+		}
+
 		if ( ! trial_set.containsKey( trial.id() ) ) {
 			alt = new ArrayList<Trial>();
 			trial_set.put( trial.id(), alt );
@@ -57,6 +69,9 @@ public class InMemoryResultProcessor implements ResultProcessor {
 
 		alt = trial_set.get( trial.id() );
 		alt.add( trial );
+		if ( 1 == alt.size() ) {
+			index.add( trial.id(), alt );
+		}
 
 		for( Measurement m: trial.measurements() ) {
 			if ( "warning".equals( m.description() ) ) {
@@ -69,6 +84,10 @@ public class InMemoryResultProcessor implements ResultProcessor {
 		return trial_set;
 	}
 
+	public static TrialIndex index() {
+		return index;
+	}
+
 	// XXX: I now understand why Caliper decided to use JPA
 	// https://docs.oracle.com/html/E13981_01/ent30qry001.htm
 
@@ -78,7 +97,7 @@ public class InMemoryResultProcessor implements ResultProcessor {
 			for( UUID id: ids ) {
 				UUID key = e.getKey();
 				ArrayList<Trial> val = e.getValue();
-				if ( e.getKey() == id ) {
+				if ( key.equals( id ) ) {
 					r.put( key, val );
 				}
 			}
@@ -99,7 +118,7 @@ public class InMemoryResultProcessor implements ResultProcessor {
 			UUID key = e.getKey();
 			ArrayList<Trial> val = e.getValue();
 			if ( 0 == val.size() ) {
-				return r;
+				continue;
 			}
 			Trial prototype = val.get( 0 );
 			if ( null == prototype ) {
@@ -124,7 +143,7 @@ public class InMemoryResultProcessor implements ResultProcessor {
 				UUID key = e.getKey();
 				ArrayList<Trial> val = e.getValue();
 				if ( 0 == val.size() ) {
-					return r;
+					continue;
 				}
 				Trial prototype = val.get( 0 );
 				if ( null == prototype ) {
@@ -149,7 +168,7 @@ public class InMemoryResultProcessor implements ResultProcessor {
 			UUID key = e.getKey();
 			ArrayList<Trial> val = e.getValue();
 			if ( 0 == val.size() ) {
-				return r;
+				continue;
 			}
 			Trial prototype = val.get( 0 );
 			if ( null == prototype ) {
@@ -181,7 +200,7 @@ public class InMemoryResultProcessor implements ResultProcessor {
 				UUID key = e.getKey();
 				ArrayList<Trial> val = e.getValue();
 				if ( 0 == val.size() ) {
-					return r;
+					continue;
 				}
 				Trial prototype = val.get( 0 );
 				if ( null == prototype ) {
@@ -206,7 +225,7 @@ public class InMemoryResultProcessor implements ResultProcessor {
 				UUID key = e.getKey();
 				ArrayList<Trial> val = e.getValue();
 				if ( 0 == val.size() ) {
-					return r;
+					continue;
 				}
 				Trial prototype = val.get( 0 );
 				if ( null == prototype ) {
@@ -233,7 +252,7 @@ public class InMemoryResultProcessor implements ResultProcessor {
 				UUID key = e.getKey();
 				ArrayList<Trial> val = e.getValue();
 				if ( 0 == val.size() ) {
-					return r;
+					continue;
 				}
 				Trial prototype = val.get( 0 );
 				if ( null == prototype ) {
@@ -328,32 +347,34 @@ public class InMemoryResultProcessor implements ResultProcessor {
 		}
 		TreeMap<UUID,ArrayList<Trial>> r = new TreeMap<UUID,ArrayList<Trial>>();
 		for( Map.Entry<UUID,ArrayList<Trial>> e: trial_set.entrySet() ) {
-			for( String field: fields ) {
-				UUID key = e.getKey();
-				ArrayList<Trial> val = e.getValue();
-				if ( 0 == val.size() ) {
-					return r;
-				}
-				Trial prototype = val.get( 0 );
-				if ( null == prototype ) {
-					throw new IllegalStateException( "trials cannot be null!" );
-				}
-				if ( ! ( prototype instanceof SimpleTrial ) ) {
-					continue;
-				}
-				SimpleTrial st = (SimpleTrial) prototype;
-				Field[] fi = st.getParam();
-				PolymorphicType[] pmt = st.getParamValue();
+			UUID key = e.getKey();
+			ArrayList<Trial> val = e.getValue();
+			if ( 0 == val.size() ) {
+				continue;
+			}
+			Trial prototype = val.get( 0 );
+			if ( null == prototype ) {
+				throw new IllegalStateException( "trials cannot be null!" );
+			}
+			if ( ! ( prototype instanceof SimpleTrial ) ) {
+				continue;
+			}
+			SimpleTrial st = (SimpleTrial) prototype;
+			Field[] fi = st.getParam();
+			PolymorphicType[] pmt = st.getParamValue();
+			boolean match = true;
+			for( int j = 0; j < fields.size() && match; j++ ) {
+				match = false;
 				for( int i = 0; i < fi.length; i++ ) {
-					if ( fi[ i ].equals( field ) ) {
-						for( String v: values ) {
-							if ( ( "" + pmt[ i ].value ).equals( v ) ) {
-								r.put( key, val );
-							}
-						}
+					if ( fi[ i ].getName().equals( fields.get( j ) ) ) {
+						match = ( "" + pmt[ i ].value ).equals( values.get( j ) );
+						break;
 					}
 				}
 			}
+			if ( match ) {
+				r.put( key, val );
+			}
 		}
 		return r;
 	}
@@ -363,7 +384,7 @@ public class InMemoryResultProcessor implements ResultProcessor {
 			UUID key = e.getKey();
 			ArrayList<Trial> val = e.getValue();
 			if ( 0 == val.size() ) {
-				return r;
+				continue;
 			}
 			Trial prototype = val.get( 0 );
 			if ( null == prototype ) {
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * <p><b>Open-Loop Runner</b></p>
+ *
+ * <p>This class invokes a benchmark method at a constant arrival rate (see
+ * {@link org.sliderule.api.OpenLoop}). Invocation {@code i} of a run is intended to start at
+ * {@code start + i / rate}. The calling thread waits until that time and then dispatches the
+ * invocation to an executor, regardless of whether earlier invocations have returned, so when the
+ * executor cannot keep up, invocations queue and their latency, which is measured from the
+ * intended start, grows accordingly.</p>
+ *
+ * <p>The latency and service time of every invocation are stored in preallocated arrays, indexed
+ * by invocation, so that the threads of the executor never contend to record them. After the run,
+ * the executor is given up to {@link #DRAIN_FACTOR} times the duration of the run to complete the
+ * backlog. Invocations that still have not completed are counted with the latency that they had
+ * accrued by then, which is a lower bound.</p>
+ *
+ * <p>Invocations that are still running after that are abandoned, but may complete later, even
+ * during a later run. Each run therefore tracks the state of its invocations separately, and an
+ * invocation only records its times if it completes before its run gives up on it.</p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ */
+final class OpenLoopRunner {
+
+	/** A run is saturated when it achieves less than this fraction of the target rate. */
+	static final double SATURATION = 0.95;
+	static final long DRAIN_FACTOR = 10;
+	static final int MAX_INVOCATIONS = 1 << 22;
+
+	// below this, spin rather than park, since parking overshoots by tens of microseconds
+	private static final long SPIN_NS = 100000;
+
+	// the state of an invocation
+	private static final int PENDING = 0;
+	private static final int RECORDING = 1;
+	private static final int RECORDED = 2;
+	private static final int ABANDONED = 3;
+
+	final double rate;
+	final long duration_ns;
+	final int threads;
+	final boolean virtual;
+
+	/** the latency of each invocation of the last run, from its intended start */
+	long[] latency_ns;
+	/** the service time of each invocation of the last run, from its actual start, or -1 if it did not complete */
+	long[] service_ns;
+	int scheduled;
+	int completed;
+	long start_ns;
+	long end_ns;
+
+	/**
+	 * @param rate the target rate, in invocations per second
+	 * @param duration_ms the duration of each run, in milliseconds
+	 * @param threads the number of platform threads
+	 * @param virtual true to run each invocation in its own virtual thread, if supported
+	 */
+	OpenLoopRunner( double rate, long duration_ms, int threads, boolean virtual ) {
+		if ( ! ( rate > 0 ) || Double.isInfinite( rate ) ) {
+			throw new IllegalArgumentException( "the open-loop rate must be positive" );
+		}
+		if ( duration_ms <= 0 ) {
+			throw new IllegalArgumentException( "the open-loop duration must be positive" );
+		}
+		if ( threads <= 0 ) {
+			throw new IllegalArgumentException( "the number of open-loop threads must be positive" );
+		}
+		this.rate = rate;
+		this.duration_ns = duration_ms * 1000000L;
+		this.threads = threads;
+		this.virtual = virtual;
+		long n = (long) Math.ceil( rate * duration_ms / 1000 );
+		if ( n > MAX_INVOCATIONS ) {
+			throw new IllegalArgumentException( "an open-loop run of " + duration_ms + " ms at " + rate + "/s exceeds " + MAX_INVOCATIONS + " invocations" );
+		}
+		scheduled = (int) Math.max( 1, n );
+		latency_ns = new long[ scheduled ];
+		service_ns = new long[ scheduled ];
+	}
+
+	/**
+	 * @param i an invocation
+	 * @return the intended start of the invocation, relative to the start of the run
+	 */
+	long intended( int i ) {
+		return (long) ( i * 1e9 / rate );
+	}
+
+	/**
+	 * @return the completed invocations per second of the last run
+	 */
+	double achievedRate() {
+		long elapsed = end_ns - start_ns;
+		return elapsed > 0 ? completed * 1e9 / elapsed : 0;
+	}
+
+	/**
+	 * @return true if the last run did not keep up with the target rate
+	 */
+	boolean saturated() {
+		return completed < scheduled || achievedRate() < SATURATION * rate;
+	}
+
+	private static void waitUntil( long deadline ) {
+		for( long remaining; ( remaining = deadline - System.nanoTime() ) > 0; ) {
+			if ( remaining > SPIN_NS ) {
+				LockSupport.parkNanos( remaining - SPIN_NS );
+			} else {
+				Thread.onSpinWait();
+			}
+		}
+	}
+
+	/**
+	 * Run the method at the target rate for the duration.
+	 * @param o the instance under test
+	 * @param m the method under test
+	 * @param args the arguments of the method, which are shared by every invocation
+	 * @param dry_run true to dispatch invocations without invoking the method
+	 * @throws InvocationTargetException if any invocation throws
+	 */
+	void run( final Object o, final Method m, final Object[] args, final boolean dry_run )
+	throws InterruptedException, InvocationTargetException
+	{
+		final long[] latency_ns = this.latency_ns;
+		final long[] service_ns = this.service_ns;
+		Arrays.fill( service_ns, -1 );
+		// per run, so that invocations abandoned by an earlier run can neither record their times
+		// nor report their failures in this one
+		final AtomicIntegerArray state = new AtomicIntegerArray( scheduled );
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+		final CountDownLatch done = new CountDownLatch( scheduled );
+		ExecutorService executor = ThreadPools.create( "sliderule-open-loop", threads, virtual );
+		try {
+			final long start_ns = System.nanoTime();
+			this.start_ns = start_ns;
+			for( int i = 0; i < scheduled; i++ ) {
+				final int j = i;
+				final long intended_ns = start_ns + intended( i );
+				waitUntil( intended_ns );
+				executor.execute( new Runnable() {
+					@Override
+					public void run() {
+						long actual_ns = System.nanoTime();
+						Throwable t = null;
+						try {
+							if ( ! dry_run ) {
+								m.invoke( o, args );
+							}
+						} catch ( InvocationTargetException e ) {
+							t = e.getCause();
+						} catch ( IllegalAccessException | RuntimeException e ) {
+							t = e;
+						}
+						long end_ns = System.nanoTime();
+						if ( state.compareAndSet( j, PENDING, RECORDING ) ) {
+							if ( null != t ) {
+								failure.compareAndSet( null, t );
+							}
+							latency_ns[ j ] = end_ns - intended_ns;
+							service_ns[ j ] = end_ns - actual_ns;
+							state.set( j, RECORDED );
+						}
+						done.countDown();
+					}
+				});
+			}
+			executor.shutdown();
+			done.await( DRAIN_FACTOR * duration_ns, TimeUnit.NANOSECONDS );
+			end_ns = System.nanoTime();
+		} finally {
+			executor.shutdownNow();
+		}
+
+		completed = 0;
+		for( int i = 0; i < scheduled; i++ ) {
+			if ( state.compareAndSet( i, PENDING, ABANDONED ) ) {
+				latency_ns[ i ] = end_ns - ( start_ns + intended( i ) );
+				continue;
+			}
+			// an invocation that is recording its times finishes doing so without blocking
+			while( RECORDED != state.get( i ) ) {
+				Thread.onSpinWait();
+			}
+			completed++;
+		}
+		if ( completed < scheduled ) {
+			Algorithm.D( "" + ( scheduled - completed ) + " of " + scheduled + " open-loop invocations did not complete" );
+		}
+
+		Throwable t = failure.get();
+		if ( null != t ) {
+			throw new InvocationTargetException( t );
+		}
+	}
+}
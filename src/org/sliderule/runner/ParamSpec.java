@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import java.lang.reflect.*;
+
+import org.sliderule.model.*;
+
+/**
+ * <p><b>Parameter Specifications</b></p>
+ *
+ * <p>Annotation elements that may either be a literal number or refer to a
+ * {@link org.sliderule.Param} field by name (e.g. {@code size = "pool"} or {@code size = "1024"})
+ * are resolved by this class, using the values of the parameters of the current scenario.</p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ */
+final class ParamSpec {
+
+	private ParamSpec() {}
+
+	private static Object value( String spec, Field[] param_fields, PolymorphicType[] param_value ) {
+		spec = spec.trim();
+		for( int col = 0; col < param_fields.length; col++ ) {
+			if ( param_fields[ col ].getName().equals( spec ) ) {
+				Object o = param_value[ col ].value;
+				if ( ! ( o instanceof Number ) ) {
+					throw new IllegalArgumentException( "parameter " + spec + " is not numeric" );
+				}
+				return o;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Resolve a specification to a {@code long}.
+	 * @param spec the name of a parameter, or a literal integer
+	 * @param param_fields the parameters of the class under test
+	 * @param param_value the value of each parameter
+	 * @return the value
+	 * @throws IllegalArgumentException if {@code spec} is neither a numeric parameter nor an integer
+	 */
+	static long longValue( String spec, Field[] param_fields, PolymorphicType[] param_value ) {
+		Object o = value( spec, param_fields, param_value );
+		if ( null != o ) {
+			return ( (Number) o ).longValue();
+		}
+		try {
+			return Long.parseLong( spec.trim() );
+		} catch ( NumberFormatException e ) {
+			throw new IllegalArgumentException( "'" + spec + "' is neither a parameter nor an integer" );
+		}
+	}
+
+	static int intValue( String spec, Field[] param_fields, PolymorphicType[] param_value ) {
+		long r = longValue( spec, param_fields, param_value );
+		if ( r < Integer.MIN_VALUE || r > Integer.MAX_VALUE ) {
+			throw new IllegalArgumentException( "'" + spec + "' is out of range" );
+		}
+		return (int) r;
+	}
+
+	/**
+	 * Resolve a specification to a {@code double}.
+	 * @param spec the name of a parameter, or a literal number
+	 * @param param_fields the parameters of the class under test
+	 * @param param_value the value of each parameter
+	 * @return the value
+	 * @throws IllegalArgumentException if {@code spec} is neither a numeric parameter nor a number
+	 */
+	static double doubleValue( String spec, Field[] param_fields, PolymorphicType[] param_value ) {
+		Object o = value( spec, param_fields, param_value );
+		if ( null != o ) {
+			return ( (Number) o ).doubleValue();
+		}
+		try {
+			return Double.parseDouble( spec.trim() );
+		} catch ( NumberFormatException e ) {
+			throw new IllegalArgumentException( "'" + spec + "' is neither a parameter nor a number" );
+		}
+	}
+}
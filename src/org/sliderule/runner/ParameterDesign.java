@@ -0,0 +1,410 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import java.util.*;
+
+import org.sliderule.api.*;
+
+/**
+ * <p><b>Parameter Design</b></p>
+ *
+ * <p>This class selects the rows of a {@link ParameterSpace} that are to be measured, according
+ * to a {@link Design.Mode}. Rows are returned as sorted indices into the parameter space, so that
+ * they may be decoded on demand with {@link ParameterSpace#get(long)}.</p>
+ *
+ * <ul>
+ *   <li>
+ *       {@link Design.Mode#COVERING COVERING}: a covering array of strength t, generated greedily
+ *       one row at a time as in
+ *       <a href="http://dx.doi.org/10.1109/32.605761">AETG</a>. Each row is the best of several
+ *       candidates, where each candidate starts from an uncovered t-tuple, and the remaining
+ *       parameters are then assigned (in random order) the value covering the most new t-tuples.
+ *       The number of rows grows logarithmically with the number of parameters, rather than
+ *       exponentially.
+ *   </li>
+ *   <li>
+ *       {@link Design.Mode#LATIN_HYPERCUBE LATIN_HYPERCUBE}: n rows, where each parameter is
+ *       stratified into n intervals and each interval is sampled exactly once.
+ *   </li>
+ *   <li>
+ *       {@link Design.Mode#RANDOM RANDOM}: n distinct rows, chosen uniformly using
+ *       <a href="http://dx.doi.org/10.1145/30401.315746">Floyd's algorithm</a>.
+ *   </li>
+ * </ul>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ * @see Design
+ */
+public final class ParameterDesign {
+
+	static final String mode_property = "design.mode";
+	static final String strength_property = "design.strength";
+	static final String samples_property = "design.samples";
+	static final String seed_property = "design.seed";
+
+	// the number of candidate rows evaluated for each row of a covering array
+	private static final int CANDIDATES = 50;
+
+	public final Design.Mode mode;
+	public final int strength;
+	public final int samples;
+	public final long seed;
+
+	public ParameterDesign( Design.Mode mode, int strength, int samples, long seed ) {
+		if ( null == mode ) {
+			throw new IllegalArgumentException( "mode may not be null" );
+		}
+		if ( Design.Mode.COVERING == mode && strength < 1 ) {
+			throw new IllegalArgumentException( "strength must be positive" );
+		}
+		if ( samples < 0 ) {
+			throw new IllegalArgumentException( "samples may not be negative" );
+		}
+		this.mode = mode;
+		this.strength = strength;
+		this.samples = samples;
+		this.seed = seed;
+	}
+
+	/**
+	 * Determine the design for a benchmark class, from its {@link Design} annotation, if any,
+	 * overridden by config properties.
+	 * @param klass the benchmark class
+	 * @param config the config properties, which may be null
+	 * @return the design
+	 */
+	public static ParameterDesign forClass( Class<?> klass, Properties config ) {
+		Design d = klass.getAnnotation( Design.class );
+		Design.Mode mode = null == d ? Design.Mode.FULL : d.value();
+		int strength = null == d ? 2 : d.strength();
+		int samples = null == d ? 0 : d.samples();
+		long seed = null == d ? 0 : d.seed();
+		if ( null != config ) {
+			String s = config.getProperty( mode_property );
+			if ( null != s ) {
+				s = s.trim().toLowerCase();
+				if ( "pairwise".equals( s ) ) {
+					mode = Design.Mode.COVERING;
+					strength = 2;
+				} else if ( "covering".equals( s ) || "twise".equals( s ) || "t-wise".equals( s ) ) {
+					mode = Design.Mode.COVERING;
+				} else if ( "latin".equals( s ) || "lhs".equals( s ) ) {
+					mode = Design.Mode.LATIN_HYPERCUBE;
+				} else {
+					mode = Design.Mode.valueOf( s.toUpperCase().replace( '-', '_' ) );
+				}
+			}
+			s = config.getProperty( strength_property );
+			if ( null != s ) {
+				strength = Integer.parseInt( s.trim() );
+			}
+			s = config.getProperty( samples_property );
+			if ( null != s ) {
+				samples = Integer.parseInt( s.trim() );
+			}
+			s = config.getProperty( seed_property );
+			if ( null != s ) {
+				seed = Long.parseLong( s.trim() );
+			}
+		}
+		return new ParameterDesign( mode, strength, samples, seed );
+	}
+
+	/**
+	 * Select rows of a parameter space.
+	 * @param space the parameter space
+	 * @return the sorted indices of the selected rows, or null if every row is selected
+	 */
+	public long[] rows( ParameterSpace space ) {
+		Random rnd = new Random( seed );
+		switch( mode ) {
+		case COVERING:
+			return covering( space, strength, rnd );
+		case LATIN_HYPERCUBE:
+			return latinHypercube( space, defaultSamples( space ), rnd );
+		case RANDOM:
+			return random( space, defaultSamples( space ), rnd );
+		case FULL:
+		default:
+			return null;
+		}
+	}
+
+	private int defaultSamples( ParameterSpace space ) {
+		if ( samples > 0 ) {
+			return samples;
+		}
+		int r = 1;
+		for( int col = 0; col < space.columns(); col++ ) {
+			r = Math.max( r, space.cardinality( col ) );
+		}
+		return r;
+	}
+
+	/**
+	 * Describe how many rows a design saved, relative to the full parameter space.
+	 * @param space the parameter space
+	 * @param rows the rows selected by {@link #rows(ParameterSpace)}
+	 * @return the description
+	 */
+	public String describe( ParameterSpace space, long[] rows ) {
+		String r = mode.toString().toLowerCase();
+		if ( Design.Mode.COVERING == mode ) {
+			r += " (t=" + strength + ")";
+		}
+		if ( null == rows ) {
+			return r + " design selected all " + space.size() + " parameter permutations";
+		}
+		long saved = space.size() - rows.length;
+		double pct = 0 == space.size() ? 0 : 100D * saved / space.size();
+		return r + " design selected " + rows.length + " of " + space.size() + " parameter permutations (" + saved + " saved, " + String.format( Locale.ROOT, "%.1f", pct ) + "%)";
+	}
+
+	private static long[] toArray( TreeSet<Long> rows ) {
+		long[] r = new long[ rows.size() ];
+		int i = 0;
+		for( long row: rows ) {
+			r[ i++ ] = row;
+		}
+		return r;
+	}
+
+	private static void shuffle( int[] a, Random rnd ) {
+		for( int i = a.length - 1; i > 0; i-- ) {
+			int j = rnd.nextInt( i + 1 );
+			int tmp = a[ i ];
+			a[ i ] = a[ j ];
+			a[ j ] = tmp;
+		}
+	}
+
+	// uniform in [0, bound), as in Random.nextInt( int )
+	private static long nextLong( Random rnd, long bound ) {
+		long m = bound - 1;
+		for( ;; ) {
+			long r = rnd.nextLong() >>> 1;
+			long v = r % bound;
+			if ( r - v + m >= 0 ) {
+				return v;
+			}
+		}
+	}
+
+/*############################################################################
+ *                         Random Sample
+ *############################################################################*/
+
+	static long[] random( ParameterSpace space, int n, Random rnd ) {
+		long size = space.size();
+		if ( n >= size ) {
+			return null;
+		}
+		TreeSet<Long> r = new TreeSet<Long>();
+		for( long j = size - n; j < size; j++ ) {
+			long t = nextLong( rnd, j + 1 );
+			if ( ! r.add( t ) ) {
+				r.add( j );
+			}
+		}
+		return toArray( r );
+	}
+
+/*############################################################################
+ *                         Latin Hypercube
+ *############################################################################*/
+
+	static long[] latinHypercube( ParameterSpace space, int n, Random rnd ) {
+		if ( n >= space.size() ) {
+			return null;
+		}
+		int k = space.columns();
+		int[][] digit = new int[ n ][ k ];
+		int[] perm = new int[ n ];
+		for( int col = 0; col < k; col++ ) {
+			int card = space.cardinality( col );
+			for( int i = 0; i < n; i++ ) {
+				perm[ i ] = i;
+			}
+			shuffle( perm, rnd );
+			for( int i = 0; i < n; i++ ) {
+				// sample uniformly within stratum perm[ i ], then map [0,1) onto the values of col
+				double u = ( perm[ i ] + rnd.nextDouble() ) / n;
+				digit[ i ][ col ] = Math.min( card - 1, (int) ( u * card ) );
+			}
+		}
+		TreeSet<Long> r = new TreeSet<Long>();
+		for( int i = 0; i < n; i++ ) {
+			r.add( space.index( digit[ i ] ) );
+		}
+		return toArray( r );
+	}
+
+/*############################################################################
+ *                         Covering Array
+ *############################################################################*/
+
+	private static void combinations( int n, int t, int start, int[] combo, int depth, ArrayList<int[]> r ) {
+		if ( depth == t ) {
+			r.add( Arrays.copyOf( combo, t ) );
+			return;
+		}
+		for( int i = start; i <= n - ( t - depth ); i++ ) {
+			combo[ depth ] = i;
+			combinations( n, t, i + 1, combo, depth + 1, r );
+		}
+	}
+
+	static long[] covering( ParameterSpace space, int t, Random rnd ) {
+
+		final int k = space.columns();
+		if ( t >= k ) {
+			return null;
+		}
+		if ( 0 == space.size() ) {
+			return new long[ 0 ];
+		}
+
+		int[] card = new int[ k ];
+		for( int col = 0; col < k; col++ ) {
+			card[ col ] = space.cardinality( col );
+		}
+
+		// every set of t columns, and the t-tuples of their values that are yet to be covered
+		ArrayList<int[]> combos = new ArrayList<int[]>();
+		combinations( k, t, 0, new int[ t ], 0, combos );
+		final int ncombos = combos.size();
+		int[][] combo = combos.toArray( new int[ 0 ][] );
+		int[][] combo_stride = new int[ ncombos ][ t ];
+		BitSet[] uncovered = new BitSet[ ncombos ];
+		long remaining = 0;
+		List<List<Integer>> combos_of = new ArrayList<List<Integer>>( k );
+		for( int col = 0; col < k; col++ ) {
+			combos_of.add( new ArrayList<Integer>() );
+		}
+		for( int c = 0; c < ncombos; c++ ) {
+			long n = 1;
+			for( int j = t - 1; j >= 0; j-- ) {
+				combo_stride[ c ][ j ] = (int) n;
+				n *= card[ combo[ c ][ j ] ];
+				if ( n > Integer.MAX_VALUE ) {
+					throw new IllegalArgumentException( "too many " + t + "-tuples for a covering array" );
+				}
+				combos_of.get( combo[ c ][ j ] ).add( c );
+			}
+			uncovered[ c ] = new BitSet( (int) n );
+			uncovered[ c ].set( 0, (int) n );
+			remaining += n;
+		}
+
+		TreeSet<Long> rows = new TreeSet<Long>();
+		int[] digit = new int[ k ];
+		int[] best = new int[ k ];
+		int[] order = new int[ k ];
+
+		while( remaining > 0 ) {
+
+			long best_gain = -1;
+
+			for( int candidate = 0; candidate < CANDIDATES; candidate++ ) {
+
+				Arrays.fill( digit, -1 );
+
+				// start from an uncovered t-tuple
+				int c = rnd.nextInt( ncombos );
+				while( uncovered[ c ].isEmpty() ) {
+					c = ( c + 1 ) % ncombos;
+				}
+				int bit = uncovered[ c ].nextSetBit( rnd.nextInt( uncovered[ c ].length() ) );
+				if ( -1 == bit ) {
+					bit = uncovered[ c ].nextSetBit( 0 );
+				}
+				for( int j = 0; j < t; j++ ) {
+					digit[ combo[ c ][ j ] ] = ( bit / combo_stride[ c ][ j ] ) % card[ combo[ c ][ j ] ];
+				}
+
+				// greedily assign the remaining columns, in random order
+				for( int col = 0; col < k; col++ ) {
+					order[ col ] = col;
+				}
+				shuffle( order, rnd );
+				for( int col: order ) {
+					if ( -1 != digit[ col ] ) {
+						continue;
+					}
+					int offset = rnd.nextInt( card[ col ] );
+					int best_value = offset;
+					int best_value_gain = -1;
+					for( int i = 0; i < card[ col ]; i++ ) {
+						int v = ( offset + i ) % card[ col ];
+						digit[ col ] = v;
+						int g = gain( col, digit, combo, combo_stride, combos_of, uncovered );
+						if ( g > best_value_gain ) {
+							best_value_gain = g;
+							best_value = v;
+						}
+					}
+					digit[ col ] = best_value;
+				}
+
+				long g = 0;
+				for( int cc = 0; cc < ncombos; cc++ ) {
+					if ( uncovered[ cc ].get( tuple( cc, digit, combo, combo_stride ) ) ) {
+						g++;
+					}
+				}
+				if ( g > best_gain ) {
+					best_gain = g;
+					System.arraycopy( digit, 0, best, 0, k );
+				}
+			}
+
+			for( int cc = 0; cc < ncombos; cc++ ) {
+				uncovered[ cc ].clear( tuple( cc, best, combo, combo_stride ) );
+			}
+			remaining -= best_gain;
+			rows.add( space.index( best ) );
+		}
+
+		return toArray( rows );
+	}
+
+	private static int tuple( int c, int[] digit, int[][] combo, int[][] combo_stride ) {
+		int r = 0;
+		for( int j = 0; j < combo[ c ].length; j++ ) {
+			r += digit[ combo[ c ][ j ] ] * combo_stride[ c ][ j ];
+		}
+		return r;
+	}
+
+	// the number of uncovered t-tuples, involving col, that are covered by the assigned columns of digit
+	private static int gain( int col, int[] digit, int[][] combo, int[][] combo_stride, List<List<Integer>> combos_of, BitSet[] uncovered ) {
+		int r = 0;
+		next:
+		for( int c: combos_of.get( col ) ) {
+			for( int j: combo[ c ] ) {
+				if ( -1 == digit[ j ] ) {
+					continue next;
+				}
+			}
+			if ( uncovered[ c ].get( tuple( c, digit, combo, combo_stride ) ) ) {
+				r++;
+			}
+		}
+		return r;
+	}
+}
@@ -0,0 +1,402 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.math.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.sliderule.*;
+import org.sliderule.api.*;
+import org.sliderule.model.*;
+
+/**
+ * <p><b>Parameter Space</b></p>
+ *
+ * <p>This class represents the Euclidean product of the values of a set of {@link Param} fields
+ * without materializing it. Only the distinct values of each parameter are stored, and each row
+ * of the product is computed on demand from its index by treating the index as a mixed-radix
+ * number, where the radix of each digit is the cardinality of the corresponding parameter.
+ * The last parameter varies fastest, which is the same order in which
+ * {@link Algorithm#permute(Field[])} enumerates rows.</p>
+ *
+ * <p>e.g. for cardinalities { 3, 4, 2 }, row 13 is { 13 / 8, ( 13 / 2 ) % 4, 13 % 2 } = { 1, 2, 1 }.</p>
+ *
+ * <p>Random access to any row (see {@link #get(long)}) takes time proportional to the number of
+ * parameters, so it is possible to split a parameter space into shards or to resume at an
+ * arbitrary row. Sequential iteration (see {@link #iterator(long, long)}) takes constant amortized
+ * time per row.</p>
+ *
+ * <p>Instances are immutable, and {@link #of(Field[])} caches them so that the runner and any
+ * result processors share the same instance for the same parameters.</p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ */
+public final class ParameterSpace implements Iterable<PolymorphicType[]> {
+
+	private static final HashMap<List<Field>,ParameterSpace> cache = new HashMap<List<Field>,ParameterSpace>();
+
+	private final Field[] field;
+	private final PolymorphicType[][] value;
+	private final long[] stride;
+	private final long size;
+
+	/**
+	 * Create a parameter space from the distinct values of each parameter.
+	 * @param field the parameters
+	 * @param value {@code value[ col ]} holds the values of parameter {@code field[ col ]}
+	 * @throws IllegalArgumentException if the number of rows does not fit in a {@code long}
+	 */
+	public ParameterSpace( Field[] field, PolymorphicType[][] value ) {
+		if ( field.length != value.length ) {
+			throw new IllegalArgumentException( "fields and values must be same size" );
+		}
+		this.field = Arrays.copyOf( field, field.length );
+		this.value = new PolymorphicType[ value.length ][];
+		this.stride = new long[ value.length ];
+		long n = 1;
+		for( int col = value.length - 1; col >= 0; col-- ) {
+			this.value[ col ] = Arrays.copyOf( value[ col ], value[ col ].length );
+			stride[ col ] = n;
+			try {
+				n = Math.multiplyExact( n, (long) value[ col ].length );
+			} catch( ArithmeticException e ) {
+				throw new IllegalArgumentException( "parameter space is too large", e );
+			}
+		}
+		size = n;
+	}
+
+	/**
+	 * Get the parameter space for a set of {@link Param} fields, creating it if necessary.
+	 * @param field the parameters
+	 * @return the parameter space
+	 */
+	public static ParameterSpace of( Field[] field )
+	throws InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException
+	{
+		List<Field> key = Arrays.asList( Arrays.copyOf( field, field.length ) );
+		synchronized( cache ) {
+			ParameterSpace r = cache.get( key );
+			if ( null == r ) {
+				PolymorphicType[][] value = new PolymorphicType[ field.length ][];
+				for( int col = 0; col < field.length; col++ ) {
+					value[ col ] = values( field[ col ] );
+				}
+				r = new ParameterSpace( field, value );
+				cache.put( key, r );
+			}
+			return r;
+		}
+	}
+
+	/**
+	 * Compute the values that a {@link Param} field may take. These are the values listed in the
+	 * {@link Param} annotation, followed by those generated by {@link ParamRange},
+	 * {@link ParamGeometric} and {@link ParamFile}, with duplicates removed. If there are no such
+	 * values and the parameter is {@code boolean} or an {@code enum}, it takes every possible value.
+	 * @param f the parameter
+	 * @return the values of the parameter, in the order in which they were declared
+	 */
+	static PolymorphicType[] values( Field f )
+	throws InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException
+	{
+		Class<?> type = f.getType();
+		ArrayList<String> s = new ArrayList<String>( Arrays.asList( f.getAnnotation( Param.class ).value() ) );
+
+		ParamRange pr = f.getAnnotation( ParamRange.class );
+		if ( null != pr ) {
+			if ( ! ( pr.step() > 0 ) ) {
+				throw new IllegalArgumentException( "step of " + f.getName() + " must be positive" );
+			}
+			double tolerance = pr.step() * 1e-9;
+			for( long i = 0; pr.from() + i * pr.step() <= pr.to() + tolerance; i++ ) {
+				s.add( format( type, pr.from() + i * pr.step(), false ) );
+			}
+		}
+
+		ParamGeometric pg = f.getAnnotation( ParamGeometric.class );
+		if ( null != pg ) {
+			if ( ! ( pg.from() > 0 && pg.factor() > 1 ) ) {
+				throw new IllegalArgumentException( "from of " + f.getName() + " must be positive and factor must be greater than 1" );
+			}
+			for( double d = pg.from(); d <= pg.to() * ( 1 + 1e-9 ); d *= pg.factor() ) {
+				s.add( format( type, d, true ) );
+			}
+		}
+
+		ParamFile pf = f.getAnnotation( ParamFile.class );
+		if ( null != pf ) {
+			try {
+				for( String line: Files.readAllLines( Paths.get( pf.value() ), StandardCharsets.UTF_8 ) ) {
+					line = line.trim();
+					if ( ! ( line.isEmpty() || line.startsWith( "#" ) ) ) {
+						s.add( line );
+					}
+				}
+			} catch ( IOException e ) {
+				throw new IllegalArgumentException( "failed to read values of " + f.getName() + " from " + pf.value(), e );
+			}
+		}
+
+		if ( s.isEmpty() ) {
+			if ( boolean.class == type || Boolean.class == type ) {
+				s.add( "true" );
+				s.add( "false" );
+			} else if ( type.isEnum() ) {
+				for( Object o: type.getEnumConstants() ) {
+					s.add( ( (Enum<?>) o ).name() );
+				}
+			}
+		}
+
+		Converters.Converter c = Converters.forType( type );
+		if ( ! ( type.isPrimitive() || Comparable.class.isAssignableFrom( type ) ) ) {
+			// PolymorphicType only compares the values of primitives and Comparables, so other
+			// values are told apart by how they were declared
+			s = new ArrayList<String>( new LinkedHashSet<String>( s ) );
+			PolymorphicType[] r = new PolymorphicType[ s.size() ];
+			for( int i = 0; i < r.length; i++ ) {
+				r[ i ] = new PolymorphicType( type, c.convert( s.get( i ) ) );
+			}
+			return r;
+		}
+		LinkedHashSet<PolymorphicType> r = new LinkedHashSet<PolymorphicType>();
+		for( String v: s ) {
+			r.add( new PolymorphicType( type, c.convert( v ) ) );
+		}
+		return r.toArray( new PolymorphicType[ 0 ] );
+	}
+
+	private static boolean isIntegral( Class<?> type ) {
+		return
+			byte.class == type || short.class == type || int.class == type || long.class == type ||
+			Byte.class == type || Short.class == type || Integer.class == type || Long.class == type ||
+			BigInteger.class == type;
+	}
+
+	private static String format( Class<?> type, double d, boolean round ) {
+		if ( isIntegral( type ) ) {
+			return Long.toString( round ? Math.round( d ) : (long) d );
+		}
+		return Double.toString( d );
+	}
+
+	/**
+	 * The number of rows (i.e. permutations of parameters).
+	 * @return the number of rows
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * The number of columns (i.e. parameters).
+	 * @return the number of columns
+	 */
+	public int columns() {
+		return field.length;
+	}
+
+	public Field[] fields() {
+		return Arrays.copyOf( field, field.length );
+	}
+
+	public Field field( int col ) {
+		return field[ col ];
+	}
+
+	/**
+	 * The number of values of parameter {@code col}.
+	 * @param col the column
+	 * @return the cardinality
+	 */
+	public int cardinality( int col ) {
+		return value[ col ].length;
+	}
+
+	/**
+	 * The values of parameter {@code col}.
+	 * @param col the column
+	 * @return the values
+	 */
+	public List<PolymorphicType> values( int col ) {
+		return Collections.unmodifiableList( Arrays.asList( value[ col ] ) );
+	}
+
+	private void check( long row ) {
+		if ( row < 0 || row >= size ) {
+			throw new IndexOutOfBoundsException( "row " + row + " is not in [0," + size + ")" );
+		}
+	}
+
+	/**
+	 * The index of the value that parameter {@code col} takes in row {@code row}.
+	 * @param row the row
+	 * @param col the column
+	 * @return the index of the value
+	 */
+	public int digit( long row, int col ) {
+		check( row );
+		return (int) ( ( row / stride[ col ] ) % value[ col ].length );
+	}
+
+	/**
+	 * The value that parameter {@code col} takes in row {@code row}.
+	 * @param row the row
+	 * @param col the column
+	 * @return the value
+	 */
+	public PolymorphicType get( long row, int col ) {
+		return value[ col ][ digit( row, col ) ];
+	}
+
+	/**
+	 * Compute row {@code row}.
+	 * @param row the row
+	 * @return a new array containing the value of each parameter
+	 */
+	public PolymorphicType[] get( long row ) {
+		check( row );
+		PolymorphicType[] r = new PolymorphicType[ field.length ];
+		for( int col = 0; col < r.length; col++ ) {
+			r[ col ] = value[ col ][ (int) ( ( row / stride[ col ] ) % value[ col ].length ) ];
+		}
+		return r;
+	}
+
+	/**
+	 * Compute the index of a row from the index of the value of each parameter.
+	 * @param digit {@code digit[ col ]} is the index of the value of parameter {@code col}
+	 * @return the index of the row
+	 */
+	public long index( int[] digit ) {
+		long r = 0;
+		for( int col = 0; col < digit.length; col++ ) {
+			r += digit[ col ] * stride[ col ];
+		}
+		return r;
+	}
+
+	/**
+	 * Find the index of a row, which is the inverse of {@link #get(long)}.
+	 * @param row the value of each parameter
+	 * @return the index of the row, or -1 if it is not part of this parameter space
+	 */
+	public long indexOf( PolymorphicType[] row ) {
+		if ( row.length != field.length ) {
+			return -1;
+		}
+		long r = 0;
+		for( int col = 0; col < row.length; col++ ) {
+			int d = Arrays.asList( value[ col ] ).indexOf( row[ col ] );
+			if ( -1 == d ) {
+				return -1;
+			}
+			r += d * stride[ col ];
+		}
+		return r;
+	}
+
+	/**
+	 * Materialize the parameter space. This should only be used for small parameter spaces.
+	 * @return every row
+	 * @throws IllegalStateException if there are more rows than can fit in an array
+	 */
+	public PolymorphicType[][] toArray() {
+		if ( size > Integer.MAX_VALUE ) {
+			throw new IllegalStateException( "parameter space is too large to materialize" );
+		}
+		PolymorphicType[][] r = new PolymorphicType[ (int) size ][];
+		int i = 0;
+		for( PolymorphicType[] row: this ) {
+			r[ i++ ] = row;
+		}
+		return r;
+	}
+
+	@Override
+	public Iterator<PolymorphicType[]> iterator() {
+		return iterator( 0, size );
+	}
+
+	/**
+	 * Iterate over rows {@code [from, to)}. Each call to {@link Iterator#next()} returns a new array.
+	 * @param from the first row
+	 * @param to one past the last row
+	 * @return the iterator
+	 */
+	public Iterator<PolymorphicType[]> iterator( final long from, final long to ) {
+		if ( from < 0 || to > size || from > to ) {
+			throw new IndexOutOfBoundsException( "[" + from + "," + to + ") is not in [0," + size + ")" );
+		}
+		return new Iterator<PolymorphicType[]>() {
+			long row = from;
+			int[] digit;
+			@Override
+			public boolean hasNext() {
+				return row < to;
+			}
+			@Override
+			public PolymorphicType[] next() {
+				if ( ! hasNext() ) {
+					throw new NoSuchElementException();
+				}
+				if ( null == digit ) {
+					digit = new int[ field.length ];
+					for( int col = 0; col < digit.length; col++ ) {
+						digit[ col ] = digit( row, col );
+					}
+				} else {
+					// odometer increment, least significant digit last
+					for( int col = digit.length - 1; col >= 0; col-- ) {
+						if ( ++digit[ col ] < value[ col ].length ) {
+							break;
+						}
+						digit[ col ] = 0;
+					}
+				}
+				PolymorphicType[] r = new PolymorphicType[ digit.length ];
+				for( int col = 0; col < r.length; col++ ) {
+					r[ col ] = value[ col ][ digit[ col ] ];
+				}
+				row++;
+				return r;
+			}
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		String r = "[";
+		for( int col = 0; col < field.length; col++ ) {
+			r += field[ col ].getName() + ":" + value[ col ].length;
+			if ( col < field.length - 1 ) {
+				r += ",";
+			}
+		}
+		r += "]=" + size;
+		return r;
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+
+import jdk.jfr.*;
+import jdk.jfr.consumer.*;
+
+/**
+ * <p><b>Pinning Recorder</b></p>
+ *
+ * <p>This class counts the {@code jdk.VirtualThreadPinned} events that Java Flight Recorder emits
+ * while a trial runs, i.e. the number of times that a virtual thread blocked while pinned to its
+ * carrier thread (e.g. inside a {@code synchronized} block), and the total time for which carriers
+ * were pinned. A recording with only that event enabled, and without a threshold, is started
+ * before each trial and read back after it, outside of the timed region.</p>
+ *
+ * <p>Recording is enabled by default for benchmarks that run on virtual threads, and may be
+ * disabled with {@code -Cvirtual.pinning=false}. On VMs without the event, nothing is
+ * counted.</p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ */
+final class PinningRecorder {
+
+	static final String enable_property = "virtual.pinning";
+	static final String EVENT = "jdk.VirtualThreadPinned";
+
+	private Recording recording;
+
+	/** the number of pinning events in the last trial */
+	long events;
+	/** the total duration of pinning events in the last trial */
+	long pinned_ns;
+
+	static boolean isEnabled( Properties config ) {
+		return ! "false".equals( config.getProperty( enable_property, "true" ).trim() );
+	}
+
+	void start() {
+		recording = new Recording();
+		recording.enable( EVENT ).withThreshold( Duration.ZERO );
+		recording.setToDisk( true );
+		recording.start();
+	}
+
+	void stop() throws IOException {
+		events = 0;
+		pinned_ns = 0;
+		Path tmp = Files.createTempFile( "sliderule-pinning", ".jfr" );
+		try {
+			recording.stop();
+			recording.dump( tmp );
+			RecordingFile rf = new RecordingFile( tmp );
+			try {
+				while( rf.hasMoreEvents() ) {
+					RecordedEvent e = rf.readEvent();
+					if ( EVENT.equals( e.getEventType().getName() ) ) {
+						events++;
+						pinned_ns += e.getDuration().toNanos();
+					}
+				}
+			} finally {
+				rf.close();
+			}
+		} finally {
+			recording.close();
+			recording = null;
+			Files.deleteIfExists( tmp );
+		}
+	}
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.text.*;
+import java.util.*;
+
+/**
+ * <p><b>Raw Sample Recorder</b></p>
+ *
+ * <p>This class captures the start time and the elapsed time of every timed batch of every trial,
+ * without allocating on the heap while the trial runs. Samples are written to a direct buffer
+ * that is allocated once, and used as a ring, so if a trial takes more samples than fit, the
+ * oldest are overwritten (and counted). Between trials, outside of the timed region, the buffer
+ * is appended to {@code sliderule-<date>-<epoch>-raw.bin} in the SlideRule data directory.</p>
+ *
+ * <p>Recording is off by default, and is enabled with {@code -Craw.samples=true}. The capacity of
+ * the buffer, in samples, may be set with {@code -Craw.samples.capacity} (default
+ * {@value #DEFAULT_CAPACITY}, i.e. 1 MiB).</p>
+ *
+ * <p>All values are big-endian. Timestamps are from {@link System#nanoTime()}; the header records
+ * one pair of {@link System#currentTimeMillis()} and {@link System#nanoTime()} so that they may be
+ * converted to wall-clock time.</p>
+ *
+ * <pre>
+ * file  := u32:MAGIC u16:VERSION u64:epoch_ms u64:epoch_ns block*
+ * block := u64:msb u64:lsb u32:reps u64:n ( u64:start_ns u64:elapsed_ns ){n}
+ * </pre>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ */
+final class RawSampleRecorder implements Closeable {
+
+	static final String enable_property = "raw.samples";
+	static final String capacity_property = "raw.samples.capacity";
+
+	static final int MAGIC = 0x534c5253; // "SLRS"
+	static final short VERSION = 1;
+	static final int DEFAULT_CAPACITY = 1 << 16;
+	static final int SAMPLE_SIZE = 8 + 8;
+	static final int FILE_HEADER_SIZE = 4 + 2 + 8 + 8;
+	static final int BLOCK_HEADER_SIZE = 8 + 8 + 4 + 8;
+
+	final File file;
+	private final int capacity;
+	private final ByteBuffer ring;
+	private final ByteBuffer header = ByteBuffer.allocateDirect( FILE_HEADER_SIZE + BLOCK_HEADER_SIZE );
+	private FileChannel fc;
+	private long count;
+
+	/**
+	 * @param file the file to which to write samples
+	 * @param capacity the maximum number of samples per trial
+	 */
+	RawSampleRecorder( File file, int capacity ) {
+		if ( capacity < 1 ) {
+			throw new IllegalArgumentException( "capacity must be positive" );
+		}
+		this.file = file;
+		this.capacity = capacity;
+		ring = ByteBuffer.allocateDirect( capacity * SAMPLE_SIZE );
+	}
+
+	/**
+	 * @return a recorder, or null if recording is not enabled
+	 */
+	static RawSampleRecorder forConfig( Properties config, File directory ) {
+		if ( ! Boolean.parseBoolean( config.getProperty( enable_property, "false" ).trim() ) ) {
+			return null;
+		}
+		int capacity = DEFAULT_CAPACITY;
+		String s = config.getProperty( capacity_property );
+		if ( null != s ) {
+			capacity = Integer.parseInt( s.trim() );
+		}
+		String name = "sliderule-" + new SimpleDateFormat( "yyyyMMdd" ).format( new Date() ) + "-" + System.currentTimeMillis() + "-raw.bin";
+		return new RawSampleRecorder( new File( directory, name ), capacity );
+	}
+
+	/**
+	 * Record one timed batch.
+	 * @param start_ns the value of {@link System#nanoTime()} at the start of the batch
+	 * @param elapsed_ns the duration of the batch
+	 */
+	void record( long start_ns, long elapsed_ns ) {
+		int pos = (int) ( count % capacity ) * SAMPLE_SIZE;
+		ring.putLong( pos, start_ns );
+		ring.putLong( pos + 8, elapsed_ns );
+		count++;
+	}
+
+	/**
+	 * @return the number of samples recorded since the last flush, including those overwritten
+	 */
+	long count() {
+		return count;
+	}
+
+	/**
+	 * @return the number of samples overwritten since the last flush
+	 */
+	long overwritten() {
+		return Math.max( 0, count - capacity );
+	}
+
+	/**
+	 * Append the samples recorded since the last flush to the file, oldest first, and reset.
+	 * @param id the id of the trial
+	 * @param reps the number of reps in each batch
+	 * @return the offset of the block in the file
+	 */
+	long flush( UUID id, int reps ) throws IOException {
+		header.clear();
+		if ( null == fc ) {
+			File dir = file.getParentFile();
+			if ( null != dir && ! dir.isDirectory() && ! dir.mkdirs() ) {
+				throw new IOException( "unable to create directory '" + dir + "'" );
+			}
+			fc = FileChannel.open( file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE );
+			header.putInt( MAGIC );
+			header.putShort( VERSION );
+			header.putLong( System.currentTimeMillis() );
+			header.putLong( System.nanoTime() );
+		}
+		long offset = fc.position() + header.position();
+		int n = (int) Math.min( count, capacity );
+		header.putLong( id.getMostSignificantBits() );
+		header.putLong( id.getLeastSignificantBits() );
+		header.putInt( reps );
+		header.putLong( n );
+		header.flip();
+		writeFully( header );
+
+		// the oldest sample is at the write position once the ring has wrapped
+		int oldest = count > capacity ? (int) ( count % capacity ) : 0;
+		ByteBuffer bb = ring.duplicate();
+		bb.limit( n * SAMPLE_SIZE ).position( oldest * SAMPLE_SIZE );
+		writeFully( bb );
+		bb.limit( oldest * SAMPLE_SIZE ).position( 0 );
+		writeFully( bb );
+
+		count = 0;
+		return offset;
+	}
+
+	private void writeFully( ByteBuffer bb ) throws IOException {
+		while( bb.hasRemaining() ) {
+			fc.write( bb );
+		}
+	}
+
+	/**
+	 * Read one block of samples.
+	 * @param file the file
+	 * @param offset the offset of the block, as returned by {@link #flush(UUID, int)}
+	 * @return the start times and the elapsed times of the samples, i.e. {@code r[ 0 ][ i ]} and
+	 * {@code r[ 1 ][ i ]}
+	 */
+	static long[][] read( File file, long offset ) throws IOException {
+		FileChannel fc = FileChannel.open( file.toPath(), StandardOpenOption.READ );
+		try {
+			ByteBuffer bb = ByteBuffer.allocate( FILE_HEADER_SIZE );
+			fc.read( bb, 0 );
+			bb.flip();
+			if ( bb.remaining() < FILE_HEADER_SIZE || MAGIC != bb.getInt() || VERSION != bb.getShort() ) {
+				throw new IOException( file + " is not a raw sample file" );
+			}
+			bb = ByteBuffer.allocate( BLOCK_HEADER_SIZE );
+			readFully( fc, bb, offset );
+			long n = bb.getLong( 8 + 8 + 4 );
+			if ( n < 0 || n > Integer.MAX_VALUE / SAMPLE_SIZE ) {
+				throw new IOException( "malformed block at offset " + offset );
+			}
+			bb = ByteBuffer.allocate( (int) n * SAMPLE_SIZE );
+			readFully( fc, bb, offset + BLOCK_HEADER_SIZE );
+			long[][] r = new long[ 2 ][ (int) n ];
+			for( int i = 0; i < n; i++ ) {
+				r[ 0 ][ i ] = bb.getLong();
+				r[ 1 ][ i ] = bb.getLong();
+			}
+			return r;
+		} finally {
+			fc.close();
+		}
+	}
+
+	private static void readFully( FileChannel fc, ByteBuffer bb, long position ) throws IOException {
+		while( bb.hasRemaining() ) {
+			int r = fc.read( bb, position );
+			if ( r < 0 ) {
+				throw new EOFException();
+			}
+			position += r;
+		}
+		bb.flip();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if ( null != fc ) {
+			fc.close();
+			fc = null;
+		}
+	}
+}
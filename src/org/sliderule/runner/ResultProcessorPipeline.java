@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.sliderule.api.*;
+import org.sliderule.model.*;
+
+/**
+ * <p><b>Result Processor Pipeline</b></p>
+ *
+ * <p>This class fans every {@link Trial} out to any number of {@link ResultProcessor}s
+ * without doing any of the work on the benchmarking thread. Trials are handed off through
+ * a bounded queue to a single background consumer, which drains the queue in batches and
+ * passes each trial, in order, to every processor. Processors that are also {@link Flushable}
+ * are flushed once per batch rather than once per trial.</p>
+ *
+ * <p>{@link #close()} is a barrier: it returns only after every trial that was previously
+ * {@linkplain #processTrial processed} has been delivered to each processor, and after each
+ * processor has itself been closed.</p>
+ *
+ * <p>The queue capacity may be set with the config property
+ * <b>-Cresults.queue.capacity=N</b>. When the queue is full, the benchmarking thread
+ * blocks until the consumer catches up.</p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ */
+public class ResultProcessorPipeline implements ResultProcessor {
+
+	static final int DEFAULT_CAPACITY = 1024;
+
+	private static final Trial END_OF_STREAM = new Trial() {
+		@Override
+		public UUID id() {
+			return null;
+		}
+		@Override
+		public List<Measurement> measurements() {
+			return Collections.emptyList();
+		}
+	};
+
+	private final List<ResultProcessor> processors;
+	private final ArrayBlockingQueue<Trial> queue;
+	private final Thread consumer;
+	private volatile Throwable failure;
+	private boolean closed;
+
+	public ResultProcessorPipeline( List<ResultProcessor> processors ) {
+		this( processors, DEFAULT_CAPACITY );
+	}
+
+	public ResultProcessorPipeline( List<ResultProcessor> processors, int capacity ) {
+		if ( null == processors || processors.isEmpty() ) {
+			throw new IllegalArgumentException( "at least one result processor is required" );
+		}
+		if ( capacity < 1 ) {
+			throw new IllegalArgumentException( "capacity must be positive" );
+		}
+		this.processors = new ArrayList<ResultProcessor>( processors );
+		this.queue = new ArrayBlockingQueue<Trial>( capacity );
+		this.consumer = new Thread( new Runnable() {
+			@Override
+			public void run() {
+				consume();
+			}
+		}, "sliderule-results" );
+		consumer.setDaemon( true );
+		consumer.start();
+	}
+
+	List<ResultProcessor> processors() {
+		return Collections.unmodifiableList( processors );
+	}
+
+	private static void put( BlockingQueue<Trial> queue, Trial trial ) {
+		boolean interrupted = false;
+		for( ;; ) {
+			try {
+				queue.put( trial );
+				break;
+			} catch ( InterruptedException e ) {
+				interrupted = true;
+			}
+		}
+		if ( interrupted ) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void consume() {
+		ArrayList<Trial> batch = new ArrayList<Trial>( queue.remainingCapacity() );
+		for( boolean done = false; ! done; ) {
+			try {
+				batch.add( queue.take() );
+			} catch ( InterruptedException e ) {
+				continue;
+			}
+			queue.drainTo( batch );
+			int delivered = 0;
+			for( Trial t: batch ) {
+				if ( END_OF_STREAM == t ) {
+					done = true;
+					break;
+				}
+				delivered++;
+				// deliver trial-major, so that processors sharing state see each trial consecutively
+				for( ResultProcessor rp: processors ) {
+					try {
+						rp.processTrial( t );
+					} catch ( Throwable th ) {
+						fail( th );
+					}
+				}
+			}
+			batch.clear();
+			if ( 0 == delivered ) {
+				// a batch holding only the end of the stream has nothing to flush
+				continue;
+			}
+			for( ResultProcessor rp: processors ) {
+				if ( rp instanceof Flushable ) {
+					try {
+						( (Flushable) rp ).flush();
+					} catch ( Throwable th ) {
+						fail( th );
+					}
+				}
+			}
+		}
+	}
+
+	private void fail( Throwable th ) {
+		if ( null == failure ) {
+			failure = th;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void processTrial( Trial trial ) {
+		if ( closed ) {
+			throw new IllegalStateException( "pipeline is closed" );
+		}
+		if ( null == trial ) {
+			throw new IllegalArgumentException( "trial may not be null" );
+		}
+		put( queue, trial );
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		if ( closed ) {
+			return;
+		}
+		closed = true;
+
+		put( queue, END_OF_STREAM );
+		boolean interrupted = false;
+		for( ;; ) {
+			try {
+				consumer.join();
+				break;
+			} catch ( InterruptedException e ) {
+				interrupted = true;
+			}
+		}
+		if ( interrupted ) {
+			Thread.currentThread().interrupt();
+		}
+
+		IOException ioe = null;
+		for( ResultProcessor rp: processors ) {
+			try {
+				rp.close();
+			} catch ( IOException e ) {
+				if ( null == ioe ) {
+					ioe = e;
+				}
+			}
+		}
+		if ( null != ioe ) {
+			throw ioe;
+		}
+		if ( null != failure ) {
+			throw new IOException( "result processor failed", failure );
+		}
+	}
+}
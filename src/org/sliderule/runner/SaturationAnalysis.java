@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.charset.*;
+import java.util.*;
+
+import org.sliderule.api.*;
+import org.sliderule.model.*;
+import org.sliderule.stats.*;
+
+/**
+ * <p><b>Saturation Analysis</b></p>
+ *
+ * <p>This class finds the saturation knee of each {@link OpenLoop} benchmark whose rate is swept
+ * as a parameter. Trials are grouped by class, method, and the values of all other parameters,
+ * in order of target rate. A rate is saturated when the mean achieved rate falls below
+ * {@link OpenLoopRunner#SATURATION} of the target, or when the mean p99 latency exceeds
+ * {@link #LATENCY_FACTOR} times that at the lowest rate. The knee is the highest rate below the
+ * first saturated one.</p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ * @see GoogleChartsResultProcessor
+ */
+class SaturationAnalysis {
+
+	static final double LATENCY_FACTOR = 10;
+
+	static final class Knee {
+		/** the highest rate that was not saturated, or NaN if the lowest was */
+		final double rate;
+		/** the lowest rate that was saturated, or NaN if none was */
+		final double saturated_rate;
+		/** the p99 latency at the knee, in nanoseconds */
+		final double p99_ns;
+		Knee( double rate, double saturated_rate, double p99_ns ) {
+			this.rate = rate;
+			this.saturated_rate = saturated_rate;
+			this.p99_ns = p99_ns;
+		}
+		@Override
+		public String toString() {
+			String r = "";
+			if ( Double.isNaN( rate ) ) {
+				r += "saturated at every rate";
+			} else {
+				r += "knee: " + rate + "/s, p99: " + p99_ns + " ns";
+			}
+			if ( ! Double.isNaN( saturated_rate ) ) {
+				r += ", saturated: " + saturated_rate + "/s";
+			}
+			return r;
+		}
+	}
+
+	final TreeMap<String,Knee> knees = new TreeMap<String,Knee>();
+
+	/**
+	 * Find the knee of a rate sweep.
+	 * @param target the target rates, in increasing order
+	 * @param achieved the achieved rate at each target rate
+	 * @param p99 the p99 latency at each target rate
+	 * @return the index of the highest rate below the first saturated one, which is
+	 * {@code target.length - 1} if none is saturated, or -1 if the lowest is saturated
+	 */
+	static int knee( double[] target, double[] achieved, double[] p99 ) {
+		for( int i = 0; i < target.length; i++ ) {
+			if ( achieved[ i ] < OpenLoopRunner.SATURATION * target[ i ] || ( i > 0 && p99[ 0 ] > 0 && p99[ i ] > LATENCY_FACTOR * p99[ 0 ] ) ) {
+				return i - 1;
+			}
+		}
+		return target.length - 1;
+	}
+
+	private static double mean( ArrayList<Trial> alt, String description ) {
+		OnlineStatistics os = new OnlineStatistics();
+		for( Trial t: alt ) {
+			Object o = SimpleTrial.extract( t, description );
+			if ( o instanceof Number ) {
+				os.update( ( (Number) o ).doubleValue() );
+			}
+		}
+		return os.mean();
+	}
+
+	/**
+	 * Find the knee of every group of open-loop trials with at least 2 distinct rates.
+	 * @param trials the trials of an experiment
+	 */
+	void analyze( Map<UUID,ArrayList<Trial>> trials ) {
+		// key -> target rate -> { achieved rate, p99 latency }
+		TreeMap<String,TreeMap<Double,double[]>> groups = new TreeMap<String,TreeMap<Double,double[]>>();
+
+		for( ArrayList<Trial> alt: trials.values() ) {
+			if ( alt.isEmpty() || ! ( alt.get( 0 ) instanceof SimpleTrial ) ) {
+				continue;
+			}
+			SimpleTrial st = (SimpleTrial) alt.get( 0 );
+			OpenLoop ol = st.getMethod().getAnnotation( OpenLoop.class );
+			Object target = SimpleTrial.extract( st, "target_rate" );
+			if ( null == ol || ! ( target instanceof Double ) ) {
+				continue;
+			}
+			Field[] param = st.getParam();
+			int col = 0;
+			for( ; col < param.length && ! param[ col ].getName().equals( ol.rate().trim() ); col++ );
+			if ( col == param.length ) {
+				continue;
+			}
+			String k = ComplexityAnalysis.key( st, col );
+			TreeMap<Double,double[]> group = groups.get( k );
+			if ( null == group ) {
+				group = new TreeMap<Double,double[]>();
+				groups.put( k, group );
+			}
+			group.put( (Double) target, new double[] { mean( alt, "achieved_rate" ), mean( alt, "latency_p99_ns" ) } );
+		}
+
+		for( Map.Entry<String,TreeMap<Double,double[]>> e: groups.entrySet() ) {
+			TreeMap<Double,double[]> group = e.getValue();
+			if ( group.size() < 2 ) {
+				continue;
+			}
+			double[] target = new double[ group.size() ];
+			double[] achieved = new double[ group.size() ];
+			double[] p99 = new double[ group.size() ];
+			int i = 0;
+			for( Map.Entry<Double,double[]> p: group.entrySet() ) {
+				target[ i ] = p.getKey();
+				achieved[ i ] = p.getValue()[ 0 ];
+				p99[ i ] = p.getValue()[ 1 ];
+				i++;
+			}
+			int k = knee( target, achieved, p99 );
+			knees.put( e.getKey(), new Knee(
+				-1 == k ? Double.NaN : target[ k ],
+				target.length - 1 == k ? Double.NaN : target[ k + 1 ],
+				-1 == k ? Double.NaN : p99[ k ]
+			));
+		}
+	}
+
+	/**
+	 * Write the knees.
+	 * @param out where to write
+	 */
+	void write( PrintStream out ) {
+		for( Map.Entry<String,Knee> e: knees.entrySet() ) {
+			out.println( e.getKey() + ": " + e.getValue() );
+		}
+	}
+
+	void write( File file ) throws IOException {
+		PrintStream ps = new PrintStream( new FileOutputStream( file ), false, StandardCharsets.UTF_8.name() );
+		try {
+			write( ps );
+		} finally {
+			ps.close();
+		}
+	}
+}
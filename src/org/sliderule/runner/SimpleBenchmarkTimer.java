@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import java.util.*;
+
+import org.sliderule.api.*;
+
+/**
+ * <p><b>Simple Benchmark Timer</b></p>
+ *
+ * <p>This class accumulates the time for which a {@link BenchmarkTimer} was paused during one
+ * timed call of a benchmark method, so that it can be subtracted from the elapsed time of the
+ * call.</p>
+ *
+ * <p>Only the part of each {@link #pause()} before it reads the clock, and the part of each
+ * {@link #resume()} after it reads the clock, remain in the timed region. That overhead is
+ * calibrated once, by timing many pairs of calls with nothing in between, and
+ * {@link #excluded(long)} subtracts it for every pause as well.</p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ */
+final class SimpleBenchmarkTimer implements BenchmarkTimer {
+
+	private static final int CALIBRATION_ROUNDS = 21;
+	private static final int CALIBRATION_PAIRS = 10000;
+
+	private static double overhead_ns = -1;
+
+	private boolean paused;
+	private long pause_ns;
+	private long paused_ns;
+	private long pauses;
+
+	@Override
+	public void pause() {
+		if ( paused ) {
+			throw new IllegalStateException( "timer is already paused" );
+		}
+		paused = true;
+		pauses++;
+		pause_ns = System.nanoTime();
+	}
+
+	@Override
+	public void resume() {
+		long now_ns = System.nanoTime();
+		if ( ! paused ) {
+			throw new IllegalStateException( "timer is not paused" );
+		}
+		paused_ns += now_ns - pause_ns;
+		paused = false;
+	}
+
+	/**
+	 * Prepare for the next timed call.
+	 */
+	void reset() {
+		paused = false;
+		paused_ns = 0;
+		pauses = 0;
+	}
+
+	/**
+	 * @return the total time for which the timer was paused since the last {@link #reset()}
+	 */
+	long pausedNs() {
+		return paused_ns;
+	}
+
+	/**
+	 * @return the number of pauses since the last {@link #reset()}
+	 */
+	long pauses() {
+		return pauses;
+	}
+
+	/**
+	 * The time to subtract from a timed call, resuming the timer first if it was left paused.
+	 * @param end_ns the value of {@link System#nanoTime()} at the end of the call
+	 * @return the time for which the timer was paused, plus the overhead of each pause
+	 */
+	double excluded( long end_ns ) {
+		if ( paused ) {
+			paused_ns += end_ns - pause_ns;
+			paused = false;
+		}
+		return 0 == pauses ? 0 : paused_ns + pauses * overhead();
+	}
+
+	/**
+	 * The overhead, per pair of {@link #pause()} and {@link #resume()}, that remains in the timed
+	 * region. It is the median over several rounds, and is only measured once per VM.
+	 * @return the overhead in nanoseconds
+	 */
+	static synchronized double overhead() {
+		if ( overhead_ns < 0 ) {
+			SimpleBenchmarkTimer t = new SimpleBenchmarkTimer();
+			double[] round = new double[ CALIBRATION_ROUNDS ];
+			for( int r = 0; r < round.length; r++ ) {
+				t.reset();
+				long start_ns = System.nanoTime();
+				for( int i = 0; i < CALIBRATION_PAIRS; i++ ) {
+					t.pause();
+					t.resume();
+				}
+				long elapsed_ns = System.nanoTime() - start_ns;
+				round[ r ] = Math.max( 0, (double) ( elapsed_ns - t.paused_ns ) / CALIBRATION_PAIRS );
+			}
+			Arrays.sort( round );
+			overhead_ns = round[ round.length / 2 ];
+			Algorithm.D( "calibrated benchmark timer overhead of " + overhead_ns + " ns per pause" );
+		}
+		return overhead_ns;
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import org.sliderule.api.*;
+
+/**
+ * <p><b>Simple Counters</b></p>
+ *
+ * <p>This class accumulates the work reported through {@link Counters} by the calls of one
+ * trial.</p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ */
+final class SimpleCounters implements Counters {
+
+	long bytes;
+	long items;
+
+	@Override
+	public void addBytes( long n ) {
+		bytes += n;
+	}
+
+	@Override
+	public void addItems( long n ) {
+		items += n;
+	}
+
+	void reset() {
+		bytes = 0;
+		items = 0;
+	}
+}
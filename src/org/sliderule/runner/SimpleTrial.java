@@ -97,6 +97,21 @@ final class SimpleTrial implements Trial {
 		return r;
 	}
 
+	/**
+	 * Find the value of a measurement of a trial.
+	 * @param t the trial
+	 * @param description the description of the measurement
+	 * @return the value, or null if the trial has no such measurement
+	 */
+	static Object extract( Trial t, String description ) {
+		for( Measurement m: t.measurements() ) {
+			if ( description.equals( m.description() ) ) {
+				return null == m.value() ? null : m.value().value;
+			}
+		}
+		return null;
+	}
+
 	static double[] extractMeans( ArrayList<Trial> alt ) {
 		double[] r = new double[ alt.size() ];
 		int i = 0;
@@ -23,6 +23,8 @@ import java.util.*;
 @SuppressWarnings({"unchecked","rawtypes"})
 public class SlideRuleAnnotations {
 	private static final int FIELD_PARAM;
+	private static final int FIELD_DATASET;
+	private static final int FIELD_INPUTS;
 
 	private static final int METHOD_AFTER_EXPERIMENT;
 	private static final int METHOD_BEFORE_EXPERIMENT;
@@ -30,6 +32,7 @@ public class SlideRuleAnnotations {
 	private static final int METHOD_AFTER_REP;
 	private static final int METHOD_BEFORE_REP;
 	private static final int METHOD_MACROBENCHMARK;
+	private static final int METHOD_PARAM_CONSTRAINT;
 
 	private static final Map<Class<? extends Annotation>,Integer> field_map;
 	private static final Map<Class<? extends Annotation>,Integer> method_map;
@@ -37,9 +40,13 @@ public class SlideRuleAnnotations {
 	static {
 		int field=0;
 		FIELD_PARAM = field++;
+		FIELD_DATASET = field++;
+		FIELD_INPUTS = field++;
 
 		field_map = new HashMap<Class<? extends Annotation>,Integer>();
 		field_map.put( org.sliderule.Param.class, FIELD_PARAM );
+		field_map.put( org.sliderule.api.Dataset.class, FIELD_DATASET );
+		field_map.put( org.sliderule.api.Inputs.class, FIELD_INPUTS );
 
 		int method=0;
 		METHOD_AFTER_EXPERIMENT = method++;
@@ -48,6 +55,7 @@ public class SlideRuleAnnotations {
 		METHOD_AFTER_REP = method++;
 		METHOD_BEFORE_REP = method++;
 		METHOD_MACROBENCHMARK = method++;
+		METHOD_PARAM_CONSTRAINT = method++;
 
 		method_map = new HashMap<Class<? extends Annotation>,Integer>();
 		method_map.put( org.sliderule.AfterExperiment.class, METHOD_AFTER_EXPERIMENT );
@@ -56,6 +64,7 @@ public class SlideRuleAnnotations {
 		method_map.put( org.sliderule.api.AfterRep.class, METHOD_AFTER_REP );
 		method_map.put( org.sliderule.api.BeforeRep.class, METHOD_BEFORE_REP );
 		method_map.put( org.sliderule.api.Macrobenchmark.class, METHOD_MACROBENCHMARK );
+		method_map.put( org.sliderule.api.ParamConstraint.class, METHOD_PARAM_CONSTRAINT );
 	}
 
 	private final Class<?> klass;
@@ -179,11 +188,7 @@ public class SlideRuleAnnotations {
 				ala.add( (T) an );
 			}
 		}
-		T[] r = ala.toArray( a );
-		if ( 1 == r.length && null == r[0] ) {
-			r = (T[]) Array.newInstance( klass, 0 );
-		}
-		return r;
+		return ala.toArray( (T[]) Array.newInstance( klass, ala.size() ) );
 	}
 	static <T extends Annotation> T[] getAnnotationsByType( Object o, Class<T> klass ) {
 		return getAnnotations( false, o, klass );
@@ -199,6 +204,12 @@ public class SlideRuleAnnotations {
 	public SortedSet<Field> getParamFields() {
 		return field_array[ FIELD_PARAM ];
 	}
+	public SortedSet<Field> getDatasetFields() {
+		return field_array[ FIELD_DATASET ];
+	}
+	public SortedSet<Field> getInputsFields() {
+		return field_array[ FIELD_INPUTS ];
+	}
 
 	public Set<Method> getAfterExperimentMethods() {
 		return method_array[ METHOD_AFTER_EXPERIMENT ];
@@ -218,6 +229,30 @@ public class SlideRuleAnnotations {
 	public Set<Method> getMacrobenchmarkMethods() {
 		return method_array[ METHOD_MACROBENCHMARK ];
 	}
+	public Set<Method> getParamConstraintMethods() {
+		return method_array[ METHOD_PARAM_CONSTRAINT ];
+	}
+
+	/**
+	 * Collect the {@link org.sliderule.api.Group} macrobenchmark methods.
+	 * @return the methods of each group, by name
+	 */
+	public SortedMap<String,SortedSet<Method>> getGroups() {
+		TreeMap<String,SortedSet<Method>> r = new TreeMap<String,SortedSet<Method>>();
+		for( Method m: getMacrobenchmarkMethods() ) {
+			org.sliderule.api.Group g = m.getAnnotation( org.sliderule.api.Group.class );
+			if ( null == g ) {
+				continue;
+			}
+			SortedSet<Method> group = r.get( g.value() );
+			if ( null == group ) {
+				group = new TreeSet<Method>( new MemberComparator() );
+				r.put( g.value(), group );
+			}
+			group.add( m );
+		}
+		return r;
+	}
 
 	@Override
 	public String toString() {
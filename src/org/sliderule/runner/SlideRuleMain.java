@@ -269,18 +269,65 @@ public final class SlideRuleMain {
 		return true;
 	}
 
+	/**
+	 * Instantiate a result processor. Processors that declare a constructor taking
+	 * {@link Arguments} are given the arguments of this run (output directory, config
+	 * properties, run name), otherwise the no-argument constructor is used.
+	 */
+	private ResultProcessor newResultProcessor( Class<ResultProcessor> crp )
+	throws InstantiationException, IllegalAccessException
+	{
+		Constructor<ResultProcessor> ctor;
+		try {
+			ctor = crp.getDeclaredConstructor( Arguments.class );
+		} catch ( NoSuchMethodException e ) {
+			return crp.newInstance();
+		}
+		try {
+			ctor.setAccessible( true );
+			return ctor.newInstance( arguments );
+		} catch ( InvocationTargetException e ) {
+			InstantiationException ie = new InstantiationException( "unable to instantiate " + crp.getName() );
+			ie.initCause( e.getCause() );
+			throw ie;
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	private void setup()
 	throws NonUniformBenchmarkClassesException, ClassNotFoundException, InstantiationException, IllegalAccessException
 	{
 		SlideRuleAnnotations prev_ac = null;
 
+		// one or more result processors, fed asynchronously so that slow sinks do not stall the trials loop
+		ArrayList<ResultProcessor> alrp = new ArrayList<ResultProcessor>();
 		if ( arguments.config_properties.containsKey( "results.console.class" ) ) {
 			ClassLoader cl = ClassLoader.getSystemClassLoader();
-			Class<ResultProcessor> crp = (Class<ResultProcessor>) cl.loadClass( arguments.config_properties.getProperty( "results.console.class" ) );
-			ResultProcessor rp = (ResultProcessor) crp.newInstance();
-			context.setResultProcessor( rp );
+			// each processor is instantiated once, even if it is listed more than once
+			LinkedHashSet<String> names = new LinkedHashSet<String>();
+			for( String name: arguments.config_properties.getProperty( "results.console.class" ).split( arguments.delimiter ) ) {
+				names.add( name.trim() );
+			}
+			for( String name: names ) {
+				Class<ResultProcessor> crp = (Class<ResultProcessor>) cl.loadClass( name );
+				alrp.add( newResultProcessor( crp ) );
+			}
+		} else {
+			alrp.add( context.results_processor );
+		}
+		// in-memory processors share one set of trials, which only the first of them records
+		boolean recorded = false;
+		for( ResultProcessor rp: alrp ) {
+			if ( rp instanceof InMemoryResultProcessor ) {
+				( (InMemoryResultProcessor) rp ).records = ! recorded;
+				recorded = true;
+			}
+		}
+		int capacity = ResultProcessorPipeline.DEFAULT_CAPACITY;
+		if ( arguments.config_properties.containsKey( "results.queue.capacity" ) ) {
+			capacity = Integer.parseInt( arguments.config_properties.getProperty( "results.queue.capacity" ) );
 		}
+		context.setResultProcessor( new ResultProcessorPipeline( alrp, capacity ) );
 
 		for( Class<?> klass: arguments.bench_classes ) {
 
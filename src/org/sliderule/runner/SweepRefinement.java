@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+import org.sliderule.api.*;
+
+/**
+ * <p><b>Sweep Refinement</b></p>
+ *
+ * <p>This class chooses the next value at which to measure a numeric parameter, given the mean
+ * time of each benchmark method at the values measured so far (see {@link AdaptiveSweep}).</p>
+ *
+ * <p>Each interval between adjacent values is scored as follows, and the interval with the
+ * highest score is bisected.
+ *
+ * <ol>
+ *   <li>
+ *       If two methods of the same kind (micro or macro) trade places within the interval, the
+ *       interval contains a crossover, which always takes priority. The widest such interval is
+ *       chosen first.
+ *   </li>
+ *   <li>
+ *       Otherwise, the score is the greatest change in (normalized) slope at either end of the
+ *       interval, multiplied by the (normalized) width of the interval. This approximates the
+ *       error of linearly interpolating the curve over the interval.
+ *   </li>
+ *   <li>
+ *       If no interval has a positive score, the widest interval is chosen.
+ *   </li>
+ * </ol>
+ * </p>
+ *
+ * <p>Intervals that are no wider than the resolution, or that cannot be bisected (e.g. adjacent
+ * integers), are never chosen.</p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ */
+final class SweepRefinement {
+
+	private final double min;
+	private final double max;
+	private final double resolution;
+	private final boolean integral;
+	private final Set<Method> micro;
+	private int budget;
+
+	private final TreeMap<Double,Map<Method,Double>> points = new TreeMap<Double,Map<Method,Double>>();
+
+	/**
+	 * @param min the smallest value to measure
+	 * @param max the largest value to measure
+	 * @param resolution intervals that are no wider than this are not bisected
+	 * @param budget the maximum number of values to choose, excluding {@code min} and {@code max}
+	 * @param integral whether the parameter only takes integer values
+	 * @param micro the microbenchmark methods, which are only compared with each other
+	 */
+	SweepRefinement( double min, double max, double resolution, int budget, boolean integral, Set<Method> micro ) {
+		if ( ! ( min <= max ) ) {
+			throw new IllegalArgumentException( "invalid range [" + min + "," + max + "]" );
+		}
+		this.min = min;
+		this.max = max;
+		this.resolution = resolution;
+		this.budget = budget;
+		this.integral = integral;
+		this.micro = micro;
+	}
+
+	/**
+	 * Record the mean time of each method at value {@code x}. Values outside of the range are ignored.
+	 * @param x the value of the parameter
+	 * @param means the mean time of each method, which may be empty if the scenario was skipped
+	 */
+	void add( double x, Map<Method,Double> means ) {
+		if ( x >= min && x <= max ) {
+			points.put( x, means );
+		}
+	}
+
+	Set<Double> values() {
+		return points.keySet();
+	}
+
+	/**
+	 * Choose the next value to measure.
+	 * @return the value, or {@link Double#NaN} when refinement is complete
+	 */
+	double next() {
+
+		if ( ! points.containsKey( min ) ) {
+			return min;
+		}
+		if ( ! points.containsKey( max ) ) {
+			return max;
+		}
+		if ( budget <= 0 || points.size() < 2 ) {
+			return Double.NaN;
+		}
+
+		final int n = points.size();
+		final double[] x = new double[ n ];
+		int i = 0;
+		for( double d: points.keySet() ) {
+			x[ i++ ] = d;
+		}
+		final double xr = max - min;
+
+		// which intervals may be bisected, and where
+		double[] mid = new double[ n - 1 ];
+		boolean any = false;
+		for( i = 0; i < n - 1; i++ ) {
+			mid[ i ] = Double.NaN;
+			if ( x[ i + 1 ] - x[ i ] <= resolution ) {
+				continue;
+			}
+			double m = integral ? Math.floor( ( x[ i ] + x[ i + 1 ] ) / 2 ) : ( x[ i ] + x[ i + 1 ] ) / 2;
+			if ( m > x[ i ] && m < x[ i + 1 ] ) {
+				mid[ i ] = m;
+				any = true;
+			}
+		}
+		if ( ! any ) {
+			return Double.NaN;
+		}
+
+		HashSet<Method> methods = new HashSet<Method>();
+		for( Map<Method,Double> means: points.values() ) {
+			methods.addAll( means.keySet() );
+		}
+		ArrayList<Method> alm = new ArrayList<Method>( methods );
+		double[][] y = new double[ alm.size() ][ n ];
+		for( int j = 0; j < alm.size(); j++ ) {
+			i = 0;
+			for( Map<Method,Double> means: points.values() ) {
+				Double d = means.get( alm.get( j ) );
+				y[ j ][ i++ ] = null == d ? Double.NaN : d;
+			}
+		}
+
+		int best = -1;
+		double best_score = 0;
+
+		// 1) crossovers
+		for( i = 0; i < n - 1; i++ ) {
+			if ( Double.isNaN( mid[ i ] ) || ! crosses( alm, y, i ) ) {
+				continue;
+			}
+			double score = x[ i + 1 ] - x[ i ];
+			if ( score > best_score ) {
+				best = i;
+				best_score = score;
+			}
+		}
+
+		// 2) change in slope
+		if ( -1 == best ) {
+			double[] score = new double[ n - 1 ];
+			for( int j = 0; j < alm.size(); j++ ) {
+				double lo = Double.POSITIVE_INFINITY;
+				double hi = Double.NEGATIVE_INFINITY;
+				for( double d: y[ j ] ) {
+					if ( ! Double.isNaN( d ) ) {
+						lo = Math.min( lo, d );
+						hi = Math.max( hi, d );
+					}
+				}
+				double yr = hi - lo;
+				if ( ! ( yr > 0 ) ) {
+					continue;
+				}
+				double[] slope = new double[ n - 1 ];
+				for( i = 0; i < n - 1; i++ ) {
+					slope[ i ] = ( ( y[ j ][ i + 1 ] - y[ j ][ i ] ) / yr ) / ( ( x[ i + 1 ] - x[ i ] ) / xr );
+				}
+				for( i = 0; i < n - 1; i++ ) {
+					double change = 0;
+					if ( i > 0 && ! Double.isNaN( slope[ i ] - slope[ i - 1 ] ) ) {
+						change = Math.max( change, Math.abs( slope[ i ] - slope[ i - 1 ] ) );
+					}
+					if ( i < n - 2 && ! Double.isNaN( slope[ i + 1 ] - slope[ i ] ) ) {
+						change = Math.max( change, Math.abs( slope[ i + 1 ] - slope[ i ] ) );
+					}
+					score[ i ] = Math.max( score[ i ], change * ( x[ i + 1 ] - x[ i ] ) / xr );
+				}
+			}
+			for( i = 0; i < n - 1; i++ ) {
+				if ( ! Double.isNaN( mid[ i ] ) && score[ i ] > best_score ) {
+					best = i;
+					best_score = score[ i ];
+				}
+			}
+		}
+
+		// 3) widest
+		if ( -1 == best ) {
+			for( i = 0; i < n - 1; i++ ) {
+				if ( ! Double.isNaN( mid[ i ] ) && ( -1 == best || x[ i + 1 ] - x[ i ] > x[ best + 1 ] - x[ best ] ) ) {
+					best = i;
+				}
+			}
+		}
+
+		budget--;
+		return mid[ best ];
+	}
+
+	private boolean crosses( ArrayList<Method> alm, double[][] y, int i ) {
+		for( int a = 0; a < alm.size(); a++ ) {
+			for( int b = a + 1; b < alm.size(); b++ ) {
+				if ( micro.contains( alm.get( a ) ) != micro.contains( alm.get( b ) ) ) {
+					continue;
+				}
+				double left = y[ a ][ i ] - y[ b ][ i ];
+				double right = y[ a ][ i + 1 ] - y[ b ][ i + 1 ];
+				if ( left * right < 0 ) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import java.lang.reflect.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * <p><b>Thread Pools</b></p>
+ *
+ * <p>This class creates the executors on which benchmark methods are invoked concurrently. A pool
+ * of platform threads is a fixed number of daemon threads. Virtual threads are created with
+ * {@code Executors.newVirtualThreadPerTaskExecutor()}, one per task, which is looked up
+ * reflectively so that SlideRule still runs on VMs that predate them. On such VMs, a pool of
+ * platform threads is used instead.</p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ */
+final class ThreadPools {
+
+	private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR;
+	static {
+		Method m;
+		try {
+			m = Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" );
+		} catch ( NoSuchMethodException e ) {
+			m = null;
+		}
+		NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = m;
+	}
+
+	private ThreadPools() {}
+
+	static boolean hasVirtualThreads() {
+		return null != NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR;
+	}
+
+	/**
+	 * Resolve a number of threads, where {@code 0} means one per available processor.
+	 */
+	static int threads( int n ) {
+		if ( n < 0 ) {
+			throw new IllegalArgumentException( "the number of threads may not be negative" );
+		}
+		return 0 == n ? Runtime.getRuntime().availableProcessors() : n;
+	}
+
+	/**
+	 * Create an executor.
+	 * @param name the prefix of the name of each platform thread
+	 * @param threads the number of platform threads
+	 * @param virtual true to run each task in its own virtual thread, if supported
+	 * @return the executor, which the caller must shut down
+	 */
+	static ExecutorService create( final String name, int threads, boolean virtual ) {
+		if ( virtual ) {
+			if ( hasVirtualThreads() ) {
+				try {
+					return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke( null );
+				} catch ( IllegalAccessException | InvocationTargetException e ) {
+					Algorithm.D( "unable to create virtual threads: " + e );
+				}
+			} else {
+				Algorithm.D( "virtual threads are not supported by this VM, using " + threads + " platform threads" );
+			}
+		}
+		final AtomicInteger n = new AtomicInteger();
+		return Executors.newFixedThreadPool( threads, new ThreadFactory() {
+			@Override
+			public Thread newThread( Runnable r ) {
+				Thread t = new Thread( r, name + "-" + n.getAndIncrement() );
+				t.setDaemon( true );
+				return t;
+			}
+		});
+	}
+}
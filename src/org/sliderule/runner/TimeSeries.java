@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import java.util.*;
+
+/**
+ * <p><b>Time Series</b></p>
+ *
+ * <p>This class records the time per rep of every iteration of a trial, in order, so that it can
+ * be stored with the trial as the {@code samples_ns} measurement and plotted alongside the warm-up
+ * curve. At most {@link #MAX_SIZE} samples are kept; later samples are counted, but dropped.</p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ */
+final class TimeSeries {
+
+	static final int MAX_SIZE = 1 << 16;
+
+	private double[] x = new double[ 64 ];
+	private int n;
+	private long dropped;
+
+	void add( double d ) {
+		if ( n == MAX_SIZE ) {
+			dropped++;
+			return;
+		}
+		if ( n == x.length ) {
+			x = Arrays.copyOf( x, 2 * n );
+		}
+		x[ n++ ] = d;
+	}
+
+	int size() {
+		return n;
+	}
+
+	long dropped() {
+		return dropped;
+	}
+
+	void clear() {
+		n = 0;
+		dropped = 0;
+	}
+
+	double[] toArray() {
+		return Arrays.copyOf( x, n );
+	}
+
+	/**
+	 * Reduce a series to at most {@code points} points, each of which is the mean of an equal
+	 * number of consecutive samples (except, perhaps, the last).
+	 * @param x the series
+	 * @param points the maximum number of points
+	 * @return the reduced series, or {@code x} itself if it is short enough
+	 */
+	static double[] downsample( double[] x, int points ) {
+		if ( x.length <= points ) {
+			return x;
+		}
+		int f = ( x.length + points - 1 ) / points;
+		double[] r = new double[ ( x.length + f - 1 ) / f ];
+		for( int i = 0; i < r.length; i++ ) {
+			int from = i * f;
+			int to = Math.min( from + f, x.length );
+			double sum = 0;
+			for( int j = from; j < to; j++ ) {
+				sum += x[ j ];
+			}
+			r[ i ] = sum / ( to - from );
+		}
+		return r;
+	}
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+import org.sliderule.model.*;
+
+/**
+ * <p><b>Trial Index</b></p>
+ *
+ * <p>This class indexes sets of trials (i.e. all of the {@link Trial}s sharing one {@link UUID})
+ * by class, method, micro / macro benchmark, and by the value of each parameter. Each set of
+ * trials is assigned a dense integer id, and every index maps a key to a {@link BitSet} of those
+ * ids. Composite predicates are answered by intersecting bitmaps, so the cost of a
+ * {@link Query} is proportional to the number of predicates and the number of sets of trials
+ * divided by the word size, rather than to a scan of every trial.</p>
+ *
+ * <p>For example: <pre>   {@code
+ *   TreeMap<UUID,ArrayList<Trial>> r =
+ *     index.query().whereMicro( true ).whereMethodName( "foo" ).whereParam( size, value ).execute();
+ * }</pre></p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ */
+public final class TrialIndex {
+
+	private final ArrayList<UUID> ids = new ArrayList<UUID>();
+	private final ArrayList<ArrayList<Trial>> trials = new ArrayList<ArrayList<Trial>>();
+	private final HashMap<UUID,Integer> position = new HashMap<UUID,Integer>();
+
+	private final BitSet all = new BitSet();
+	private final BitSet micro = new BitSet();
+	private final BitSet macro = new BitSet();
+	private final HashMap<Class<?>,BitSet> by_class = new HashMap<Class<?>,BitSet>();
+	private final HashMap<String,BitSet> by_class_name = new HashMap<String,BitSet>();
+	private final HashMap<Method,BitSet> by_method = new HashMap<Method,BitSet>();
+	private final HashMap<String,BitSet> by_method_name = new HashMap<String,BitSet>();
+	private final HashMap<Field,HashMap<PolymorphicType,BitSet>> by_param = new HashMap<Field,HashMap<PolymorphicType,BitSet>>();
+	private final HashMap<String,HashMap<PolymorphicType,BitSet>> by_param_name = new HashMap<String,HashMap<PolymorphicType,BitSet>>();
+
+	public TrialIndex() {
+	}
+
+	public TrialIndex( Map<UUID,ArrayList<Trial>> trial_set ) {
+		for( Map.Entry<UUID,ArrayList<Trial>> e: trial_set.entrySet() ) {
+			add( e.getKey(), e.getValue() );
+		}
+	}
+
+	private static <K> void mark( Map<K,BitSet> map, K key, int bit ) {
+		BitSet bs = map.get( key );
+		if ( null == bs ) {
+			bs = new BitSet();
+			map.put( key, bs );
+		}
+		bs.set( bit );
+	}
+
+	private static <K> void mark( Map<K,HashMap<PolymorphicType,BitSet>> map, K key, PolymorphicType value, int bit ) {
+		HashMap<PolymorphicType,BitSet> m = map.get( key );
+		if ( null == m ) {
+			m = new HashMap<PolymorphicType,BitSet>();
+			map.put( key, m );
+		}
+		mark( m, value, bit );
+	}
+
+	private static <K> BitSet lookup( Map<K,HashMap<PolymorphicType,BitSet>> map, K key, PolymorphicType value ) {
+		HashMap<PolymorphicType,BitSet> m = map.get( key );
+		return null == m ? null : m.get( value );
+	}
+
+	/**
+	 * Index a set of trials. The first trial in {@code alt} is taken as the prototype for the set.
+	 * Adding a {@link UUID} that is already indexed has no effect, since the list of trials is
+	 * referenced rather than copied.
+	 * @param id the id of the set of trials
+	 * @param alt the set of trials
+	 */
+	public void add( UUID id, ArrayList<Trial> alt ) {
+		if ( position.containsKey( id ) ) {
+			return;
+		}
+		int bit = ids.size();
+		ids.add( id );
+		trials.add( alt );
+		position.put( id, bit );
+		all.set( bit );
+
+		if ( alt.isEmpty() || ! ( alt.get( 0 ) instanceof SimpleTrial ) ) {
+			return;
+		}
+		SimpleTrial st = (SimpleTrial) alt.get( 0 );
+		Class<?> klass = st.getSlideRuleAnnotations().getAnnotatedClass();
+		Method method = st.getMethod();
+		mark( by_class, klass, bit );
+		mark( by_class_name, klass.getName(), bit );
+		mark( by_method, method, bit );
+		mark( by_method_name, method.getName(), bit );
+		if ( st.isMicro() ) {
+			micro.set( bit );
+		} else {
+			macro.set( bit );
+		}
+		Field[] param = st.getParam();
+		PolymorphicType[] param_value = st.getParamValue();
+		for( int i = 0; i < param.length; i++ ) {
+			mark( by_param, param[ i ], param_value[ i ], bit );
+			mark( by_param_name, param[ i ].getName(), param_value[ i ], bit );
+		}
+	}
+
+	/**
+	 * The number of sets of trials that are indexed.
+	 * @return the size
+	 */
+	public int size() {
+		return ids.size();
+	}
+
+	/**
+	 * The distinct values observed for parameter {@code field}, in natural order.
+	 * @param field the parameter
+	 * @return the values
+	 */
+	public SortedSet<PolymorphicType> paramValues( Field field ) {
+		HashMap<PolymorphicType,BitSet> m = by_param.get( field );
+		return null == m ? new TreeSet<PolymorphicType>() : new TreeSet<PolymorphicType>( m.keySet() );
+	}
+
+	/**
+	 * Begin a new query that initially matches every indexed set of trials.
+	 * @return the query
+	 */
+	public Query query() {
+		return new Query();
+	}
+
+	public final class Query {
+
+		private final BitSet bits = (BitSet) all.clone();
+
+		private Query() {
+		}
+
+		private Query and( BitSet bs ) {
+			if ( null == bs ) {
+				bits.clear();
+			} else {
+				bits.and( bs );
+			}
+			return this;
+		}
+
+		public Query whereClass( Class<?> klass ) {
+			return and( by_class.get( klass ) );
+		}
+
+		public Query whereClassName( String name ) {
+			return and( by_class_name.get( name ) );
+		}
+
+		public Query whereClassIn( Collection<Class<?>> classes ) {
+			BitSet r = new BitSet();
+			for( Class<?> klass: classes ) {
+				BitSet bs = by_class.get( klass );
+				if ( null != bs ) {
+					r.or( bs );
+				}
+			}
+			return and( r );
+		}
+
+		public Query whereMethod( Method method ) {
+			return and( by_method.get( method ) );
+		}
+
+		public Query whereMethodName( String name ) {
+			return and( by_method_name.get( name ) );
+		}
+
+		public Query whereMethodIn( Collection<Method> methods ) {
+			BitSet r = new BitSet();
+			for( Method method: methods ) {
+				BitSet bs = by_method.get( method );
+				if ( null != bs ) {
+					r.or( bs );
+				}
+			}
+			return and( r );
+		}
+
+		public Query whereMicro( boolean is_micro ) {
+			return and( is_micro ? micro : macro );
+		}
+
+		public Query whereParam( Field field, PolymorphicType value ) {
+			return and( lookup( by_param, field, value ) );
+		}
+
+		public Query whereParamName( String name, PolymorphicType value ) {
+			return and( lookup( by_param_name, name, value ) );
+		}
+
+		public Query whereParams( List<Field> fields, List<PolymorphicType> values ) {
+			if ( fields.size() != values.size() ) {
+				throw new IllegalArgumentException( "fields and values must be same size" );
+			}
+			for( int i = 0; i < fields.size() && ! bits.isEmpty(); i++ ) {
+				whereParam( fields.get( i ), values.get( i ) );
+			}
+			return this;
+		}
+
+		/**
+		 * The number of sets of trials matched by the query so far.
+		 * @return the count
+		 */
+		public int count() {
+			return bits.cardinality();
+		}
+
+		/**
+		 * Whether no sets of trials match the query so far.
+		 * @return true if the query is empty
+		 */
+		public boolean isEmpty() {
+			return bits.isEmpty();
+		}
+
+		/**
+		 * Materialize the result of the query.
+		 * @return the matching sets of trials, sorted by {@link UUID}
+		 */
+		public TreeMap<UUID,ArrayList<Trial>> execute() {
+			TreeMap<UUID,ArrayList<Trial>> r = new TreeMap<UUID,ArrayList<Trial>>();
+			for( int i = bits.nextSetBit( 0 ); i >= 0; i = bits.nextSetBit( i + 1 ) ) {
+				r.put( ids.get( i ), trials.get( i ) );
+			}
+			return r;
+		}
+	}
+}
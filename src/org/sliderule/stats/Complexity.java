@@ -0,0 +1,271 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.stats;
+
+import java.util.*;
+
+/**
+ * <p><b>Empirical Complexity</b></p>
+ *
+ * <p>This class estimates the
+ * <a href="http://en.wikipedia.org/wiki/Time_complexity">time complexity</a>
+ * of an algorithm from measurements of its running time {@code y} at several problem sizes
+ * {@code n}. Each {@link Model} {@code t(n) = a + b g(n)} is fit using
+ * <a href="http://en.wikipedia.org/wiki/Simple_linear_regression">least squares</a>,
+ * and the model with the lowest
+ * <a href="http://en.wikipedia.org/wiki/Bayesian_information_criterion">Bayesian information criterion (BIC)</a>
+ * is selected. Models other than {@link Model#CONSTANT} are only considered when {@code b > 0}
+ * with the given {@link #CONFIDENCE} (i.e. when the running time actually grows according to
+ * {@code g(n)}, as determined by a {@link StudentsT} test), and when {@code g(n)} is defined and
+ * finite for every {@code n}.</p>
+ *
+ * <p>Since every model other than {@link Model#CONSTANT} has the same number of parameters, the
+ * BIC only penalizes {@link Model#CONSTANT} less than the others; among the remaining models, the
+ * one with the smallest residual sum of squares is selected. Ties are broken in favour of the
+ * lower complexity class.</p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ * @see
+ *   <ul>
+ *     <li>Goldsmith, Simon F., Aiken, Alex S., and Wilkerson, Daniel S. Measuring Empirical Computational Complexity. Proc. ESEC/FSE 2007. pp. 395-404. Print.</li>
+ *     <li>Schwarz, Gideon. Estimating the Dimension of a Model. Annals of Statistics 6 (2), 1978. pp. 461-464. Print.</li>
+ *   </ul>
+ */
+public final class Complexity {
+
+	/**
+	 * The level of confidence at which {@code b > 0} must hold for models other than {@link Model#CONSTANT}.
+	 */
+	public static final double CONFIDENCE = 0.95;
+
+	/**
+	 * Complexity classes, in increasing order.
+	 */
+	public enum Model {
+		CONSTANT( "O(1)" ) {
+			@Override
+			double g( double n ) {
+				return 0;
+			}
+		},
+		LOGARITHMIC( "O(log n)" ) {
+			@Override
+			double g( double n ) {
+				return n > 0 ? Math.log( n ) : Double.NaN;
+			}
+		},
+		LINEAR( "O(n)" ) {
+			@Override
+			double g( double n ) {
+				return n;
+			}
+		},
+		LINEARITHMIC( "O(n log n)" ) {
+			@Override
+			double g( double n ) {
+				return n > 0 ? n * Math.log( n ) : Double.NaN;
+			}
+		},
+		QUADRATIC( "O(n^2)" ) {
+			@Override
+			double g( double n ) {
+				return n * n;
+			}
+		},
+		CUBIC( "O(n^3)" ) {
+			@Override
+			double g( double n ) {
+				return n * n * n;
+			}
+		},
+		EXPONENTIAL( "O(2^n)" ) {
+			@Override
+			double g( double n ) {
+				return Math.pow( 2, n );
+			}
+		};
+
+		private final String name;
+
+		private Model( String name ) {
+			this.name = name;
+		}
+
+		abstract double g( double n );
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	/**
+	 * The result of fitting a {@link Model} to measurements.
+	 */
+	public static final class Fit {
+		public final Model model;
+		/** the intercept */
+		public final double a;
+		/** the coefficient of {@code g(n)} */
+		public final double b;
+		/** the coefficient of determination */
+		public final double r2;
+		/** the residual sum of squares */
+		public final double rss;
+		/** the Bayesian information criterion */
+		public final double bic;
+
+		Fit( Model model, double a, double b, double r2, double rss, double bic ) {
+			this.model = model;
+			this.a = a;
+			this.b = b;
+			this.r2 = r2;
+			this.rss = rss;
+			this.bic = bic;
+		}
+
+		/**
+		 * Predict the running time at problem size {@code n}.
+		 * @param n the problem size
+		 * @return the predicted running time
+		 */
+		public double predict( double n ) {
+			return a + b * model.g( n );
+		}
+
+		@Override
+		public String toString() {
+			String r = "" + model + ": t(n) = " + String.format( Locale.ROOT, "%.4g", a );
+			if ( Model.CONSTANT != model ) {
+				String g = model.toString();
+				g = g.substring( 2, g.length() - 1 );
+				r += " + " + String.format( Locale.ROOT, "%.4g", b ) + " * " + g;
+			}
+			r += String.format( Locale.ROOT, ", R^2 = %.4f", r2 );
+			return r;
+		}
+	}
+
+	private Complexity() {}
+
+	/**
+	 * Fit one model to measurements.
+	 * @param model the model
+	 * @param n the problem sizes
+	 * @param y the running time at each problem size
+	 * @return the fit, or null if the model is not applicable (see {@link Complexity})
+	 */
+	public static Fit fit( Model model, double[] n, double[] y ) {
+		if ( n.length != y.length ) {
+			throw new IllegalArgumentException( "n and y must be same size" );
+		}
+		final int N = n.length;
+		if ( 0 == N ) {
+			return null;
+		}
+
+		double ybar = 0;
+		for( double d: y ) {
+			ybar += d;
+		}
+		ybar /= N;
+		double tss = 0;
+		for( double d: y ) {
+			tss += ( d - ybar ) * ( d - ybar );
+		}
+
+		double a;
+		double b;
+		int k;
+
+		if ( Model.CONSTANT == model ) {
+			a = ybar;
+			b = 0;
+			k = 1;
+		} else {
+			double[] g = new double[ N ];
+			double gbar = 0;
+			for( int i = 0; i < N; i++ ) {
+				g[ i ] = model.g( n[ i ] );
+				if ( Double.isNaN( g[ i ] ) || Double.isInfinite( g[ i ] ) ) {
+					return null;
+				}
+				gbar += g[ i ];
+			}
+			gbar /= N;
+			double sgg = 0;
+			double sgy = 0;
+			for( int i = 0; i < N; i++ ) {
+				sgg += ( g[ i ] - gbar ) * ( g[ i ] - gbar );
+				sgy += ( g[ i ] - gbar ) * ( y[ i ] - ybar );
+			}
+			if ( ! ( sgg > 0 ) ) {
+				return null;
+			}
+			b = sgy / sgg;
+			if ( ! ( b > 0 ) ) {
+				return null;
+			}
+			a = ybar - b * gbar;
+			k = 2;
+		}
+
+		double rss = 0;
+		for( int i = 0; i < N; i++ ) {
+			double e = y[ i ] - ( a + b * model.g( n[ i ] ) );
+			rss += e * e;
+		}
+
+		if ( Model.CONSTANT != model && N > 2 && rss > 0 ) {
+			// t-test of b > 0, with N - 2 degrees of freedom
+			double sgg = 0;
+			double gbar = ( ybar - a ) / b;
+			for( int i = 0; i < N; i++ ) {
+				double g = model.g( n[ i ] ) - gbar;
+				sgg += g * g;
+			}
+			double t = b / Math.sqrt( rss / ( N - 2 ) / sgg );
+			if ( t < StudentsT.inv( N - 1, CONFIDENCE ) ) {
+				return null;
+			}
+		}
+		double r2 = tss > 0 ? 1 - rss / tss : 1;
+		// guard against log( 0 ) for exact fits
+		double bic = N * Math.log( Math.max( rss / N, Double.MIN_NORMAL ) ) + k * Math.log( N );
+		return new Fit( model, a, b, r2, rss, bic );
+	}
+
+	/**
+	 * Fit every model to measurements, and select the best.
+	 * @param n the problem sizes
+	 * @param y the running time at each problem size
+	 * @return the best fit, or null if there are fewer than 3 measurements
+	 */
+	public static Fit fit( double[] n, double[] y ) {
+		if ( n.length < 3 ) {
+			return null;
+		}
+		Fit best = null;
+		for( Model m: Model.values() ) {
+			Fit f = fit( m, n, y );
+			if ( null != f && ( null == best || f.bic < best.bic ) ) {
+				best = f;
+			}
+		}
+		return best;
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.stats;
+
+import java.util.*;
+
+/**
+ * <p><b>Latency Histogram</b></p>
+ *
+ * <p>This class records a distribution of latencies, e.g. of individual macrobenchmark
+ * invocations, in a fixed number of logarithmic buckets, so that recording is constant-time and
+ * does not allocate, and percentiles may be read at any time. Values below {@code 32} are recorded
+ * exactly. Above that, each power of two is divided into {@code 32} linear sub-buckets, so the
+ * relative error of any reported value is less than {@code 1/32}, i.e. about 3%.</p>
+ *
+ * <p>Histograms may be {@link #add(LatencyHistogram) merged}, and converted to and from a sparse
+ * array of bucket counts (see {@link #buckets()}), so that the distribution of several trials can
+ * be reconstructed from their measurements.</p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ * @see
+ *   <ul>
+ *     <li>Tene, Gil. HdrHistogram: A High Dynamic Range Histogram. http://hdrhistogram.org/</li>
+ *   </ul>
+ */
+public final class LatencyHistogram {
+
+	private static final int SUB_BITS = 5;
+	private static final int SUB = 1 << SUB_BITS;
+	static final int N_BUCKETS = ( 64 - SUB_BITS ) * SUB;
+
+	private final long[] counts = new long[ N_BUCKETS ];
+	private long count;
+	private long min = Long.MAX_VALUE;
+	private long max = Long.MIN_VALUE;
+	private double sum;
+
+	static int index( long v ) {
+		if ( v < SUB ) {
+			return (int) v;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros( v ) - SUB_BITS;
+		return ( shift + 1 ) * SUB + (int) ( ( v >>> shift ) - SUB );
+	}
+
+	static long lowerBound( int i ) {
+		if ( i < SUB ) {
+			return i;
+		}
+		int shift = i / SUB - 1;
+		return ( (long) ( i % SUB ) + SUB ) << shift;
+	}
+
+	static long upperBound( int i ) {
+		return i == N_BUCKETS - 1 ? Long.MAX_VALUE : lowerBound( i + 1 ) - 1;
+	}
+
+	/**
+	 * Record one latency.
+	 * @param v the latency, e.g. in nanoseconds. {@code 0 <= v}
+	 */
+	public void record( long v ) {
+		record( v, 1 );
+	}
+
+	private void record( long v, long n ) {
+		if ( v < 0 ) {
+			throw new IllegalArgumentException( "v must be non-negative" );
+		}
+		counts[ index( v ) ] += n;
+		count += n;
+		sum += (double) v * n;
+		min = Math.min( min, v );
+		max = Math.max( max, v );
+	}
+
+	/**
+	 * Add every latency recorded by another histogram to this one.
+	 * @param o the other histogram
+	 */
+	public void add( LatencyHistogram o ) {
+		for( int i = 0; i < N_BUCKETS; i++ ) {
+			counts[ i ] += o.counts[ i ];
+		}
+		count += o.count;
+		sum += o.sum;
+		min = Math.min( min, o.min );
+		max = Math.max( max, o.max );
+	}
+
+	public void clear() {
+		Arrays.fill( counts, 0 );
+		count = 0;
+		sum = 0;
+		min = Long.MAX_VALUE;
+		max = Long.MIN_VALUE;
+	}
+
+	public long count() {
+		return count;
+	}
+
+	public long min() {
+		return 0 == count ? 0 : min;
+	}
+
+	public long max() {
+		return 0 == count ? 0 : max;
+	}
+
+	public double mean() {
+		return 0 == count ? Double.NaN : sum / count;
+	}
+
+	/**
+	 * The smallest value such that at least a fraction {@code q} of the recorded latencies are
+	 * less than or equal to it, to within the precision of the histogram.
+	 * @param q the quantile, e.g. {@code 0.99} for the 99th percentile. {@code 0 <= q <= 1}
+	 * @return the value, or 0 if no latencies were recorded
+	 */
+	public long quantile( double q ) {
+		if ( ! ( q >= 0 && q <= 1 ) ) {
+			throw new IllegalArgumentException( "q must be in [0,1]" );
+		}
+		if ( 0 == count ) {
+			return 0;
+		}
+		long rank = Math.max( 1, (long) Math.ceil( q * count ) );
+		long seen = 0;
+		for( int i = 0; i < N_BUCKETS; i++ ) {
+			seen += counts[ i ];
+			if ( seen >= rank ) {
+				return Math.max( min, Math.min( max, upperBound( i ) ) );
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * @return the non-empty buckets, as pairs of the lowest value of the bucket and the number of
+	 * latencies recorded in it
+	 */
+	public long[] buckets() {
+		int n = 0;
+		for( long c: counts ) {
+			n += 0 == c ? 0 : 1;
+		}
+		long[] r = new long[ 2 * n ];
+		for( int i = 0, j = 0; i < N_BUCKETS; i++ ) {
+			if ( 0 != counts[ i ] ) {
+				r[ j++ ] = lowerBound( i );
+				r[ j++ ] = counts[ i ];
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * Add the buckets of another histogram, as returned by {@link #buckets()}, to this one. The
+	 * minimum, maximum and mean are only as precise as the buckets.
+	 * @param buckets pairs of the lowest value of a bucket and its count
+	 */
+	public void add( long[] buckets ) {
+		for( int j = 0; j + 1 < buckets.length; j += 2 ) {
+			if ( buckets[ j + 1 ] > 0 ) {
+				record( buckets[ j ], buckets[ j + 1 ] );
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		String r = "";
+		r += "size: " + count + ", ";
+		r += "p50: " + quantile( 0.5 ) + ", ";
+		r += "p90: " + quantile( 0.9 ) + ", ";
+		r += "p99: " + quantile( 0.99 ) + ", ";
+		r += "p99.9: " + quantile( 0.999 ) + ", ";
+		r += "highest: " + max();
+		return r;
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.stats;
+
+import java.util.*;
+
+/**
+ * <p><b>Steady State Detection</b></p>
+ *
+ * <p>This class detects when a series of measurements, such as the time per rep of successive
+ * warm-up batches, stops trending. A
+ * <a href="http://en.wikipedia.org/wiki/Kendall_rank_correlation_coefficient">Mann-Kendall</a>
+ * test is applied to a sliding window of the most recent measurements, and the series is
+ * considered to have reached a steady state when the test finds no monotonic trend in the window
+ * at the given level of confidence. The warm-up is then the measurements that precede the window.
+ * </p>
+ *
+ * <p>The Mann-Kendall test is non-parametric, so it is insensitive to the occasional large outlier
+ * (e.g. a garbage collection or a compilation in the background) that would dominate a test based
+ * on the mean or the slope of a regression line. Ties are accounted for in the variance of the
+ * statistic {@code S}.</p>
+ *
+ * @author <a href="mailto:chrisfriedt@gmail.com">Christopher Friedt</a>
+ * @see
+ *   <ul>
+ *     <li>Mann, Henry B. Nonparametric Tests Against Trend. Econometrica 13 (3), 1945. pp. 245-259. Print.</li>
+ *     <li>Kendall, Maurice G. Rank Correlation Methods. 4th ed. London: Griffin, 1975. Print.</li>
+ *   </ul>
+ */
+public final class SteadyState {
+
+	private final int window;
+	private final double z_critical;
+
+	private double[] x = new double[ 64 ];
+	private int n;
+	private int warmup = -1;
+
+	/**
+	 * @param window the number of recent measurements that must show no trend. {@code 4 <= window}
+	 * @param p level of confidence of the test for trend. {@code 0 < p < 1}
+	 */
+	public SteadyState( int window, double p ) {
+		if ( window < 4 ) {
+			throw new IllegalArgumentException( "window must be at least 4" );
+		}
+		if ( ! ( p > 0 && p < 1 ) ) {
+			throw new IllegalArgumentException( "p must be in (0,1)" );
+		}
+		this.window = window;
+		this.z_critical = Normal.inv( window, 1 - ( 1 - p ) / 2 );
+	}
+
+	/**
+	 * Add a measurement.
+	 * @param d the measurement
+	 * @return true if a steady state has been reached
+	 */
+	public boolean update( double d ) {
+		if ( n == x.length ) {
+			x = Arrays.copyOf( x, 2 * n );
+		}
+		x[ n++ ] = d;
+		if ( -1 == warmup && n >= window ) {
+			double z = mannKendall( x, n - window, n );
+			if ( Math.abs( z ) < z_critical ) {
+				warmup = n - window;
+			}
+		}
+		return isSteady();
+	}
+
+	public boolean isSteady() {
+		return -1 != warmup;
+	}
+
+	/**
+	 * The number of measurements before the steady state was reached.
+	 * @return the number of measurements, or -1 if the steady state has not been reached
+	 */
+	public int warmup() {
+		return warmup;
+	}
+
+	public int size() {
+		return n;
+	}
+
+	/**
+	 * @return every measurement, in order
+	 */
+	public double[] curve() {
+		return Arrays.copyOf( x, n );
+	}
+
+	/**
+	 * Compute the normalized Mann-Kendall statistic of {@code x[ from ]}, ..., {@code x[ to - 1 ]}.
+	 * @param x a series of measurements
+	 * @param from the first index, inclusive
+	 * @param to the last index, exclusive
+	 * @return the statistic {@code Z}, which is approximately standard {@link Normal} when there is
+	 * no trend, and is positive for an increasing trend and negative for a decreasing one
+	 */
+	public static double mannKendall( double[] x, int from, int to ) {
+		final int N = to - from;
+		long s = 0;
+		for( int i = from; i < to - 1; i++ ) {
+			for( int j = i + 1; j < to; j++ ) {
+				s += (long) Math.signum( x[ j ] - x[ i ] );
+			}
+		}
+
+		// correct the variance for groups of tied values
+		double[] sorted = Arrays.copyOfRange( x, from, to );
+		Arrays.sort( sorted );
+		double ties = 0;
+		for( int i = 0, j; i < N; i = j ) {
+			for( j = i + 1; j < N && sorted[ j ] == sorted[ i ]; j++ );
+			long t = j - i;
+			ties += t * ( t - 1 ) * ( 2 * t + 5 );
+		}
+		double var = ( (double) N * ( N - 1 ) * ( 2 * N + 5 ) - ties ) / 18;
+
+		if ( ! ( var > 0 ) || 0 == s ) {
+			return 0;
+		}
+		// continuity correction
+		return ( s > 0 ? s - 1 : s + 1 ) / Math.sqrt( var );
+	}
+}
@@ -18,11 +18,23 @@ package org.sliderule;
 
 import org.junit.runner.*;
 import org.junit.runners.*;
+import org.sliderule.api.*;
+import org.sliderule.runner.*;
 import org.sliderule.stats.*;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
-	ChiSquaredTest.class, NormalTest.class, StudentsTTest.class, FactorialTest.class
+	ChiSquaredTest.class, NormalTest.class, StudentsTTest.class, FactorialTest.class,
+	ParameterSpaceTest.class, ParameterDesignTest.class, ComplexityTest.class,
+	SteadyStateTest.class, RawSampleRecorderTest.class,
+	SimpleBenchmarkTimerTest.class, LatencyHistogramTest.class,
+	OpenLoopRunnerTest.class, SaturationAnalysisTest.class, ConcurrentRunnerTest.class,
+	AsyncRunnerTest.class, GroupRunnerTest.class,
+	ResultProcessorPipelineTest.class, ExportResultProcessorTest.class, BinaryResultReaderTest.class,
+	TrialIndexTest.class, HtmlReportWriterTest.class, SweepRefinementTest.class,
+	ComplexityAnalysisTest.class, FixtureCacheTest.class,
+	DatasetStoreTest.class, InputPoolTest.class, ParamSpecTest.class,
+	CacheFlusherTest.class
 })
 public class AllTests {
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.api;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+public class InputPoolTest {
+
+	private static final InputPool.Generator<Integer> INDEX = new InputPool.Generator<Integer>() {
+		@Override
+		public Integer next( Random random, int index ) {
+			return index;
+		}
+	};
+
+	private static final InputPool.Generator<Integer> RANDOM = new InputPool.Generator<Integer>() {
+		@Override
+		public Integer next( Random random, int index ) {
+			return random.nextInt();
+		}
+	};
+
+	@Test
+	public void sizeIsRoundedUpToPowerOfTwo() {
+		assertEquals( 1, InputPool.generate( 1, 0, INDEX ).size() );
+		assertEquals( 2, InputPool.generate( 2, 0, INDEX ).size() );
+		assertEquals( 4, InputPool.generate( 3, 0, INDEX ).size() );
+		assertEquals( 1024, InputPool.generate( 1000, 0, INDEX ).size() );
+		assertEquals( 1024, InputPool.generate( 1024, 0, INDEX ).size() );
+		assertEquals( 2048, InputPool.generate( 1025, 0, INDEX ).size() );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void emptyPool() {
+		InputPool.generate( 0, 0, INDEX );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void tooLargePool() {
+		InputPool.generate( ( 1 << 30 ) + 1, 0, INDEX );
+	}
+
+	@Test
+	public void getWrapsAround() {
+		InputPool<Integer> pool = InputPool.generate( 3, 0, INDEX );
+		for( int i = 0; i < 4; i++ ) {
+			assertEquals( i, (int) pool.get( i ) );
+			assertEquals( i, (int) pool.get( i + 4 ) );
+			assertEquals( i, (int) pool.get( i + 4 * 1000 ) );
+		}
+		// negative indices, e.g. after a rep counter overflows, also stay within the pool
+		assertEquals( 3, (int) pool.get( -1 ) );
+		assertEquals( 0, (int) pool.get( Integer.MIN_VALUE ) );
+		assertEquals( 0, (int) InputPool.generate( 1, 0, INDEX ).get( 12345 ) );
+	}
+
+	@Test
+	public void seededPoolsAreRepeatable() {
+		InputPool<Integer> a = InputPool.generate( 64, 42, RANDOM );
+		InputPool<Integer> b = InputPool.generate( 64, 42, RANDOM );
+		InputPool<Integer> c = InputPool.generate( 64, 43, RANDOM );
+		Random random = new Random( 42 );
+		boolean differs = false;
+		for( int i = 0; i < 64; i++ ) {
+			assertEquals( a.get( i ), b.get( i ) );
+			assertEquals( random.nextInt(), (int) a.get( i ) );
+			differs |= ! a.get( i ).equals( c.get( i ) );
+		}
+		assertTrue( differs );
+	}
+}
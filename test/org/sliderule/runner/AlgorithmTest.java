@@ -18,11 +18,147 @@ package org.sliderule.runner;
 
 import static org.junit.Assert.*;
 
+import java.lang.reflect.*;
 import java.util.*;
 
 import org.junit.*;
+import org.sliderule.*;
+import org.sliderule.api.*;
+import org.sliderule.model.*;
 
 public class AlgorithmTest {
+
+	public static class Constrained {
+		@Param({ "1", "10", "100" }) int size;
+		@Param({ "1", "10", "100" }) int window;
+
+		@ParamConstraint
+		public boolean windowFits() {
+			return window <= size;
+		}
+		@ParamConstraint
+		public boolean notHuge() {
+			if ( 100 == size && 100 == window ) {
+				throw new SkipThisScenarioException();
+			}
+			return true;
+		}
+
+		@Benchmark
+		public void timeA( int reps ) {
+		}
+		@Benchmark
+		public void timeB( int reps ) {
+		}
+		@Macrobenchmark
+		public void macro() {
+		}
+	}
+
+	@Design( value = Design.Mode.RANDOM, samples = 6, seed = 3 )
+	public static class ConstrainedDesign {
+		@Param({ "1", "10", "100" }) int size;
+		@Param({ "1", "10", "100" }) int window;
+		@Param({ "a", "b" }) String name;
+
+		@ParamConstraint
+		public boolean windowFits() {
+			return window <= size;
+		}
+
+		@Benchmark
+		public void timeA( int reps ) {
+		}
+	}
+
+	public static class BadConstraint {
+		@Param({ "1", "10" }) int size;
+
+		@ParamConstraint
+		public int bad() {
+			return size;
+		}
+
+		@Benchmark
+		public void timeA( int reps ) {
+		}
+	}
+
+	private static Algorithm algorithm( Class<?> klass ) throws Exception {
+		Context c = new Context();
+		c.addAnnotatedClass( new SlideRuleAnnotations( klass ) );
+		Algorithm algo = new Algorithm( new Arguments(), c );
+		algo.setup();
+		return algo;
+	}
+
+	private static int column( Algorithm algo, String name ) {
+		for( int i = 0; i < algo.param_fields.length; i++ ) {
+			if ( name.equals( algo.param_fields[ i ].getName() ) ) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException( name );
+	}
+
+	/**
+	 * The rows of {@code candidates} (or of the whole parameter space, if null) for which window <= size.
+	 */
+	private static long[] windowFits( Algorithm algo, long[] candidates, boolean skip_huge ) {
+		int size = column( algo, "size" );
+		int window = column( algo, "window" );
+		ArrayList<Long> r = new ArrayList<Long>();
+		for( long row = 0; row < algo.param_space.size(); row++ ) {
+			if ( null != candidates && Arrays.binarySearch( candidates, row ) < 0 ) {
+				continue;
+			}
+			PolymorphicType[] v = algo.param_space.get( row );
+			int s = (Integer) v[ size ].value;
+			int w = (Integer) v[ window ].value;
+			if ( w <= s && ! ( skip_huge && 100 == s && 100 == w ) ) {
+				r.add( row );
+			}
+		}
+		long[] a = new long[ r.size() ];
+		for( int i = 0; i < a.length; i++ ) {
+			a[ i ] = r.get( i );
+		}
+		return a;
+	}
+
+	@Test
+	public void constraintsRemoveRowsFromFullSpace() throws Exception {
+		Algorithm algo = algorithm( Constrained.class );
+		assertEquals( 9, algo.param_space.size() );
+		long[][] rows = algo.plan();
+		// (1,1) (10,1) (10,10) (100,1) (100,10); (100,100) throws SkipThisScenarioException
+		assertEquals( 5, rows[ 0 ].length );
+		assertArrayEquals( windowFits( algo, null, true ), rows[ 0 ] );
+		// the total announced with each benchmark counts 2 micro and 1 macro benchmark per row
+		assertEquals( 5 * 3, algo.total_number_of_benchmarks );
+	}
+
+	@Test
+	public void constraintsRemoveRowsFromDesign() throws Exception {
+		Algorithm algo = algorithm( ConstrainedDesign.class );
+		long[] design = ParameterDesign.forClass( ConstrainedDesign.class, new Properties() ).rows( algo.param_space );
+		assertEquals( 6, design.length );
+		Arrays.sort( design );
+		long[] expected = windowFits( algo, design, false );
+		// otherwise the constraint has nothing to remove from the design
+		assertTrue( expected.length < design.length );
+
+		long[][] rows = algo.plan();
+		long[] actual = rows[ 0 ].clone();
+		Arrays.sort( actual );
+		assertArrayEquals( expected, actual );
+		assertEquals( expected.length, algo.total_number_of_benchmarks );
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constraintMustReturnBoolean() throws Exception {
+		algorithm( BadConstraint.class ).plan();
+	}
 	@Test
 	public void euprod() {
 		int cardinality[] = new int[] { 3, 4, 2 };
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sliderule.runner;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.junit.*;
+import org.sliderule.api.*;
+
+public class AsyncRunnerTest {
+
+	private static final AtomicInteger outstanding = new AtomicInteger();
+	private static final AtomicInteger most = new AtomicInteger();
+
+	public static CompletableFuture<Void> delayed() {
+		final CompletableFuture<Void> f = new CompletableFuture<Void>();
+		int n = outstanding.incrementAndGet();
+		for( int m; n > ( m = most.get() ) && ! most.compareAndSet( m, n ); );
+		new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep( 2 );
+				} catch ( InterruptedException e ) {
+				}
+				outstanding.decrementAndGet();
+				f.complete( null );
+			}
+		}.start();
+		return f;
+	}
+
+	@Async( timeout = 50 )
+	public static CompletableFuture<Void> never() {
+		return new CompletableFuture<Void>();
+	}
+
+	@Async( timeout = 50 )
+	public static CompletableFuture<Void> slow() {
+		final CompletableFuture<Void> f = new CompletableFuture<Void>();
+		new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep( 20 );
+				} catch ( InterruptedException e ) {
+				}
+				f.complete( null );
+			}
+		}.start();
+		return f;
+	}
+
+	private static void assertTimesOut( int inflight, int batch ) throws Exception {
+		Method m = AsyncRunnerTest.class.getMethod( "never" );
+		AsyncRunner ar = new AsyncRunner( inflight, batch, m.getAnnotation( Async.class ) );
+		long start = System.nanoTime();
+		try {
+			ar.run( null, m, new Object[ 0 ], false );
+			fail( "expected a timeout" );
+		} catch ( InvocationTargetException e ) {
+			assertTrue( e.getCause() instanceof TimeoutException );
+		}
+		assertTrue( System.nanoTime() - start < TimeUnit.SECONDS.toNanos( 5 ) );
+	}
+
+	@Test
+	public void runTimesOutWaitingForPermit() throws Exception {
+		// every permit is held by a result that never completes
+		assertTimesOut( 2, 5 );
+	}
+
+	@Test
+	public void runTimesOutWaitingForLastResults() throws Exception {
+		assertTimesOut( 2, 1 );
+	}
+
+	@Test
+	public void timeoutIsPerResult() throws Exception {
+		// the batch takes about 200 ms, but each result only 20 ms
+		Method m = AsyncRunnerTest.class.getMethod( "slow" );
+		AsyncRunner ar = new AsyncRunner( 1, 10, m.getAnnotation( Async.class ) );
+		ar.run( null, m, new Object[ 0 ], false );
+		assertEquals( 10, ar.elements );
+	}
+
+	@Test
+	public void isAsync() {
+		assertTrue( AsyncRunner.isAsync( CompletableFuture.class ) );
+		assertTrue( AsyncRunner.isAsync( CompletionStage.class ) );
+		assertTrue( AsyncRunner.isAsync( Future.class ) );
+		assertTrue( AsyncRunner.isAsync( SubmissionPublisher.class ) );
+		assertFalse( AsyncRunner.isAsync( long.class ) );
+		assertFalse( AsyncRunner.isAsync( Object.class ) );
+	}
+
+	@Test
+	public void awaitsPublisher() throws Exception {
+		final SubmissionPublisher<Integer> p = new SubmissionPublisher<Integer>();
+		Thread t = new Thread() {
+			@Override
+			public void run() {
+				while( 0 == p.getNumberOfSubscribers() ) {
+					Thread.onSpinWait();
+				}
+				for( int i = 0; i < 100; i++ ) {
+					p.submit( i );
+				}
+				p.close();
+			}
+		};
+		t.start();
+		assertEquals( 100, AsyncRunner.await( p, 7, 10000 ) );
+		t.join();
+	}
+
+	@Test
+	public void awaitsFuture() throws Exception {
+		assertEquals( 1, AsyncRunner.await( delayed(), Long.MAX_VALUE, 10000 ) );
+	}
+
+	@Test
+	public void unwrapsFailure() {
+		CompletableFuture<Void> f = new CompletableFuture<Void>();
+		f.completeExceptionally( new UnsupportedOperationException() );
+		try {
+			AsyncRunner.await( f, Long.MAX_VALUE, 10000 );
+			fail( "expected the failure to propagate" );
+		} catch ( InvocationTargetException e ) {
+			assertTrue( e.getCause() instanceof UnsupportedOperationException );
+		}
+	}
+
+	@Test
+	public void timesOut() {
+		try {
+			AsyncRunner.await( new CompletableFuture<Void>(), Long.MAX_VALUE, 10 );
+			fail( "expected a timeout" );
+		} catch ( InvocationTargetException e ) {
+			assertTrue( e.getCause() instanceof TimeoutException );
+		}
+	}
+
+	@Test
+	public void boundsInflight() throws Exception {
+		most.set( 0 );
+		AsyncRunner ar = new AsyncRunner( 3, 20, null );
+		ar.run( null, AsyncRunnerTest.class.getMethod( "delayed" ), new Object[ 0 ], false );
+		assertEquals( 20, ar.elements );
+		assertTrue( most.get() <= 3 );
+		for( long ns: ar.latency_ns ) {
+			assertTrue( ns >= 2000000L );
+		}
+	}
+}
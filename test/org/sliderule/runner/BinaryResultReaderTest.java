@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.*;
+import org.sliderule.*;
+import org.sliderule.api.*;
+import org.sliderule.model.*;
+
+public class BinaryResultReaderTest {
+
+	public static class Bench {
+		@Param({ "1", "2" }) int size;
+		@Param({ "x" }) String name;
+		@Benchmark
+		public void timeNothing( int reps ) {
+		}
+	}
+
+	private static final Object[][] VALUES = {
+		{ "null", String.class, null },
+		{ "boolean", boolean.class, true },
+		{ "byte", byte.class, (byte) -7 },
+		{ "short", short.class, (short) -300 },
+		{ "int", int.class, Integer.MIN_VALUE },
+		{ "long", long.class, Long.MAX_VALUE },
+		{ "float", float.class, 1.25f },
+		{ "double", double.class, Math.PI },
+		{ "integral_double", double.class, 123456789.0 },
+		{ "negative_zero", double.class, -0.0 },
+		{ "nan", double.class, Double.NaN },
+		{ "char", char.class, '\u00e9' },
+		{ "string", String.class, "caf\u00e9 \"quoted\"" },
+		{ "double_array", double[].class, new double[] { 0.5, -1.0, Double.MAX_VALUE } },
+		{ "long_array", long[].class, new long[] { 0, -1, Long.MIN_VALUE, 1L << 40 } },
+		{ "int_array", int[].class, new int[] { 3, -4 } },
+	};
+
+	private static SimpleTrial trial( SlideRuleAnnotations ann, int size, String name ) {
+		Method method = ann.getBenchmarkMethods().iterator().next();
+		Field[] param = ann.getParamFields().toArray( new Field[ 0 ] );
+		PolymorphicType[] param_value = new PolymorphicType[ param.length ];
+		for( int i = 0; i < param.length; i++ ) {
+			param_value[ i ] = "size".equals( param[ i ].getName() ) ? new PolymorphicType( int.class, size ) : new PolymorphicType( String.class, name );
+		}
+		SimpleTrial st = new SimpleTrial( UUID.randomUUID(), ann, method, param, param_value );
+		for( Object[] v: VALUES ) {
+			st.addMeasurement( new SimpleMeasurement( (String) v[ 0 ], new PolymorphicType( (Class<?>) v[ 1 ], v[ 2 ] ) ) );
+		}
+		return st;
+	}
+
+	private static List<SimpleTrial> trials( int n ) {
+		SlideRuleAnnotations ann = new SlideRuleAnnotations( Bench.class );
+		ArrayList<SimpleTrial> r = new ArrayList<SimpleTrial>();
+		for( int i = 0; i < n; i++ ) {
+			r.add( trial( ann, i, 0 == i % 2 ? "even" : null ) );
+		}
+		return r;
+	}
+
+	private static File write( List<? extends Trial> trials ) throws IOException {
+		File dir = Files.createTempDirectory( "sliderule-binary" ).toFile();
+		dir.deleteOnExit();
+		BinaryResultProcessor brp = new BinaryResultProcessor( dir, "round-trip" );
+		for( Trial t: trials ) {
+			brp.processTrial( t );
+		}
+		brp.close();
+		brp.file().deleteOnExit();
+		return brp.file();
+	}
+
+	private static void assertValueEquals( String description, Object expected, Object actual ) {
+		if ( expected instanceof double[] ) {
+			assertTrue( description, Arrays.equals( (double[]) expected, (double[]) actual ) );
+		} else if ( expected instanceof long[] ) {
+			assertArrayEquals( (long[]) expected, (long[]) actual );
+		} else if ( expected instanceof int[] ) {
+			assertTrue( description, Arrays.equals( (int[]) expected, (int[]) actual ) );
+		} else if ( expected instanceof Double ) {
+			// compare bits, so that -0.0 and NaN survive the integral encoding
+			assertEquals( description, Double.doubleToRawLongBits( (Double) expected ), Double.doubleToRawLongBits( (Double) actual ) );
+		} else {
+			assertEquals( description, expected, actual );
+		}
+	}
+
+	private static void assertMeasurements( List<Measurement> measurements ) {
+		assertEquals( VALUES.length, measurements.size() );
+		for( int j = 0; j < VALUES.length; j++ ) {
+			Measurement m = measurements.get( j );
+			assertEquals( VALUES[ j ][ 0 ], m.description() );
+			assertSame( VALUES[ j ][ 1 ], m.value().klass );
+			assertValueEquals( m.description(), VALUES[ j ][ 2 ], m.value().value );
+		}
+	}
+
+	private static void assertByIndex( List<SimpleTrial> expected, BinaryResultReader brr ) {
+		assertEquals( expected.size(), brr.size() );
+		assertArrayEquals( new Object[] { "name", "size" }, brr.paramNames() );
+		assertArrayEquals( new Object[] { String.class.getName(), int.class.getName() }, brr.paramTypes() );
+		for( int i = 0; i < expected.size(); i++ ) {
+			SimpleTrial st = expected.get( i );
+			assertEquals( st.id(), brr.id( i ) );
+			assertEquals( Bench.class.getName(), brr.className( i ) );
+			assertEquals( "timeNothing", brr.methodName( i ) );
+			assertTrue( brr.isMicro( i ) );
+			assertEquals( st.getParamValue()[ 0 ].value, brr.paramValue( i, 0 ) );
+			assertEquals( "" + i, brr.paramValue( i, 1 ) );
+			assertEquals( Math.PI, brr.measurement( i, "double" ), 0 );
+			assertEquals( (double) Long.MAX_VALUE, brr.measurement( i, "long" ), 0 );
+			assertTrue( Double.isNaN( brr.measurement( i, "string" ) ) );
+			assertTrue( Double.isNaN( brr.measurement( i, "no_such_measurement" ) ) );
+			Trial t = brr.get( i );
+			assertEquals( st.id(), t.id() );
+			assertMeasurements( t.measurements() );
+		}
+	}
+
+	@Test
+	public void roundTripByIndex() throws IOException {
+		List<SimpleTrial> expected = trials( 5 );
+		BinaryResultReader brr = new BinaryResultReader( write( expected ) );
+		try {
+			assertEquals( "round-trip", brr.environment().get( "run.name" ) );
+			assertEquals( System.getProperty( "java.version" ), brr.environment().get( "java.version" ) );
+			assertByIndex( expected, brr );
+		} finally {
+			brr.close();
+		}
+	}
+
+	@Test
+	public void roundTripByReplay() throws Exception {
+		List<SimpleTrial> expected = trials( 3 );
+		final ArrayList<Trial> actual = new ArrayList<Trial>();
+		BinaryResultReader brr = new BinaryResultReader( write( expected ) );
+		try {
+			brr.replay( new ResultProcessor() {
+				@Override
+				public void processTrial( Trial trial ) {
+					actual.add( trial );
+				}
+				@Override
+				public void close() {
+				}
+			} );
+		} finally {
+			brr.close();
+		}
+		assertEquals( expected.size(), actual.size() );
+		for( int i = 0; i < expected.size(); i++ ) {
+			SimpleTrial e = expected.get( i );
+			SimpleTrial a = (SimpleTrial) actual.get( i );
+			assertEquals( e.id(), a.id() );
+			assertSame( Bench.class, a.getSlideRuleAnnotations().getAnnotatedClass() );
+			assertEquals( "timeNothing", a.getMethod().getName() );
+			assertTrue( a.isMicro() );
+			assertEquals( e.getParam().length, a.getParam().length );
+			for( int j = 0; j < e.getParam().length; j++ ) {
+				assertEquals( e.getParam()[ j ], a.getParam()[ j ] );
+				assertEquals( e.getParamValue()[ j ].value, a.getParamValue()[ j ].value );
+			}
+			assertMeasurements( a.measurements() );
+		}
+	}
+
+	@Test
+	public void smallChunks() throws IOException {
+		// each chunk is larger than any one record, but far smaller than the file
+		List<SimpleTrial> expected = trials( 40 );
+		File file = write( expected );
+		assertTrue( file.length() > 16 * 512 );
+		BinaryResultReader brr = new BinaryResultReader( file, 512 );
+		try {
+			assertByIndex( expected, brr );
+		} finally {
+			brr.close();
+		}
+	}
+
+	@Test
+	public void withoutFooter() throws IOException {
+		List<SimpleTrial> expected = trials( 40 );
+		File file = write( expected );
+		long footer_offset;
+		RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+		try {
+			raf.seek( raf.length() - BinaryFormat.TRAILER_SIZE );
+			footer_offset = raf.readLong();
+			raf.setLength( footer_offset );
+		} finally {
+			raf.close();
+		}
+		BinaryResultReader brr = new BinaryResultReader( file, 512 );
+		try {
+			assertByIndex( expected, brr );
+		} finally {
+			brr.close();
+		}
+	}
+
+	@Test
+	public void empty() throws IOException {
+		BinaryResultReader brr = new BinaryResultReader( write( new ArrayList<Trial>() ) );
+		try {
+			assertEquals( 0, brr.size() );
+		} finally {
+			brr.close();
+		}
+	}
+
+	@Test
+	public void varints() {
+		long[] v = { 0, 1, -1, 63, -64, 64, 127, 128, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE };
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		try {
+			for( long l: v ) {
+				BinaryFormat.writeZigZag( os, l );
+				BinaryFormat.writeVarLong( os, l );
+			}
+		} catch ( IOException e ) {
+			throw new UncheckedIOException( e );
+		}
+		ByteBuffer bb = ByteBuffer.wrap( os.toByteArray() );
+		for( long l: v ) {
+			assertEquals( l, BinaryFormat.readZigZag( bb ) );
+			assertEquals( l, BinaryFormat.readVarLong( bb ) );
+		}
+		assertFalse( bb.hasRemaining() );
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.*;
+
+public class CacheFlusherTest {
+
+	private File cache;
+
+	@Before
+	public void setup() throws IOException {
+		cache = Files.createTempDirectory( "sliderule-cache" ).toFile();
+	}
+
+	private void index( int i, int level, String type, String size ) throws IOException {
+		File dir = new File( cache, "index" + i );
+		assertTrue( dir.mkdir() );
+		Files.write( new File( dir, "level" ).toPath(), ( level + "\n" ).getBytes( StandardCharsets.US_ASCII ) );
+		Files.write( new File( dir, "type" ).toPath(), ( type + "\n" ).getBytes( StandardCharsets.US_ASCII ) );
+		Files.write( new File( dir, "size" ).toPath(), ( size + "\n" ).getBytes( StandardCharsets.US_ASCII ) );
+	}
+
+	private static Properties config( String... key_and_value ) {
+		Properties r = new Properties();
+		for( int i = 0; i < key_and_value.length; i += 2 ) {
+			r.setProperty( key_and_value[ i ], key_and_value[ i + 1 ] );
+		}
+		return r;
+	}
+
+	@Test
+	public void parseSize() {
+		assertEquals( 512, CacheFlusher.parseSize( "512" ) );
+		assertEquals( 32768, CacheFlusher.parseSize( "32K" ) );
+		assertEquals( 32768, CacheFlusher.parseSize( " 32k\n" ) );
+		assertEquals( 8L << 20, CacheFlusher.parseSize( "8M" ) );
+		assertEquals( 2L << 30, CacheFlusher.parseSize( "2G" ) );
+	}
+
+	@Test( expected = NumberFormatException.class )
+	public void parseInvalidSize() {
+		CacheFlusher.parseSize( "lots" );
+	}
+
+	@Test
+	public void lastLevelCacheSize() throws IOException {
+		index( 0, 1, "Data", "48K" );
+		index( 1, 1, "Instruction", "32K" );
+		index( 2, 2, "Unified", "2048K" );
+		index( 3, 3, "Unified", "36864K" );
+		assertEquals( 36864L << 10, CacheFlusher.lastLevelCacheSize( cache ) );
+	}
+
+	@Test
+	public void instructionCacheIsIgnored() throws IOException {
+		index( 0, 1, "Data", "32K" );
+		index( 1, 2, "Instruction", "1024K" );
+		assertEquals( 32L << 10, CacheFlusher.lastLevelCacheSize( cache ) );
+	}
+
+	@Test
+	public void unreadableIndicesAreIgnored() throws IOException {
+		index( 0, 2, "Unified", "1M" );
+		index( 1, 3, "Unified", "unknown" );
+		assertTrue( new File( cache, "index2" ).mkdir() );
+		assertTrue( new File( cache, "uevent" ).createNewFile() );
+		assertEquals( 1L << 20, CacheFlusher.lastLevelCacheSize( cache ) );
+	}
+
+	@Test
+	public void noCacheInformation() {
+		assertEquals( -1, CacheFlusher.lastLevelCacheSize( cache ) );
+		assertEquals( -1, CacheFlusher.lastLevelCacheSize( new File( cache, "missing" ) ) );
+	}
+
+	@Test
+	public void hotByDefault() {
+		CacheFlusher cf = CacheFlusher.forConfig( config() );
+		assertSame( CacheFlusher.Mode.HOT, cf.mode );
+		assertEquals( 0, cf.size() );
+	}
+
+	@Test
+	public void modeSelection() {
+		CacheFlusher cf = CacheFlusher.forConfig( config( CacheFlusher.mode_property, "cold", CacheFlusher.bytes_property, "4096" ) );
+		assertSame( CacheFlusher.Mode.COLD, cf.mode );
+		assertEquals( 4096, cf.size() );
+		cf.flush();
+		cf = CacheFlusher.forConfig( config( CacheFlusher.mode_property, " Both ", CacheFlusher.bytes_property, "8192" ) );
+		assertSame( CacheFlusher.Mode.BOTH, cf.mode );
+		assertEquals( 8192, cf.size() );
+		cf.flush();
+		cf = CacheFlusher.forConfig( config( CacheFlusher.mode_property, "HOT", CacheFlusher.bytes_property, "8192" ) );
+		assertSame( CacheFlusher.Mode.HOT, cf.mode );
+		assertEquals( 0, cf.size() );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void unknownMode() {
+		CacheFlusher.forConfig( config( CacheFlusher.mode_property, "lukewarm" ) );
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+import org.sliderule.stats.*;
+
+public class ComplexityAnalysisTest {
+
+	private static final double[] N = { 1, 2, 4, 8, 16, 32, 64, 128 };
+
+	private static ComplexityAnalysis quadratic() {
+		double[] y = new double[ N.length ];
+		for( int i = 0; i < N.length; i++ ) {
+			y[ i ] = 3 + N[ i ] * N[ i ];
+		}
+		ComplexityAnalysis ca = new ComplexityAnalysis();
+		ca.fits.put( "k", Complexity.fit( N, y ) );
+		assertEquals( Complexity.Model.QUADRATIC, ca.fits.get( "k" ).model );
+		return ca;
+	}
+
+	@Test
+	public void firstClassIsRecorded() {
+		Properties baseline = new Properties();
+		assertTrue( quadratic().compare( baseline, false ) );
+		assertEquals( "QUADRATIC", baseline.getProperty( "k" ) );
+	}
+
+	@Test
+	public void regressionKeepsBaseline() {
+		Properties baseline = new Properties();
+		baseline.setProperty( "k", "LINEAR" );
+		ComplexityAnalysis ca = quadratic();
+		assertFalse( ca.compare( baseline, false ) );
+		assertEquals( "LINEAR", baseline.getProperty( "k" ) );
+		assertEquals( "O(n) -> O(n^2)", ca.regressions.get( "k" ) );
+
+		// a later run still reports the regression
+		ca = quadratic();
+		ca.compare( baseline, false );
+		assertEquals( "O(n) -> O(n^2)", ca.regressions.get( "k" ) );
+	}
+
+	@Test
+	public void explicitUpdate() {
+		Properties baseline = new Properties();
+		baseline.setProperty( "k", "LINEAR" );
+		ComplexityAnalysis ca = quadratic();
+		assertTrue( ca.compare( baseline, true ) );
+		assertEquals( "QUADRATIC", baseline.getProperty( "k" ) );
+		assertFalse( quadratic().compare( baseline, true ) );
+		assertTrue( quadratic().regressions.isEmpty() );
+	}
+
+	@Test
+	public void improvementIsNotARegression() {
+		Properties baseline = new Properties();
+		baseline.setProperty( "k", "CUBIC" );
+		ComplexityAnalysis ca = quadratic();
+		assertFalse( ca.compare( baseline, false ) );
+		assertTrue( ca.regressions.isEmpty() );
+		assertEquals( "CUBIC", baseline.getProperty( "k" ) );
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sliderule.runner;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.*;
+
+import org.junit.*;
+
+public class ConcurrentRunnerTest {
+
+	public static void sleep() throws InterruptedException {
+		Thread.sleep( 10 );
+	}
+
+	public static void fail() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Test
+	public void runsConcurrently() throws Exception {
+		ConcurrentRunner cr = new ConcurrentRunner( 8, 2, false );
+		try {
+			cr.run( null, ConcurrentRunnerTest.class.getMethod( "sleep" ), new Object[ 0 ], false );
+			for( long ns: cr.latency_ns ) {
+				assertTrue( ns >= 10000000L );
+			}
+			// 16 sleeps of 10 ms in much less than 160 ms
+			assertTrue( cr.end_ns - cr.start_ns < 100000000L );
+			assertTrue( cr.invocationsPerSecond() > 160 );
+		} finally {
+			cr.close();
+		}
+	}
+
+	@Test( expected = InvocationTargetException.class )
+	public void propagatesFailure() throws Exception {
+		ConcurrentRunner cr = new ConcurrentRunner( 2, 1, false );
+		try {
+			cr.run( null, ConcurrentRunnerTest.class.getMethod( "fail" ), new Object[ 0 ], false );
+		} finally {
+			cr.close();
+		}
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.*;
+import org.sliderule.*;
+import org.sliderule.api.*;
+import org.sliderule.model.*;
+
+public class DatasetStoreTest {
+
+	public static class Counting implements DatasetGenerator {
+		static int calls;
+		static File target;
+		static boolean target_existed;
+		@Override
+		public void generate( Map<String,Object> params, long seed, OutputStream out ) throws IOException {
+			calls++;
+			if ( null != target ) {
+				target_existed |= target.exists();
+			}
+			out.write( ( "" + params.get( "name" ) + ":" + seed ).getBytes( "UTF-8" ) );
+		}
+	}
+
+	public static class Failing implements DatasetGenerator {
+		@Override
+		public void generate( Map<String,Object> params, long seed, OutputStream out ) throws IOException {
+			out.write( 1 );
+			throw new IOException( "failed" );
+		}
+	}
+
+	public static class Bench {
+		@Param({ "a/b", "a_b" }) public String name;
+		@Dataset( generator = Counting.class, params = "name", seed = 3 ) public ByteBuffer buffer;
+		@Dataset( generator = Counting.class, params = "name", seed = 3 ) public MappedByteBuffer mapped;
+		@Dataset( generator = Failing.class ) public ByteBuffer failing;
+	}
+
+	private static Dataset COUNTING;
+	private static Dataset FAILING;
+
+	private File directory;
+
+	@BeforeClass
+	public static void setupClass() throws NoSuchFieldException {
+		COUNTING = Bench.class.getField( "buffer" ).getAnnotation( Dataset.class );
+		FAILING = Bench.class.getField( "failing" ).getAnnotation( Dataset.class );
+	}
+
+	@Before
+	public void setup() throws IOException {
+		directory = Files.createTempDirectory( "sliderule-datasets" ).toFile();
+		Counting.calls = 0;
+		Counting.target = null;
+		Counting.target_existed = false;
+	}
+
+	private static Map<String,Object> params( String name ) {
+		LinkedHashMap<String,Object> r = new LinkedHashMap<String,Object>();
+		r.put( "name", name );
+		return r;
+	}
+
+	private static String string( ByteBuffer bb ) throws UnsupportedEncodingException {
+		byte[] b = new byte[ bb.remaining() ];
+		bb.get( b );
+		return new String( b, "UTF-8" );
+	}
+
+	private List<String> files() {
+		List<String> r = new ArrayList<String>( Arrays.asList( directory.list() ) );
+		Collections.sort( r );
+		return r;
+	}
+
+	@Test
+	public void sanitizedNamesDoNotCollide() {
+		DatasetStore store = new DatasetStore( directory );
+		File a = store.file( COUNTING, params( "a/b" ) );
+		File b = store.file( COUNTING, params( "a_b" ) );
+		assertFalse( a.equals( b ) );
+		assertTrue( a.getName(), a.getName().startsWith( "Counting-3-name=a_b-" ) );
+		assertTrue( b.getName(), b.getName().startsWith( "Counting-3-name=a_b-" ) );
+		assertEquals( a, store.file( COUNTING, params( "a/b" ) ) );
+	}
+
+	@Test
+	public void longNamesDoNotCollide() {
+		DatasetStore store = new DatasetStore( directory );
+		String p = "";
+		for( int i = 0; i < 300; i++ ) {
+			p += "x";
+		}
+		File a = store.file( COUNTING, params( p + "1" ) );
+		File b = store.file( COUNTING, params( p + "2" ) );
+		assertFalse( a.equals( b ) );
+		assertTrue( a.getName(), a.getName().length() < 255 );
+	}
+
+	@Test
+	public void generatedOncePerKey() throws Exception {
+		DatasetStore store = new DatasetStore( directory );
+		assertEquals( "a/b:3", string( store.open( COUNTING, params( "a/b" ) ) ) );
+		assertEquals( "a/b:3", string( store.open( COUNTING, params( "a/b" ) ) ) );
+		assertEquals( 1, Counting.calls );
+		assertEquals( "a_b:3", string( store.open( COUNTING, params( "a_b" ) ) ) );
+		assertEquals( 2, Counting.calls );
+		// another process finds the file, and does not generate it again
+		DatasetStore other = new DatasetStore( directory );
+		assertEquals( "a/b:3", string( other.open( COUNTING, params( "a/b" ) ) ) );
+		assertEquals( 2, Counting.calls );
+	}
+
+	@Test
+	public void reusesExistingFile() throws Exception {
+		DatasetStore store = new DatasetStore( directory );
+		File file = store.file( COUNTING, params( "a/b" ) );
+		Files.write( file.toPath(), "existing".getBytes( "UTF-8" ) );
+		assertEquals( "existing", string( store.open( COUNTING, params( "a/b" ) ) ) );
+		assertEquals( 0, Counting.calls );
+	}
+
+	@Test
+	public void renamedIntoPlace() throws Exception {
+		DatasetStore store = new DatasetStore( directory );
+		File file = store.file( COUNTING, params( "a/b" ) );
+		Counting.target = file;
+		store.open( COUNTING, params( "a/b" ) );
+		// the file did not exist while it was being written
+		assertEquals( 1, Counting.calls );
+		assertFalse( Counting.target_existed );
+		// and neither the temporary file nor the lock file remains
+		assertEquals( Arrays.asList( file.getName() ), files() );
+	}
+
+	@Test
+	public void failureLeavesNothingBehind() throws Exception {
+		DatasetStore store = new DatasetStore( directory );
+		try {
+			store.open( FAILING, new LinkedHashMap<String,Object>() );
+			fail( "expected an IOException" );
+		} catch ( IOException e ) {
+		}
+		assertEquals( new ArrayList<String>(), files() );
+	}
+
+	@Test
+	public void injectsBuffers() throws Exception {
+		DatasetStore store = new DatasetStore( directory );
+		Bench b = new Bench();
+		Field[] param_fields = new Field[] { Bench.class.getField( "name" ) };
+		PolymorphicType[] param_value = new PolymorphicType[] { new PolymorphicType( String.class, "a/b" ) };
+		List<Field> fields = Arrays.asList( Bench.class.getField( "buffer" ), Bench.class.getField( "mapped" ) );
+		store.inject( b, fields, param_fields, param_value );
+		assertTrue( b.buffer.isReadOnly() );
+		assertTrue( b.mapped.isReadOnly() );
+		assertEquals( "a/b:3", string( b.buffer ) );
+		assertEquals( "a/b:3", string( b.mapped ) );
+		// each field has its own position, but both share the one file
+		assertEquals( 1, Counting.calls );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void injectUnknownParameter() throws Exception {
+		DatasetStore store = new DatasetStore( directory );
+		List<Field> fields = Arrays.asList( Bench.class.getField( "buffer" ) );
+		store.inject( new Bench(), fields, new Field[ 0 ], new PolymorphicType[ 0 ] );
+	}
+}
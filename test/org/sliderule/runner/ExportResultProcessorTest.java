@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.*;
+import org.sliderule.*;
+import org.sliderule.model.*;
+
+public class ExportResultProcessorTest {
+
+	public static class Bench {
+		@Param({ "1", "2" }) int size;
+		@Param({ "x" }) String name;
+		@Benchmark
+		public void timeNothing( int reps ) {
+		}
+	}
+
+	private static SimpleTrial trial( int size, String name, Measurement... measurement ) throws Exception {
+		SlideRuleAnnotations ann = new SlideRuleAnnotations( Bench.class );
+		Method method = ann.getBenchmarkMethods().iterator().next();
+		Field[] param = ann.getParamFields().toArray( new Field[ 0 ] );
+		PolymorphicType[] param_value = new PolymorphicType[ param.length ];
+		for( int i = 0; i < param.length; i++ ) {
+			param_value[ i ] = "size".equals( param[ i ].getName() ) ? new PolymorphicType( int.class, size ) : new PolymorphicType( String.class, name );
+		}
+		SimpleTrial st = new SimpleTrial( UUID.randomUUID(), ann, method, param, param_value );
+		for( Measurement m: measurement ) {
+			st.addMeasurement( m );
+		}
+		return st;
+	}
+
+	private static Measurement measurement( String description, Class<?> klass, Object value ) {
+		return new SimpleMeasurement( description, new PolymorphicType( klass, value ) );
+	}
+
+	private static File tmpdir() throws IOException {
+		File dir = Files.createTempDirectory( "sliderule-export" ).toFile();
+		dir.deleteOnExit();
+		return dir;
+	}
+
+	private static List<String> lines( String file_name ) throws IOException {
+		return Files.readAllLines( new File( file_name ).toPath(), StandardCharsets.UTF_8 );
+	}
+
+	private static String json( Object o ) throws IOException {
+		StringWriter w = new StringWriter();
+		ExportResultProcessor.writeJsonValue( w, o );
+		return w.toString();
+	}
+
+	@Test
+	public void jsonEscaping() throws IOException {
+		assertEquals( "\"a\\\"b\\\\c\"", json( "a\"b\\c" ) );
+		assertEquals( "\"\\n\\r\\t\"", json( "\n\r\t" ) );
+		assertEquals( "\"\\u0001\\u001f\"", json( "\u0001\u001f" ) );
+		assertEquals( "\"caf\u00e9\"", json( "caf\u00e9" ) );
+	}
+
+	@Test
+	public void jsonNumbers() throws IOException {
+		assertEquals( "42", json( 42 ) );
+		assertEquals( "1.5", json( 1.5 ) );
+		assertEquals( "null", json( Double.NaN ) );
+		assertEquals( "null", json( Double.POSITIVE_INFINITY ) );
+		assertEquals( "true", json( true ) );
+		assertEquals( "null", json( null ) );
+	}
+
+	@Test
+	public void jsonArrays() throws IOException {
+		assertEquals( "[1,2,3]", json( new long[] { 1, 2, 3 } ) );
+		assertEquals( "[0.5,null]", json( new double[] { 0.5, Double.NaN } ) );
+		assertEquals( "[]", json( new int[ 0 ] ) );
+		assertEquals( "[\"a\",\"b,c\"]", json( new String[] { "a", "b,c" } ) );
+	}
+
+	@Test
+	public void jsonLine() throws Exception {
+		SimpleTrial st = trial( 2, "q\"uote", measurement( "elapsed_time_ns", double.class, 12.5 ), measurement( "latency_ns", long[].class, new long[] { 7, 8 } ) );
+		StringWriter w = new StringWriter();
+		ExportResultProcessor.writeJsonLine( w, st );
+		String expected =
+			"{\"id\":\"" + st.id() + "\"" +
+			",\"class\":\"" + Bench.class.getName() + "\"" +
+			",\"method\":\"timeNothing\",\"micro\":true" +
+			",\"params\":{\"name\":\"q\\\"uote\",\"size\":2}" +
+			",\"measurements\":{\"elapsed_time_ns\":12.5,\"latency_ns\":[7,8]}}\n";
+		assertEquals( expected, w.toString() );
+	}
+
+	@Test
+	public void longFormatCsv() throws Exception {
+		Properties config = new Properties();
+		config.setProperty( ExportResultProcessor.class.getName() + ".formats", "csv" );
+		ExportResultProcessor erp = new ExportResultProcessor( tmpdir(), config );
+		SimpleTrial a = trial( 1, "x", measurement( "elapsed_time_ns", double.class, 3.0 ), measurement( "latency_ns", long[].class, new long[] { 4, 5 } ) );
+		SimpleTrial b = trial( 2, "y,z", measurement( "note", String.class, "say \"hi\"" ) );
+		erp.processTrial( a );
+		erp.processTrial( b );
+		erp.close();
+
+		assertFalse( new File( erp.base() + ".jsonl" ).exists() );
+		List<String> lines = lines( erp.base() + ".csv" );
+		String klass = Bench.class.getName();
+		assertEquals( 4, lines.size() );
+		assertEquals( "id,class,method,micro,name,size,measurement,value", lines.get( 0 ) );
+		assertEquals( a.id() + "," + klass + ",timeNothing,true,x,1,elapsed_time_ns,3.0", lines.get( 1 ) );
+		assertEquals( a.id() + "," + klass + ",timeNothing,true,x,1,latency_ns,4 5", lines.get( 2 ) );
+		assertEquals( b.id() + "," + klass + ",timeNothing,true,\"y,z\",2,note,\"say \"\"hi\"\"\"", lines.get( 3 ) );
+	}
+
+	@Test
+	public void bothFormatsByDefault() throws Exception {
+		ExportResultProcessor erp = new ExportResultProcessor( tmpdir(), null );
+		SimpleTrial a = trial( 1, "x", measurement( "elapsed_time_ns", double.class, 3.0 ) );
+		erp.processTrial( a );
+		erp.close();
+
+		List<String> jsonl = lines( erp.base() + ".jsonl" );
+		assertEquals( 1, jsonl.size() );
+		assertTrue( jsonl.get( 0 ).startsWith( "{\"id\":\"" + a.id() + "\"" ) );
+		assertEquals( 2, lines( erp.base() + ".csv" ).size() );
+	}
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+import org.junit.*;
+import org.sliderule.*;
+import org.sliderule.api.*;
+import org.sliderule.model.*;
+
+public class FixtureCacheTest {
+
+	public static class Fixture {
+		@Param({ "1000", "2000" }) public int size;
+		@Param({ "1", "2" }) public int threads;
+		public int[] data;
+		static int calls;
+
+		@BeforeExperiment
+		@CachedFixture("size")
+		public void generate() {
+			calls++;
+			data = new int[ size ];
+			Arrays.fill( data, size );
+		}
+
+		@BeforeExperiment
+		@CachedFixture("size")
+		public void refill() {
+			calls++;
+			if ( null == data ) {
+				data = new int[ size ];
+			}
+			Arrays.fill( data, size + calls );
+		}
+
+		@BeforeExperiment
+		@CachedFixture("nonexistent")
+		public void unknown() {
+		}
+	}
+
+	public abstract static class Base {
+		@Param({ "1", "2" }) public int size;
+		public String data;
+
+		abstract String name();
+
+		@BeforeExperiment
+		@CachedFixture("size")
+		public void gen() {
+			Fixture.calls++;
+			data = name() + size;
+		}
+	}
+
+	public static class A extends Base {
+		@Override
+		String name() {
+			return "A";
+		}
+	}
+
+	public static class B extends Base {
+		@Override
+		String name() {
+			return "B";
+		}
+	}
+
+	private static Field[] PARAMS;
+	private static Method GENERATE;
+	private static Method REFILL;
+	private static Method UNKNOWN;
+
+	@BeforeClass
+	public static void setupClass() throws NoSuchMethodException, NoSuchFieldException {
+		PARAMS = new Field[] { Fixture.class.getField( "size" ), Fixture.class.getField( "threads" ) };
+		GENERATE = Fixture.class.getMethod( "generate" );
+		REFILL = Fixture.class.getMethod( "refill" );
+		UNKNOWN = Fixture.class.getMethod( "unknown" );
+	}
+
+	@Before
+	public void setup() {
+		Fixture.calls = 0;
+	}
+
+	private static Fixture call( FixtureCache fc, Method m, int size, int threads ) throws Exception {
+		Fixture f = new Fixture();
+		f.size = size;
+		f.threads = threads;
+		PolymorphicType[] value = new PolymorphicType[] {
+			new PolymorphicType( int.class, size ),
+			new PolymorphicType( int.class, threads ),
+		};
+		fc.invoke( m, f, PARAMS, value );
+		return f;
+	}
+
+	@Test
+	public void hitForSameDependencies() throws Exception {
+		FixtureCache fc = new FixtureCache( 1 << 20 );
+		Fixture a = call( fc, GENERATE, 1000, 1 );
+		Fixture b = call( fc, GENERATE, 1000, 2 );
+		assertEquals( 1, Fixture.calls );
+		assertSame( a.data, b.data );
+		assertEquals( 1000, b.data.length );
+	}
+
+	@Test
+	public void missForDifferentDependencies() throws Exception {
+		FixtureCache fc = new FixtureCache( 1 << 20 );
+		Fixture a = call( fc, GENERATE, 1000, 1 );
+		Fixture b = call( fc, GENERATE, 2000, 1 );
+		assertEquals( 2, Fixture.calls );
+		assertEquals( 1000, a.data.length );
+		assertEquals( 2000, b.data.length );
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsed() throws Exception {
+		long one = FixtureCache.sizeOf( new int[ 1000 ] );
+		long two = FixtureCache.sizeOf( new int[ 2000 ] );
+		// room for int[2000] and int[1000], but not for a second int[2000] as well
+		FixtureCache fc = new FixtureCache( one + two );
+		call( fc, GENERATE, 1000, 1 );
+		call( fc, GENERATE, 2000, 1 );
+		assertEquals( 2, Fixture.calls );
+		// both are cached
+		call( fc, GENERATE, 1000, 2 );
+		call( fc, GENERATE, 2000, 2 );
+		assertEquals( 2, Fixture.calls );
+		// 1000 was used least recently, and is evicted to make room for 3000
+		call( fc, GENERATE, 3000, 1 );
+		assertEquals( 3, Fixture.calls );
+		call( fc, GENERATE, 1000, 1 );
+		assertEquals( 4, Fixture.calls );
+	}
+
+	@Test
+	public void tooLargeIsNotCached() throws Exception {
+		FixtureCache fc = new FixtureCache( 100 );
+		call( fc, GENERATE, 1000, 1 );
+		call( fc, GENERATE, 1000, 2 );
+		assertEquals( 2, Fixture.calls );
+	}
+
+	@Test
+	public void inPlaceMutationIsNotCached() throws Exception {
+		FixtureCache fc = new FixtureCache( 1 << 20 );
+		Fixture a = call( fc, REFILL, 1000, 1 );
+		assertEquals( 1, Fixture.calls );
+		// the first call assigns a new array, which is cached
+		Fixture b = call( fc, REFILL, 1000, 2 );
+		assertEquals( 1, Fixture.calls );
+		assertSame( a.data, b.data );
+		// a miss on the same instance refills the cached array in place, which must not be cached,
+		// and discards the entry that shares the array
+		b.size = 2000;
+		fc.invoke( REFILL, b, PARAMS, new PolymorphicType[] { new PolymorphicType( int.class, 2000 ), new PolymorphicType( int.class, 2 ) } );
+		assertEquals( 2, Fixture.calls );
+		assertSame( a.data, b.data );
+		call( fc, REFILL, 2000, 1 );
+		assertEquals( 3, Fixture.calls );
+		call( fc, REFILL, 1000, 1 );
+		assertEquals( 4, Fixture.calls );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void unknownParameter() throws Exception {
+		call( new FixtureCache( 1 << 20 ), UNKNOWN, 1000, 1 );
+	}
+
+	@Test
+	public void sizeOfIsBounded() {
+		assertEquals( 4016, FixtureCache.sizeOf( new int[ 1000 ] ) );
+		// shared objects are counted once
+		int[] x = new int[ 1000 ];
+		assertEquals( FixtureCache.sizeOf( x ), FixtureCache.sizeOf( x, x ) );
+		// a long chain is only walked as far as the bound
+		Object[] head = new Object[ 1 ];
+		Object[] o = head;
+		for( int i = 0; i < 2 * FixtureCache.MAX_OBJECTS; i++ ) {
+			Object[] n = new Object[ 1 ];
+			o[ 0 ] = n;
+			o = n;
+		}
+		assertEquals( FixtureCache.MAX_OBJECTS * FixtureCache.sizeOf( (Object) new Object[ 1 ] ), FixtureCache.sizeOf( (Object) head ) );
+	}
+
+	@Test
+	public void inheritedFixturesAreCachedPerClass() throws Exception {
+		FixtureCache fc = new FixtureCache( 1 << 20 );
+		Method gen = Base.class.getMethod( "gen" );
+		Field[] params = new Field[] { Base.class.getField( "size" ) };
+		PolymorphicType[] value = new PolymorphicType[] { new PolymorphicType( int.class, 1 ) };
+		A a = new A();
+		a.size = 1;
+		fc.invoke( gen, a, params, value );
+		B b = new B();
+		b.size = 1;
+		fc.invoke( gen, b, params, value );
+		assertEquals( "A1", a.data );
+		assertEquals( "B1", b.data );
+		assertEquals( 2, Fixture.calls );
+		// each class reuses its own results
+		A a2 = new A();
+		fc.invoke( gen, a2, params, value );
+		assertEquals( "A1", a2.data );
+		assertEquals( 2, Fixture.calls );
+	}
+}
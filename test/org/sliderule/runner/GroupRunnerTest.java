@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sliderule.runner;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+
+import org.junit.*;
+
+public class GroupRunnerTest {
+
+	private static final BlockingQueue<Integer> queue = new LinkedBlockingQueue<Integer>();
+
+	public static void offer() throws InterruptedException {
+		queue.offer( 1 );
+		Thread.sleep( 1 );
+	}
+
+	public static void take() throws InterruptedException {
+		queue.take();
+	}
+
+	public static void fail() {
+		throw new UnsupportedOperationException();
+	}
+
+	private static volatile boolean stuck;
+
+	public static void stuck() {
+		// ignore interrupts, like a method stuck in a system call
+		while( stuck ) {
+			LockSupport.parkNanos( 1000000 );
+		}
+	}
+
+	@Test
+	public void runsRolesConcurrently() throws Exception {
+		queue.clear();
+		GroupRunner.Role writers = new GroupRunner.Role( GroupRunnerTest.class.getMethod( "offer" ), 3, new Object[ 0 ] );
+		GroupRunner.Role reader = new GroupRunner.Role( GroupRunnerTest.class.getMethod( "take" ), 1, new Object[ 0 ] );
+		GroupRunner gr = new GroupRunner( new GroupRunner.Role[] { writers, reader }, 100 );
+		// the reader blocks on the empty queue once the writers stop, and is interrupted
+		gr.run( null, false );
+		long offered = writers.histogram().count();
+		long taken = reader.histogram().count();
+		assertTrue( offered > 0 );
+		assertTrue( taken > 0 );
+		assertTrue( taken <= offered );
+		// 3 writers of about 1 ms each
+		assertTrue( gr.invocationsPerSecond( writers ) > 1000 );
+	}
+
+	@Test( expected = InvocationTargetException.class )
+	public void propagatesFailure() throws Exception {
+		GroupRunner.Role r = new GroupRunner.Role( GroupRunnerTest.class.getMethod( "fail" ), 2, new Object[ 0 ] );
+		new GroupRunner( new GroupRunner.Role[] { r }, 50 ).run( null, false );
+	}
+
+	@Test
+	public void failsIfThreadsDoNotStop() throws Exception {
+		GroupRunner.Role r = new GroupRunner.Role( GroupRunnerTest.class.getMethod( "stuck" ), 1, new Object[ 0 ] );
+		stuck = true;
+		try {
+			new GroupRunner( new GroupRunner.Role[] { r }, 10 ).run( null, false );
+			Assert.fail( "expected an InvocationTargetException" );
+		} catch ( InvocationTargetException e ) {
+			assertTrue( e.getCause() instanceof TimeoutException );
+		} finally {
+			stuck = false;
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.*;
+import org.sliderule.*;
+import org.sliderule.model.*;
+
+public class HtmlReportWriterTest {
+
+	public static class BenchA {
+		@Param({ "1", "2" }) int size;
+		@Param({ "a", "b" }) String name;
+		@Benchmark
+		public void timeFoo( int reps ) {
+		}
+		@Benchmark
+		public void timeBar( int reps ) {
+		}
+	}
+
+	public static class BenchB {
+		@Param({ "1" }) int size;
+		@Benchmark
+		public void timeFoo( int reps ) {
+		}
+	}
+
+	private static Method method( SlideRuleAnnotations ann, String name ) {
+		for( Method m: ann.getBenchmarkMethods() ) {
+			if ( name.equals( m.getName() ) ) {
+				return m;
+			}
+		}
+		throw new IllegalArgumentException( name );
+	}
+
+	private static ArrayList<Trial> trials( Class<?> klass, String method, Object[] value, double... elapsed_time_ns ) {
+		SlideRuleAnnotations ann = new SlideRuleAnnotations( klass );
+		Field[] param = ann.getParamFields().toArray( new Field[ 0 ] );
+		PolymorphicType[] param_value = new PolymorphicType[ param.length ];
+		for( int i = 0; i < param.length; i++ ) {
+			param_value[ i ] = new PolymorphicType( param[ i ].getType(), value[ i ] );
+		}
+		UUID id = UUID.randomUUID();
+		ArrayList<Trial> alt = new ArrayList<Trial>();
+		for( double d: elapsed_time_ns ) {
+			SimpleTrial st = new SimpleTrial( id, ann, method( ann, method ), param, param_value );
+			st.addMeasurement( new SimpleMeasurement( "elapsed_time_ns", new PolymorphicType( double.class, d ) ) );
+			alt.add( st );
+		}
+		return alt;
+	}
+
+	private static void add( ArrayList<Trial> alt, String description, Class<?> klass, Object value ) {
+		( (SimpleTrial) alt.get( 0 ) ).addMeasurement( new SimpleMeasurement( description, new PolymorphicType( klass, value ) ) );
+	}
+
+	@Test
+	public void data() throws IOException {
+		LinkedHashMap<UUID,ArrayList<Trial>> trial_set = new LinkedHashMap<UUID,ArrayList<Trial>>();
+
+		ArrayList<Trial> foo = trials( BenchA.class, "timeFoo", new Object[] { "b", 2 }, 10, 20 );
+		trial_set.put( foo.get( 0 ).id(), foo );
+
+		ArrayList<Trial> bar = trials( BenchA.class, "timeBar", new Object[] { "a", 1 }, 5.5 );
+		add( bar, "warmup_curve_ns", double[].class, new double[] { 9 } );
+		add( bar, "warmup_batches", int.class, 1 );
+		add( bar, "samples_ns", double[].class, new double[] { 1, 2, 3 } );
+		trial_set.put( bar.get( 0 ).id(), bar );
+
+		// a class without the "name" param
+		ArrayList<Trial> other = trials( BenchB.class, "timeFoo", new Object[] { 1 }, 3 );
+		trial_set.put( other.get( 0 ).id(), other );
+
+		// sets of trials that are not SimpleTrials are skipped
+		trial_set.put( UUID.randomUUID(), new ArrayList<Trial>() );
+
+		File dir = Files.createTempDirectory( "sliderule-html" ).toFile();
+		dir.deleteOnExit();
+		HtmlReportWriter hrw = new HtmlReportWriter( dir, "report", "2014-01-01 \"quoted\"" );
+		hrw.write( trial_set );
+		hrw.data.deleteOnExit();
+		hrw.html.deleteOnExit();
+
+		assertEquals( "report-data.js", hrw.data.getName() );
+		List<String> actual = Files.readAllLines( hrw.data.toPath(), StandardCharsets.UTF_8 );
+		List<String> expected = Arrays.asList(
+			"sliderule_data({\"date\":\"2014-01-01 \\\"quoted\\\"\",",
+			"\"classes\":[\"" + BenchA.class.getName() + "\",\"" + BenchB.class.getName() + "\"],",
+			"\"methods\":[\"timeBar\",\"timeFoo\"],",
+			"\"params\":[{\"name\":\"name\",\"values\":[\"a\",\"b\"]},{\"name\":\"size\",\"values\":[1,2]}],",
+			"\"rows\":[",
+			// [ class, method, micro, name, size, mean, std, n, series ]
+			"[0,1,1,1,1,15,7.07107,2,null],",
+			"[0,0,1,0,0,5.50000,0,1,[1,1,[9,1,2,3]]],",
+			"[1,1,1,-1,0,3,0,1,null]",
+			"]});"
+		);
+		assertEquals( expected, actual );
+
+		String html = new String( Files.readAllBytes( hrw.html.toPath() ), StandardCharsets.UTF_8 );
+		assertTrue( html.contains( "\"report-data.js\"" ) );
+	}
+}
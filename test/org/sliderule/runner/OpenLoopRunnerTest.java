@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sliderule.runner;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+
+import org.junit.*;
+
+public class OpenLoopRunnerTest {
+
+	public static void sleep() throws InterruptedException {
+		Thread.sleep( 2 );
+	}
+
+	public static void nothing() {
+	}
+
+	public static void fail() {
+		throw new UnsupportedOperationException();
+	}
+
+	private static volatile boolean blocked;
+	private static CountDownLatch unblocked;
+
+	public static void block() throws InterruptedException {
+		// ignore the interrupt from shutdownNow(), like a method stuck in a system call
+		while( blocked ) {
+			LockSupport.parkNanos( 1000000 );
+		}
+		// overlap with the next run, and then fail in it if anything leaks
+		Thread.interrupted();
+		Thread.sleep( 20 );
+		unblocked.countDown();
+		throw new UnsupportedOperationException();
+	}
+
+	@Test
+	public void keepsUp() throws Exception {
+		OpenLoopRunner olr = new OpenLoopRunner( 200, 100, 2, false );
+		olr.run( null, OpenLoopRunnerTest.class.getMethod( "nothing" ), new Object[ 0 ], false );
+		assertEquals( 20, olr.scheduled );
+		assertEquals( olr.scheduled, olr.completed );
+		assertFalse( olr.saturated() );
+	}
+
+	@Test
+	public void measuresFromIntendedStart() throws Exception {
+		// 1 thread can serve at most 500/s, so invocations queue
+		OpenLoopRunner olr = new OpenLoopRunner( 2000, 50, 1, false );
+		olr.run( null, OpenLoopRunnerTest.class.getMethod( "sleep" ), new Object[ 0 ], false );
+		assertEquals( olr.scheduled, olr.completed );
+		assertTrue( olr.saturated() );
+		int last = olr.scheduled - 1;
+		// the last invocation waited for all of those before it
+		assertTrue( olr.latency_ns[ last ] >= 2000000L * last - olr.intended( last ) );
+		assertTrue( olr.service_ns[ last ] < olr.latency_ns[ last ] );
+	}
+
+	@Test( expected = InvocationTargetException.class )
+	public void propagatesFailure() throws Exception {
+		OpenLoopRunner olr = new OpenLoopRunner( 100, 20, 1, false );
+		olr.run( null, OpenLoopRunnerTest.class.getMethod( "fail" ), new Object[ 0 ], false );
+	}
+
+	@Test
+	public void fallsBackToPlatformThreads() throws Exception {
+		OpenLoopRunner olr = new OpenLoopRunner( 200, 50, 1, true );
+		olr.run( null, OpenLoopRunnerTest.class.getMethod( "nothing" ), new Object[ 0 ], false );
+		assertEquals( olr.scheduled, olr.completed );
+	}
+
+	@Test
+	public void abandonedInvocationsDoNotLeakIntoNextRun() throws Exception {
+		// 2 invocations, and a drain timeout of 200 ms
+		OpenLoopRunner olr = new OpenLoopRunner( 100, 20, 2, false );
+		blocked = true;
+		unblocked = new CountDownLatch( olr.scheduled );
+		olr.run( null, OpenLoopRunnerTest.class.getMethod( "block" ), new Object[ 0 ], false );
+		assertEquals( 0, olr.completed );
+		for( int i = 0; i < olr.scheduled; i++ ) {
+			assertEquals( -1, olr.service_ns[ i ] );
+			assertEquals( olr.end_ns - olr.start_ns - olr.intended( i ), olr.latency_ns[ i ] );
+		}
+
+		blocked = false;
+		olr.run( null, OpenLoopRunnerTest.class.getMethod( "nothing" ), new Object[ 0 ], false );
+		assertEquals( olr.scheduled, olr.completed );
+		long[] latency_ns = olr.latency_ns.clone();
+		long[] service_ns = olr.service_ns.clone();
+		assertTrue( unblocked.await( 1, TimeUnit.SECONDS ) );
+		// give the abandoned invocations time to try to record their times
+		Thread.sleep( 20 );
+		assertArrayEquals( latency_ns, olr.latency_ns );
+		assertArrayEquals( service_ns, olr.service_ns );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void rejectsZeroRate() {
+		new OpenLoopRunner( 0, 100, 1, false );
+	}
+}
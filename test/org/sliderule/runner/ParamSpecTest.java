@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.*;
+
+import org.junit.*;
+import org.sliderule.*;
+import org.sliderule.model.*;
+
+public class ParamSpecTest {
+
+	public static class Bench {
+		@Param({ "1024" }) public int pool;
+		@Param({ "0.5" }) public double rate;
+		@Param({ "x" }) public String name;
+	}
+
+	private static Field[] FIELDS;
+	private static PolymorphicType[] VALUES;
+
+	@BeforeClass
+	public static void setupClass() throws NoSuchFieldException {
+		FIELDS = new Field[] { Bench.class.getField( "name" ), Bench.class.getField( "pool" ), Bench.class.getField( "rate" ) };
+		VALUES = new PolymorphicType[] {
+			new PolymorphicType( String.class, "x" ),
+			new PolymorphicType( int.class, 1024 ),
+			new PolymorphicType( double.class, 0.5 ),
+		};
+	}
+
+	@Test
+	public void resolvesParameter() {
+		assertEquals( 1024, ParamSpec.intValue( "pool", FIELDS, VALUES ) );
+		assertEquals( 1024L, ParamSpec.longValue( " pool ", FIELDS, VALUES ) );
+		assertEquals( 1024.0, ParamSpec.doubleValue( "pool", FIELDS, VALUES ), 0 );
+		assertEquals( 0.5, ParamSpec.doubleValue( "rate", FIELDS, VALUES ), 0 );
+		// a double parameter is truncated when an integer is needed
+		assertEquals( 0, ParamSpec.intValue( "rate", FIELDS, VALUES ) );
+	}
+
+	@Test
+	public void resolvesLiteral() {
+		assertEquals( 16, ParamSpec.intValue( "16", FIELDS, VALUES ) );
+		assertEquals( 1L << 40, ParamSpec.longValue( " 1099511627776 ", FIELDS, VALUES ) );
+		assertEquals( 2.5, ParamSpec.doubleValue( "2.5", FIELDS, VALUES ), 0 );
+		assertEquals( 16, ParamSpec.intValue( "16", new Field[ 0 ], new PolymorphicType[ 0 ] ) );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void nonNumericParameter() {
+		ParamSpec.intValue( "name", FIELDS, VALUES );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void unknownName() {
+		ParamSpec.intValue( "size", FIELDS, VALUES );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void notAnInteger() {
+		ParamSpec.longValue( "2.5", FIELDS, VALUES );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void outOfRange() {
+		ParamSpec.intValue( "4294967296", FIELDS, VALUES );
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+import org.junit.*;
+import org.sliderule.api.*;
+import org.sliderule.model.*;
+
+public class ParameterDesignTest {
+
+	// k parameters with n values each
+	static ParameterSpace space( int k, int n ) throws NoSuchFieldException {
+		Field f = ParameterDesignTest.class.getDeclaredField( "dummy" );
+		Field[] field = new Field[ k ];
+		PolymorphicType[][] value = new PolymorphicType[ k ][ n ];
+		for( int col = 0; col < k; col++ ) {
+			field[ col ] = f;
+			for( int i = 0; i < n; i++ ) {
+				value[ col ][ i ] = new PolymorphicType( int.class, i );
+			}
+		}
+		return new ParameterSpace( field, value );
+	}
+	int dummy;
+
+	static void assertSortedAndDistinct( long[] rows ) {
+		for( int i = 1; i < rows.length; i++ ) {
+			assertTrue( "rows must be sorted and distinct", rows[ i - 1 ] < rows[ i ] );
+		}
+	}
+
+	@Test
+	public void pairwise() throws Exception {
+		ParameterSpace ps = space( 6, 3 );
+		long[] rows = new ParameterDesign( Design.Mode.COVERING, 2, 0, 42 ).rows( ps );
+		assertSortedAndDistinct( rows );
+		// the optimum is 15 for 3^6; the full product is 729
+		assertTrue( "covering array has " + rows.length + " rows", rows.length >= 9 && rows.length <= 25 );
+
+		for( int a = 0; a < ps.columns(); a++ ) {
+			for( int b = a + 1; b < ps.columns(); b++ ) {
+				boolean[][] seen = new boolean[ 3 ][ 3 ];
+				for( long row: rows ) {
+					seen[ ps.digit( row, a ) ][ ps.digit( row, b ) ] = true;
+				}
+				for( int i = 0; i < 3; i++ ) {
+					for( int j = 0; j < 3; j++ ) {
+						assertTrue( "pair (" + a + "=" + i + "," + b + "=" + j + ") not covered", seen[ i ][ j ] );
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void threeWise() throws Exception {
+		ParameterSpace ps = space( 5, 2 );
+		long[] rows = new ParameterDesign( Design.Mode.COVERING, 3, 0, 1 ).rows( ps );
+		assertSortedAndDistinct( rows );
+		assertTrue( rows.length < ps.size() );
+		for( int a = 0; a < 5; a++ ) {
+			for( int b = a + 1; b < 5; b++ ) {
+				for( int c = b + 1; c < 5; c++ ) {
+					HashSet<Integer> seen = new HashSet<Integer>();
+					for( long row: rows ) {
+						seen.add( 4 * ps.digit( row, a ) + 2 * ps.digit( row, b ) + ps.digit( row, c ) );
+					}
+					assertEquals( 8, seen.size() );
+				}
+			}
+		}
+	}
+
+	@Test
+	public void strengthAtLeastColumnsIsFull() throws Exception {
+		assertNull( new ParameterDesign( Design.Mode.COVERING, 3, 0, 0 ).rows( space( 3, 4 ) ) );
+		assertNull( new ParameterDesign( Design.Mode.FULL, 0, 0, 0 ).rows( space( 3, 4 ) ) );
+	}
+
+	@Test
+	public void latinHypercube() throws Exception {
+		ParameterSpace ps = space( 4, 5 );
+		long[] rows = new ParameterDesign( Design.Mode.LATIN_HYPERCUBE, 0, 5, 7 ).rows( ps );
+		assertSortedAndDistinct( rows );
+		assertEquals( 5, rows.length );
+		// with as many samples as values, every value of every parameter appears exactly once
+		for( int col = 0; col < ps.columns(); col++ ) {
+			HashSet<Integer> seen = new HashSet<Integer>();
+			for( long row: rows ) {
+				seen.add( ps.digit( row, col ) );
+			}
+			assertEquals( 5, seen.size() );
+		}
+	}
+
+	@Test
+	public void random() throws Exception {
+		ParameterSpace ps = space( 4, 5 );
+		long[] rows = new ParameterDesign( Design.Mode.RANDOM, 0, 100, 3 ).rows( ps );
+		assertSortedAndDistinct( rows );
+		assertEquals( 100, rows.length );
+		assertArrayEquals( rows, new ParameterDesign( Design.Mode.RANDOM, 0, 100, 3 ).rows( ps ) );
+		assertNull( new ParameterDesign( Design.Mode.RANDOM, 0, 625, 3 ).rows( ps ) );
+	}
+
+	@Test
+	public void config() throws Exception {
+		Properties p = new Properties();
+		p.setProperty( "design.mode", "pairwise" );
+		ParameterDesign d = ParameterDesign.forClass( ParameterDesignTest.class, p );
+		assertEquals( Design.Mode.COVERING, d.mode );
+		assertEquals( 2, d.strength );
+		p.setProperty( "design.mode", "latin" );
+		p.setProperty( "design.samples", "12" );
+		d = ParameterDesign.forClass( ParameterDesignTest.class, p );
+		assertEquals( Design.Mode.LATIN_HYPERCUBE, d.mode );
+		assertEquals( 12, d.samples );
+	}
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+import org.junit.*;
+import org.sliderule.*;
+import org.sliderule.api.*;
+import org.sliderule.model.*;
+
+public class ParameterSpaceTest {
+
+	static class Fixture {
+		@Param({ "a", "b", "c" })
+		String x;
+		@Param({ "1", "2", "3", "4" })
+		int y;
+		@Param({ "true", "false" })
+		String z;
+	}
+
+	enum Colour { RED, GREEN, BLUE }
+
+	static class Generated {
+		@Param
+		@ParamGeometric( from = 1, to = 1 << 24 )
+		int size;
+		@Param({ "5", "0" })
+		@ParamRange( from = 0, to = 1, step = 0.25 )
+		double ratio;
+		@Param
+		Colour colour;
+		@Param
+		boolean flag;
+	}
+
+	// neither Comparable nor equal by value
+	public static class Foo {
+		final String name;
+		public Foo( String name ) {
+			this.name = name;
+		}
+	}
+
+	static class Custom {
+		@Param({ "a", "b", "c", "a" })
+		Foo foo;
+		@Param({ "1", "2" })
+		int n;
+	}
+
+	static Field[] fields() throws NoSuchFieldException {
+		return new Field[] {
+			Fixture.class.getDeclaredField( "x" ),
+			Fixture.class.getDeclaredField( "y" ),
+			Fixture.class.getDeclaredField( "z" ),
+		};
+	}
+
+	@Test
+	public void size() throws Exception {
+		ParameterSpace ps = ParameterSpace.of( fields() );
+		assertEquals( 24, ps.size() );
+		assertEquals( 3, ps.columns() );
+		assertEquals( 4, ps.cardinality( 1 ) );
+	}
+
+	@Test
+	public void cached() throws Exception {
+		assertSame( ParameterSpace.of( fields() ), ParameterSpace.of( fields() ) );
+	}
+
+	@Test
+	public void randomAccess() throws Exception {
+		ParameterSpace ps = ParameterSpace.of( fields() );
+		// 13 = 1 * ( 4 * 2 ) + 2 * ( 2 ) + 1
+		PolymorphicType[] row = ps.get( 13 );
+		assertEquals( "b", row[ 0 ].value );
+		assertEquals( 3, row[ 1 ].value );
+		assertEquals( "false", row[ 2 ].value );
+		assertEquals( 13, ps.indexOf( row ) );
+	}
+
+	@Test
+	public void iteratorAgreesWithRandomAccess() throws Exception {
+		ParameterSpace ps = ParameterSpace.of( fields() );
+		long row = 0;
+		for( PolymorphicType[] r: ps ) {
+			assertArrayEquals( ps.get( row ), r );
+			row++;
+		}
+		assertEquals( ps.size(), row );
+
+		row = 5;
+		Iterator<PolymorphicType[]> it = ps.iterator( 5, 17 );
+		while( it.hasNext() ) {
+			assertArrayEquals( ps.get( row ), it.next() );
+			row++;
+		}
+		assertEquals( 17, row );
+	}
+
+	@Test
+	public void sameOrderAsEuprod() throws Exception {
+		// the last parameter varies fastest, as in the truth table of AlgorithmTest.euprod()
+		int[] cardinality = new int[] { 3, 4, 2 };
+		ParameterSpace ps = ParameterSpace.of( fields() );
+		for( int col = 0; col < cardinality.length; col++ ) {
+			int reps = Algorithm.euprod( cardinality, col );
+			for( long row = 0; row < ps.size(); row++ ) {
+				assertEquals( ( row / reps ) % cardinality[ col ], ps.digit( row, col ) );
+			}
+		}
+	}
+
+	@Test
+	public void tooLarge() throws Exception {
+		Field[] f = new Field[ 64 ];
+		PolymorphicType[][] v = new PolymorphicType[ 64 ][];
+		for( int i = 0; i < f.length; i++ ) {
+			f[ i ] = fields()[ 0 ];
+			v[ i ] = new PolymorphicType[] { new PolymorphicType( String.class, "a" ), new PolymorphicType( String.class, "b" ) };
+		}
+		try {
+			new ParameterSpace( f, v );
+			fail( "2^64 rows should not fit in a long" );
+		} catch( IllegalArgumentException e ) {
+		}
+	}
+
+	@Test
+	public void geometric() throws Exception {
+		PolymorphicType[] v = ParameterSpace.values( Generated.class.getDeclaredField( "size" ) );
+		assertEquals( 25, v.length );
+		for( int i = 0; i < v.length; i++ ) {
+			assertEquals( 1 << i, v[ i ].value );
+		}
+	}
+
+	@Test
+	public void range() throws Exception {
+		PolymorphicType[] v = ParameterSpace.values( Generated.class.getDeclaredField( "ratio" ) );
+		// listed values come first, and the duplicate 0 is removed
+		double[] expected = { 5, 0, 0.25, 0.5, 0.75, 1 };
+		assertEquals( expected.length, v.length );
+		for( int i = 0; i < v.length; i++ ) {
+			assertEquals( expected[ i ], (double) v[ i ].value, 0 );
+		}
+	}
+
+	@Test
+	public void enumAndBooleanTakeEveryValue() throws Exception {
+		PolymorphicType[] v = ParameterSpace.values( Generated.class.getDeclaredField( "colour" ) );
+		assertEquals( 3, v.length );
+		assertEquals( Colour.BLUE, v[ 2 ].value );
+		v = ParameterSpace.values( Generated.class.getDeclaredField( "flag" ) );
+		assertEquals( 2, v.length );
+		assertEquals( true, v[ 0 ].value );
+	}
+
+	@Test
+	public void convertersAreCached() throws Exception {
+		assertSame( Converters.forType( Colour.class ), Converters.forType( Colour.class ) );
+		assertEquals( Colour.GREEN, Converters.convert( Colour.class, "GREEN" ) );
+		assertEquals( new java.math.BigDecimal( "1.5" ), Converters.convert( java.math.BigDecimal.class, "1.5" ) );
+		assertEquals( 7, Converters.convert( Integer.class, "7" ) );
+		assertNull( Converters.convert( Colour.class, "(null)" ) );
+	}
+
+	@Test
+	public void customTypesAreNotCollapsed() throws Exception {
+		PolymorphicType[] v = ParameterSpace.values( Custom.class.getDeclaredField( "foo" ) );
+		// duplicates are removed by how they were declared
+		assertEquals( 3, v.length );
+		assertEquals( "a", ( (Foo) v[ 0 ].value ).name );
+		assertEquals( "b", ( (Foo) v[ 1 ].value ).name );
+		assertEquals( "c", ( (Foo) v[ 2 ].value ).name );
+		ParameterSpace ps = ParameterSpace.of( new Field[] { Custom.class.getDeclaredField( "foo" ), Custom.class.getDeclaredField( "n" ) } );
+		assertEquals( 6, ps.size() );
+	}
+}
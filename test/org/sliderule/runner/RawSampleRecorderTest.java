@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.junit.*;
+
+public class RawSampleRecorderTest {
+
+	@Test
+	public void roundTrip() throws IOException {
+		File f = File.createTempFile( "sliderule", "-raw.bin" );
+		try {
+			RawSampleRecorder r = new RawSampleRecorder( f, 8 );
+			UUID id = UUID.randomUUID();
+
+			for( int i = 0; i < 5; i++ ) {
+				r.record( 1000 + i, i );
+			}
+			assertEquals( 0, r.overwritten() );
+			long first = r.flush( id, 10 );
+
+			// wrap around: only the last 8 of 13 samples are kept, oldest first
+			for( int i = 0; i < 13; i++ ) {
+				r.record( 2000 + i, 100 + i );
+			}
+			assertEquals( 5, r.overwritten() );
+			long second = r.flush( id, 20 );
+			assertEquals( 0, r.count() );
+			r.close();
+
+			assertEquals( RawSampleRecorder.FILE_HEADER_SIZE, first );
+			assertEquals( first + RawSampleRecorder.BLOCK_HEADER_SIZE + 5 * RawSampleRecorder.SAMPLE_SIZE, second );
+
+			long[][] s = RawSampleRecorder.read( f, first );
+			assertEquals( 5, s[ 0 ].length );
+			for( int i = 0; i < 5; i++ ) {
+				assertEquals( 1000 + i, s[ 0 ][ i ] );
+				assertEquals( i, s[ 1 ][ i ] );
+			}
+
+			s = RawSampleRecorder.read( f, second );
+			assertEquals( 8, s[ 0 ].length );
+			for( int i = 0; i < 8; i++ ) {
+				assertEquals( 2005 + i, s[ 0 ][ i ] );
+				assertEquals( 105 + i, s[ 1 ][ i ] );
+			}
+		} finally {
+			f.delete();
+		}
+	}
+
+	@Test
+	public void disabledByDefault() {
+		assertNull( RawSampleRecorder.forConfig( new Properties(), new File( "." ) ) );
+	}
+}
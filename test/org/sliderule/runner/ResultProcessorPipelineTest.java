@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sliderule.runner;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+import org.sliderule.api.*;
+import org.sliderule.model.*;
+
+public class ResultProcessorPipelineTest {
+
+	private static Trial trial() {
+		final UUID id = UUID.randomUUID();
+		return new Trial() {
+			@Override
+			public UUID id() {
+				return id;
+			}
+			@Override
+			public List<Measurement> measurements() {
+				return Collections.emptyList();
+			}
+		};
+	}
+
+	/**
+	 * Logs every call, and optionally blocks in processTrial until released.
+	 */
+	private static class Recorder implements ResultProcessor, Flushable {
+		final List<Object> log = Collections.synchronizedList( new ArrayList<Object>() );
+		final CountDownLatch entered = new CountDownLatch( 1 );
+		final CountDownLatch release;
+		boolean closed;
+		Recorder( boolean block ) {
+			release = new CountDownLatch( block ? 1 : 0 );
+		}
+		@Override
+		public void processTrial( Trial trial ) {
+			entered.countDown();
+			try {
+				release.await();
+			} catch ( InterruptedException e ) {
+				throw new IllegalStateException( e );
+			}
+			log.add( trial );
+		}
+		@Override
+		public void flush() {
+			log.add( "flush" );
+		}
+		@Override
+		public void close() {
+			closed = true;
+		}
+		List<Trial> trials() {
+			ArrayList<Trial> r = new ArrayList<Trial>();
+			synchronized( log ) {
+				for( Object o: log ) {
+					if ( o instanceof Trial ) {
+						r.add( (Trial) o );
+					}
+				}
+			}
+			return r;
+		}
+	}
+
+	@Test
+	public void deliversInOrderToEveryProcessor() throws IOException {
+		Recorder a = new Recorder( false );
+		Recorder b = new Recorder( false );
+		ResultProcessorPipeline p = new ResultProcessorPipeline( Arrays.<ResultProcessor>asList( a, b ), 4 );
+		ArrayList<Trial> sent = new ArrayList<Trial>();
+		for( int i = 0; i < 100; i++ ) {
+			Trial t = trial();
+			sent.add( t );
+			p.processTrial( t );
+		}
+		// the same trial may legitimately be submitted twice
+		p.processTrial( sent.get( 99 ) );
+		sent.add( sent.get( 99 ) );
+		p.close();
+		assertEquals( sent, a.trials() );
+		assertEquals( sent, b.trials() );
+		assertTrue( a.closed );
+		assertTrue( b.closed );
+	}
+
+	@Test
+	public void blocksWhenFull() throws Exception {
+		final Recorder r = new Recorder( true );
+		final ResultProcessorPipeline p = new ResultProcessorPipeline( Arrays.<ResultProcessor>asList( r ), 2 );
+		p.processTrial( trial() );
+		// the consumer holds the first trial, so the queue holds 2 more, and the 4th put blocks
+		r.entered.await();
+		final CountDownLatch submitted = new CountDownLatch( 3 );
+		Thread producer = new Thread() {
+			@Override
+			public void run() {
+				for( int i = 0; i < 3; i++ ) {
+					p.processTrial( trial() );
+					submitted.countDown();
+				}
+			}
+		};
+		producer.start();
+		assertFalse( submitted.await( 200, TimeUnit.MILLISECONDS ) );
+		assertEquals( 1, submitted.getCount() );
+		assertEquals( Thread.State.WAITING, producer.getState() );
+		r.release.countDown();
+		producer.join();
+		p.close();
+		assertEquals( 4, r.trials().size() );
+	}
+
+	@Test
+	public void flushesPerBatch() throws Exception {
+		Recorder r = new Recorder( true );
+		ResultProcessorPipeline p = new ResultProcessorPipeline( Arrays.<ResultProcessor>asList( r ), 16 );
+		p.processTrial( trial() );
+		r.entered.await();
+		// these are drained as one batch once the first trial is released
+		for( int i = 0; i < 10; i++ ) {
+			p.processTrial( trial() );
+		}
+		r.release.countDown();
+		p.close();
+		int flushes = r.log.size() - r.trials().size();
+		assertEquals( 11, r.trials().size() );
+		assertEquals( 2, flushes );
+		assertEquals( "flush", r.log.get( 1 ) );
+		assertEquals( "flush", r.log.get( r.log.size() - 1 ) );
+	}
+
+	@Test
+	public void closeRethrowsFailure() {
+		final RuntimeException boom = new UnsupportedOperationException();
+		Recorder ok = new Recorder( false );
+		ResultProcessor bad = new ResultProcessor() {
+			@Override
+			public void processTrial( Trial trial ) {
+				throw boom;
+			}
+			@Override
+			public void close() {
+			}
+		};
+		ResultProcessorPipeline p = new ResultProcessorPipeline( Arrays.<ResultProcessor>asList( bad, ok ), 4 );
+		p.processTrial( trial() );
+		try {
+			p.close();
+			fail( "expected close() to rethrow" );
+		} catch ( IOException e ) {
+			assertSame( boom, e.getCause() );
+		}
+		// the failure of one processor does not starve the others
+		assertEquals( 1, ok.trials().size() );
+		assertTrue( ok.closed );
+	}
+
+	@Test( expected = IllegalStateException.class )
+	public void rejectsAfterClose() throws IOException {
+		ResultProcessorPipeline p = new ResultProcessorPipeline( Arrays.<ResultProcessor>asList( new Recorder( false ) ), 4 );
+		p.close();
+		p.processTrial( trial() );
+	}
+}
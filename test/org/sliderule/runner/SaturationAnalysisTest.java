@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sliderule.runner;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+public class SaturationAnalysisTest {
+
+	private static final double[] TARGET = { 1000, 2000, 4000, 8000 };
+
+	@Test
+	public void kneeAtAchievedRate() {
+		double[] achieved = { 1000, 1990, 3000, 3100 };
+		double[] p99 = { 100, 110, 120, 130 };
+		assertEquals( 1, SaturationAnalysis.knee( TARGET, achieved, p99 ) );
+	}
+
+	@Test
+	public void kneeAtLatency() {
+		double[] achieved = TARGET.clone();
+		double[] p99 = { 100, 110, 500, 5000 };
+		assertEquals( 2, SaturationAnalysis.knee( TARGET, achieved, p99 ) );
+	}
+
+	@Test
+	public void neverSaturated() {
+		double[] p99 = { 100, 100, 100, 100 };
+		assertEquals( TARGET.length - 1, SaturationAnalysis.knee( TARGET, TARGET, p99 ) );
+	}
+
+	@Test
+	public void alwaysSaturated() {
+		double[] achieved = { 500, 500, 500, 500 };
+		double[] p99 = { 100, 100, 100, 100 };
+		assertEquals( -1, SaturationAnalysis.knee( TARGET, achieved, p99 ) );
+	}
+}
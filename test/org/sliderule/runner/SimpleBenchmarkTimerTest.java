@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+public class SimpleBenchmarkTimerTest {
+
+	@Test
+	public void accumulatesPauses() throws InterruptedException {
+		SimpleBenchmarkTimer t = new SimpleBenchmarkTimer();
+		t.reset();
+		for( int i = 0; i < 3; i++ ) {
+			t.pause();
+			Thread.sleep( 2 );
+			t.resume();
+		}
+		assertEquals( 3, t.pauses() );
+		assertTrue( t.pausedNs() >= 6000000 );
+		assertEquals( t.pausedNs() + 3 * SimpleBenchmarkTimer.overhead(), t.excluded( System.nanoTime() ), 1e-6 );
+		t.reset();
+		assertEquals( 0, t.pauses() );
+		assertEquals( 0, t.excluded( System.nanoTime() ), 0 );
+	}
+
+	@Test
+	public void resumesImplicitly() throws InterruptedException {
+		SimpleBenchmarkTimer t = new SimpleBenchmarkTimer();
+		t.reset();
+		t.pause();
+		Thread.sleep( 2 );
+		assertTrue( t.excluded( System.nanoTime() ) >= 2000000 );
+		// no longer paused
+		t.pause();
+		t.resume();
+	}
+
+	@Test( expected = IllegalStateException.class )
+	public void pauseTwice() {
+		SimpleBenchmarkTimer t = new SimpleBenchmarkTimer();
+		t.pause();
+		t.pause();
+	}
+
+	@Test( expected = IllegalStateException.class )
+	public void resumeWithoutPause() {
+		new SimpleBenchmarkTimer().resume();
+	}
+
+	@Test
+	public void overheadIsSmall() {
+		double d = SimpleBenchmarkTimer.overhead();
+		assertTrue( "" + d, d >= 0 && d < 10000 );
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+import org.junit.*;
+
+public class SweepRefinementTest {
+
+	public void a() {
+	}
+	public void b() {
+	}
+	public void c() {
+	}
+
+	private static Method A;
+	private static Method B;
+	private static Method C;
+	private static Set<Method> MICRO;
+
+	@BeforeClass
+	public static void setupClass() throws NoSuchMethodException {
+		A = SweepRefinementTest.class.getMethod( "a" );
+		B = SweepRefinementTest.class.getMethod( "b" );
+		C = SweepRefinementTest.class.getMethod( "c" );
+		// c is a macrobenchmark
+		MICRO = new HashSet<Method>( Arrays.asList( A, B ) );
+	}
+
+	private static Map<Method,Double> means( Object... method_and_mean ) {
+		HashMap<Method,Double> r = new HashMap<Method,Double>();
+		for( int i = 0; i < method_and_mean.length; i += 2 ) {
+			r.put( (Method) method_and_mean[ i ], ( (Number) method_and_mean[ i + 1 ] ).doubleValue() );
+		}
+		return r;
+	}
+
+	private static SweepRefinement sweep( double min, double max, boolean integral ) {
+		return new SweepRefinement( min, max, 1, 8, integral, MICRO );
+	}
+
+	@Test
+	public void endpointsFirst() {
+		SweepRefinement sr = sweep( 0, 100, false );
+		sr.add( 50, means( A, 1 ) );
+		assertEquals( 0, sr.next(), 0 );
+		sr.add( 0, means( A, 1 ) );
+		assertEquals( 100, sr.next(), 0 );
+		sr.add( 100, means( A, 1 ) );
+		// values outside of the range are ignored
+		sr.add( 1000, means( A, 1 ) );
+		assertEquals( new TreeSet<Double>( Arrays.asList( 0.0, 50.0, 100.0 ) ), sr.values() );
+	}
+
+	@Test
+	public void crossoverHasPriority() {
+		SweepRefinement sr = sweep( 0, 100, false );
+		// a and b trade places in [0,10], while [10,100] is wider and bends sharply
+		sr.add( 0, means( A, 1, B, 2 ) );
+		sr.add( 10, means( A, 3, B, 2.5 ) );
+		sr.add( 100, means( A, 1000, B, 3 ) );
+		assertEquals( 5, sr.next(), 0 );
+	}
+
+	@Test
+	public void crossoverOnlyBetweenMethodsOfTheSameKind() {
+		SweepRefinement sr = sweep( 0, 100, false );
+		// a (micro) and c (macro) trade places in [0,10], which is not a crossover
+		sr.add( 0, means( A, 1, C, 2 ) );
+		sr.add( 10, means( A, 3, C, 2 ) );
+		sr.add( 100, means( A, 3, C, 2 ) );
+		// a bends at 10, so both intervals score; the wider one scores higher
+		assertEquals( 55, sr.next(), 0 );
+	}
+
+	@Test
+	public void slopeChangeScore() {
+		SweepRefinement sr = sweep( 0, 100, false );
+		// linear over [0,80], then steep over [80,100]: the widest interval, [0,60], is straight
+		sr.add( 0, means( A, 0 ) );
+		sr.add( 60, means( A, 60 ) );
+		sr.add( 80, means( A, 80 ) );
+		sr.add( 100, means( A, 1000 ) );
+		double next = sr.next();
+		assertTrue( "" + next, 70 == next || 90 == next );
+	}
+
+	@Test
+	public void widestIntervalFallback() {
+		SweepRefinement sr = sweep( 0, 100, false );
+		// a flat curve scores nothing anywhere
+		sr.add( 0, means( A, 5 ) );
+		sr.add( 10, means( A, 5 ) );
+		sr.add( 100, means( A, 5 ) );
+		assertEquals( 55, sr.next(), 0 );
+
+		// as do skipped scenarios, with no means at all
+		sr = sweep( 0, 100, false );
+		sr.add( 0, means() );
+		sr.add( 90, means() );
+		sr.add( 100, means() );
+		assertEquals( 45, sr.next(), 0 );
+	}
+
+	@Test
+	public void integralBisection() {
+		SweepRefinement sr = sweep( 0, 3, true );
+		sr.add( 0, means( A, 1 ) );
+		sr.add( 3, means( A, 1 ) );
+		assertEquals( 1, sr.next(), 0 );
+		sr.add( 1, means( A, 1 ) );
+		assertEquals( 2, sr.next(), 0 );
+		sr.add( 2, means( A, 1 ) );
+		// adjacent integers cannot be bisected
+		assertTrue( Double.isNaN( sr.next() ) );
+
+		sr = sweep( 0, 3, false );
+		sr.add( 0, means( A, 1 ) );
+		sr.add( 3, means( A, 1 ) );
+		assertEquals( 1.5, sr.next(), 0 );
+	}
+
+	@Test
+	public void resolution() {
+		SweepRefinement sr = new SweepRefinement( 0, 10, 5, 8, false, MICRO );
+		sr.add( 0, means( A, 1 ) );
+		sr.add( 10, means( A, 1 ) );
+		assertEquals( 5, sr.next(), 0 );
+		sr.add( 5, means( A, 1 ) );
+		assertTrue( Double.isNaN( sr.next() ) );
+	}
+
+	@Test
+	public void budgetExhaustion() {
+		SweepRefinement sr = new SweepRefinement( 0, 1000, 1, 3, false, MICRO );
+		int n = 0;
+		for( double x = sr.next(); ! Double.isNaN( x ); x = sr.next() ) {
+			sr.add( x, means( A, x * x ) );
+			n++;
+		}
+		// both endpoints, which do not count against the budget, and three more values
+		assertEquals( 2 + 3, n );
+		assertEquals( 5, sr.values().size() );
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidRange() {
+		sweep( 10, 0, false );
+	}
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.runner;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+import org.junit.*;
+import org.sliderule.*;
+import org.sliderule.api.*;
+import org.sliderule.model.*;
+
+public class TrialIndexTest {
+
+	public static class BenchA {
+		@Param({ "1", "2", "3" }) int size;
+		@Param({ "a", "b" }) String name;
+		@Benchmark
+		public void timeFoo( int reps ) {
+		}
+		@Benchmark
+		public void timeBar( int reps ) {
+		}
+		@Macrobenchmark
+		public void foo() {
+		}
+	}
+
+	public static class BenchB {
+		@Param({ "1", "2", "3" }) int size;
+		@Benchmark
+		public void timeFoo( int reps ) {
+		}
+	}
+
+	private static final String[] NAMES = { "a", "b" };
+
+	/**
+	 * A predicate over the prototype of a set of trials, applied both through the index and by
+	 * scanning every set of trials.
+	 */
+	private interface Predicate {
+		TrialIndex.Query apply( TrialIndex.Query q );
+		boolean test( Trial prototype );
+	}
+
+	private TreeMap<UUID,ArrayList<Trial>> trial_set;
+	private TrialIndex index;
+	private List<Method> methods;
+	private List<Field> params;
+
+	private static PolymorphicType value( Field f, Random rng ) {
+		return int.class == f.getType() ? new PolymorphicType( int.class, 1 + rng.nextInt( 3 ) ) : new PolymorphicType( String.class, NAMES[ rng.nextInt( NAMES.length ) ] );
+	}
+
+	@Before
+	public void setup() {
+		Random rng = new Random( 42 );
+		trial_set = new TreeMap<UUID,ArrayList<Trial>>();
+		methods = new ArrayList<Method>();
+		params = new ArrayList<Field>();
+		for( Class<?> klass: new Class<?>[] { BenchA.class, BenchB.class } ) {
+			SlideRuleAnnotations ann = new SlideRuleAnnotations( klass );
+			ArrayList<Method> ms = new ArrayList<Method>( ann.getBenchmarkMethods() );
+			ms.addAll( ann.getMacrobenchmarkMethods() );
+			Field[] param = ann.getParamFields().toArray( new Field[ 0 ] );
+			methods.addAll( ms );
+			params.addAll( Arrays.asList( param ) );
+			for( int i = 0; i < 100; i++ ) {
+				PolymorphicType[] param_value = new PolymorphicType[ param.length ];
+				for( int j = 0; j < param.length; j++ ) {
+					param_value[ j ] = value( param[ j ], rng );
+				}
+				UUID id = UUID.randomUUID();
+				ArrayList<Trial> alt = new ArrayList<Trial>();
+				for( int k = 0, n = 1 + rng.nextInt( 3 ); k < n; k++ ) {
+					alt.add( new SimpleTrial( id, ann, ms.get( rng.nextInt( ms.size() ) ), param, param_value ) );
+				}
+				trial_set.put( id, alt );
+			}
+		}
+		// a set of trials that is not a SimpleTrial only matches the empty query
+		final UUID id = UUID.randomUUID();
+		ArrayList<Trial> alt = new ArrayList<Trial>();
+		alt.add( new Trial() {
+			@Override
+			public UUID id() {
+				return id;
+			}
+			@Override
+			public List<Measurement> measurements() {
+				return Collections.emptyList();
+			}
+		} );
+		trial_set.put( id, alt );
+		index = new TrialIndex( trial_set );
+	}
+
+	private static SimpleTrial simple( Trial prototype ) {
+		return prototype instanceof SimpleTrial ? (SimpleTrial) prototype : null;
+	}
+
+	private Predicate random( final Random rng ) {
+		switch( rng.nextInt( 7 ) ) {
+		case 0: {
+			final Class<?> klass = rng.nextBoolean() ? BenchA.class : BenchB.class;
+			return new Predicate() {
+				@Override
+				public TrialIndex.Query apply( TrialIndex.Query q ) {
+					return rng.nextBoolean() ? q.whereClass( klass ) : q.whereClassName( klass.getName() );
+				}
+				@Override
+				public boolean test( Trial prototype ) {
+					SimpleTrial st = simple( prototype );
+					return null != st && klass == st.getSlideRuleAnnotations().getAnnotatedClass();
+				}
+			};
+		}
+		case 1: {
+			final Method method = methods.get( rng.nextInt( methods.size() ) );
+			return new Predicate() {
+				@Override
+				public TrialIndex.Query apply( TrialIndex.Query q ) {
+					return q.whereMethod( method );
+				}
+				@Override
+				public boolean test( Trial prototype ) {
+					SimpleTrial st = simple( prototype );
+					return null != st && method.equals( st.getMethod() );
+				}
+			};
+		}
+		case 2: {
+			final String name = methods.get( rng.nextInt( methods.size() ) ).getName();
+			return new Predicate() {
+				@Override
+				public TrialIndex.Query apply( TrialIndex.Query q ) {
+					return q.whereMethodName( name );
+				}
+				@Override
+				public boolean test( Trial prototype ) {
+					SimpleTrial st = simple( prototype );
+					return null != st && name.equals( st.getMethod().getName() );
+				}
+			};
+		}
+		case 3: {
+			final boolean is_micro = rng.nextBoolean();
+			return new Predicate() {
+				@Override
+				public TrialIndex.Query apply( TrialIndex.Query q ) {
+					return q.whereMicro( is_micro );
+				}
+				@Override
+				public boolean test( Trial prototype ) {
+					SimpleTrial st = simple( prototype );
+					return null != st && is_micro == st.isMicro();
+				}
+			};
+		}
+		case 4: {
+			final Field field = params.get( rng.nextInt( params.size() ) );
+			final PolymorphicType value = value( field, rng );
+			return new Predicate() {
+				@Override
+				public TrialIndex.Query apply( TrialIndex.Query q ) {
+					return q.whereParam( field, value );
+				}
+				@Override
+				public boolean test( Trial prototype ) {
+					SimpleTrial st = simple( prototype );
+					if ( null == st ) {
+						return false;
+					}
+					for( int i = 0; i < st.getParam().length; i++ ) {
+						if ( field.equals( st.getParam()[ i ] ) && value.equals( st.getParamValue()[ i ] ) ) {
+							return true;
+						}
+					}
+					return false;
+				}
+			};
+		}
+		case 5: {
+			final Field field = params.get( rng.nextInt( params.size() ) );
+			final PolymorphicType value = value( field, rng );
+			return new Predicate() {
+				@Override
+				public TrialIndex.Query apply( TrialIndex.Query q ) {
+					return q.whereParamName( field.getName(), value );
+				}
+				@Override
+				public boolean test( Trial prototype ) {
+					SimpleTrial st = simple( prototype );
+					if ( null == st ) {
+						return false;
+					}
+					for( int i = 0; i < st.getParam().length; i++ ) {
+						if ( field.getName().equals( st.getParam()[ i ].getName() ) && value.equals( st.getParamValue()[ i ] ) ) {
+							return true;
+						}
+					}
+					return false;
+				}
+			};
+		}
+		default: {
+			final Method a = methods.get( rng.nextInt( methods.size() ) );
+			final Method b = methods.get( rng.nextInt( methods.size() ) );
+			return new Predicate() {
+				@Override
+				public TrialIndex.Query apply( TrialIndex.Query q ) {
+					return q.whereMethodIn( Arrays.asList( a, b ) );
+				}
+				@Override
+				public boolean test( Trial prototype ) {
+					SimpleTrial st = simple( prototype );
+					return null != st && ( a.equals( st.getMethod() ) || b.equals( st.getMethod() ) );
+				}
+			};
+		}
+		}
+	}
+
+	private TreeMap<UUID,ArrayList<Trial>> scan( List<Predicate> predicates ) {
+		TreeMap<UUID,ArrayList<Trial>> r = new TreeMap<UUID,ArrayList<Trial>>();
+		for( Map.Entry<UUID,ArrayList<Trial>> e: trial_set.entrySet() ) {
+			boolean match = true;
+			for( Predicate p: predicates ) {
+				match &= p.test( e.getValue().get( 0 ) );
+			}
+			if ( match ) {
+				r.put( e.getKey(), e.getValue() );
+			}
+		}
+		return r;
+	}
+
+	@Test
+	public void queriesMatchLinearScan() {
+		Random rng = new Random( 1 );
+		int nonempty = 0;
+		for( int i = 0; i < 1000; i++ ) {
+			ArrayList<Predicate> predicates = new ArrayList<Predicate>();
+			TrialIndex.Query q = index.query();
+			for( int j = 0, n = rng.nextInt( 4 ); j < n; j++ ) {
+				Predicate p = random( rng );
+				predicates.add( p );
+				q = p.apply( q );
+			}
+			TreeMap<UUID,ArrayList<Trial>> expected = scan( predicates );
+			assertEquals( expected, q.execute() );
+			assertEquals( expected.size(), q.count() );
+			assertEquals( expected.isEmpty(), q.isEmpty() );
+			if ( ! expected.isEmpty() ) {
+				nonempty++;
+			}
+		}
+		// make sure the comparison is not trivially between empty results
+		assertTrue( nonempty > 250 );
+	}
+
+	@Test
+	public void queriesMatchFilters() {
+		assertEquals( InMemoryResultProcessor.filterByClass( trial_set, BenchA.class ), index.query().whereClass( BenchA.class ).execute() );
+		assertEquals( InMemoryResultProcessor.filterByMicro( trial_set, true ), index.query().whereMicro( true ).execute() );
+		assertEquals( InMemoryResultProcessor.filterByMicro( trial_set, false ), index.query().whereMicro( false ).execute() );
+		assertEquals(
+			InMemoryResultProcessor.filterByParamStringValue( trial_set, Arrays.asList( "size", "name" ), Arrays.asList( "2", "b" ) ),
+			index.query().whereParamName( "size", new PolymorphicType( int.class, 2 ) ).whereParamName( "name", new PolymorphicType( String.class, "b" ) ).execute()
+		);
+	}
+
+	@Test
+	public void emptyQueryMatchesEverything() {
+		assertEquals( trial_set, index.query().execute() );
+		assertEquals( trial_set.size(), index.size() );
+	}
+
+	@Test
+	public void unknownKeysMatchNothing() {
+		assertTrue( index.query().whereClassName( "no.such.Class" ).isEmpty() );
+		assertTrue( index.query().whereParamName( "size", new PolymorphicType( int.class, 4 ) ).isEmpty() );
+		assertTrue( index.query().whereParamName( "no_such_param", new PolymorphicType( int.class, 1 ) ).isEmpty() );
+	}
+
+	@Test
+	public void addingAnIndexedSetHasNoEffect() {
+		Map.Entry<UUID,ArrayList<Trial>> e = trial_set.firstEntry();
+		index.add( e.getKey(), e.getValue() );
+		assertEquals( trial_set.size(), index.size() );
+		assertEquals( trial_set, index.query().execute() );
+	}
+
+	@Test
+	public void paramValuesAreSorted() {
+		for( Field f: params ) {
+			SortedSet<PolymorphicType> values = index.paramValues( f );
+			if ( int.class == f.getType() ) {
+				assertEquals( 3, values.size() );
+				assertEquals( 1, values.first().value );
+				assertEquals( 3, values.last().value );
+			} else {
+				assertEquals( 2, values.size() );
+				assertEquals( "a", values.first().value );
+			}
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.stats;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+public class ComplexityTest {
+
+	static final double[] N = { 1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024 };
+	static final double[] SMALL_N = { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12 };
+
+	// y = 100 + 3 g( n ), with +/- 2% multiplicative noise
+	static double[] synth( Complexity.Model m, double[] n, long seed ) {
+		Random r = new Random( seed );
+		double[] y = new double[ n.length ];
+		for( int i = 0; i < n.length; i++ ) {
+			y[ i ] = ( 100 + 3 * m.g( n[ i ] ) ) * ( 1 + 0.04 * ( r.nextDouble() - 0.5 ) );
+		}
+		return y;
+	}
+
+	static void check( Complexity.Model m, double[] n ) {
+		for( long seed = 0; seed < 10; seed++ ) {
+			Complexity.Fit f = Complexity.fit( n, synth( m, n, seed ) );
+			assertNotNull( f );
+			assertEquals( "seed " + seed + ": " + f, m, f.model );
+		}
+	}
+
+	@Test
+	public void constant() {
+		check( Complexity.Model.CONSTANT, N );
+	}
+
+	@Test
+	public void logarithmic() {
+		check( Complexity.Model.LOGARITHMIC, N );
+	}
+
+	@Test
+	public void linear() {
+		check( Complexity.Model.LINEAR, N );
+	}
+
+	@Test
+	public void linearithmic() {
+		check( Complexity.Model.LINEARITHMIC, N );
+	}
+
+	@Test
+	public void quadratic() {
+		check( Complexity.Model.QUADRATIC, N );
+	}
+
+	@Test
+	public void cubic() {
+		check( Complexity.Model.CUBIC, N );
+	}
+
+	@Test
+	public void exponential() {
+		check( Complexity.Model.EXPONENTIAL, SMALL_N );
+	}
+
+	@Test
+	public void exactCoefficients() {
+		double[] y = new double[ N.length ];
+		for( int i = 0; i < N.length; i++ ) {
+			y[ i ] = 5 + 2 * N[ i ];
+		}
+		Complexity.Fit f = Complexity.fit( N, y );
+		assertEquals( Complexity.Model.LINEAR, f.model );
+		assertEquals( 5, f.a, 1e-9 );
+		assertEquals( 2, f.b, 1e-9 );
+		assertEquals( 1, f.r2, 1e-12 );
+		assertEquals( 2053, f.predict( 1024 ), 1e-9 );
+	}
+
+	@Test
+	public void decreasingIsNotGrowth() {
+		double[] y = new double[ N.length ];
+		for( int i = 0; i < N.length; i++ ) {
+			y[ i ] = 1000 - N[ i ] / 2;
+		}
+		assertNull( Complexity.fit( Complexity.Model.LINEAR, N, y ) );
+		assertNotNull( Complexity.fit( Complexity.Model.CONSTANT, N, y ) );
+	}
+
+	@Test
+	public void tooFewPoints() {
+		assertNull( Complexity.fit( new double[] { 1, 2 }, new double[] { 1, 2 } ) );
+	}
+
+	@Test
+	public void logUndefinedAtZero() {
+		assertNull( Complexity.fit( Complexity.Model.LOGARITHMIC, new double[] { 0, 1, 2 }, new double[] { 1, 2, 3 } ) );
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.stats;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+public class LatencyHistogramTest {
+
+	static final double PRECISION = 1.0 / 32;
+
+	@Test
+	public void bucketsAreContiguous() {
+		assertEquals( 0, LatencyHistogram.lowerBound( 0 ) );
+		for( int i = 0; i < LatencyHistogram.N_BUCKETS - 1; i++ ) {
+			assertEquals( i, LatencyHistogram.index( LatencyHistogram.lowerBound( i ) ) );
+			assertEquals( i, LatencyHistogram.index( LatencyHistogram.upperBound( i ) ) );
+			assertEquals( LatencyHistogram.upperBound( i ) + 1, LatencyHistogram.lowerBound( i + 1 ) );
+		}
+		assertEquals( LatencyHistogram.N_BUCKETS - 1, LatencyHistogram.index( Long.MAX_VALUE ) );
+	}
+
+	@Test
+	public void smallValuesAreExact() {
+		LatencyHistogram h = new LatencyHistogram();
+		for( int i = 1; i <= 10; i++ ) {
+			h.record( i );
+		}
+		assertEquals( 5, h.quantile( 0.5 ) );
+		assertEquals( 9, h.quantile( 0.9 ) );
+		assertEquals( 1, h.quantile( 0 ) );
+		assertEquals( 10, h.quantile( 1 ) );
+		assertEquals( 5.5, h.mean(), 0 );
+	}
+
+	@Test
+	public void percentilesWithinPrecision() {
+		Random r = new Random( 0 );
+		LatencyHistogram h = new LatencyHistogram();
+		long[] v = new long[ 100000 ];
+		for( int i = 0; i < v.length; i++ ) {
+			// log-normal, like most latencies
+			v[ i ] = (long) Math.exp( 10 + r.nextGaussian() );
+			h.record( v[ i ] );
+		}
+		Arrays.sort( v );
+		for( double q: new double[] { 0.5, 0.9, 0.99, 0.999 } ) {
+			long exact = v[ (int) Math.ceil( q * v.length ) - 1 ];
+			assertEquals( "q " + q, exact, h.quantile( q ), exact * PRECISION );
+		}
+		assertEquals( v[ v.length - 1 ], h.max() );
+		assertEquals( v[ 0 ], h.min() );
+	}
+
+	@Test
+	public void mergeAndBuckets() {
+		LatencyHistogram a = new LatencyHistogram();
+		LatencyHistogram b = new LatencyHistogram();
+		for( int i = 0; i < 1000; i++ ) {
+			a.record( 1000 + i );
+			b.record( 100000 + i );
+		}
+		LatencyHistogram c = new LatencyHistogram();
+		c.add( a );
+		c.add( b );
+		assertEquals( 2000, c.count() );
+		assertTrue( c.quantile( 0.25 ) < 2000 );
+		assertTrue( c.quantile( 0.75 ) > 99000 );
+
+		LatencyHistogram d = new LatencyHistogram();
+		d.add( a.buckets() );
+		d.add( b.buckets() );
+		assertEquals( c.count(), d.count() );
+		for( double q: new double[] { 0.1, 0.5, 0.9 } ) {
+			assertEquals( c.quantile( q ), d.quantile( q ), c.quantile( q ) * PRECISION );
+		}
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void negative() {
+		new LatencyHistogram().record( -1 );
+	}
+}
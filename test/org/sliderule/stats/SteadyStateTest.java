@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2015 Christopher Friedt <chrisfriedt@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sliderule.stats;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+public class SteadyStateTest {
+
+	static final int WINDOW = 20;
+	static final double P = 0.95;
+
+	@Test
+	public void flatIsSteadyAfterOneWindow() {
+		Random r = new Random( 0 );
+		SteadyState ss = new SteadyState( WINDOW, P );
+		for( int i = 0; i < WINDOW - 1; i++ ) {
+			assertFalse( ss.update( 100 + r.nextGaussian() ) );
+		}
+		assertTrue( ss.update( 100 + r.nextGaussian() ) );
+		assertEquals( 0, ss.warmup() );
+	}
+
+	@Test
+	public void steadyAfterDecay() {
+		final int decay = 60;
+		for( long seed = 0; seed < 10; seed++ ) {
+			Random r = new Random( seed );
+			SteadyState ss = new SteadyState( WINDOW, P );
+			for( int i = 0; i < 200 && ! ss.isSteady(); i++ ) {
+				// e.g. interpreted, then compiled: 10x slower decaying to 1x, with 2% noise
+				double d = 100 * ( 1 + 9 * Math.exp( -i / 10.0 ) ) * ( 1 + 0.02 * r.nextGaussian() );
+				ss.update( d );
+			}
+			assertTrue( "seed " + seed, ss.isSteady() );
+			assertTrue( "seed " + seed + ": warmup " + ss.warmup(), ss.warmup() >= decay - WINDOW );
+			assertEquals( ss.size(), ss.curve().length );
+		}
+	}
+
+	@Test
+	public void mannKendallSign() {
+		double[] x = new double[ 10 ];
+		for( int i = 0; i < x.length; i++ ) {
+			x[ i ] = i;
+		}
+		assertTrue( SteadyState.mannKendall( x, 0, x.length ) > 0 );
+		for( int i = 0; i < x.length; i++ ) {
+			x[ i ] = -i;
+		}
+		assertTrue( SteadyState.mannKendall( x, 0, x.length ) < 0 );
+		Arrays.fill( x, 1 );
+		assertEquals( 0, SteadyState.mannKendall( x, 0, x.length ), 0 );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void windowTooSmall() {
+		new SteadyState( 3, P );
+	}
+}